@@ -0,0 +1,40 @@
+package io.github.etuzon.http.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/************************************************************
+ * Run the benchmarks with GC profiler, so allocation rate per operation is
+ * reported next to throughput and latency.
+ * 
+ * Arguments are JMH command line arguments, for example
+ * 'java -jar target/benchmarks.jar LoopbackBenchmark -f 1'.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class BenchmarksMain {
+
+	/************************************************************
+	 * Run the benchmarks.
+	 * 
+	 * @param args JMH command line arguments.
+	 * @throws RunnerException            in case benchmark failed.
+	 * @throws CommandLineOptionException in case arguments are invalid.
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		ChainedOptionsBuilder optionsBuilder = new OptionsBuilder().parent(commandLineOptions);
+
+		if (commandLineOptions.getProfilers().isEmpty()) {
+			optionsBuilder.addProfiler(GCProfiler.class);
+		}
+
+		new Runner(optionsBuilder.build()).run();
+	}
+}
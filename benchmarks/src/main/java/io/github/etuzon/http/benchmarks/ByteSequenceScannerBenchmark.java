@@ -0,0 +1,81 @@
+package io.github.etuzon.http.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.etuzon.http.buffer.ByteSequenceScanner;
+import io.github.etuzon.http.client.HttpAsyncClient;
+
+/************************************************************
+ * Benchmark of finding headers separator in received chunk, compared with
+ * decoding the chunk to String and searching the String, as the consumer did
+ * before ByteSequenceScanner.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteSequenceScannerBenchmark {
+	private static final String SEPARATOR = HttpAsyncClient.SEPARATOR_BETWEEN_HEADERS_TO_BODY;
+
+	@Param({ "1024", "16384" })
+	public int chunkSize;
+
+	private ByteBuffer chunk;
+	private ByteSequenceScanner separatorScanner;
+
+	/************************************************************
+	 * Create chunk that contains the separator at its end.
+	 *
+	 */
+	@Setup
+	public void setup() {
+		byte[] chunkBytes = new byte[chunkSize];
+		Arrays.fill(chunkBytes, (byte) 'a');
+		byte[] separatorBytes = SEPARATOR.getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(separatorBytes, 0, chunkBytes, chunkSize - separatorBytes.length, separatorBytes.length);
+
+		chunk = ByteBuffer.wrap(chunkBytes);
+		separatorScanner = new ByteSequenceScanner(separatorBytes);
+	}
+
+	/************************************************************
+	 * Find separator by ByteSequenceScanner.
+	 * 
+	 * @return index after the separator.
+	 */
+	@Benchmark
+	public int scanBytes() {
+		separatorScanner.reset();
+		return separatorScanner.scan(chunk);
+	}
+
+	/************************************************************
+	 * Find separator by decoding the chunk to String.
+	 * 
+	 * @return index of the separator.
+	 */
+	@Benchmark
+	public int decodeAndIndexOf() {
+		return StandardCharsets.UTF_8.decode(chunk.duplicate()).toString().indexOf(SEPARATOR);
+	}
+}
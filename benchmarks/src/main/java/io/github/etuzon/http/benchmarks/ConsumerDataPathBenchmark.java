@@ -0,0 +1,157 @@
+package io.github.etuzon.http.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.etuzon.http.buffer.ByteChunkPool;
+import io.github.etuzon.http.buffer.ByteSequenceScanner;
+import io.github.etuzon.http.buffer.ResponseBodyBuffer;
+import io.github.etuzon.http.client.HttpAsyncClient;
+import io.github.etuzon.http.config.ResponseBufferConfig;
+import io.github.etuzon.http.metrics.StreamMetrics;
+import io.github.etuzon.http.metrics.StreamMetricsConfig;
+import io.github.etuzon.http.stream.ResponseChunkPublisher;
+import io.github.etuzon.http.stream.ResponseChunkSubscriber;
+import io.github.etuzon.http.stream.ResponseChunkSubscription;
+
+/************************************************************
+ * Benchmark of the data path of HttpAsyncClient response consumer, per
+ * response of received chunks.
+ * 
+ * Buffer path is the path of AFTER_HEADERS_SEPARATOR mode: find headers
+ * separator, write the body to the response buffer and drain it as String.
+ * Subscriber path is the path of response chunk subscriber with unbounded
+ * demand. Both paths record streaming metrics as the consumer does.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConsumerDataPathBenchmark {
+	private static final byte[] SEPARATOR_BYTES = HttpAsyncClient.SEPARATOR_BETWEEN_HEADERS_TO_BODY
+			.getBytes(StandardCharsets.US_ASCII);
+
+	@Param({ "1024", "16384" })
+	public int chunkSize;
+
+	@Param({ "64" })
+	public int chunksAmount;
+
+	private ByteBuffer[] chunks;
+	private ByteSequenceScanner separatorScanner;
+	private ResponseBodyBuffer responseBodyBuffer;
+	private StreamMetrics streamMetrics;
+
+	/************************************************************
+	 * Create received chunks. First chunk contains headers separator.
+	 *
+	 */
+	@Setup
+	public void setup() {
+		chunks = new ByteBuffer[chunksAmount];
+
+		for (int index = 0; index < chunksAmount; index++) {
+			byte[] chunk = new byte[chunkSize];
+			Arrays.fill(chunk, (byte) 'a');
+			chunks[index] = ByteBuffer.wrap(chunk);
+		}
+
+		System.arraycopy(SEPARATOR_BYTES, 0, chunks[0].array(), chunkSize / 2, SEPARATOR_BYTES.length);
+
+		separatorScanner = new ByteSequenceScanner(SEPARATOR_BYTES);
+		responseBodyBuffer = new ResponseBodyBuffer(new ResponseBufferConfig(), ByteChunkPool.getDefault());
+		streamMetrics = new StreamMetrics(new StreamMetricsConfig());
+	}
+
+	/************************************************************
+	 * Consume response into the response buffer and drain it as String.
+	 * 
+	 * @return response body.
+	 * @throws IOException in case response buffer failed.
+	 */
+	@Benchmark
+	public String bufferPath() throws IOException {
+		separatorScanner.reset();
+
+		for (ByteBuffer chunk : chunks) {
+			ByteBuffer data = chunk.duplicate();
+			streamMetrics.onChunkReceived(data.remaining());
+
+			if (separatorScanner.isFound() == false) {
+				int bodyStartIndex = separatorScanner.scan(data);
+
+				if (bodyStartIndex == -1) {
+					continue;
+				}
+
+				data.position(bodyStartIndex);
+			}
+
+			responseBodyBuffer.write(data);
+		}
+
+		return responseBodyBuffer.decodeAndClear(StandardCharsets.UTF_8);
+	}
+
+	/************************************************************
+	 * Consume response by subscriber with unbounded demand.
+	 * 
+	 * @param blackhole Consumes the chunks.
+	 * @throws IOException in case publisher failed.
+	 */
+	@Benchmark
+	public void subscriberPath(final Blackhole blackhole) throws IOException {
+		ResponseChunkPublisher publisher = new ResponseChunkPublisher(new ResponseChunkSubscriber() {
+			@Override
+			public void onSubscribe(ResponseChunkSubscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+
+			@Override
+			public void onNext(ByteBuffer chunk) {
+				blackhole.consume(chunk.get(chunk.position()));
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				blackhole.consume(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+			}
+		}, () -> {
+		});
+
+		publisher.subscribe();
+
+		for (ByteBuffer chunk : chunks) {
+			ByteBuffer data = chunk.duplicate();
+			streamMetrics.onChunkReceived(data.remaining());
+			publisher.publish(data);
+		}
+
+		publisher.complete();
+	}
+}
@@ -0,0 +1,69 @@
+package io.github.etuzon.http.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.etuzon.http.objects.HttpResponse;
+
+/************************************************************
+ * Benchmark of reading response body as String and as ByteBuffer.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpResponseBenchmark {
+	@Param({ "1024", "65536", "1048576" })
+	public int bodySize;
+
+	private byte[] bodyBytes;
+
+	/************************************************************
+	 * Create response body.
+	 *
+	 */
+	@Setup
+	public void setup() {
+		bodyBytes = new byte[bodySize];
+		Arrays.fill(bodyBytes, (byte) 'a');
+	}
+
+	/************************************************************
+	 * Read response body as String.
+	 * 
+	 * @return response body.
+	 */
+	@Benchmark
+	public String responseBody() {
+		return new HttpResponse(200, bodyBytes, StandardCharsets.UTF_8).getResponseBody();
+	}
+
+	/************************************************************
+	 * Read response body as ByteBuffer.
+	 * 
+	 * @return response body.
+	 */
+	@Benchmark
+	public ByteBuffer byteBuffer() {
+		return new HttpResponse(200, bodyBytes, StandardCharsets.UTF_8).getByteBuffer();
+	}
+}
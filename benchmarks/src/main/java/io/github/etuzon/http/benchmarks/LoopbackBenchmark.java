@@ -0,0 +1,176 @@
+package io.github.etuzon.http.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.config.ConnectionPoolConfig;
+import io.github.etuzon.http.exceptions.HttpException;
+import io.github.etuzon.http.exceptions.InvalidHttpRequestException;
+import io.github.etuzon.http.objects.HttpObject;
+
+/************************************************************
+ * End to end benchmark of blocking and async GET and POST requests against
+ * in-process loopback server.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoopbackBenchmark {
+	private static final int SERVER_THREADS_AMOUNT = 8;
+	private static final int MAX_CONNECTIONS = 64;
+	private static final long RESPONSE_TIMEOUT_SECONDS = 10;
+	private static final String POST_ENTITY = "{\"name\":\"user\",\"id\":17}";
+
+	@Param({ "128", "65536" })
+	public int responseSize;
+
+	private HttpServer server;
+	private HttpClient httpClient;
+	private byte[] responseBytes;
+
+	/************************************************************
+	 * Start loopback server and HTTP client.
+	 * 
+	 * @throws Exception in case failed to start server or client.
+	 */
+	@Setup
+	public void setup() throws Exception {
+		responseBytes = new byte[responseSize];
+		Arrays.fill(responseBytes, (byte) 'a');
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), MAX_CONNECTIONS);
+		server.createContext("/get", this::sendResponse);
+		server.createContext("/post", this::echoRequest);
+		server.setExecutor(Executors.newFixedThreadPool(SERVER_THREADS_AMOUNT));
+		server.start();
+
+		ConnectionPoolConfig connectionPoolConfig = new ConnectionPoolConfig().setMaxTotal(MAX_CONNECTIONS)
+				.setMaxPerRoute(MAX_CONNECTIONS);
+		httpClient = new HttpClient("http://127.0.0.1", server.getAddress().getPort(), connectionPoolConfig);
+	}
+
+	/************************************************************
+	 * Stop HTTP client and loopback server.
+	 *
+	 */
+	@TearDown
+	public void tearDown() {
+		httpClient.close();
+		server.stop(0);
+	}
+
+	/************************************************************
+	 * Send blocking GET request and read the body.
+	 * 
+	 * @return response body.
+	 * @throws InvalidHttpRequestException in case request is invalid.
+	 * @throws HttpException in case request failed.
+	 */
+	@Benchmark
+	public ByteBuffer syncGet() throws InvalidHttpRequestException, HttpException {
+		HttpObject httpObject = httpClient.sendGet("get", null, HttpClient.NOT_RELEASE_CONNECTION);
+		return httpObject.getResponse().getByteBuffer();
+	}
+
+	/************************************************************
+	 * Send blocking POST request and read the body.
+	 * 
+	 * @return response body.
+	 * @throws InvalidHttpRequestException in case request is invalid.
+	 * @throws HttpException in case request failed.
+	 */
+	@Benchmark
+	public ByteBuffer syncPost() throws InvalidHttpRequestException, HttpException {
+		HttpObject httpObject = httpClient.sendPost("post", null, POST_ENTITY, HttpClient.NOT_RELEASE_CONNECTION);
+		return httpObject.getResponse().getByteBuffer();
+	}
+
+	/************************************************************
+	 * Send async GET request and wait for the whole response.
+	 * 
+	 * @return response body.
+	 * @throws Exception in case request failed.
+	 */
+	@Benchmark
+	public ByteBuffer asyncGet() throws Exception {
+		HttpObject httpObject = httpClient.sendGetAsync("get").get(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		return httpObject.getResponse().getByteBuffer();
+	}
+
+	/************************************************************
+	 * Send async POST request and wait for the whole response.
+	 * 
+	 * @return response body.
+	 * @throws Exception in case request failed.
+	 */
+	@Benchmark
+	public ByteBuffer asyncPost() throws Exception {
+		HttpObject httpObject = httpClient.sendPostAsync("post", POST_ENTITY).get(RESPONSE_TIMEOUT_SECONDS,
+				TimeUnit.SECONDS);
+		return httpObject.getResponse().getByteBuffer();
+	}
+
+	private void sendResponse(HttpExchange exchange) throws IOException {
+		drainRequestBody(exchange);
+		exchange.sendResponseHeaders(200, responseBytes.length);
+
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(responseBytes);
+		}
+	}
+
+	private void echoRequest(HttpExchange exchange) throws IOException {
+		byte[] requestBytes = drainRequestBody(exchange);
+		exchange.sendResponseHeaders(200, requestBytes.length);
+
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(requestBytes);
+		}
+	}
+
+	private static byte[] drainRequestBody(HttpExchange exchange) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int length;
+
+		try (InputStream input = exchange.getRequestBody()) {
+			while ((length = input.read(buffer)) != -1) {
+				output.write(buffer, 0, length);
+			}
+		}
+
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,82 @@
+package io.github.etuzon.http.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.etuzon.http.metrics.LatencyHistogram;
+import io.github.etuzon.http.metrics.ThroughputMeter;
+
+/************************************************************
+ * Benchmark of recording throughput and latency by one thread and by
+ * contending threads.
+ * 
+ * ThroughputMeter replaced CharsPerSecondCounter, so these benchmarks are the
+ * baseline of the per chunk counting cost.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+	private static final int CONTENDING_THREADS_AMOUNT = 4;
+	private static final long AMOUNT = 1024;
+
+	private final ThroughputMeter throughputMeter = new ThroughputMeter();
+	private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+	/************************************************************
+	 * Add amount to throughput meter by one thread.
+	 *
+	 */
+	@Benchmark
+	@Threads(1)
+	public void throughputMeterAdd() {
+		throughputMeter.add(AMOUNT);
+	}
+
+	/************************************************************
+	 * Add amount to throughput meter by contending threads.
+	 *
+	 */
+	@Benchmark
+	@Threads(CONTENDING_THREADS_AMOUNT)
+	public void throughputMeterAddContended() {
+		throughputMeter.add(AMOUNT);
+	}
+
+	/************************************************************
+	 * Read bytes per second of the last 5 seconds.
+	 * 
+	 * @return amount per second.
+	 */
+	@Benchmark
+	@Threads(1)
+	public long throughputMeterRead() {
+		return throughputMeter.getAmountPerSecond(5);
+	}
+
+	/************************************************************
+	 * Record latency by contending threads.
+	 *
+	 */
+	@Benchmark
+	@Threads(CONTENDING_THREADS_AMOUNT)
+	public void latencyHistogramRecordContended() {
+		latencyHistogram.record(System.nanoTime() & 0xFFFFFFL);
+	}
+}
@@ -0,0 +1,113 @@
+package io.github.etuzon.http.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.http.exceptions.InvalidHttpRequestException;
+import io.github.etuzon.http.factory.RequestBuilder;
+import io.github.etuzon.http.factory.RequestTemplate;
+
+/************************************************************
+ * Benchmark of building request from the client request builder, as every
+ * send method does.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestBuilderBenchmark {
+	private static final int HEADERS_AMOUNT = 8;
+
+	private RequestBuilder clientRequestBuilder;
+	private RequestBuilder frozenRequestBuilder;
+	private List<BasicHeader> headerList;
+	private RequestTemplate requestTemplate;
+
+	/************************************************************
+	 * Create client request builder with credentials, and client request
+	 * builder that its headers are frozen.
+	 * 
+	 * @throws InvalidHttpRequestException in case request is invalid.
+	 */
+	@Setup
+	public void setup() throws InvalidHttpRequestException {
+		clientRequestBuilder = new RequestBuilder("http://127.0.0.1", 8080).setCredentials("user", "password");
+		headerList = new ArrayList<BasicHeader>();
+
+		for (int index = 0; index < HEADERS_AMOUNT; index++) {
+			headerList.add(new BasicHeader("X-Header-" + index, "value" + index));
+		}
+
+		requestTemplate = clientRequestBuilder.getRequestTemplate().withHeaders(headerList);
+		frozenRequestBuilder = new RequestBuilder(clientRequestBuilder).addHeaders(headerList);
+		frozenRequestBuilder.toRequestTemplate();
+	}
+
+	/************************************************************
+	 * Build GET request.
+	 * 
+	 * @return request.
+	 * @throws InvalidHttpRequestException in case request is invalid.
+	 */
+	@Benchmark
+	public HttpUriRequestBase buildGet() throws InvalidHttpRequestException {
+		return new RequestBuilder(clientRequestBuilder).setRequestType(RequestTypeEnum.GET)
+				.setSuffixUrl("users/17").setHeaders(headerList).build();
+	}
+
+	/************************************************************
+	 * Build GET request from client request builder that its headers are
+	 * frozen, as HttpClient does.
+	 * 
+	 * @return request.
+	 * @throws InvalidHttpRequestException in case request is invalid.
+	 */
+	@Benchmark
+	public HttpUriRequestBase buildGetFrozenHeaders() throws InvalidHttpRequestException {
+		return new RequestBuilder(frozenRequestBuilder).setRequestType(RequestTypeEnum.GET)
+				.setSuffixUrl("users/17").build();
+	}
+
+	/************************************************************
+	 * Build POST request with entity.
+	 * 
+	 * @return request.
+	 * @throws InvalidHttpRequestException in case request is invalid.
+	 */
+	@Benchmark
+	public HttpUriRequestBase buildPost() throws InvalidHttpRequestException {
+		return new RequestBuilder(clientRequestBuilder).setRequestType(RequestTypeEnum.POST)
+				.setSuffixUrl("users").setHeaders(headerList).setEntity("{\"name\":\"user\"}").build();
+	}
+
+	/************************************************************
+	 * Build GET request from template that contains the headers.
+	 * 
+	 * @return request.
+	 * @throws InvalidHttpRequestException in case request is invalid.
+	 */
+	@Benchmark
+	public HttpUriRequestBase templateGet() throws InvalidHttpRequestException {
+		return requestTemplate.build(RequestTypeEnum.GET, "users/17");
+	}
+}
@@ -0,0 +1,258 @@
+package io.github.etuzon.http.benchmarks.load;
+
+import java.io.FileNotFoundException;
+import java.util.SplittableRandom;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.http.exceptions.HttpException;
+import io.github.etuzon.http.exceptions.InvalidHttpRequestException;
+import io.github.etuzon.http.metrics.LatencyHistogram;
+import io.github.etuzon.http.objects.HttpObject;
+
+/************************************************************
+ * Open loop load generator.
+ * 
+ * Request N is due at start time + N / rate, and is sent at its due time
+ * regardless of how many earlier requests are still in flight. Latency is
+ * measured from the due (intended) send time, so stall of the client or the
+ * server is counted for every request that should have been sent during the
+ * stall, and not only for the one request that was stuck (coordinated
+ * omission). Latency from the actual send time is also recorded, so the
+ * difference can be reported.
+ * 
+ * Request that failed or got status code 400 and above is counted as error,
+ * and its latency is not recorded. Sending never waits for responses, so
+ * request that is due while max outstanding requests are in flight is queued
+ * and sent when earlier request completes, and its latency is still measured
+ * from its due time, so requests that were delayed by the stall are not
+ * excluded from the percentiles.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LoadGenerator {
+	public static final long DRAIN_TIMEOUT_SECONDS = 60;
+	public static final int ERROR_STATUS_CODE = 400;
+
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final HttpClient httpClient;
+	private final LoadGeneratorConfig config;
+	private final LatencyHistogram correctedHistogram = new LatencyHistogram();
+	private final LatencyHistogram uncorrectedHistogram = new LatencyHistogram();
+	private final AtomicLong errorsAmount = new AtomicLong();
+	private final AtomicLong delayedAmount = new AtomicLong();
+	private final Semaphore outstandingPermits;
+	private final Queue<PendingRequest> pendingQueue = new ConcurrentLinkedQueue<PendingRequest>();
+
+	private volatile long measureStartNanoTime;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param httpClient HTTP client that sends the requests.
+	 * @param config     Load generator configuration.
+	 */
+	public LoadGenerator(HttpClient httpClient, LoadGeneratorConfig config) {
+		this.httpClient = httpClient;
+		this.config = config;
+		outstandingPermits = new Semaphore(config.getMaxOutstanding());
+	}
+
+	/************************************************************
+	 * Send requests at the target rate for warmup and duration, and report
+	 * the latency.
+	 * 
+	 * @param reporter Reporter of interval and summary latency.
+	 * @throws InterruptedException  in case thread was interrupted.
+	 * @throws FileNotFoundException in case failed to write latency log.
+	 */
+	public void run(LoadReporter reporter) throws InterruptedException, FileNotFoundException {
+		long rate = config.getRequestsPerSecond();
+		long intervalNanos = TimeUnit.SECONDS.toNanos(config.getReportIntervalSeconds());
+		SplittableRandom random = new SplittableRandom(config.getSeed());
+
+		long startNanoTime = System.nanoTime();
+		measureStartNanoTime = startNanoTime + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+		long endNanoTime = measureStartNanoTime + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+		long nextReportNanoTime = measureStartNanoTime + intervalNanos;
+		long reportedErrorsAmount = 0;
+
+		for (long index = 0;; index++) {
+			long intendedNanoTime = startNanoTime + (index * NANOS_PER_SECOND / rate);
+
+			if (intendedNanoTime >= endNanoTime) {
+				break;
+			}
+
+			for (long nanoTime = System.nanoTime();; nanoTime = System.nanoTime()) {
+				if (nanoTime >= nextReportNanoTime) {
+					reportedErrorsAmount = reportInterval(reporter, nextReportNanoTime - intervalNanos,
+							intervalNanos, reportedErrorsAmount);
+					nextReportNanoTime += intervalNanos;
+				} else if (nanoTime >= intendedNanoTime) {
+					break;
+				} else {
+					LockSupport.parkNanos(Math.min(intendedNanoTime, nextReportNanoTime) - nanoTime);
+				}
+			}
+
+			PendingRequest pending = new PendingRequest(config.getRequestMix().next(random), intendedNanoTime);
+			pendingQueue.add(pending);
+			sendPending();
+
+			if ((pending.isSent == false) && (intendedNanoTime >= measureStartNanoTime)) {
+				delayedAmount.incrementAndGet();
+			}
+		}
+
+		int maxOutstanding = config.getMaxOutstanding();
+		long drainEndNanoTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SECONDS);
+
+		while (true) {
+			if (outstandingPermits.tryAcquire(maxOutstanding, drainEndNanoTime - System.nanoTime(),
+					TimeUnit.NANOSECONDS) == false) {
+				System.err.println("[" + (maxOutstanding - outstandingPermits.availablePermits() + pendingQueue.size())
+						+ "] requests did not complete after [" + DRAIN_TIMEOUT_SECONDS + "] seconds");
+				break;
+			}
+
+			outstandingPermits.release(maxOutstanding);
+
+			if (pendingQueue.isEmpty()) {
+				break;
+			}
+
+			sendPending();
+		}
+
+		long lastIntervalNanos = System.nanoTime() - (nextReportNanoTime - intervalNanos);
+		reportInterval(reporter, nextReportNanoTime - intervalNanos, lastIntervalNanos, reportedErrorsAmount);
+
+		if (delayedAmount.get() > 0) {
+			System.err.println("[" + delayedAmount.get() + "] requests were sent after their due time, since ["
+					+ maxOutstanding + "] requests were in flight");
+		}
+
+		reporter.reportSummary(correctedHistogram.getSnapshot(), uncorrectedHistogram.getSnapshot(),
+				errorsAmount.get(), (double) (endNanoTime - measureStartNanoTime) / NANOS_PER_SECOND, rate);
+	}
+
+	public long getErrorsAmount() {
+		return errorsAmount.get();
+	}
+
+	/************************************************************
+	 * Get amount of measured requests that were queued because max
+	 * outstanding requests were in flight, and were sent after their due time.
+	 * Their latency is measured from their due time.
+	 * 
+	 * @return amount of requests that were sent after their due time.
+	 */
+	public long getDelayedAmount() {
+		return delayedAmount.get();
+	}
+
+	private long reportInterval(LoadReporter reporter, long intervalStartNanoTime, long intervalNanos,
+			long reportedErrorsAmount) {
+		long currentErrorsAmount = errorsAmount.get();
+
+		reporter.reportInterval((double) (intervalStartNanoTime - measureStartNanoTime) / NANOS_PER_SECOND,
+				(double) intervalNanos / NANOS_PER_SECOND, correctedHistogram.getIntervalSnapshot(),
+				currentErrorsAmount - reportedErrorsAmount);
+
+		return currentErrorsAmount;
+	}
+
+	/**
+	 * Send queued requests in due time order while there are free permits. Queue is checked again after permit is
+	 * released, so request that was queued by another thread meanwhile is not left in the queue.
+	 */
+	private void sendPending() {
+		while (outstandingPermits.tryAcquire()) {
+			PendingRequest pending = pendingQueue.poll();
+
+			if (pending == null) {
+				outstandingPermits.release();
+
+				if (pendingQueue.isEmpty()) {
+					return;
+				}
+
+				continue;
+			}
+
+			pending.isSent = true;
+			send(pending.requestType, pending.intendedNanoTime);
+		}
+	}
+
+	private void send(RequestTypeEnum requestType, final long intendedNanoTime) {
+		final long sendNanoTime = System.nanoTime();
+		CompletableFuture<HttpObject> future;
+
+		try {
+			future = sendRequest(requestType);
+		} catch (InvalidHttpRequestException | HttpException e) {
+			onCompleted(null, e, intendedNanoTime, sendNanoTime);
+			return;
+		}
+
+		future.whenComplete((httpObject, e) -> onCompleted(httpObject, e, intendedNanoTime, sendNanoTime));
+	}
+
+	private CompletableFuture<HttpObject> sendRequest(RequestTypeEnum requestType)
+			throws InvalidHttpRequestException, HttpException {
+		switch (requestType) {
+		case POST:
+			return httpClient.sendPostAsync(config.getSuffixUrl(), config.getEntity());
+		case PUT:
+			return httpClient.sendPutAsync(config.getSuffixUrl(), config.getEntity());
+		case DELETE:
+			return httpClient.sendDeleteAsync(config.getSuffixUrl());
+		default:
+			return httpClient.sendGetAsync(config.getSuffixUrl());
+		}
+	}
+
+	private void onCompleted(HttpObject httpObject, Throwable throwable, long intendedNanoTime, long sendNanoTime) {
+		long completedNanoTime = System.nanoTime();
+
+		try {
+			if (intendedNanoTime < measureStartNanoTime) {
+				return;
+			}
+
+			if ((throwable != null) || (httpObject.getResponse().getStatusCode() >= ERROR_STATUS_CODE)) {
+				errorsAmount.incrementAndGet();
+				return;
+			}
+
+			correctedHistogram.record(completedNanoTime - intendedNanoTime);
+			uncorrectedHistogram.record(completedNanoTime - sendNanoTime);
+		} finally {
+			outstandingPermits.release();
+			sendPending();
+		}
+	}
+
+	/** Request that is due and waits for free permit. */
+	private static final class PendingRequest {
+		private final RequestTypeEnum requestType;
+		private final long intendedNanoTime;
+		private volatile boolean isSent = false;
+
+		private PendingRequest(RequestTypeEnum requestType, long intendedNanoTime) {
+			this.requestType = requestType;
+			this.intendedNanoTime = intendedNanoTime;
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package io.github.etuzon.http.benchmarks.load;
+
+import io.github.etuzon.http.enums.ExecutionModeEnum;
+
+/************************************************************
+ * Load generator configuration.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LoadGeneratorConfig {
+	public static final int DEFAULT_PORT = 80;
+	public static final long DEFAULT_REQUESTS_PER_SECOND = 100;
+	public static final long DEFAULT_DURATION_SECONDS = 60;
+	public static final long DEFAULT_WARMUP_SECONDS = 0;
+	public static final long DEFAULT_REPORT_INTERVAL_SECONDS = 5;
+	public static final int DEFAULT_MAX_OUTSTANDING = 10000;
+	public static final long DEFAULT_SEED = 1;
+
+	private String baseUrl = "http://127.0.0.1";
+	private int port = DEFAULT_PORT;
+	private String suffixUrl = "";
+	private String entity = "";
+	private RequestMix requestMix = RequestMix.parse(RequestMix.DEFAULT_MIX);
+	private long requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
+	private long durationSeconds = DEFAULT_DURATION_SECONDS;
+	private long warmupSeconds = DEFAULT_WARMUP_SECONDS;
+	private long reportIntervalSeconds = DEFAULT_REPORT_INTERVAL_SECONDS;
+	private int maxOutstanding = DEFAULT_MAX_OUTSTANDING;
+	private ExecutionModeEnum executionMode = ExecutionModeEnum.REACTOR;
+	private long seed = DEFAULT_SEED;
+	private String logPath = null;
+
+	public LoadGeneratorConfig setBaseUrl(String baseUrl) {
+		this.baseUrl = baseUrl;
+		return this;
+	}
+
+	public LoadGeneratorConfig setPort(int port) {
+		this.port = port;
+		return this;
+	}
+
+	public LoadGeneratorConfig setSuffixUrl(String suffixUrl) {
+		this.suffixUrl = suffixUrl;
+		return this;
+	}
+
+	/************************************************************
+	 * Set entity of POST and PUT requests.
+	 * 
+	 * @param entity Entity.
+	 * @return LoadGeneratorConfig.
+	 */
+	public LoadGeneratorConfig setEntity(String entity) {
+		this.entity = entity;
+		return this;
+	}
+
+	public LoadGeneratorConfig setRequestMix(RequestMix requestMix) {
+		this.requestMix = requestMix;
+		return this;
+	}
+
+	/************************************************************
+	 * Set target rate. Requests are sent at this rate regardless of the
+	 * response time.
+	 * 
+	 * @param requestsPerSecond Requests per second. Should be positive.
+	 * @return LoadGeneratorConfig.
+	 */
+	public LoadGeneratorConfig setRequestsPerSecond(long requestsPerSecond) {
+		if (requestsPerSecond <= 0) {
+			throw new IllegalArgumentException(
+					"Requests per second is [" + requestsPerSecond + "] and should be positive");
+		}
+
+		this.requestsPerSecond = requestsPerSecond;
+		return this;
+	}
+
+	/************************************************************
+	 * Set measured duration. Duration does not include warmup.
+	 * 
+	 * @param durationSeconds Duration in seconds. Should be positive.
+	 * @return LoadGeneratorConfig.
+	 */
+	public LoadGeneratorConfig setDurationSeconds(long durationSeconds) {
+		if (durationSeconds <= 0) {
+			throw new IllegalArgumentException("Duration is [" + durationSeconds + "] seconds and should be positive");
+		}
+
+		this.durationSeconds = durationSeconds;
+		return this;
+	}
+
+	/************************************************************
+	 * Set warmup duration. Requests are sent at the target rate during warmup,
+	 * and their latency is not reported.
+	 * 
+	 * @param warmupSeconds Warmup in seconds.
+	 * @return LoadGeneratorConfig.
+	 */
+	public LoadGeneratorConfig setWarmupSeconds(long warmupSeconds) {
+		if (warmupSeconds < 0) {
+			throw new IllegalArgumentException("Warmup is [" + warmupSeconds + "] seconds and should not be negative");
+		}
+
+		this.warmupSeconds = warmupSeconds;
+		return this;
+	}
+
+	public LoadGeneratorConfig setReportIntervalSeconds(long reportIntervalSeconds) {
+		if (reportIntervalSeconds <= 0) {
+			throw new IllegalArgumentException(
+					"Report interval is [" + reportIntervalSeconds + "] seconds and should be positive");
+		}
+
+		this.reportIntervalSeconds = reportIntervalSeconds;
+		return this;
+	}
+
+	/************************************************************
+	 * Set max requests in flight. When reached, request that is due is queued
+	 * and sent when earlier request completes, and its latency is measured
+	 * from its due time, so sending never waits for responses and intervals are
+	 * still reported.
+	 * 
+	 * @param maxOutstanding Max requests in flight. Should be positive.
+	 * @return LoadGeneratorConfig.
+	 */
+	public LoadGeneratorConfig setMaxOutstanding(int maxOutstanding) {
+		if (maxOutstanding <= 0) {
+			throw new IllegalArgumentException(
+					"Max outstanding requests is [" + maxOutstanding + "] and should be positive");
+		}
+
+		this.maxOutstanding = maxOutstanding;
+		return this;
+	}
+
+	public LoadGeneratorConfig setExecutionMode(ExecutionModeEnum executionMode) {
+		this.executionMode = executionMode;
+		return this;
+	}
+
+	public LoadGeneratorConfig setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/************************************************************
+	 * Set path prefix of latency logs. Percentile distribution is written to
+	 * '[path].hgrm' and interval percentiles to '[path].csv'.
+	 * 
+	 * @param logPath Path prefix, or null to not write logs.
+	 * @return LoadGeneratorConfig.
+	 */
+	public LoadGeneratorConfig setLogPath(String logPath) {
+		this.logPath = logPath;
+		return this;
+	}
+
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public String getSuffixUrl() {
+		return suffixUrl;
+	}
+
+	public String getEntity() {
+		return entity;
+	}
+
+	public RequestMix getRequestMix() {
+		return requestMix;
+	}
+
+	public long getRequestsPerSecond() {
+		return requestsPerSecond;
+	}
+
+	public long getDurationSeconds() {
+		return durationSeconds;
+	}
+
+	public long getWarmupSeconds() {
+		return warmupSeconds;
+	}
+
+	public long getReportIntervalSeconds() {
+		return reportIntervalSeconds;
+	}
+
+	public int getMaxOutstanding() {
+		return maxOutstanding;
+	}
+
+	public ExecutionModeEnum getExecutionMode() {
+		return executionMode;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public String getLogPath() {
+		return logPath;
+	}
+}
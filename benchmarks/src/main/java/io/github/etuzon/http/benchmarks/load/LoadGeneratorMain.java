@@ -0,0 +1,136 @@
+package io.github.etuzon.http.benchmarks.load;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.config.ConnectionPoolConfig;
+import io.github.etuzon.http.enums.ExecutionModeEnum;
+
+/************************************************************
+ * Run open loop load generator from command line.
+ * 
+ * Example:
+ * 'java -cp target/benchmarks.jar io.github.etuzon.http.benchmarks.load.LoadGeneratorMain
+ * --url http://127.0.0.1 --port 8080 --suffix users --rate 2000 --duration 60
+ * --warmup 10 --mix GET=70,POST=20,PUT=5,DELETE=5 --entity {} --log latency'.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LoadGeneratorMain {
+	private static final String USAGE = "Arguments:\n" + "  --url <base URL>          default http://127.0.0.1\n"
+			+ "  --port <port>             default " + LoadGeneratorConfig.DEFAULT_PORT + "\n"
+			+ "  --suffix <URL suffix>     default empty\n"
+			+ "  --entity <entity>         entity of POST and PUT, default empty\n"
+			+ "  --mix <mix>               default " + RequestMix.DEFAULT_MIX + ", e.g. GET=70,POST=20,PUT=5,DELETE=5\n"
+			+ "  --rate <requests/second>  default " + LoadGeneratorConfig.DEFAULT_REQUESTS_PER_SECOND + "\n"
+			+ "  --duration <seconds>      default " + LoadGeneratorConfig.DEFAULT_DURATION_SECONDS + "\n"
+			+ "  --warmup <seconds>        default " + LoadGeneratorConfig.DEFAULT_WARMUP_SECONDS + "\n"
+			+ "  --interval <seconds>      default " + LoadGeneratorConfig.DEFAULT_REPORT_INTERVAL_SECONDS + "\n"
+			+ "  --max-outstanding <n>     default " + LoadGeneratorConfig.DEFAULT_MAX_OUTSTANDING + "\n"
+			+ "  --mode <REACTOR|THREAD_PER_REQUEST> default REACTOR\n"
+			+ "  --seed <seed>             seed of request mix, default " + LoadGeneratorConfig.DEFAULT_SEED + "\n"
+			+ "  --log <path prefix>       write <path>.csv interval log and <path>.hgrm distribution";
+
+	/************************************************************
+	 * Run load generator.
+	 * 
+	 * @param args Command line arguments.
+	 * @throws Exception in case load generator failed.
+	 */
+	public static void main(String[] args) throws Exception {
+		LoadGeneratorConfig config;
+
+		try {
+			config = parseArgs(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+		}
+
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig().setMaxTotal(config.getMaxOutstanding())
+				.setMaxPerRoute(config.getMaxOutstanding());
+		HttpClient httpClient = new HttpClient(config.getBaseUrl(), config.getPort(), poolConfig);
+		httpClient.setExecutionMode(config.getExecutionMode());
+
+		System.out.println("Sending [" + config.getRequestMix() + "] to [" + config.getBaseUrl() + ":"
+				+ config.getPort() + "/" + config.getSuffixUrl() + "] at [" + config.getRequestsPerSecond()
+				+ "] requests per second for [" + config.getDurationSeconds() + "] seconds after ["
+				+ config.getWarmupSeconds() + "] seconds warmup");
+
+		try (LoadReporter reporter = new LoadReporter(System.out, config.getLogPath())) {
+			new LoadGenerator(httpClient, config).run(reporter);
+		} finally {
+			httpClient.close();
+		}
+	}
+
+	/************************************************************
+	 * Parse command line arguments.
+	 * 
+	 * @param args Command line arguments.
+	 * @return load generator configuration.
+	 */
+	public static LoadGeneratorConfig parseArgs(String[] args) {
+		LoadGeneratorConfig config = new LoadGeneratorConfig();
+
+		if ((args.length % 2) != 0) {
+			throw new IllegalArgumentException("Every argument should have a value");
+		}
+
+		for (int index = 0; index < args.length; index += 2) {
+			String name = args[index];
+			String value = args[index + 1];
+
+			try {
+				switch (name) {
+				case "--url":
+					config.setBaseUrl(value);
+					break;
+				case "--port":
+					config.setPort(Integer.parseInt(value));
+					break;
+				case "--suffix":
+					config.setSuffixUrl(value);
+					break;
+				case "--entity":
+					config.setEntity(value);
+					break;
+				case "--mix":
+					config.setRequestMix(RequestMix.parse(value));
+					break;
+				case "--rate":
+					config.setRequestsPerSecond(Long.parseLong(value));
+					break;
+				case "--duration":
+					config.setDurationSeconds(Long.parseLong(value));
+					break;
+				case "--warmup":
+					config.setWarmupSeconds(Long.parseLong(value));
+					break;
+				case "--interval":
+					config.setReportIntervalSeconds(Long.parseLong(value));
+					break;
+				case "--max-outstanding":
+					config.setMaxOutstanding(Integer.parseInt(value));
+					break;
+				case "--mode":
+					config.setExecutionMode(ExecutionModeEnum.valueOf(value.toUpperCase()));
+					break;
+				case "--seed":
+					config.setSeed(Long.parseLong(value));
+					break;
+				case "--log":
+					config.setLogPath(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument [" + name + "]");
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Value [" + value + "] of [" + name + "] is not a number");
+			}
+		}
+
+		return config;
+	}
+}
@@ -0,0 +1,191 @@
+package io.github.etuzon.http.benchmarks.load;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import io.github.etuzon.http.metrics.LatencyHistogram;
+import io.github.etuzon.http.metrics.LatencySnapshot;
+
+/************************************************************
+ * Report load generator latency to console and to latency logs.
+ * 
+ * Interval log is CSV of interval percentiles. Percentile distribution log is
+ * in HdrHistogram '.hgrm' format (Value, Percentile, TotalCount,
+ * 1/(1-Percentile)), one line per non empty bucket, so it can be plotted by
+ * HdrHistogram plotter. Values are in milliseconds.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LoadReporter implements Closeable {
+	public static final double NANOS_PER_MILLI = 1000000.0;
+
+	private static final String INTERVAL_CSV_HEADER = "StartSeconds,IntervalSeconds,Count,Errors,"
+			+ "P50_ms,P90_ms,P99_ms,P999_ms,Max_ms";
+
+	private final PrintStream console;
+	private final PrintStream intervalLog;
+	private final String distributionLogPath;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param console Console output.
+	 * @param logPath Path prefix of latency logs, or null to not write logs.
+	 * @throws FileNotFoundException in case failed to create interval log.
+	 */
+	public LoadReporter(PrintStream console, String logPath) throws FileNotFoundException {
+		this.console = console;
+
+		if (logPath == null) {
+			intervalLog = null;
+			distributionLogPath = null;
+		} else {
+			intervalLog = newLog(logPath + ".csv");
+			intervalLog.println(INTERVAL_CSV_HEADER);
+			distributionLogPath = logPath + ".hgrm";
+		}
+	}
+
+	/************************************************************
+	 * Report latency of interval.
+	 * 
+	 * @param startSeconds    Start of interval in seconds since measurement
+	 *                        start.
+	 * @param intervalSeconds Interval length in seconds.
+	 * @param snapshot        Corrected latency of interval.
+	 * @param errorsAmount    Failed requests in interval.
+	 */
+	public void reportInterval(double startSeconds, double intervalSeconds, LatencySnapshot snapshot,
+			long errorsAmount) {
+		console.println(String.format(Locale.ROOT,
+				"[%8.1fs] count [%d] rate [%.1f/s] errors [%d] p50 [%.3f ms] p99 [%.3f ms] max [%.3f ms]",
+				startSeconds + intervalSeconds, snapshot.getCount(), snapshot.getCount() / intervalSeconds,
+				errorsAmount, toMillis(snapshot.getP50()), toMillis(snapshot.getP99()),
+				toMillis(snapshot.getMax())));
+
+		if (intervalLog != null) {
+			intervalLog.println(String.format(Locale.ROOT, "%.3f,%.3f,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f", startSeconds,
+					intervalSeconds, snapshot.getCount(), errorsAmount, toMillis(snapshot.getP50()),
+					toMillis(snapshot.getP90()), toMillis(snapshot.getP99()), toMillis(snapshot.getP999()),
+					toMillis(snapshot.getMax())));
+			intervalLog.flush();
+		}
+	}
+
+	/************************************************************
+	 * Report summary of the whole measurement.
+	 * 
+	 * @param corrected       Latency from intended send time.
+	 * @param uncorrected     Latency from actual send time.
+	 * @param errorsAmount    Failed requests.
+	 * @param durationSeconds Measured duration in seconds.
+	 * @param targetRate      Target requests per second.
+	 * @throws FileNotFoundException in case failed to create percentile
+	 *                               distribution log.
+	 */
+	public void reportSummary(LatencySnapshot corrected, LatencySnapshot uncorrected, long errorsAmount,
+			double durationSeconds, long targetRate) throws FileNotFoundException {
+		console.println();
+		console.println(String.format(Locale.ROOT, "Requests [%d] errors [%d] target rate [%d/s] actual rate [%.1f/s]",
+				corrected.getCount(), errorsAmount, targetRate, corrected.getCount() / durationSeconds));
+		console.println(String.format(Locale.ROOT, "%-12s %12s %12s", "Percentile", "Corrected", "Uncorrected"));
+
+		for (double percentile : new double[] { 50, 90, 99, 99.9, 99.99, 100 }) {
+			console.println(String.format(Locale.ROOT, "%-12s %9.3f ms %9.3f ms", percentile,
+					toMillis(corrected.getValueAtPercentile(percentile)),
+					toMillis(uncorrected.getValueAtPercentile(percentile))));
+		}
+
+		if (distributionLogPath != null) {
+			try (PrintStream distributionLog = newLog(distributionLogPath)) {
+				writePercentileDistribution(distributionLog, corrected);
+			}
+
+			console.println("Percentile distribution was written to [" + distributionLogPath + "]");
+		}
+	}
+
+	/************************************************************
+	 * Write percentile distribution in HdrHistogram '.hgrm' format.
+	 * 
+	 * @param output   Output.
+	 * @param snapshot Latency snapshot.
+	 */
+	public static void writePercentileDistribution(PrintStream output, LatencySnapshot snapshot) {
+		long[] bucketCounts = snapshot.getBucketCounts();
+		long totalCount = snapshot.getCount();
+		long accumulatedCount = 0;
+
+		output.println(String.format(Locale.ROOT, "%12s %14s %10s %14s", "Value", "Percentile", "TotalCount",
+				"1/(1-Percentile)"));
+		output.println();
+
+		for (int index = 0; index < bucketCounts.length; index++) {
+			if (bucketCounts[index] == 0) {
+				continue;
+			}
+
+			accumulatedCount += bucketCounts[index];
+			double fraction = (double) accumulatedCount / totalCount;
+			double valueMs = toMillis(LatencyHistogram.getBucketHighValue(index));
+
+			if (accumulatedCount < totalCount) {
+				output.println(String.format(Locale.ROOT, "%12.3f %2.12f %10d %14.2f", valueMs, fraction,
+						accumulatedCount, 1 / (1 - fraction)));
+			} else {
+				output.println(String.format(Locale.ROOT, "%12.3f %2.12f %10d", valueMs, fraction, accumulatedCount));
+			}
+		}
+
+		output.println(String.format(Locale.ROOT, "#[Mean    = %12.3f, StdDeviation   = %12.3f]",
+				toMillis((long) snapshot.getMean()), toMillis((long) getStdDeviation(snapshot))));
+		output.println(String.format(Locale.ROOT, "#[Max     = %12.3f, Total count    = %12d]",
+				toMillis(snapshot.getMax()), totalCount));
+	}
+
+	@Override
+	public void close() {
+		if (intervalLog != null) {
+			intervalLog.close();
+		}
+	}
+
+	/** Standard deviation by middle value of each bucket, as the mean is computed. */
+	private static double getStdDeviation(LatencySnapshot snapshot) {
+		if (snapshot.getCount() == 0) {
+			return 0;
+		}
+
+		long[] bucketCounts = snapshot.getBucketCounts();
+		double mean = snapshot.getMean();
+		double squaresSum = 0;
+
+		for (int index = 0; index < bucketCounts.length; index++) {
+			if (bucketCounts[index] > 0) {
+				double middleValue = (LatencyHistogram.getBucketLowValue(index) / 2.0)
+						+ (LatencyHistogram.getBucketHighValue(index) / 2.0);
+				double deviation = middleValue - mean;
+				squaresSum += bucketCounts[index] * deviation * deviation;
+			}
+		}
+
+		return Math.sqrt(squaresSum / snapshot.getCount());
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / NANOS_PER_MILLI;
+	}
+
+	private static PrintStream newLog(String path) throws FileNotFoundException {
+		try {
+			return new PrintStream(path, StandardCharsets.UTF_8.name());
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
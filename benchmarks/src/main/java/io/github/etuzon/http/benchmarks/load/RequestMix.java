@@ -0,0 +1,117 @@
+package io.github.etuzon.http.benchmarks.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import io.github.etuzon.http.enums.RequestTypeEnum;
+
+/************************************************************
+ * Weighted mix of request types.
+ * 
+ * Mix is parsed from 'GET=70,POST=20,PUT=5,DELETE=5'. Request type that is
+ * not in the mix is not sent.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class RequestMix {
+	public static final String DEFAULT_MIX = "GET=100";
+
+	private final RequestTypeEnum[] requestTypes;
+	private final long[] cumulativeWeights;
+	private final long totalWeight;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param weightMap Weight per request type.
+	 */
+	public RequestMix(Map<RequestTypeEnum, Long> weightMap) {
+		long weightSum = 0;
+		int index = 0;
+
+		requestTypes = new RequestTypeEnum[weightMap.size()];
+		cumulativeWeights = new long[weightMap.size()];
+
+		for (Map.Entry<RequestTypeEnum, Long> entry : weightMap.entrySet()) {
+			if (entry.getValue() <= 0) {
+				throw new IllegalArgumentException(
+						"Weight of [" + entry.getKey() + "] is [" + entry.getValue() + "] and should be positive");
+			}
+
+			weightSum += entry.getValue();
+			requestTypes[index] = entry.getKey();
+			cumulativeWeights[index] = weightSum;
+			index++;
+		}
+
+		if (weightSum == 0) {
+			throw new IllegalArgumentException("Request mix should contain at least one request type");
+		}
+
+		totalWeight = weightSum;
+	}
+
+	/************************************************************
+	 * Parse request mix.
+	 * 
+	 * @param mix Mix in format 'GET=70,POST=20,PUT=5,DELETE=5'.
+	 * @return request mix.
+	 */
+	public static RequestMix parse(String mix) {
+		Map<RequestTypeEnum, Long> weightMap = new EnumMap<RequestTypeEnum, Long>(RequestTypeEnum.class);
+
+		for (String part : mix.split(",")) {
+			String[] typeAndWeight = part.trim().split("=");
+
+			if (typeAndWeight.length != 2) {
+				throw new IllegalArgumentException("Request mix part [" + part + "] should be 'TYPE=WEIGHT'");
+			}
+
+			try {
+				weightMap.put(RequestTypeEnum.valueOf(typeAndWeight[0].trim().toUpperCase()),
+						Long.parseLong(typeAndWeight[1].trim()));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Invalid request mix part [" + part + "].\n" + e.getMessage());
+			}
+		}
+
+		return new RequestMix(weightMap);
+	}
+
+	/************************************************************
+	 * Pick next request type by the weights.
+	 * 
+	 * @param random Random of the load generator.
+	 * @return request type.
+	 */
+	public RequestTypeEnum next(SplittableRandom random) {
+		long value = random.nextLong(totalWeight);
+
+		for (int index = 0; index < cumulativeWeights.length; index++) {
+			if (value < cumulativeWeights[index]) {
+				return requestTypes[index];
+			}
+		}
+
+		return requestTypes[requestTypes.length - 1];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder mix = new StringBuilder();
+		long previousWeight = 0;
+
+		for (int index = 0; index < requestTypes.length; index++) {
+			if (index > 0) {
+				mix.append(",");
+			}
+
+			mix.append(requestTypes[index]).append("=").append(cumulativeWeights[index] - previousWeight);
+			previousWeight = cumulativeWeights[index];
+		}
+
+		return mix.toString();
+	}
+}
@@ -0,0 +1,88 @@
+package io.github.etuzon.http.benchmarks.tests.load;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.benchmarks.load.LoadGeneratorConfig;
+import io.github.etuzon.http.benchmarks.load.LoadGeneratorMain;
+import io.github.etuzon.http.benchmarks.load.RequestMix;
+import io.github.etuzon.http.enums.ExecutionModeEnum;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that command line arguments of load generator are parsed to its
+ * configuration, and that invalid arguments are rejected.
+ *
+ * @author Eyal Tuzon
+ *
+ */
+public class LoadGeneratorMainTest extends BaseUnitTest {
+
+	@DataProvider(name = "invalidArgs")
+	public Object[][] getInvalidArgs() {
+		return new Object[][] { { new String[] { "--rate" } }, { new String[] { "--unknown", "1" } },
+				{ new String[] { "--port", "http" } }, { new String[] { "--rate", "0" } },
+				{ new String[] { "--duration", "-1" } }, { new String[] { "--max-outstanding", "0" } },
+				{ new String[] { "--mode", "SYNC" } }, { new String[] { "--mix", "GET=0" } } };
+	}
+
+	@Test
+	public void default_args_test() {
+		LoadGeneratorConfig config = LoadGeneratorMain.parseArgs(new String[0]);
+
+		verify("port", config.getPort(), LoadGeneratorConfig.DEFAULT_PORT);
+		verify("rate", config.getRequestsPerSecond(), LoadGeneratorConfig.DEFAULT_REQUESTS_PER_SECOND);
+		verify("duration", config.getDurationSeconds(), LoadGeneratorConfig.DEFAULT_DURATION_SECONDS);
+		verify("warmup", config.getWarmupSeconds(), LoadGeneratorConfig.DEFAULT_WARMUP_SECONDS);
+		verify("interval", config.getReportIntervalSeconds(), LoadGeneratorConfig.DEFAULT_REPORT_INTERVAL_SECONDS);
+		verify("max outstanding", config.getMaxOutstanding(), LoadGeneratorConfig.DEFAULT_MAX_OUTSTANDING);
+		verify("mode", config.getExecutionMode(), ExecutionModeEnum.REACTOR);
+		verify("seed", config.getSeed(), LoadGeneratorConfig.DEFAULT_SEED);
+		verify("mix", config.getRequestMix().toString(), RequestMix.parse(RequestMix.DEFAULT_MIX).toString());
+		verify("log", config.getLogPath(), null);
+	}
+
+	@Test
+	public void all_args_test() {
+		LoadGeneratorConfig config = LoadGeneratorMain.parseArgs(new String[] { "--url", "http://localhost",
+				"--port", "8080", "--suffix", "users", "--entity", "{}", "--mix", "GET=70,POST=30", "--rate", "2000",
+				"--duration", "60", "--warmup", "10", "--interval", "2", "--max-outstanding", "500", "--mode",
+				"thread_per_request", "--seed", "7", "--log", "latency" });
+
+		verify("url", config.getBaseUrl(), "http://localhost");
+		verify("port", config.getPort(), 8080);
+		verify("suffix", config.getSuffixUrl(), "users");
+		verify("entity", config.getEntity(), "{}");
+		verify("mix", config.getRequestMix().toString(), "GET=70,POST=30");
+		verify("rate", config.getRequestsPerSecond(), 2000L);
+		verify("duration", config.getDurationSeconds(), 60L);
+		verify("warmup", config.getWarmupSeconds(), 10L);
+		verify("interval", config.getReportIntervalSeconds(), 2L);
+		verify("max outstanding", config.getMaxOutstanding(), 500);
+		verify("mode", config.getExecutionMode(), ExecutionModeEnum.THREAD_PER_REQUEST);
+		verify("seed", config.getSeed(), 7L);
+		verify("log", config.getLogPath(), "latency");
+	}
+
+	@Test(dataProvider = "invalidArgs")
+	public void invalid_args_test(String[] args) {
+		boolean isRejected = false;
+
+		try {
+			LoadGeneratorMain.parseArgs(args);
+		} catch (IllegalArgumentException e) {
+			isRejected = true;
+		}
+
+		SoftAssertUnitTest.assertTrueNow(isRejected, "Arguments " + String.join(" ", args) + " were parsed",
+				"Verify that arguments [" + String.join(" ", args) + "] are rejected");
+	}
+
+	private static void verify(String name, Object value, Object expected) {
+		boolean isEqual = (expected == null) ? (value == null) : expected.equals(value);
+
+		SoftAssertUnitTest.assertTrueNow(isEqual, "Argument [" + name + "] is [" + value + "]",
+				"Verify that argument [" + name + "] is [" + expected + "]");
+	}
+}
@@ -0,0 +1,97 @@
+package io.github.etuzon.http.benchmarks.tests.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.benchmarks.load.RequestMix;
+import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that request mix is parsed, that invalid mix is rejected, and that
+ * request types are picked by their weights.
+ *
+ * @author Eyal Tuzon
+ *
+ */
+public class RequestMixTest extends BaseUnitTest {
+	public static final int PICKS_AMOUNT = 100000;
+	public static final double MAX_WEIGHT_DEVIATION = 0.01;
+	public static final long SEED = 1;
+
+	@DataProvider(name = "invalidMixes")
+	public Object[][] getInvalidMixes() {
+		return new Object[][] { { "" }, { "GET" }, { "GET=70=1" }, { "GET=0" }, { "GET=-5" }, { "GET=x" },
+				{ "HEAD=10" }, { "GET=70,POST" } };
+	}
+
+	@Test
+	public void parse_test() {
+		RequestMix requestMix = RequestMix.parse(" get=70, POST = 20,PUT=5,Delete=5");
+		String expected = "GET=70,POST=20,DELETE=5,PUT=5";
+
+		SoftAssertUnitTest.assertTrueNow(expected.equals(requestMix.toString()),
+				"Parsed request mix is [" + requestMix + "]", "Verify that parsed request mix is [" + expected + "]");
+	}
+
+	@Test
+	public void default_mix_test() {
+		RequestMix requestMix = RequestMix.parse(RequestMix.DEFAULT_MIX);
+		SplittableRandom random = new SplittableRandom(SEED);
+
+		for (int index = 0; index < PICKS_AMOUNT; index++) {
+			RequestTypeEnum requestType = requestMix.next(random);
+
+			if (requestType != RequestTypeEnum.GET) {
+				SoftAssertUnitTest.assertTrueNow(false, "Default request mix picked [" + requestType + "]",
+						"Verify that default request mix picks only [" + RequestTypeEnum.GET + "]");
+				return;
+			}
+		}
+	}
+
+	@Test(dataProvider = "invalidMixes")
+	public void invalid_mix_test(String mix) {
+		boolean isRejected = false;
+
+		try {
+			RequestMix.parse(mix);
+		} catch (IllegalArgumentException e) {
+			isRejected = true;
+		}
+
+		SoftAssertUnitTest.assertTrueNow(isRejected, "Request mix [" + mix + "] was parsed",
+				"Verify that request mix [" + mix + "] is rejected");
+	}
+
+	@Test
+	public void weights_test() {
+		RequestMix requestMix = RequestMix.parse("GET=70,POST=20,PUT=5,DELETE=5");
+		Map<RequestTypeEnum, Integer> countMap = new EnumMap<RequestTypeEnum, Integer>(RequestTypeEnum.class);
+		SplittableRandom random = new SplittableRandom(SEED);
+
+		for (int index = 0; index < PICKS_AMOUNT; index++) {
+			countMap.merge(requestMix.next(random), 1, Integer::sum);
+		}
+
+		verifyShare(countMap, RequestTypeEnum.GET, 0.70);
+		verifyShare(countMap, RequestTypeEnum.POST, 0.20);
+		verifyShare(countMap, RequestTypeEnum.PUT, 0.05);
+		verifyShare(countMap, RequestTypeEnum.DELETE, 0.05);
+	}
+
+	private static void verifyShare(Map<RequestTypeEnum, Integer> countMap, RequestTypeEnum requestType,
+			double expectedShare) {
+		Integer count = countMap.get(requestType);
+		double share = (count == null) ? 0 : count.doubleValue() / PICKS_AMOUNT;
+
+		SoftAssertUnitTest.assertTrueNow(Math.abs(share - expectedShare) <= MAX_WEIGHT_DEVIATION,
+				"Share of [" + requestType + "] is [" + share + "]",
+				"Verify that share of [" + requestType + "] is [" + expectedShare + "]");
+	}
+}
@@ -0,0 +1,51 @@
+package io.github.etuzon.http.buffer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/************************************************************
+ * Input stream that reads the remaining bytes of a byte buffer.
+ * 
+ * Bytes are not copied, reading moves the buffer position, so a duplicate of
+ * the buffer should be given in case its position should not be changed.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ByteBufferInputStream extends InputStream {
+	private final ByteBuffer buffer;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param buffer Buffer that is read from its position to its limit.
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) {
+		if (length == 0) {
+			return 0;
+		}
+
+		if (buffer.hasRemaining() == false) {
+			return -1;
+		}
+
+		int readLength = Math.min(length, buffer.remaining());
+		buffer.get(bytes, offset, readLength);
+		return readLength;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+}
@@ -0,0 +1,104 @@
+package io.github.etuzon.http.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/************************************************************
+ * Pool of fixed size byte chunks.
+ * 
+ * Chunks are reused between buffers, so receiving data does not allocate new
+ * memory for each received data block. Pool keeps up to maximum amount of free
+ * chunks, chunks that are released when the pool is full are left to the
+ * garbage collector.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ByteChunkPool {
+	public static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+	public static final int DEFAULT_MAX_FREE_CHUNKS = 1024;
+
+	private static final ByteChunkPool DEFAULT_POOL = new ByteChunkPool(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_FREE_CHUNKS);
+
+	private final int chunkSize;
+	private final int maxFreeChunks;
+	private final ConcurrentLinkedQueue<ByteBuffer> freeChunkQueue = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final AtomicInteger freeChunksAmount = new AtomicInteger();
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param chunkSize     Chunk size in bytes.
+	 * @param maxFreeChunks Maximum amount of free chunks that are kept in the
+	 *                      pool.
+	 */
+	public ByteChunkPool(int chunkSize, int maxFreeChunks) {
+		this.chunkSize = chunkSize;
+		this.maxFreeChunks = maxFreeChunks;
+	}
+
+	/************************************************************
+	 * Get free chunk from the pool, or allocate new chunk in case pool is empty.
+	 * 
+	 * @return empty chunk in write mode.
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer chunk = freeChunkQueue.poll();
+
+		if (chunk == null) {
+			return ByteBuffer.allocate(chunkSize);
+		}
+
+		freeChunksAmount.decrementAndGet();
+		chunk.clear();
+
+		return chunk;
+	}
+
+	/************************************************************
+	 * Return chunk to the pool.
+	 * 
+	 * Chunk should not be used after it is returned to the pool.
+	 * 
+	 * @param chunk Chunk that was taken from the pool.
+	 */
+	public void release(ByteBuffer chunk) {
+		if (chunk.capacity() != chunkSize) {
+			return;
+		}
+
+		if (freeChunksAmount.incrementAndGet() <= maxFreeChunks) {
+			freeChunkQueue.offer(chunk);
+		} else {
+			freeChunksAmount.decrementAndGet();
+		}
+	}
+
+	/************************************************************
+	 * Get chunk size in bytes.
+	 * 
+	 * @return chunk size in bytes.
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/************************************************************
+	 * Get amount of free chunks in the pool.
+	 * 
+	 * @return amount of free chunks in the pool.
+	 */
+	public int getFreeChunksAmount() {
+		return freeChunksAmount.get();
+	}
+
+	/************************************************************
+	 * Get process wide chunk pool.
+	 * 
+	 * @return process wide chunk pool.
+	 */
+	public static ByteChunkPool getDefault() {
+		return DEFAULT_POOL;
+	}
+}
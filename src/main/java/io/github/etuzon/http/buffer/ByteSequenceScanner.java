@@ -0,0 +1,114 @@
+package io.github.etuzon.http.buffer;
+
+import java.nio.ByteBuffer;
+
+/************************************************************
+ * Incremental scanner that finds byte sequence in data that is received in
+ * chunks.
+ * 
+ * Match state is kept between chunks, so sequence that is split between chunks
+ * is found without keeping the previous chunks. Each byte is checked once and
+ * scan does not allocate memory.
+ * 
+ * Scanner is not thread safe.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ByteSequenceScanner {
+	private final byte[] sequence;
+	private final int[] fallbackTable;
+	private int matchedLength = 0;
+	private boolean isFound = false;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param sequence Byte sequence to find. Should not be empty.
+	 */
+	public ByteSequenceScanner(byte[] sequence) {
+		if (sequence.length == 0) {
+			throw new IllegalArgumentException("Byte sequence should not be empty");
+		}
+
+		this.sequence = sequence.clone();
+		this.fallbackTable = buildFallbackTable(this.sequence);
+	}
+
+	/************************************************************
+	 * Scan remaining bytes of the chunk.
+	 * 
+	 * Chunk position is not changed.
+	 * 
+	 * @param chunk Received chunk.
+	 * @return index in the chunk of the first byte after the sequence. Return -1
+	 *         in case the sequence was not completed in this chunk, or was
+	 *         already found in previous chunk.
+	 */
+	public int scan(ByteBuffer chunk) {
+		if (isFound) {
+			return -1;
+		}
+
+		for (int index = chunk.position(); index < chunk.limit(); index++) {
+			byte value = chunk.get(index);
+
+			while ((matchedLength > 0) && (sequence[matchedLength] != value)) {
+				matchedLength = fallbackTable[matchedLength - 1];
+			}
+
+			if (sequence[matchedLength] == value) {
+				matchedLength++;
+			}
+
+			if (matchedLength == sequence.length) {
+				isFound = true;
+				return index + 1;
+			}
+		}
+
+		return -1;
+	}
+
+	/************************************************************
+	 * Return true in case the sequence was found.
+	 * 
+	 * @return true in case the sequence was found.
+	 */
+	public boolean isFound() {
+		return isFound;
+	}
+
+	/************************************************************
+	 * Reset scanner state, so it can be used to scan new data.
+	 *
+	 */
+	public void reset() {
+		matchedLength = 0;
+		isFound = false;
+	}
+
+	/**
+	 * Fallback table of Knuth-Morris-Pratt algorithm. Value at index is the
+	 * length of the longest proper prefix of sequence[0..index] that is also its
+	 * suffix.
+	 */
+	private static int[] buildFallbackTable(byte[] sequence) {
+		int[] table = new int[sequence.length];
+		int prefixLength = 0;
+
+		for (int index = 1; index < sequence.length; index++) {
+			while ((prefixLength > 0) && (sequence[index] != sequence[prefixLength])) {
+				prefixLength = table[prefixLength - 1];
+			}
+
+			if (sequence[index] == sequence[prefixLength]) {
+				prefixLength++;
+			}
+
+			table[index] = prefixLength;
+		}
+
+		return table;
+	}
+}
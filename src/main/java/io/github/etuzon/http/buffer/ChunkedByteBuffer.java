@@ -0,0 +1,250 @@
+package io.github.etuzon.http.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/************************************************************
+ * Byte buffer that is built from fixed size chunks of ByteChunkPool.
+ * 
+ * Bytes are copied once into the chunks when they are written, and are decoded
+ * to String only when decode method is called. Buffer is thread safe, one
+ * thread can write while other threads read.
+ * 
+ * Chunks that their views were taken by getChunks are not returned to the
+ * pool, so the views are never overwritten by bytes of another buffer.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ChunkedByteBuffer {
+	private static final int MAX_BYTES_PER_CHAR = 16;
+
+	private final ByteChunkPool chunkPool;
+	private final Deque<ByteBuffer> chunkQueue = new ArrayDeque<ByteBuffer>();
+	private final Set<ByteBuffer> exposedChunkSet = Collections
+			.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+	private int headChunkOffset = 0;
+	private long size = 0;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param chunkPool Pool that chunks are taken from.
+	 */
+	public ChunkedByteBuffer(ByteChunkPool chunkPool) {
+		this.chunkPool = chunkPool;
+	}
+
+	/************************************************************
+	 * Append remaining bytes of source buffer.
+	 * 
+	 * Source buffer position is moved to its limit.
+	 * 
+	 * @param src Source buffer.
+	 */
+	public synchronized void write(ByteBuffer src) {
+		while (src.hasRemaining()) {
+			ByteBuffer tailChunk = getWritableTailChunk();
+			int length = Math.min(src.remaining(), tailChunk.remaining());
+
+			ByteBuffer srcPart = src.duplicate();
+			srcPart.limit(srcPart.position() + length);
+			tailChunk.put(srcPart);
+			src.position(src.position() + length);
+
+			size += length;
+		}
+	}
+
+	/************************************************************
+	 * Get amount of bytes in the buffer.
+	 * 
+	 * @return amount of bytes in the buffer.
+	 */
+	public synchronized long size() {
+		return size;
+	}
+
+	/************************************************************
+	 * Get read only views of the chunks with the bytes that were written so far.
+	 * 
+	 * Bytes are not copied. Chunks of the views are not returned to the pool
+	 * when they are discarded or the buffer is cleared, so the views stay valid
+	 * and are left to the garbage collector.
+	 * 
+	 * @return read only views of the chunks.
+	 */
+	public synchronized List<ByteBuffer> getChunks() {
+		List<ByteBuffer> viewList = new ArrayList<ByteBuffer>(chunkQueue.size());
+
+		for (ByteBuffer chunk : chunkQueue) {
+			viewList.add(readView(chunk));
+			exposedChunkSet.add(chunk);
+		}
+
+		return Collections.unmodifiableList(viewList);
+	}
+
+	/************************************************************
+	 * Copy buffer bytes to byte array.
+	 * 
+	 * @return buffer bytes.
+	 */
+	public synchronized byte[] toByteArray() {
+		byte[] bytes = new byte[(int) size];
+		int offset = 0;
+
+		for (ByteBuffer chunk : chunkQueue) {
+			ByteBuffer view = readView(chunk);
+			int length = view.remaining();
+			view.get(bytes, offset, length);
+			offset += length;
+		}
+
+		return bytes;
+	}
+
+	/************************************************************
+	 * Decode buffer bytes to String.
+	 * 
+	 * Characters that are split between chunks are decoded correctly, malformed
+	 * bytes are replaced.
+	 * 
+	 * @param charset Charset.
+	 * @return decoded buffer.
+	 */
+	public synchronized String decode(Charset charset) {
+		CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer out = CharBuffer.allocate((int) Math.ceil(size * (double) decoder.maxCharsPerByte()));
+
+		ByteBuffer carry = ByteBuffer.allocate(MAX_BYTES_PER_CHAR);
+		carry.flip();
+
+		for (ByteBuffer chunk : chunkQueue) {
+			ByteBuffer in = readView(chunk);
+
+			while (carry.hasRemaining() && in.hasRemaining()) {
+				carry.compact();
+				carry.put(in.get());
+				carry.flip();
+				decoder.decode(carry, out, false);
+			}
+
+			decoder.decode(in, out, false);
+
+			if (in.hasRemaining()) {
+				carry.compact();
+				carry.put(in);
+				carry.flip();
+			}
+		}
+
+		decoder.decode(carry, out, true);
+		decoder.flush(out);
+		out.flip();
+
+		return out.toString();
+	}
+
+	/************************************************************
+	 * Decode buffer bytes to String and clear the buffer.
+	 * 
+	 * @param charset Charset.
+	 * @return decoded buffer.
+	 */
+	public synchronized String decodeAndClear(Charset charset) {
+		String decoded = decode(charset);
+		clear();
+
+		return decoded;
+	}
+
+	/************************************************************
+	 * Drop the oldest bytes from the buffer.
+	 * 
+	 * Chunks that all their bytes were dropped are returned to the pool, unless
+	 * their views were taken by getChunks.
+	 * 
+	 * @param amount Amount of bytes to drop.
+	 * @return amount of bytes that were dropped.
+	 */
+	public synchronized long discard(long amount) {
+		long discardAmount = Math.min(amount, size);
+		long remaining = discardAmount;
+
+		while (remaining > 0) {
+			ByteBuffer headChunk = chunkQueue.peekFirst();
+			int headChunkLength = headChunk.position() - headChunkOffset;
+
+			if (remaining < headChunkLength) {
+				headChunkOffset += (int) remaining;
+				break;
+			}
+
+			remaining -= headChunkLength;
+			releaseChunk(chunkQueue.pollFirst());
+			headChunkOffset = 0;
+		}
+
+		size -= discardAmount;
+
+		return discardAmount;
+	}
+
+	/************************************************************
+	 * Clear the buffer and return its chunks to the pool, except chunks that
+	 * their views were taken by getChunks.
+	 *
+	 */
+	public synchronized void clear() {
+		for (ByteBuffer chunk : chunkQueue) {
+			releaseChunk(chunk);
+		}
+
+		chunkQueue.clear();
+		headChunkOffset = 0;
+		size = 0;
+	}
+
+	private ByteBuffer getWritableTailChunk() {
+		ByteBuffer tailChunk = chunkQueue.peekLast();
+
+		if ((tailChunk != null) && tailChunk.hasRemaining()) {
+			return tailChunk;
+		}
+
+		ByteBuffer chunk = chunkPool.acquire();
+		chunkQueue.addLast(chunk);
+
+		return chunk;
+	}
+
+	/** Chunk that its view was taken is left to the garbage collector. */
+	private void releaseChunk(ByteBuffer chunk) {
+		if (exposedChunkSet.remove(chunk) == false) {
+			chunkPool.release(chunk);
+		}
+	}
+
+	private ByteBuffer readView(ByteBuffer chunk) {
+		ByteBuffer view = chunk.asReadOnlyBuffer();
+		view.flip();
+
+		if (chunk == chunkQueue.peekFirst()) {
+			view.position(headChunkOffset);
+		}
+
+		return view;
+	}
+}
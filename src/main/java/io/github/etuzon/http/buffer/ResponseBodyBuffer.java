@@ -0,0 +1,301 @@
+package io.github.etuzon.http.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.hc.core5.http.nio.CapacityChannel;
+
+import io.github.etuzon.http.config.ResponseBufferConfig;
+import io.github.etuzon.http.enums.BufferOverflowPolicyEnum;
+
+/************************************************************
+ * Bounded response body buffer of async HTTP client.
+ * 
+ * Buffer controls how many bytes the I/O reactor is allowed to read from the
+ * connection. Capacity is granted only up to the high watermark, so with
+ * BufferOverflowPolicyEnum.BLOCK the reactor stops reading when the buffer is
+ * full, and the server is slowed down by TCP flow control. Reading is resumed
+ * when the buffer is drained below the low watermark.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ResponseBodyBuffer {
+	private final ChunkedByteBuffer chunkedBuffer;
+	private final long highWatermarkBytes;
+	private final long lowWatermarkBytes;
+	private final BufferOverflowPolicyEnum overflowPolicy;
+
+	private CapacityChannel capacityChannel = null;
+	private Consumer<IOException> failureListener = null;
+	private long grantedCapacity = 0;
+	private long droppedBytes = 0;
+	private boolean isPaused = false;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param config    Response buffer configuration.
+	 * @param chunkPool Pool that chunks are taken from.
+	 */
+	public ResponseBodyBuffer(ResponseBufferConfig config, ByteChunkPool chunkPool) {
+		this.chunkedBuffer = new ChunkedByteBuffer(chunkPool);
+		this.highWatermarkBytes = config.getHighWatermarkBytes();
+		this.lowWatermarkBytes = config.getLowWatermarkBytes();
+		this.overflowPolicy = config.getOverflowPolicy();
+	}
+
+	/************************************************************
+	 * Set listener of failures that cannot be thrown to the caller, such as
+	 * failure to resume reading after the buffer was drained.
+	 * 
+	 * @param failureListener Listener of failures, or null to not listen.
+	 */
+	public synchronized void setFailureListener(Consumer<IOException> failureListener) {
+		this.failureListener = failureListener;
+	}
+
+	/************************************************************
+	 * Set capacity channel of the response and grant it the free capacity.
+	 * 
+	 * Called by the I/O reactor when it needs more capacity.
+	 * 
+	 * @param capacityChannel Capacity channel of the response.
+	 * @throws IOException in case failed to update capacity.
+	 */
+	public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+		int capacity;
+
+		synchronized (this) {
+			this.capacityChannel = capacityChannel;
+			grantedCapacity = 0;
+			capacity = takeCapacityToGrant();
+		}
+
+		grantCapacity(capacityChannel, capacity);
+	}
+
+	/************************************************************
+	 * Append response body bytes.
+	 * 
+	 * @param data Received response body bytes.
+	 * @throws IOException in case buffer overflow policy is
+	 *                     BufferOverflowPolicyEnum.FAIL and the buffer is full,
+	 *                     or failed to update capacity.
+	 */
+	public void write(ByteBuffer data) throws IOException {
+		write(data, data.remaining());
+	}
+
+	/************************************************************
+	 * Append response body bytes that were decoded from other amount of
+	 * received bytes, such as decompressed bytes.
+	 * 
+	 * @param data           Response body bytes.
+	 * @param receivedLength Amount of received bytes that data was decoded
+	 *                       from, that is taken from the granted capacity.
+	 * @throws IOException in case buffer overflow policy is
+	 *                     BufferOverflowPolicyEnum.FAIL and the buffer is full,
+	 *                     or failed to update capacity.
+	 */
+	public void write(ByteBuffer data, int receivedLength) throws IOException {
+		CapacityChannel channel;
+		int capacity;
+
+		synchronized (this) {
+			int length = data.remaining();
+			grantedCapacity -= receivedLength;
+			long overflowBytes = chunkedBuffer.size() + length - highWatermarkBytes;
+
+			if (overflowBytes > 0) {
+				handleOverflow(data, overflowBytes);
+			}
+
+			chunkedBuffer.write(data);
+
+			if ((overflowPolicy == BufferOverflowPolicyEnum.BLOCK)
+					&& (chunkedBuffer.size() >= highWatermarkBytes)) {
+				isPaused = true;
+			}
+
+			channel = capacityChannel;
+			capacity = takeCapacityToGrant();
+		}
+
+		grantCapacity(channel, capacity);
+	}
+
+	/************************************************************
+	 * Release capacity of received bytes that are not part of response body,
+	 * for example bytes before headers separator.
+	 * 
+	 * @param length Amount of received bytes.
+	 * @throws IOException in case failed to update capacity.
+	 */
+	public void skip(int length) throws IOException {
+		CapacityChannel channel;
+		int capacity;
+
+		synchronized (this) {
+			grantedCapacity -= length;
+			channel = capacityChannel;
+			capacity = takeCapacityToGrant();
+		}
+
+		grantCapacity(channel, capacity);
+	}
+
+	/************************************************************
+	 * Decode buffer bytes to String.
+	 * 
+	 * @param charset Charset.
+	 * @return decoded buffer.
+	 */
+	public String decode(Charset charset) {
+		return chunkedBuffer.decode(charset);
+	}
+
+	/************************************************************
+	 * Decode buffer bytes to String, clear the buffer and resume reading in case
+	 * it was stopped. Failure to resume reading is passed to the failure
+	 * listener, as the decoded bytes are already cleared from the buffer.
+	 * 
+	 * @param charset Charset.
+	 * @return decoded buffer.
+	 */
+	public String decodeAndClear(Charset charset) {
+		String decoded;
+		CapacityChannel channel;
+		int capacity;
+		Consumer<IOException> listener;
+
+		synchronized (this) {
+			decoded = chunkedBuffer.decodeAndClear(charset);
+			channel = capacityChannel;
+			capacity = resumeIfDrained();
+			listener = failureListener;
+		}
+
+		try {
+			grantCapacity(channel, capacity);
+		} catch (IOException e) {
+			if (listener != null) {
+				listener.accept(e);
+			}
+		}
+
+		return decoded;
+	}
+
+	/************************************************************
+	 * Get read only views of buffer bytes.
+	 * 
+	 * Chunks of the views are not returned to the pool, so the views stay valid
+	 * after the buffer is cleared.
+	 * 
+	 * @return read only views of buffer bytes.
+	 */
+	public List<ByteBuffer> getChunks() {
+		return chunkedBuffer.getChunks();
+	}
+
+	/************************************************************
+	 * Copy buffer bytes to byte array.
+	 * 
+	 * @return buffer bytes.
+	 */
+	public byte[] toByteArray() {
+		return chunkedBuffer.toByteArray();
+	}
+
+	/************************************************************
+	 * Get amount of bytes in the buffer.
+	 * 
+	 * @return amount of bytes in the buffer.
+	 */
+	public long size() {
+		return chunkedBuffer.size();
+	}
+
+	/************************************************************
+	 * Get amount of bytes that were dropped by
+	 * BufferOverflowPolicyEnum.DROP_OLDEST.
+	 * 
+	 * @return amount of dropped bytes.
+	 */
+	public synchronized long getDroppedBytes() {
+		return droppedBytes;
+	}
+
+	/************************************************************
+	 * Return true in case reading from the connection is stopped because the
+	 * buffer is full.
+	 * 
+	 * @return true in case reading from the connection is stopped.
+	 */
+	public synchronized boolean isPaused() {
+		return isPaused;
+	}
+
+	private void handleOverflow(ByteBuffer data, long overflowBytes) throws IOException {
+		if (overflowPolicy == BufferOverflowPolicyEnum.FAIL) {
+			throw new IOException("Response buffer overflow. Buffer size [" + chunkedBuffer.size()
+					+ "] bytes and received [" + data.remaining() + "] bytes exceed high watermark ["
+					+ highWatermarkBytes + "] bytes");
+		}
+
+		if (overflowPolicy == BufferOverflowPolicyEnum.DROP_OLDEST) {
+			droppedBytes += chunkedBuffer.discard(overflowBytes);
+			long dataOverflowBytes = data.remaining() - highWatermarkBytes;
+
+			if (dataOverflowBytes > 0) {
+				data.position(data.position() + (int) dataOverflowBytes);
+				droppedBytes += dataOverflowBytes;
+			}
+		}
+	}
+
+	private int resumeIfDrained() {
+		if (isPaused && (chunkedBuffer.size() <= lowWatermarkBytes)) {
+			isPaused = false;
+		}
+
+		return takeCapacityToGrant();
+	}
+
+	/**
+	 * Capacity is granted up to the free space in the buffer, and only when at
+	 * least half of it was used, so capacity channel is not updated on each
+	 * received chunk.
+	 */
+	private int takeCapacityToGrant() {
+		if ((capacityChannel == null) || isPaused) {
+			return 0;
+		}
+
+		long maxCapacity = Integer.MAX_VALUE;
+
+		if (overflowPolicy == BufferOverflowPolicyEnum.BLOCK) {
+			maxCapacity = Math.min(maxCapacity, highWatermarkBytes - chunkedBuffer.size());
+		}
+
+		long capacity = maxCapacity - Math.max(grantedCapacity, 0);
+
+		if ((capacity <= 0) || ((grantedCapacity > 0) && (capacity < maxCapacity / 2))) {
+			return 0;
+		}
+
+		grantedCapacity = Math.max(grantedCapacity, 0) + capacity;
+
+		return (int) capacity;
+	}
+
+	private static void grantCapacity(CapacityChannel capacityChannel, int capacity) throws IOException {
+		if ((capacityChannel != null) && (capacity > 0)) {
+			capacityChannel.update(capacity);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package io.github.etuzon.http.cache;
+
+import org.apache.hc.core5.http.Header;
+
+/************************************************************
+ * Cache-Control directives of request or response that the response cache
+ * uses.
+ * 
+ * Cache is private cache of the client, so 'private' and 's-maxage'
+ * directives do not change its behaviour. Unknown directives are ignored.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class CacheControl {
+	public static final long NO_MAX_AGE = -1;
+
+	private static final String NO_STORE = "no-store";
+	private static final String NO_CACHE = "no-cache";
+	private static final String MAX_AGE = "max-age";
+	private static final long MAX_DELTA_SECONDS = 1L << 31;
+
+	private boolean isNoStore = false;
+	private boolean isNoCache = false;
+	private long maxAgeSeconds = NO_MAX_AGE;
+
+	private CacheControl() {
+	}
+
+	/************************************************************
+	 * Parse Cache-Control headers.
+	 * 
+	 * @param headers Cache-Control headers of the message, can be empty.
+	 * @return directives of the headers.
+	 */
+	public static CacheControl parse(Header[] headers) {
+		CacheControl cacheControl = new CacheControl();
+
+		for (Header header : headers) {
+			if (header.getValue() == null) {
+				continue;
+			}
+
+			for (String directive : header.getValue().split(",")) {
+				cacheControl.parseDirective(directive.trim());
+			}
+		}
+
+		return cacheControl;
+	}
+
+	/************************************************************
+	 * Return true in case message should not be stored.
+	 * 
+	 * @return true in case of 'no-store' directive.
+	 */
+	public boolean isNoStore() {
+		return isNoStore;
+	}
+
+	/************************************************************
+	 * Return true in case cached response should be revalidated before it is
+	 * used.
+	 * 
+	 * @return true in case of 'no-cache' directive.
+	 */
+	public boolean isNoCache() {
+		return isNoCache;
+	}
+
+	/************************************************************
+	 * Get 'max-age' directive value.
+	 * 
+	 * @return max age in seconds, or NO_MAX_AGE in case there is no valid
+	 *         'max-age' directive.
+	 */
+	public long getMaxAgeSeconds() {
+		return maxAgeSeconds;
+	}
+
+	private void parseDirective(String directive) {
+		int separatorIndex = directive.indexOf('=');
+		String name = ((separatorIndex == -1) ? directive : directive.substring(0, separatorIndex)).trim()
+				.toLowerCase();
+
+		if (name.equals(NO_STORE)) {
+			isNoStore = true;
+		} else if (name.equals(NO_CACHE)) {
+			isNoCache = true;
+		} else if (name.equals(MAX_AGE) && (separatorIndex != -1)) {
+			maxAgeSeconds = parseSeconds(directive.substring(separatorIndex + 1));
+		}
+	}
+
+	/**
+	 * Parse delta seconds, that can be quoted. Value above 2^31 is treated as
+	 * 2^31, as RFC 9111 defines, and invalid value is treated as 0, so response
+	 * is stale.
+	 */
+	private static long parseSeconds(String value) {
+		String seconds = value.trim().replace("\"", "");
+
+		if (seconds.isEmpty() || (seconds.chars().allMatch(Character::isDigit) == false)) {
+			return 0;
+		}
+
+		if (seconds.length() > String.valueOf(MAX_DELTA_SECONDS).length()) {
+			return MAX_DELTA_SECONDS;
+		}
+
+		return Math.min(Long.parseLong(seconds), MAX_DELTA_SECONDS);
+	}
+}
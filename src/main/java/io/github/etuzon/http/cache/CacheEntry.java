@@ -0,0 +1,324 @@
+package io.github.etuzon.http.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.http.Header;
+
+import io.github.etuzon.http.enums.HeaderEnum;
+import io.github.etuzon.http.objects.HttpResponse;
+
+/************************************************************
+ * Cached response.
+ * 
+ * Entry is immutable. Body is kept in read only buffer that is shared by the
+ * responses that are returned from the cache, so cache hit does not copy the
+ * body. Age and freshness are calculated as RFC 9111 section 4.2 defines.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class CacheEntry {
+	public static final int HEURISTIC_FRESHNESS_PERCENT = 10;
+
+	private static final long MILLIS_IN_SECOND = 1000;
+	private static final int HEADER_OVERHEAD_BYTES = 32;
+
+	private final int statusCode;
+	private final Header[] headers;
+	private final ByteBuffer body;
+	private final Charset charset;
+	private final long requestTimeMs;
+	private final long responseTimeMs;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param statusCode     Response status code.
+	 * @param headers        Response headers.
+	 * @param body           Response body. Its remaining bytes are the body.
+	 * @param charset        Response body charset.
+	 * @param requestTimeMs  Time that request was sent, in epoch milliseconds.
+	 * @param responseTimeMs Time that response was received, in epoch
+	 *                       milliseconds.
+	 */
+	public CacheEntry(int statusCode, Header[] headers, ByteBuffer body, Charset charset, long requestTimeMs,
+			long responseTimeMs) {
+		this.statusCode = statusCode;
+		this.headers = headers.clone();
+		this.body = body.asReadOnlyBuffer();
+		this.charset = charset;
+		this.requestTimeMs = requestTimeMs;
+		this.responseTimeMs = responseTimeMs;
+	}
+
+	/************************************************************
+	 * Return true in case response can be used without revalidation.
+	 * 
+	 * @param nowMs                Current time in epoch milliseconds.
+	 * @param requestMaxAgeSeconds 'max-age' of the request, or
+	 *                             CacheControl.NO_MAX_AGE.
+	 * @param isHeuristicFreshness true to use heuristic freshness in case
+	 *                             response has no explicit freshness.
+	 * @return true in case response is fresh.
+	 */
+	public boolean isFresh(long nowMs, long requestMaxAgeSeconds, boolean isHeuristicFreshness) {
+		long currentAgeMs = getCurrentAgeMs(nowMs);
+
+		if ((requestMaxAgeSeconds != CacheControl.NO_MAX_AGE)
+				&& (currentAgeMs > requestMaxAgeSeconds * MILLIS_IN_SECOND)) {
+			return false;
+		}
+
+		return getFreshnessLifetimeMs(isHeuristicFreshness) > currentAgeMs;
+	}
+
+	/************************************************************
+	 * Get age of the response, including its age when it was received.
+	 * 
+	 * @param nowMs Current time in epoch milliseconds.
+	 * @return age in milliseconds.
+	 */
+	public long getCurrentAgeMs(long nowMs) {
+		Date date = getDate();
+		long apparentAgeMs = (date == null) ? 0 : Math.max(0, responseTimeMs - date.getTime());
+		long correctedAgeMs = getAgeSeconds() * MILLIS_IN_SECOND + (responseTimeMs - requestTimeMs);
+		long residentTimeMs = Math.max(0, nowMs - responseTimeMs);
+
+		return Math.max(apparentAgeMs, correctedAgeMs) + residentTimeMs;
+	}
+
+	/************************************************************
+	 * Get time that response is fresh since it was generated, by Cache-Control
+	 * max-age, by Expires, or by heuristic of Last-Modified.
+	 * 
+	 * @param isHeuristicFreshness true to use heuristic freshness in case
+	 *                             response has no explicit freshness.
+	 * @return freshness lifetime in milliseconds, or 0 in case response should
+	 *         be revalidated before each use.
+	 */
+	public long getFreshnessLifetimeMs(boolean isHeuristicFreshness) {
+		CacheControl cacheControl = CacheControl.parse(getHeaders(HeaderEnum.CACHE_CONTROL));
+
+		if (cacheControl.isNoCache()) {
+			return 0;
+		}
+
+		if (cacheControl.getMaxAgeSeconds() != CacheControl.NO_MAX_AGE) {
+			return cacheControl.getMaxAgeSeconds() * MILLIS_IN_SECOND;
+		}
+
+		long dateMs = (getDate() == null) ? responseTimeMs : getDate().getTime();
+		String expires = getHeaderValue(HeaderEnum.EXPIRES);
+
+		if (expires != null) {
+			Date expiresDate = DateUtils.parseDate(expires);
+			return (expiresDate == null) ? 0 : Math.max(0, expiresDate.getTime() - dateMs);
+		}
+
+		String lastModified = getLastModified();
+
+		if (isHeuristicFreshness && (lastModified != null)) {
+			Date lastModifiedDate = DateUtils.parseDate(lastModified);
+
+			if (lastModifiedDate != null) {
+				return Math.max(0, dateMs - lastModifiedDate.getTime()) * HEURISTIC_FRESHNESS_PERCENT / 100;
+			}
+		}
+
+		return 0;
+	}
+
+	/************************************************************
+	 * Create entry of response that was revalidated by 304 Not Modified
+	 * response. Headers of 304 response replace the cached headers with the
+	 * same name, as RFC 9111 section 4.3.4 defines.
+	 * 
+	 * @param notModifiedHeaders Headers of 304 response.
+	 * @param requestTimeMs      Time that conditional request was sent.
+	 * @param responseTimeMs     Time that 304 response was received.
+	 * @return revalidated entry with the same body.
+	 */
+	public CacheEntry revalidate(Header[] notModifiedHeaders, long requestTimeMs, long responseTimeMs) {
+		List<Header> headerList = new ArrayList<Header>();
+
+		for (Header header : headers) {
+			if (containsHeader(notModifiedHeaders, header.getName()) == false) {
+				headerList.add(header);
+			}
+		}
+
+		for (Header header : notModifiedHeaders) {
+			if (header.getName().equalsIgnoreCase(HeaderEnum.CONTENT_LENGTH.getName()) == false) {
+				headerList.add(header);
+			}
+		}
+
+		return new CacheEntry(statusCode, headerList.toArray(new Header[headerList.size()]), body, charset,
+				requestTimeMs, responseTimeMs);
+	}
+
+	/************************************************************
+	 * Create response of the entry with the entry headers. Response body shares
+	 * the buffer of the entry.
+	 * 
+	 * @return response.
+	 */
+	public HttpResponse toHttpResponse() {
+		return new HttpResponse(statusCode, headers, body.duplicate(), charset);
+	}
+
+	/************************************************************
+	 * Return true in case response has ETag or Last-Modified, so it can be
+	 * revalidated by conditional request.
+	 * 
+	 * @return true in case response has validator.
+	 */
+	public boolean hasValidator() {
+		return (getETag() != null) || (getLastModified() != null);
+	}
+
+	/************************************************************
+	 * Get ETag header value.
+	 * 
+	 * @return ETag, or null in case response has no ETag.
+	 */
+	public String getETag() {
+		return getHeaderValue(HeaderEnum.ETAG);
+	}
+
+	/************************************************************
+	 * Get Last-Modified header value.
+	 * 
+	 * @return Last-Modified, or null in case response has no Last-Modified.
+	 */
+	public String getLastModified() {
+		return getHeaderValue(HeaderEnum.LAST_MODIFIED);
+	}
+
+	/************************************************************
+	 * Get amount of bytes of body and headers of the entry.
+	 * 
+	 * @return amount of bytes.
+	 */
+	public long getSizeBytes() {
+		long sizeBytes = body.remaining();
+
+		for (Header header : headers) {
+			sizeBytes += header.getName().length() + String.valueOf(header.getValue()).length()
+					+ HEADER_OVERHEAD_BYTES;
+		}
+
+		return sizeBytes;
+	}
+
+	/************************************************************
+	 * Get response status code.
+	 * 
+	 * @return response status code.
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/************************************************************
+	 * Get response headers.
+	 * 
+	 * @return copy of response headers.
+	 */
+	public Header[] getHeaders() {
+		return headers.clone();
+	}
+
+	/************************************************************
+	 * Get response body.
+	 * 
+	 * @return read only buffer of the body.
+	 */
+	public ByteBuffer getBody() {
+		return body.duplicate();
+	}
+
+	/************************************************************
+	 * Get response body charset.
+	 * 
+	 * @return response body charset.
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/************************************************************
+	 * Get time that request was sent.
+	 * 
+	 * @return time in epoch milliseconds.
+	 */
+	public long getRequestTimeMs() {
+		return requestTimeMs;
+	}
+
+	/************************************************************
+	 * Get time that response was received.
+	 * 
+	 * @return time in epoch milliseconds.
+	 */
+	public long getResponseTimeMs() {
+		return responseTimeMs;
+	}
+
+	private Date getDate() {
+		String date = getHeaderValue(HeaderEnum.DATE);
+		return (date == null) ? null : DateUtils.parseDate(date);
+	}
+
+	/** Age header value. Invalid value is ignored. */
+	private long getAgeSeconds() {
+		String age = getHeaderValue(HeaderEnum.AGE);
+
+		if (age == null) {
+			return 0;
+		}
+
+		try {
+			return Math.max(0, Long.parseLong(age.trim()));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private Header[] getHeaders(HeaderEnum headerEnum) {
+		List<Header> headerList = new ArrayList<Header>();
+
+		for (Header header : headers) {
+			if (header.getName().equalsIgnoreCase(headerEnum.getName())) {
+				headerList.add(header);
+			}
+		}
+
+		return headerList.toArray(new Header[headerList.size()]);
+	}
+
+	private String getHeaderValue(HeaderEnum headerEnum) {
+		for (Header header : headers) {
+			if (header.getName().equalsIgnoreCase(headerEnum.getName())) {
+				return header.getValue();
+			}
+		}
+
+		return null;
+	}
+
+	private static boolean containsHeader(Header[] headers, String name) {
+		for (Header header : headers) {
+			if (header.getName().equalsIgnoreCase(name)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,553 @@
+package io.github.etuzon.http.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.message.BasicHeader;
+
+import io.github.etuzon.http.metrics.CacheMetrics;
+
+/************************************************************
+ * Disk tier of response cache, for response bodies that are too large for
+ * memory.
+ * 
+ * Each body is kept in its own file of the cache directory, and it is memory
+ * mapped when it is used, so cache hit returns read only view of the file
+ * without copying it to the heap. Headers, times and least recently used order
+ * of the responses are kept in index file of the directory, that is replaced
+ * atomically on each change and on close, so cached responses are used again
+ * after restart. Body files that are not in the index, for example after
+ * crash, are deleted when the tier is opened, and index that cannot be read is
+ * ignored.
+ * 
+ * Body files are deleted in least recently used order when their bytes are
+ * above the maximum bytes of the tier. Body is mapped as one buffer, so body
+ * of more than 2 GB is not stored.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class DiskCacheTier implements Closeable {
+	public static final String INDEX_FILE_NAME = "cache.index";
+	public static final long MAX_MAPPED_BYTES = Integer.MAX_VALUE;
+
+	private static final int INDEX_MAGIC = 0x48434958;
+	private static final int INDEX_VERSION = 1;
+	private static final String BODY_FILE_SUFFIX = ".body";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final int MAX_INDEX_STRING_LENGTH = 16 * 1024;
+	private static final int MAX_INDEX_HEADERS_AMOUNT = 1024;
+
+	private final Path directory;
+	private final long maxBytes;
+	private final CacheMetrics metrics;
+	private final LinkedHashMap<String, DiskEntry> entryMap = new LinkedHashMap<String, DiskEntry>(16, 0.75f, true);
+	private long sizeBytes = 0;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * Directory is created in case it does not exist, and responses of its
+	 * index are loaded.
+	 * 
+	 * @param directory Cache directory.
+	 * @param maxBytes  Maximum amount of bytes of all body files.
+	 * @param metrics   Metrics that stored and evicted responses are added to.
+	 * @throws IOException in case failed to create or read the directory.
+	 */
+	public DiskCacheTier(Path directory, long maxBytes, CacheMetrics metrics) throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.metrics = metrics;
+
+		Files.createDirectories(directory);
+
+		synchronized (this) {
+			loadIndex();
+			deleteUnknownFiles();
+
+			if (evict()) {
+				writeIndex();
+			}
+		}
+	}
+
+	/************************************************************
+	 * Get cached response, and mark it as most recently used. Body of the
+	 * response is read only view of the memory mapped body file.
+	 * 
+	 * @param key Cache key of the request.
+	 * @return cached response, or null in case response is not cached or its
+	 *         body file cannot be mapped.
+	 */
+	public synchronized CacheEntry get(String key) {
+		DiskEntry diskEntry = entryMap.get(key);
+
+		if (diskEntry == null) {
+			return null;
+		}
+
+		diskEntry.lastAccessMs = System.currentTimeMillis();
+
+		try {
+			return diskEntry.toCacheEntry(directory);
+		} catch (IOException e) {
+			remove(key);
+			return null;
+		}
+	}
+
+	/************************************************************
+	 * Open channel of the body file of cached response, for example to
+	 * transfer it to another channel without copying it to the heap.
+	 * 
+	 * @param key Cache key of the request.
+	 * @return read only channel of the body file, that should be closed by the
+	 *         caller, or null in case response is not cached.
+	 * @throws IOException in case failed to open the body file.
+	 */
+	public FileChannel openBodyChannel(String key) throws IOException {
+		DiskEntry diskEntry;
+
+		synchronized (this) {
+			diskEntry = entryMap.get(key);
+		}
+
+		return (diskEntry == null) ? null
+				: FileChannel.open(directory.resolve(diskEntry.fileName), StandardOpenOption.READ);
+	}
+
+	/************************************************************
+	 * Store response with its body, and delete least recently used body files
+	 * in case tier is above its maximum bytes.
+	 * 
+	 * Body is written to temporary file that is renamed to body file when the
+	 * whole body was written, so partial body is never used. Body file is
+	 * mapped before it is indexed, so it is not deleted by eviction of another
+	 * store before it is mapped.
+	 * 
+	 * @param key    Cache key of the request.
+	 * @param entry  Response headers and times. Body of the entry is ignored.
+	 * @param body   Response body.
+	 * @param length Response body length.
+	 * @return cached response with memory mapped body.
+	 * @throws IOException in case failed to read the body or to write it to
+	 *                     the disk.
+	 */
+	public CacheEntry store(String key, CacheEntry entry, InputStream body, long length) throws IOException {
+		String fileName = UUID.randomUUID().toString() + BODY_FILE_SUFFIX;
+		Path tempFile = directory.resolve(fileName + TEMP_FILE_SUFFIX);
+
+		try {
+			long writtenLength = Files.copy(body, tempFile);
+
+			if (writtenLength != length) {
+				throw new IOException(
+						"Response body has [" + writtenLength + "] bytes but Content-Length is [" + length + "]");
+			}
+
+			Files.move(tempFile, directory.resolve(fileName), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.deleteIfExists(tempFile);
+			throw e;
+		}
+
+		DiskEntry diskEntry = new DiskEntry(key, fileName, entry, length, System.currentTimeMillis());
+
+		synchronized (this) {
+			CacheEntry cachedEntry;
+
+			try {
+				cachedEntry = diskEntry.toCacheEntry(directory);
+			} catch (IOException e) {
+				deleteQuietly(directory.resolve(fileName));
+				throw e;
+			}
+
+			removeEntry(key);
+			entryMap.put(key, diskEntry);
+			sizeBytes += length;
+			metrics.onStored();
+			evict();
+			writeIndex();
+			return cachedEntry;
+		}
+	}
+
+	/************************************************************
+	 * Replace headers and times of cached response, for example after it was
+	 * revalidated. Body file is not changed.
+	 * 
+	 * @param key   Cache key of the request.
+	 * @param entry Response headers and times. Body of the entry is ignored.
+	 * @return true in case response is cached in the tier.
+	 */
+	public synchronized boolean update(String key, CacheEntry entry) {
+		DiskEntry diskEntry = entryMap.get(key);
+
+		if (diskEntry == null) {
+			return false;
+		}
+
+		entryMap.put(key, diskEntry.update(entry));
+		writeIndex();
+		return true;
+	}
+
+	/************************************************************
+	 * Remove cached response and delete its body file.
+	 * 
+	 * @param key Cache key of the request.
+	 */
+	public synchronized void remove(String key) {
+		if (removeEntry(key)) {
+			writeIndex();
+		}
+	}
+
+	/************************************************************
+	 * Remove all cached responses and delete their body files.
+	 *
+	 */
+	public synchronized void clear() {
+		for (DiskEntry diskEntry : entryMap.values()) {
+			deleteQuietly(directory.resolve(diskEntry.fileName));
+		}
+
+		entryMap.clear();
+		sizeBytes = 0;
+		writeIndex();
+	}
+
+	/************************************************************
+	 * Write the index, so least recently used order is kept after restart.
+	 * Body files are not deleted.
+	 *
+	 */
+	@Override
+	public synchronized void close() {
+		writeIndex();
+	}
+
+	/************************************************************
+	 * Return true in case key and headers of response can be kept in the
+	 * index.
+	 * 
+	 * @param key     Cache key of the request.
+	 * @param headers Response headers.
+	 * @return true in case response can be stored in the tier.
+	 */
+	public static boolean isIndexable(String key, Header[] headers) {
+		if ((key.length() > MAX_INDEX_STRING_LENGTH) || (headers.length > MAX_INDEX_HEADERS_AMOUNT)) {
+			return false;
+		}
+
+		for (Header header : headers) {
+			if ((header.getName().length() > MAX_INDEX_STRING_LENGTH) || (header.getValue() == null)
+					|| (header.getValue().length() > MAX_INDEX_STRING_LENGTH)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/************************************************************
+	 * Get maximum amount of bytes of one response body.
+	 * 
+	 * @return maximum amount of bytes.
+	 */
+	public long getMaxEntryBytes() {
+		return Math.min(maxBytes, MAX_MAPPED_BYTES);
+	}
+
+	/************************************************************
+	 * Get amount of bytes of all body files.
+	 * 
+	 * @return amount of bytes.
+	 */
+	public synchronized long getSizeBytes() {
+		return sizeBytes;
+	}
+
+	/************************************************************
+	 * Get amount of cached responses.
+	 * 
+	 * @return amount of responses.
+	 */
+	public synchronized int getEntriesAmount() {
+		return entryMap.size();
+	}
+
+	/************************************************************
+	 * Get cache directory.
+	 * 
+	 * @return cache directory.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/** Load entries of the index in least recently used order. Entry without its body file is dropped. */
+	private void loadIndex() {
+		Path indexFile = directory.resolve(INDEX_FILE_NAME);
+
+		if (Files.exists(indexFile) == false) {
+			return;
+		}
+
+		List<DiskEntry> diskEntryList = new ArrayList<DiskEntry>();
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+			if ((input.readInt() != INDEX_MAGIC) || (input.readInt() != INDEX_VERSION)) {
+				return;
+			}
+
+			int entriesAmount = input.readInt();
+
+			for (int index = 0; index < entriesAmount; index++) {
+				diskEntryList.add(DiskEntry.read(input));
+			}
+		} catch (IOException | RuntimeException e) {
+			return;
+		}
+
+		diskEntryList.sort(Comparator.comparingLong(diskEntry -> diskEntry.lastAccessMs));
+
+		for (DiskEntry diskEntry : diskEntryList) {
+			if (isBodyFileValid(diskEntry)) {
+				entryMap.put(diskEntry.key, diskEntry);
+				sizeBytes += diskEntry.bodyLength;
+			}
+		}
+	}
+
+	private boolean isBodyFileValid(DiskEntry diskEntry) {
+		Path bodyFile = directory.resolve(diskEntry.fileName);
+
+		try {
+			return Files.isRegularFile(bodyFile) && (Files.size(bodyFile) == diskEntry.bodyLength);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/** Delete body and temporary files that are not in the index. Other files of the directory are kept. */
+	private void deleteUnknownFiles() throws IOException {
+		Set<String> fileNameSet = new HashSet<String>();
+
+		for (DiskEntry diskEntry : entryMap.values()) {
+			fileNameSet.add(diskEntry.fileName);
+		}
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				String fileName = file.getFileName().toString();
+
+				if ((fileName.endsWith(BODY_FILE_SUFFIX) || fileName.endsWith(TEMP_FILE_SUFFIX))
+						&& (fileNameSet.contains(fileName) == false)) {
+					deleteQuietly(file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write index to temporary file and replace the index by it. Failure is
+	 * ignored, as index is written again on next change.
+	 */
+	private void writeIndex() {
+		Path tempFile = directory.resolve(INDEX_FILE_NAME + TEMP_FILE_SUFFIX);
+
+		try {
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				output.writeInt(INDEX_MAGIC);
+				output.writeInt(INDEX_VERSION);
+				output.writeInt(entryMap.size());
+
+				for (DiskEntry diskEntry : entryMap.values()) {
+					diskEntry.write(output);
+				}
+			}
+
+			Files.move(tempFile, directory.resolve(INDEX_FILE_NAME), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			deleteQuietly(tempFile);
+		}
+	}
+
+	private boolean removeEntry(String key) {
+		DiskEntry diskEntry = entryMap.remove(key);
+
+		if (diskEntry == null) {
+			return false;
+		}
+
+		sizeBytes -= diskEntry.bodyLength;
+		deleteQuietly(directory.resolve(diskEntry.fileName));
+		return true;
+	}
+
+	/** Delete least recently used body files until tier is not above its maximum bytes. */
+	private boolean evict() {
+		Iterator<Map.Entry<String, DiskEntry>> iterator = entryMap.entrySet().iterator();
+		boolean isEvicted = false;
+
+		while ((sizeBytes > maxBytes) && iterator.hasNext()) {
+			DiskEntry diskEntry = iterator.next().getValue();
+			iterator.remove();
+			sizeBytes -= diskEntry.bodyLength;
+			deleteQuietly(directory.resolve(diskEntry.fileName));
+			metrics.onEvicted();
+			isEvicted = true;
+		}
+
+		return isEvicted;
+	}
+
+	/** Body file that is mapped by a response can fail to be deleted on some platforms. It is deleted on next open. */
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+		}
+	}
+
+	/************************************************************
+	 * Index entry of response that its body is in body file.
+	 *
+	 */
+	private static class DiskEntry {
+		private final String key;
+		private final String fileName;
+		private final int statusCode;
+		private final Header[] headers;
+		private final String charsetName;
+		private final long requestTimeMs;
+		private final long responseTimeMs;
+		private final long bodyLength;
+		private volatile long lastAccessMs;
+		private MappedByteBuffer body = null;
+
+		private DiskEntry(String key, String fileName, int statusCode, Header[] headers, String charsetName,
+				long requestTimeMs, long responseTimeMs, long bodyLength, long lastAccessMs) {
+			this.key = key;
+			this.fileName = fileName;
+			this.statusCode = statusCode;
+			this.headers = headers;
+			this.charsetName = charsetName;
+			this.requestTimeMs = requestTimeMs;
+			this.responseTimeMs = responseTimeMs;
+			this.bodyLength = bodyLength;
+			this.lastAccessMs = lastAccessMs;
+		}
+
+		private DiskEntry(String key, String fileName, CacheEntry entry, long bodyLength, long lastAccessMs) {
+			this(key, fileName, entry.getStatusCode(), entry.getHeaders(), entry.getCharset().name(),
+					entry.getRequestTimeMs(), entry.getResponseTimeMs(), bodyLength, lastAccessMs);
+		}
+
+		/** Entry of the same body file with the headers and times of the given entry. */
+		private DiskEntry update(CacheEntry entry) {
+			DiskEntry diskEntry = new DiskEntry(key, fileName, entry, bodyLength, System.currentTimeMillis());
+
+			synchronized (this) {
+				diskEntry.body = body;
+			}
+
+			return diskEntry;
+		}
+
+		/** Map body file on first use. Mapping stays valid after its channel is closed. */
+		private CacheEntry toCacheEntry(Path directory) throws IOException {
+			ByteBuffer mappedBody;
+
+			synchronized (this) {
+				if (body == null) {
+					try (FileChannel channel = FileChannel.open(directory.resolve(fileName),
+							StandardOpenOption.READ)) {
+						body = channel.map(FileChannel.MapMode.READ_ONLY, 0, bodyLength);
+					}
+				}
+
+				mappedBody = body;
+			}
+
+			return new CacheEntry(statusCode, headers, mappedBody, Charset.forName(charsetName), requestTimeMs,
+					responseTimeMs);
+		}
+
+		private void write(DataOutputStream output) throws IOException {
+			output.writeUTF(key);
+			output.writeUTF(fileName);
+			output.writeInt(statusCode);
+			output.writeUTF(charsetName);
+			output.writeLong(requestTimeMs);
+			output.writeLong(responseTimeMs);
+			output.writeLong(bodyLength);
+			output.writeLong(lastAccessMs);
+			output.writeInt(headers.length);
+
+			for (Header header : headers) {
+				output.writeUTF(header.getName());
+				output.writeUTF(header.getValue());
+			}
+		}
+
+		private static DiskEntry read(DataInputStream input) throws IOException {
+			String key = input.readUTF();
+			String fileName = input.readUTF();
+			int statusCode = input.readInt();
+			String charsetName = input.readUTF();
+			long requestTimeMs = input.readLong();
+			long responseTimeMs = input.readLong();
+			long bodyLength = input.readLong();
+			long lastAccessMs = input.readLong();
+			int headersAmount = input.readInt();
+
+			if ((headersAmount < 0) || (headersAmount > MAX_INDEX_HEADERS_AMOUNT)) {
+				throw new IOException("Index entry has [" + headersAmount + "] headers");
+			}
+
+			Header[] headers = new Header[headersAmount];
+
+			for (int index = 0; index < headers.length; index++) {
+				headers[index] = new BasicHeader(input.readUTF(), input.readUTF());
+			}
+
+			if ((fileName.endsWith(BODY_FILE_SUFFIX) == false) || (fileName.indexOf('/') != -1)
+					|| (fileName.indexOf('\\') != -1) || (Charset.isSupported(charsetName) == false)) {
+				throw new IOException("Index entry of body file [" + fileName + "] is not valid");
+			}
+
+			return new DiskEntry(key, fileName, statusCode, headers, charsetName, requestTimeMs, responseTimeMs,
+					bodyLength, lastAccessMs);
+		}
+	}
+}
@@ -0,0 +1,514 @@
+package io.github.etuzon.http.cache;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+
+import io.github.etuzon.http.config.CacheConfig;
+import io.github.etuzon.http.enums.HeaderEnum;
+import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.http.exceptions.HttpException;
+import io.github.etuzon.http.metrics.CacheMetrics;
+import io.github.etuzon.http.objects.HttpObject;
+import io.github.etuzon.http.objects.HttpResponse;
+
+/************************************************************
+ * Cache of GET responses, as private cache of RFC 9111, in memory and
+ * optionally in disk tier.
+ * 
+ * Fresh response, by Cache-Control max-age or Expires, is returned without
+ * network. Stale response with ETag or Last-Modified is revalidated by
+ * If-None-Match or If-Modified-Since request, and 304 response is answered by
+ * the cached body. Responses are evicted in least recently used order when
+ * their bytes are above the cache maximum bytes.
+ * 
+ * Response with Content-Length above maximum entry bytes is streamed to the
+ * disk tier, in case cache has one, and it is returned with memory mapped body
+ * of the disk tier, so large body is never kept in the heap. In case the disk
+ * write fails, the response is not stored and the request is sent again
+ * without the cache, so its body is streamed to the caller. Response of
+ * unknown length, as chunked or decompressed response, is read up to maximum
+ * entry bytes, and in case it is longer, it is not stored and its body is
+ * streamed to the caller.
+ * 
+ * Response is not stored in case of Cache-Control no-store, Vary header or
+ * status code that is not cacheable by default. Request with no-store,
+ * conditional or Range header is sent to the server without the cache, and
+ * successful POST, PUT or DELETE request removes the cached response of its
+ * URI.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ResponseCache implements Closeable {
+	private static final List<Integer> CACHEABLE_STATUS_CODE_LIST = Arrays.asList(HttpStatus.SC_OK,
+			HttpStatus.SC_NON_AUTHORITATIVE_INFORMATION, HttpStatus.SC_NO_CONTENT, HttpStatus.SC_MULTIPLE_CHOICES,
+			HttpStatus.SC_MOVED_PERMANENTLY, HttpStatus.SC_PERMANENT_REDIRECT, HttpStatus.SC_NOT_FOUND,
+			HttpStatus.SC_METHOD_NOT_ALLOWED, HttpStatus.SC_GONE, HttpStatus.SC_REQUEST_URI_TOO_LONG,
+			HttpStatus.SC_NOT_IMPLEMENTED);
+
+	private final CacheConfig config;
+	private final CacheMetrics metrics;
+	private final DiskCacheTier diskTier;
+	private final LinkedHashMap<String, CacheEntry> entryMap = new LinkedHashMap<String, CacheEntry>(16, 0.75f,
+			true);
+	private long sizeBytes = 0;
+
+	/************************************************************
+	 * Request that is sent to the server in case cache cannot answer it.
+	 *
+	 */
+	public interface NetworkRequest {
+		/************************************************************
+		 * Send request to the server.
+		 * 
+		 * @return request and response.
+		 * @throws HttpException in case failed to send request.
+		 */
+		HttpObject send() throws HttpException;
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param config  Cache configuration.
+	 * @param metrics Metrics that hits, misses and revalidations are added to.
+	 */
+	public ResponseCache(CacheConfig config, CacheMetrics metrics) {
+		this(config, null, metrics);
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param config   Cache configuration.
+	 * @param diskTier Disk tier of responses above maximum entry bytes, or null
+	 *                 for memory only cache.
+	 * @param metrics  Metrics that hits, misses and revalidations are added to.
+	 */
+	public ResponseCache(CacheConfig config, DiskCacheTier diskTier, CacheMetrics metrics) {
+		this.config = config;
+		this.diskTier = diskTier;
+		this.metrics = metrics;
+	}
+
+	/************************************************************
+	 * Answer request from the cache, or send it to the server and store its
+	 * response.
+	 * 
+	 * Conditional headers are added to the request in case cached response is
+	 * revalidated.
+	 * 
+	 * @param request        Request.
+	 * @param networkRequest Sends the request to the server.
+	 * @return request and response.
+	 * @throws HttpException in case failed to send request or to read response
+	 *                       body that is stored.
+	 */
+	public HttpObject execute(HttpUriRequestBase request, NetworkRequest networkRequest) throws HttpException {
+		String key = getKey(request);
+
+		if (key == null) {
+			return networkRequest.send();
+		}
+
+		if (request.getMethod().equalsIgnoreCase(RequestTypeEnum.GET.name()) == false) {
+			return executeNotGetRequest(key, request, networkRequest);
+		}
+
+		CacheControl requestCacheControl = CacheControl.parse(request.getHeaders(HeaderEnum.CACHE_CONTROL.getName()));
+
+		if (requestCacheControl.isNoStore() || request.containsHeader(HeaderEnum.IF_NONE_MATCH.getName())
+				|| request.containsHeader(HeaderEnum.IF_MODIFIED_SINCE.getName())
+				|| request.containsHeader(HeaderEnum.RANGE.getName())) {
+			return networkRequest.send();
+		}
+
+		long requestTimeMs = System.currentTimeMillis();
+		CacheEntry entry = get(key);
+
+		if ((entry != null) && (requestCacheControl.isNoCache() == false) && entry.isFresh(requestTimeMs,
+				requestCacheControl.getMaxAgeSeconds(), config.isHeuristicFreshness())) {
+			metrics.onHit();
+			return new HttpObject(request, entry.toHttpResponse());
+		}
+
+		boolean isRevalidation = (entry != null) && entry.hasValidator();
+
+		if (isRevalidation) {
+			addConditionalHeaders(request, entry);
+			metrics.onRevalidation();
+		}
+
+		HttpObject httpObject = networkRequest.send();
+		long responseTimeMs = System.currentTimeMillis();
+		CloseableHttpResponse response = httpObject.getResponse().getCloseableHttpResponse();
+
+		if (isRevalidation && (response != null) && (response.getCode() == HttpStatus.SC_NOT_MODIFIED)) {
+			httpObject.getResponse().discardBody();
+			metrics.onNotModified();
+
+			CacheEntry revalidatedEntry = entry.revalidate(response.getHeaders(), requestTimeMs, responseTimeMs);
+
+			if ((diskTier == null) || (diskTier.update(key, revalidatedEntry) == false)) {
+				put(key, revalidatedEntry);
+			}
+
+			return new HttpObject(request, revalidatedEntry.toHttpResponse());
+		}
+
+		metrics.onMiss();
+		remove(key);
+
+		return store(key, request, networkRequest, httpObject, requestTimeMs, responseTimeMs);
+	}
+
+	/************************************************************
+	 * Get cached response, and mark it as most recently used.
+	 * 
+	 * @param key Cache key of the request.
+	 * @return cached response, or null in case response is not cached.
+	 */
+	public CacheEntry get(String key) {
+		CacheEntry entry;
+
+		synchronized (this) {
+			entry = entryMap.get(key);
+		}
+
+		if ((entry == null) && (diskTier != null)) {
+			return diskTier.get(key);
+		}
+
+		return entry;
+	}
+
+	/************************************************************
+	 * Store response in memory, and evict least recently used responses in case
+	 * cache is above its maximum bytes. Response that is larger than maximum
+	 * entry bytes is not stored.
+	 * 
+	 * @param key   Cache key of the request.
+	 * @param entry Response.
+	 */
+	public synchronized void put(String key, CacheEntry entry) {
+		remove(key);
+
+		if (entry.getSizeBytes() > config.getMaxEntryBytes()) {
+			return;
+		}
+
+		entryMap.put(key, entry);
+		sizeBytes += entry.getSizeBytes();
+		metrics.onStored();
+		evict();
+	}
+
+	/************************************************************
+	 * Remove cached response.
+	 * 
+	 * @param key Cache key of the request.
+	 */
+	public void remove(String key) {
+		synchronized (this) {
+			CacheEntry entry = entryMap.remove(key);
+
+			if (entry != null) {
+				sizeBytes -= entry.getSizeBytes();
+			}
+		}
+
+		if (diskTier != null) {
+			diskTier.remove(key);
+		}
+	}
+
+	/************************************************************
+	 * Remove all cached responses.
+	 *
+	 */
+	public void clear() {
+		synchronized (this) {
+			entryMap.clear();
+			sizeBytes = 0;
+		}
+
+		if (diskTier != null) {
+			diskTier.clear();
+		}
+	}
+
+	/************************************************************
+	 * Close the disk tier, so its index is kept for next cache of its
+	 * directory.
+	 *
+	 */
+	@Override
+	public void close() {
+		if (diskTier != null) {
+			diskTier.close();
+		}
+	}
+
+	/************************************************************
+	 * Get disk tier.
+	 * 
+	 * @return disk tier, or null in case cache is in memory only.
+	 */
+	public DiskCacheTier getDiskCacheTier() {
+		return diskTier;
+	}
+
+	/************************************************************
+	 * Get amount of bytes of cached responses in memory.
+	 * 
+	 * @return amount of bytes.
+	 */
+	public synchronized long getSizeBytes() {
+		return sizeBytes;
+	}
+
+	/************************************************************
+	 * Get amount of cached responses in memory.
+	 * 
+	 * @return amount of responses.
+	 */
+	public synchronized int getEntriesAmount() {
+		return entryMap.size();
+	}
+
+	/************************************************************
+	 * Get cache configuration.
+	 * 
+	 * @return cache configuration.
+	 */
+	public CacheConfig getConfig() {
+		return config;
+	}
+
+	/************************************************************
+	 * Get cache metrics.
+	 * 
+	 * @return cache metrics.
+	 */
+	public CacheMetrics getMetrics() {
+		return metrics;
+	}
+
+	/************************************************************
+	 * Get cache key of request, that is its absolute URI.
+	 * 
+	 * @param request Request.
+	 * @return cache key, or null in case request URI is not valid.
+	 */
+	public static String getKey(HttpUriRequestBase request) {
+		try {
+			return request.getUri().toASCIIString();
+		} catch (URISyntaxException e) {
+			return null;
+		}
+	}
+
+	/** Successful request that changes the resource removes its cached response. */
+	private HttpObject executeNotGetRequest(String key, HttpUriRequestBase request, NetworkRequest networkRequest)
+			throws HttpException {
+		HttpObject httpObject = networkRequest.send();
+		int statusCode = httpObject.getResponse().getStatusCode();
+		String method = request.getMethod();
+
+		if ((statusCode < HttpStatus.SC_BAD_REQUEST) && (method.equalsIgnoreCase(RequestTypeEnum.POST.name())
+				|| method.equalsIgnoreCase(RequestTypeEnum.PUT.name())
+				|| method.equalsIgnoreCase(RequestTypeEnum.DELETE.name()))) {
+			remove(key);
+		}
+
+		return httpObject;
+	}
+
+	/**
+	 * Read response body and store the response in case it can be stored.
+	 * Return the response, or the response of the disk tier in case its body
+	 * was streamed to the disk tier. Body of unknown length is read up to
+	 * maximum entry bytes, and in case it is longer, it is streamed to the
+	 * caller and the response is not stored.
+	 */
+	private HttpObject store(String key, HttpUriRequestBase request, NetworkRequest networkRequest,
+			HttpObject httpObject, long requestTimeMs, long responseTimeMs) throws HttpException {
+		HttpResponse httpResponse = httpObject.getResponse();
+		CloseableHttpResponse response = httpResponse.getCloseableHttpResponse();
+
+		if ((response == null) || (isStorable(response) == false)) {
+			return httpObject;
+		}
+
+		long contentLength = (response.getEntity() == null) ? 0 : response.getEntity().getContentLength();
+
+		if (contentLength > config.getMaxEntryBytes()) {
+			return storeOnDisk(key, request, networkRequest, httpObject, contentLength, requestTimeMs,
+					responseTimeMs);
+		}
+
+		ByteBuffer body;
+
+		try {
+			body = httpResponse.getByteBuffer(config.getMaxEntryBytes());
+		} catch (UncheckedIOException e) {
+			throw new HttpException(e.getCause());
+		}
+
+		if (body == null) {
+			return httpObject;
+		}
+
+		CacheEntry entry = new CacheEntry(response.getCode(), response.getHeaders(), body,
+				httpResponse.getCharset(), requestTimeMs, responseTimeMs);
+
+		if (isUseful(entry)) {
+			put(key, entry);
+		}
+
+		return httpObject;
+	}
+
+	/**
+	 * Stream response body to the disk tier, in case tier accepts its length. In case disk write fails, the request
+	 * is sent again without the cache, as the body was already read.
+	 */
+	private HttpObject storeOnDisk(String key, HttpUriRequestBase request, NetworkRequest networkRequest,
+			HttpObject httpObject, long contentLength, long requestTimeMs, long responseTimeMs) throws HttpException {
+		HttpResponse httpResponse = httpObject.getResponse();
+		CloseableHttpResponse response = httpResponse.getCloseableHttpResponse();
+
+		if ((diskTier == null) || (contentLength > diskTier.getMaxEntryBytes())
+				|| (DiskCacheTier.isIndexable(key, response.getHeaders()) == false)) {
+			return httpObject;
+		}
+
+		CacheEntry entry = new CacheEntry(response.getCode(), response.getHeaders(), ByteBuffer.allocate(0),
+				httpResponse.getCharset(), requestTimeMs, responseTimeMs);
+
+		if (isUseful(entry) == false) {
+			return httpObject;
+		}
+
+		try (ReadCountingInputStream body = new ReadCountingInputStream(httpResponse.getInputStream())) {
+			try {
+				return new HttpObject(httpObject.getRequest(),
+						diskTier.store(key, entry, body, contentLength).toHttpResponse());
+			} catch (IOException e) {
+				if (body.readException != null) {
+					throw body.readException;
+				}
+
+				if (body.isEnded && (body.readAmount != contentLength)) {
+					throw e;
+				}
+			}
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+
+		request.removeHeaders(HeaderEnum.IF_NONE_MATCH.getName());
+		request.removeHeaders(HeaderEnum.IF_MODIFIED_SINCE.getName());
+		return networkRequest.send();
+	}
+
+	private boolean isStorable(CloseableHttpResponse response) {
+		return CACHEABLE_STATUS_CODE_LIST.contains(response.getCode())
+				&& (response.containsHeader(HeaderEnum.VARY.getName()) == false)
+				&& (CacheControl.parse(response.getHeaders(HeaderEnum.CACHE_CONTROL.getName())).isNoStore() == false);
+	}
+
+	/** Response is useful in case it is fresh for some time or it can be revalidated. */
+	private boolean isUseful(CacheEntry entry) {
+		return (entry.getFreshnessLifetimeMs(config.isHeuristicFreshness()) > 0) || entry.hasValidator();
+	}
+
+	private static void addConditionalHeaders(HttpUriRequestBase request, CacheEntry entry) {
+		if (entry.getETag() != null) {
+			request.setHeader(HeaderEnum.IF_NONE_MATCH.getName(), entry.getETag());
+		}
+
+		if (entry.getLastModified() != null) {
+			request.setHeader(HeaderEnum.IF_MODIFIED_SINCE.getName(), entry.getLastModified());
+		}
+	}
+
+	/** Evict least recently used responses until cache is not above its maximum bytes. */
+	private void evict() {
+		Iterator<Map.Entry<String, CacheEntry>> iterator = entryMap.entrySet().iterator();
+
+		while ((sizeBytes > config.getMaxBytes()) && iterator.hasNext()) {
+			sizeBytes -= iterator.next().getValue().getSizeBytes();
+			iterator.remove();
+			metrics.onEvicted();
+		}
+	}
+
+	/************************************************************
+	 * Input stream that counts the bytes that are read, and keeps the exception
+	 * of failed read, so failure to read the response can be told from failure
+	 * to write it.
+	 *
+	 */
+	private static class ReadCountingInputStream extends FilterInputStream {
+		private static final int SKIP_BUFFER_SIZE = 8 * 1024;
+
+		private long readAmount = 0;
+		private boolean isEnded = false;
+		private IOException readException = null;
+
+		private ReadCountingInputStream(InputStream inStream) {
+			super(inStream);
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] bytes = new byte[1];
+			return (read(bytes, 0, 1) < 0) ? -1 : (bytes[0] & 0xFF);
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			int amount;
+
+			try {
+				amount = in.read(bytes, offset, length);
+			} catch (IOException e) {
+				readException = e;
+				throw e;
+			}
+
+			if (amount < 0) {
+				isEnded = true;
+			} else {
+				readAmount += amount;
+			}
+
+			return amount;
+		}
+
+		@Override
+		public long skip(long amount) throws IOException {
+			return Math.max(read(new byte[(int) Math.min(amount, SKIP_BUFFER_SIZE)]), 0);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package io.github.etuzon.http.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/************************************************************
+ * Create executors for blocking requests.
+ * 
+ * This is Java 8 implementation that uses bounded platform threads pool. Java
+ * 21 implementation in META-INF/versions/21 of the multi-release jar uses
+ * virtual threads.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+final class ExecutorFactory {
+	private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+	private ExecutorFactory() {
+	}
+
+	/************************************************************
+	 * Create executor service for blocking requests.
+	 * 
+	 * @param threadNamePrefix   Threads name prefix.
+	 * @param maxPlatformThreads Maximum amount of threads in case virtual threads
+	 *                           are not supported.
+	 * @return executor service.
+	 */
+	static ExecutorService newExecutorService(String threadNamePrefix, int maxPlatformThreads) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(maxPlatformThreads, maxPlatformThreads,
+				IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				newDaemonThreadFactory(threadNamePrefix));
+		executor.allowCoreThreadTimeOut(true);
+
+		return executor;
+	}
+
+	/************************************************************
+	 * Return true in case executors run tasks on virtual threads.
+	 * 
+	 * @return true in case executors run tasks on virtual threads.
+	 */
+	static boolean isVirtualThreads() {
+		return false;
+	}
+
+	private static ThreadFactory newDaemonThreadFactory(final String threadNamePrefix) {
+		final AtomicInteger threadIndex = new AtomicInteger();
+
+		return runnable -> {
+			Thread thread = new Thread(runnable, threadNamePrefix + threadIndex.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
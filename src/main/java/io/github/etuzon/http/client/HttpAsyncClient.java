@@ -1,39 +1,79 @@
 package io.github.etuzon.http.client;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.URISyntaxException;
-import java.nio.CharBuffer;
-import java.nio.charset.UnsupportedCharsetException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
 
-import org.apache.hc.client5.http.async.methods.AbstractCharResponseConsumer;
 import org.apache.hc.client5.http.async.methods.AsyncRequestBuilder;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
-import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
-import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
 import org.apache.hc.core5.http.Header;
-import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.nio.AsyncRequestProducer;
-import org.apache.hc.core5.util.TimeValue;
-
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import io.github.etuzon.http.buffer.ByteChunkPool;
+import io.github.etuzon.http.buffer.ByteSequenceScanner;
+import io.github.etuzon.http.buffer.ResponseBodyBuffer;
+import io.github.etuzon.http.compression.ContentDecoder;
+import io.github.etuzon.http.compression.GzipCompressingEntity;
+import io.github.etuzon.http.compression.InflaterPool;
+import io.github.etuzon.http.config.CompressionConfig;
+import io.github.etuzon.http.config.ResponseBufferConfig;
+import io.github.etuzon.http.entity.HttpEntityProducer;
+import io.github.etuzon.http.enums.ContentCodingEnum;
+import io.github.etuzon.http.enums.HeaderEnum;
+import io.github.etuzon.http.enums.HttpClientPhaseEnum;
+import io.github.etuzon.http.enums.ResponseBodyModeEnum;
 import io.github.etuzon.http.exceptions.HttpException;
 import io.github.etuzon.http.exceptions.InvalidHttpRequestException;
 import io.github.etuzon.http.factory.RequestBuilder;
+import io.github.etuzon.http.listener.HttpClientListener;
+import io.github.etuzon.http.listener.HttpExchangeTrace;
+import io.github.etuzon.http.listener.TracingAsyncRequestProducer;
+import io.github.etuzon.http.metrics.CompressionMetrics;
+import io.github.etuzon.http.metrics.LatencyHistogram;
+import io.github.etuzon.http.metrics.StreamMetrics;
+import io.github.etuzon.http.metrics.StreamMetricsConfig;
+import io.github.etuzon.http.metrics.StreamMetricsSnapshot;
+import io.github.etuzon.http.metrics.ThroughputMeter;
+import io.github.etuzon.http.objects.HttpObject;
+import io.github.etuzon.http.stream.ResponseChunkPublisher;
+import io.github.etuzon.http.stream.ResponseChunkSubscriber;
 import io.github.etuzon.projects.core.utils.DateUtil;
 import io.github.etuzon.projects.core.utils.ListUtil;
-import io.github.etuzon.projects.core.utils.StringUtil;
 
 /************************************************************
  * Async HTTP client.
  * 
+ * Lightweight handle of one async request. Request is executed by
+ * HttpAsyncEngine that is shared between async requests, so the handle does not
+ * own thread or I/O reactor.
+ * 
+ * Response body is received as raw bytes into pooled chunks, and is decoded to
+ * String only when getResponseBuffer is called. Response buffer can be bounded
+ * by ResponseBufferConfig, in that case reading from the connection is stopped
+ * when the buffer is full. Instead of the response buffer, response body chunks
+ * can be pushed to ResponseChunkSubscriber as they arrive.
+ * 
  * @author Eyal Tuzon
  *
  */
-public class HttpAsyncClient extends Thread {
+public class HttpAsyncClient {
 	private enum ServerResponsContainsBodyEnum {
 		FALSE, STARTED, ALREADY_CONTAINS;
 	}
@@ -42,22 +82,39 @@ public class HttpAsyncClient extends Thread {
 
 	public static final boolean IS_DEBUG = false;
 
+	public static final int NO_STATUS_CODE = -1;
+
 	public static final String SEPARATOR_BETWEEN_HEADERS_TO_BODY = "\r\n\r\n";
 
+	private static final byte[] SEPARATOR_BETWEEN_HEADERS_TO_BODY_BYTES = SEPARATOR_BETWEEN_HEADERS_TO_BODY
+			.getBytes(StandardCharsets.US_ASCII);
+
 	private final List<HttpResponse> httpResponseList = new ArrayList<HttpResponse>();
-	private final AbstractCharResponseConsumer<HttpResponse> consumer = initAsyncCharConsumer();
+	private final AsyncResponseConsumer<HttpResponse> consumer;
 	private final FutureCallback<HttpResponse> futureCallback = initFutureCallback();
-	private final AsyncRequestProducer producer;
+	private final CompletableFuture<HttpObject> completableFuture = new CompletableFuture<HttpObject>();
+	private AsyncRequestProducer producer;
 	private final HttpUriRequestBase httpRequest;
-	private CloseableHttpAsyncClient closeableAsyncHttpClient = null;
-	private Integer responseStatusCode = null;
-	private List<Header> responseHeaderList = new ArrayList<Header>();
-	private StringBuffer currentResponseBodyBuffer = new StringBuffer();
-
-	private Exception exception = null;
-	private boolean isRunning = true;
-	private boolean isDebug = IS_DEBUG;
-	private CharsPerSecondCounter charsPerSecond = new CharsPerSecondCounter();
+	private final HttpAsyncEngine asyncEngine;
+	private final ResponseBodyModeEnum responseBodyMode;
+	private Future<HttpResponse> responseFuture = null;
+	private volatile int responseStatusCode = NO_STATUS_CODE;
+	private volatile List<Header> responseHeaderList = Collections.emptyList();
+	private final ResponseBodyBuffer currentResponseBodyBuffer;
+	private volatile ResponseChunkPublisher chunkPublisher = null;
+	private volatile Charset responseCharset = io.github.etuzon.http.objects.HttpResponse.DEFAULT_CHARSET;
+
+	private volatile Exception exception = null;
+	private volatile boolean isRunning = false;
+	private final boolean isDebug;
+	private final ThroughputMeter charsPerSecond = new ThroughputMeter();
+	private volatile StreamMetrics streamMetrics = new StreamMetrics(new StreamMetricsConfig());
+	private final List<HttpClientListener> listenerList = new CopyOnWriteArrayList<HttpClientListener>();
+	private volatile HttpExchangeTrace trace = null;
+	private volatile LatencyHistogram latencyHistogram = null;
+	private volatile long startNanoTime = 0;
+	private volatile CompressionConfig compressionConfig = new CompressionConfig();
+	private volatile CompressionMetrics compressionMetrics = new CompressionMetrics();
 
 	/************************************************************
 	 * Constructor.
@@ -80,31 +137,209 @@ public class HttpAsyncClient extends Thread {
 	 */
 	public HttpAsyncClient(RequestBuilder requestBuilder, boolean isDebug)
 			throws InvalidHttpRequestException, HttpException {
+		this(requestBuilder, HttpAsyncEngine.getDefault(), isDebug);
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param requestBuilder HTTP request.
+	 * @param asyncEngine    Async HTTP engine that executes the request.
+	 * @param isDebug        true in case print debug.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed to init HTTP client.
+	 */
+	public HttpAsyncClient(RequestBuilder requestBuilder, HttpAsyncEngine asyncEngine, boolean isDebug)
+			throws InvalidHttpRequestException, HttpException {
+		this(requestBuilder, asyncEngine, ResponseBodyModeEnum.AFTER_HEADERS_SEPARATOR, isDebug);
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param requestBuilder   HTTP request.
+	 * @param asyncEngine      Async HTTP engine that executes the request.
+	 * @param responseBodyMode How to find start of response body in the received
+	 *                         data.
+	 * @param isDebug          true in case print debug.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed to init HTTP client.
+	 */
+	public HttpAsyncClient(RequestBuilder requestBuilder, HttpAsyncEngine asyncEngine,
+			ResponseBodyModeEnum responseBodyMode, boolean isDebug) throws InvalidHttpRequestException, HttpException {
+		this(requestBuilder, asyncEngine, responseBodyMode, new ResponseBufferConfig(), isDebug);
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param requestBuilder       HTTP request.
+	 * @param asyncEngine          Async HTTP engine that executes the request.
+	 * @param responseBodyMode     How to find start of response body in the
+	 *                             received data.
+	 * @param responseBufferConfig Response buffer configuration.
+	 * @param isDebug              true in case print debug.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed to init HTTP client.
+	 */
+	public HttpAsyncClient(RequestBuilder requestBuilder, HttpAsyncEngine asyncEngine,
+			ResponseBodyModeEnum responseBodyMode, ResponseBufferConfig responseBufferConfig, boolean isDebug)
+			throws InvalidHttpRequestException, HttpException {
 		this.httpRequest = requestBuilder.build();
+		this.asyncEngine = asyncEngine;
+		this.responseBodyMode = responseBodyMode;
 		this.isDebug = isDebug;
-		closeableAsyncHttpClient = HttpAsyncClients.createDefault();
+		currentResponseBodyBuffer = new ResponseBodyBuffer(responseBufferConfig, ByteChunkPool.getDefault());
+		currentResponseBodyBuffer.setFailureListener(this::failExchange);
+		consumer = initAsyncResponseConsumer();
 		producer = buildAsyncHttpRequestProducer();
 	}
 
 	/************************************************************
-	 * Thread run method.
+	 * Send the request via async HTTP engine.
+	 * 
+	 * Method returns immediately. Response is received by async HTTP engine
+	 * reactor threads.
 	 * 
 	 */
-	public void run() {
-		printDebug("DEBUG is true");
-		closeableAsyncHttpClient.start();
+	public synchronized void start() {
+		if (responseFuture == null) {
+			printDebug("DEBUG is true");
+			isRunning = true;
+			startNanoTime = System.nanoTime();
+			streamMetrics.onRequestStarted();
+			trace = HttpExchangeTrace.start(httpRequest, true, listenerList);
+
+			if (trace == null) {
+				responseFuture = asyncEngine.execute(producer, consumer, futureCallback);
+			} else {
+				HttpClientContext context = HttpClientContext.create();
+				context.setAttribute(HttpExchangeTrace.CONTEXT_ATTRIBUTE, trace);
+				responseFuture = asyncEngine.execute(new TracingAsyncRequestProducer(producer, trace), consumer,
+						context, futureCallback);
+			}
+		}
+	}
 
-		try {
-			closeableAsyncHttpClient.execute(producer, consumer, futureCallback);
+	/************************************************************
+	 * Subscribe to response body chunks.
+	 * 
+	 * Each response body chunk is pushed to the subscriber when it arrives and
+	 * it is requested by the subscriber, and it is not added to the response
+	 * buffer. Reading from the connection is stopped while subscriber has no
+	 * demand. Cancelling the subscription shuts down the client.
+	 * 
+	 * @param subscriber Response body chunks subscriber.
+	 * @throws HttpException in case request was already started or subscriber
+	 *                       was already set.
+	 */
+	public synchronized void subscribe(ResponseChunkSubscriber subscriber) throws HttpException {
+		if (responseFuture != null) {
+			throw new HttpException("Subscriber should be set before the request is started");
+		}
 
-			try {
-				closeableAsyncHttpClient.awaitShutdown(TimeValue.MAX_VALUE);
-			} catch (InterruptedException e) {
-			}
-		} finally {
-			isRunning = false;
-			closeHttpConnection();
+		if (chunkPublisher != null) {
+			throw new HttpException("Subscriber was already set");
+		}
+
+		chunkPublisher = new ResponseChunkPublisher(subscriber, this::shutdown);
+		chunkPublisher.subscribe();
+	}
+
+	/************************************************************
+	 * Add listener of the exchange phases.
+	 * 
+	 * @param listener Listener.
+	 * @throws HttpException in case request was already started.
+	 */
+	public synchronized void addListener(HttpClientListener listener) throws HttpException {
+		if (responseFuture != null) {
+			throw new HttpException("Listener should be added before the request is started");
+		}
+
+		listenerList.add(listener);
+	}
+
+	/**
+	 * Latency is recorded when the whole response was received. Set by HttpClient
+	 * before the request is started.
+	 */
+	synchronized void setLatencyHistogram(LatencyHistogram latencyHistogram) {
+		this.latencyHistogram = latencyHistogram;
+	}
+
+	/************************************************************
+	 * Set streaming metrics configuration.
+	 * 
+	 * @param config Streaming metrics configuration.
+	 * @throws HttpException in case request was already started.
+	 */
+	public synchronized void setStreamMetricsConfig(StreamMetricsConfig config) throws HttpException {
+		if (responseFuture != null) {
+			throw new HttpException("Streaming metrics configuration should be set before the request is started");
+		}
+
+		streamMetrics = new StreamMetrics(config);
+	}
+
+	/************************************************************
+	 * Set content compression configuration.
+	 * 
+	 * Accept-Encoding header is added and response is decompressed only in
+	 * ResponseBodyModeEnum.RAW mode, since in other modes the response body
+	 * contains the response headers, so compressed body would not be decoded.
+	 * Request
+	 * entity is compressed by the configuration when it is set, and the decision
+	 * is recorded in the compression metrics.
+	 * 
+	 * @param config Compression configuration.
+	 * @throws HttpException in case request was already started.
+	 */
+	public synchronized void setCompressionConfig(CompressionConfig config) throws HttpException {
+		if (responseFuture != null) {
+			throw new HttpException("Compression configuration should be set before the request is started");
 		}
+
+		compressionConfig = config;
+
+		if (config.isResponseDecompression() && (responseBodyMode == ResponseBodyModeEnum.RAW)
+				&& (httpRequest.containsHeader(HeaderEnum.ACCEPT_ENCODING.getName()) == false)) {
+			httpRequest.addHeader(HeaderEnum.ACCEPT_ENCODING.getName(), CompressionConfig.ACCEPT_ENCODING);
+		}
+
+		httpRequest.setEntity(GzipCompressingEntity.compressRequestEntity(httpRequest.getEntity(), config,
+				compressionMetrics));
+		producer = buildAsyncHttpRequestProducer();
+	}
+
+	/**
+	 * Compressed and decompressed bytes are added to the metrics of HttpClient.
+	 * Set by HttpClient before the compression configuration.
+	 */
+	synchronized void setCompressionMetrics(CompressionMetrics compressionMetrics) {
+		this.compressionMetrics = compressionMetrics;
+	}
+
+	/************************************************************
+	 * Get compressed and decompressed bytes of the response.
+	 * 
+	 * @return compression metrics.
+	 */
+	public CompressionMetrics getCompressionMetrics() {
+		return compressionMetrics;
+	}
+
+	/************************************************************
+	 * Get snapshot of streaming metrics of the exchange.
+	 * 
+	 * Snapshot contains received bytes per second, time to headers, time to
+	 * first byte, total bytes and chunk sizes histogram. Snapshots of several
+	 * clients can be aggregated by StreamMetricsSnapshot.aggregate.
+	 * 
+	 * @return snapshot of streaming metrics.
+	 */
+	public StreamMetricsSnapshot getStreamMetricsSnapshot() {
+		return streamMetrics.getSnapshot();
 	}
 
 	/************************************************************
@@ -113,23 +348,56 @@ public class HttpAsyncClient extends Thread {
 	 * @return response status code. Return -1 in case there is no response.
 	 */
 	public int getStatusCode() {
-		if (responseStatusCode != null) {
-			return responseStatusCode.intValue();
+		int statusCode = responseStatusCode;
+
+		if (statusCode != NO_STATUS_CODE) {
+			return statusCode;
 		}
 
 		if (httpResponseList.size() > 0) {
 			return httpResponseList.get(0).getCode();
 		}
 
-		return -1;
+		return NO_STATUS_CODE;
+	}
+
+	/************************************************************
+	 * Get response headers.
+	 *
+	 * @return read only list of response headers. Return empty list in case
+	 *         response headers were not received yet.
+	 */
+	public List<Header> getResponseHeaderList() {
+		return responseHeaderList;
 	}
 
 	/************************************************************
 	 * Shutdown client.
 	 * 
 	 */
-	public void shutdown() {
+	public synchronized void shutdown() {
 		isRunning = false;
+
+		if (responseFuture != null) {
+			responseFuture.cancel(true);
+		}
+
+		closeHttpConnection();
+	}
+
+	/************************************************************
+	 * Get future that is completed when the whole response is received.
+	 * 
+	 * Future is completed by the async HTTP engine reactor thread. Response body
+	 * in the result is the response buffer at the time response is completed,
+	 * and response headers are the headers that were received.
+	 * In case request failed, future is completed exceptionally with
+	 * HttpException, and in case request was cancelled the future is cancelled.
+	 * 
+	 * @return future of HTTP object which contains request and response.
+	 */
+	public CompletableFuture<HttpObject> getCompletableFuture() {
+		return completableFuture;
 	}
 
 	/************************************************************
@@ -153,34 +421,80 @@ public class HttpAsyncClient extends Thread {
 	/************************************************************
 	 * Get response body buffer.
 	 * 
+	 * Buffer is decoded by the response charset on each call. Truncating the
+	 * buffer resumes reading of the response in case it was stopped because the
+	 * buffer was full.
+	 * 
 	 * @param istruncate true in case truncate the buffer after return it.
 	 * @return response body buffer.
 	 */
 	public String getResponseBuffer(boolean istruncate) {
 		if (istruncate == false) {
-			return currentResponseBodyBuffer.toString();
+			return currentResponseBodyBuffer.decode(responseCharset);
 		}
 
-		synchronized (currentResponseBodyBuffer) {
-			String currentBufferStr = currentResponseBodyBuffer.toString();
-			currentResponseBodyBuffer.delete(0, currentBufferStr.length());
-			return currentBufferStr;
-		}
+		return currentResponseBodyBuffer.decodeAndClear(responseCharset);
 	}
 
 	/************************************************************
-	 * Get response body buffer length.
+	 * Get response body buffer length in bytes.
 	 * 
-	 * @return response body buffer length.
+	 * @return response body buffer length in bytes.
 	 */
 	public int getResponseBufferLength() {
-		return currentResponseBodyBuffer.length();
+		return (int) currentResponseBodyBuffer.size();
 	}
 
 	/************************************************************
-	 * Return thread status.
+	 * Get amount of response body bytes that were dropped because the response
+	 * buffer was full, in case overflow policy is
+	 * BufferOverflowPolicyEnum.DROP_OLDEST.
+	 * 
+	 * @return amount of dropped bytes.
+	 */
+	public long getDroppedResponseBytes() {
+		return currentResponseBodyBuffer.getDroppedBytes();
+	}
+
+	/************************************************************
+	 * Return true in case reading of the response is stopped until the response
+	 * buffer is truncated, in case overflow policy is
+	 * BufferOverflowPolicyEnum.BLOCK.
+	 * 
+	 * @return true in case reading of the response is stopped.
+	 */
+	public boolean isResponseBufferFull() {
+		return currentResponseBodyBuffer.isPaused();
+	}
+
+	/************************************************************
+	 * Get response body bytes that were received so far.
+	 * 
+	 * Bytes are not copied. Returned views are read only, and their chunks are
+	 * not reused by other responses, so the views stay valid after the buffer is
+	 * truncated by getResponseBuffer(true).
 	 * 
-	 * @return true in case thread still running, else return false.
+	 * @return read only views of response body bytes.
+	 */
+	public List<ByteBuffer> getResponseBytes() {
+		return currentResponseBodyBuffer.getChunks();
+	}
+
+	/************************************************************
+	 * Get response body charset.
+	 * 
+	 * Charset is taken from response Content-Type header, default is UTF-8.
+	 * 
+	 * @return response body charset.
+	 */
+	public Charset getResponseCharset() {
+		return responseCharset;
+	}
+
+	/************************************************************
+	 * Return request status.
+	 * 
+	 * @return true in case request still running, else return false.
 	 */
 	public boolean isRunning() {
 		return isRunning;
@@ -211,7 +525,7 @@ public class HttpAsyncClient extends Thread {
 	 * @return response chars per seconds.
 	 */
 	public int getCharsPerSecond_segment_1_second() {
-		return charsPerSecond.getSegment_1_second();
+		return (int) charsPerSecond.getAmountPerSecond(1);
 	}
 
 	/************************************************************
@@ -226,7 +540,7 @@ public class HttpAsyncClient extends Thread {
 	 * @return response chars per seconds.
 	 */
 	public int getCharsPerSecond_segment_5_seconds() {
-		return charsPerSecond.getSegment_5_seconds();
+		return (int) charsPerSecond.getAmountPerSecond(5);
 	}
 
 	/************************************************************
@@ -239,7 +553,7 @@ public class HttpAsyncClient extends Thread {
 	 * @return response chars per seconds.
 	 */
 	public int getCharsPerSecond_segment_30_seconds() {
-		return charsPerSecond.getSegment_30_seconds();
+		return (int) charsPerSecond.getAmountPerSecond(30);
 	}
 
 	/************************************************************
@@ -252,7 +566,7 @@ public class HttpAsyncClient extends Thread {
 	 * @return response chars per seconds.
 	 */
 	public int getCharsPerSecond_segment_1_minute() {
-		return charsPerSecond.getSegment_1_minute();
+		return (int) charsPerSecond.getAmountPerSecond(60);
 	}
 
 	private void closeHttpConnection() {
@@ -264,96 +578,185 @@ public class HttpAsyncClient extends Thread {
 		}
 	}
 
-	private AbstractCharResponseConsumer<HttpResponse> initAsyncCharConsumer() {
-		return new AbstractCharResponseConsumer<HttpResponse>() {
-			private HttpResponse response;
-			private ServerResponsContainsBodyEnum serverContainsBodyState = ServerResponsContainsBodyEnum.FALSE;
+	private AsyncResponseConsumer<HttpResponse> initAsyncResponseConsumer() {
+		return new AsyncResponseConsumer<HttpResponse>() {
+			private volatile HttpResponse response;
+			private volatile FutureCallback<HttpResponse> resultCallback;
+			private volatile ServerResponsContainsBodyEnum serverContainsBodyState =
+					getInitialServerContainsBodyState();
+
+			private final ByteSequenceScanner separatorScanner = new ByteSequenceScanner(
+					SEPARATOR_BETWEEN_HEADERS_TO_BODY_BYTES);
 
-			private String tempBufferUntilResponseBodyStartedReceived = "";
+			private ContentDecoder decoder = null;
+			private ByteBuffer decodedChunk = null;
 
 			@Override
-			protected void start(final HttpResponse response, final ContentType contentType) {
+			public void consumeResponse(final HttpResponse response, final EntityDetails entityDetails,
+					final HttpContext context, final FutureCallback<HttpResponse> resultCallback) {
 				this.response = response;
+				this.resultCallback = resultCallback;
+				streamMetrics.onHeadersReceived();
+				onPhase(HttpClientPhaseEnum.HEADERS_RECEIVED);
 
-				if (response != null) {
-					responseStatusCode = response.getCode();
+				if (entityDetails != null) {
+					updateResponseCharset(entityDetails.getContentType());
+					initDecoder(entityDetails.getContentEncoding());
+				}
 
-					printDebug("Response Status Code: " + responseStatusCode);
-					synchronized (response) {
-						synchronized (responseHeaderList) {
-							responseHeaderList = ListUtil.asList(response.getHeaders());
-						}
+				responseHeaderList = Collections.unmodifiableList(ListUtil.asList(response.getHeaders()));
+				responseStatusCode = response.getCode();
 
-						printDebugResponseHeaderList();
-					}
-				} else {
-					printDebug("response is null");
+				printDebug("Response Status Code: " + responseStatusCode);
+				printDebugResponseHeaderList();
+
+				if (entityDetails == null) {
+					resultCallback.completed(response);
 				}
 			}
 
 			@Override
-			protected int capacityIncrement() {
-				return Integer.MAX_VALUE;
+			public void informationResponse(final HttpResponse response, final HttpContext context) {
 			}
 
 			@Override
-			protected void data(final CharBuffer data, final boolean endOfStream) throws IOException {
-				synchronized (currentResponseBodyBuffer) {
-					String buf = data.toString();
-
-					if (buf.isEmpty() == false) {
-						tempBufferUntilResponseBodyStartedReceived += buf;
-
-						if (isResponseStartedToContainBody()) {
-							buf = tempBufferUntilResponseBodyStartedReceived
-									.substring(tempBufferUntilResponseBodyStartedReceived
-											.indexOf(SEPARATOR_BETWEEN_HEADERS_TO_BODY)
-											+ SEPARATOR_BETWEEN_HEADERS_TO_BODY.length());
-
-							tempBufferUntilResponseBodyStartedReceived = null;
-							serverContainsBodyState = ServerResponsContainsBodyEnum.STARTED;
-						} else if (serverContainsBodyState == ServerResponsContainsBodyEnum.STARTED) {
-							serverContainsBodyState = ServerResponsContainsBodyEnum.ALREADY_CONTAINS;
-						}
-
-						updateResponseBuffer(buf);
+			public void updateCapacity(final CapacityChannel capacityChannel) throws IOException {
+				if (chunkPublisher != null) {
+					chunkPublisher.updateCapacity(capacityChannel);
+				} else {
+					currentResponseBodyBuffer.updateCapacity(capacityChannel);
+				}
+			}
+
+			@Override
+			public void consume(final ByteBuffer data) throws IOException {
+				if (data.hasRemaining() == false) {
+					return;
+				}
+
+				streamMetrics.onChunkReceived(data.remaining());
+
+				if (serverContainsBodyState == ServerResponsContainsBodyEnum.FALSE) {
+					int receivedLength = data.remaining();
+					int bodyStartIndex = separatorScanner.scan(data);
+
+					if (bodyStartIndex == -1) {
+						skipReceivedBytes(receivedLength);
+						return;
+					}
+
+					skipReceivedBytes(bodyStartIndex - data.position());
+					data.position(bodyStartIndex);
+					serverContainsBodyState = ServerResponsContainsBodyEnum.STARTED;
+					updateResponseBuffer(data);
+				} else {
+					if (serverContainsBodyState == ServerResponsContainsBodyEnum.STARTED) {
+						serverContainsBodyState = ServerResponsContainsBodyEnum.ALREADY_CONTAINS;
+					}
+
+					if (decoder != null) {
+						decodeResponseBuffer(data);
+					} else {
+						updateResponseBuffer(data);
 					}
 				}
 			}
 
 			@Override
-			protected HttpResponse buildResult() throws IOException {
-				return response;
+			public void streamEnd(final List<? extends Header> trailers) throws IOException {
+				if ((decoder != null) && decoder.isStarted() && (decoder.isFinished() == false)) {
+					throw new EOFException(
+							"Compressed " + decoder.getContentCoding().getName() + " body ended before its end");
+				}
+
+				if (resultCallback != null) {
+					resultCallback.completed(response);
+				}
 			}
 
 			@Override
-			public HttpResponse getResult() {
-				return response;
+			public void failed(final Exception cause) {
 			}
 
 			@Override
 			public void releaseResources() {
+				if (decoder != null) {
+					decoder.release();
+					decoder = null;
+				}
+
+				if (decodedChunk != null) {
+					ByteChunkPool.getDefault().release(decodedChunk);
+					decodedChunk = null;
+				}
+			}
+
+			private void initDecoder(String contentEncoding) {
+				ContentCodingEnum contentCoding = ContentCodingEnum.parse(contentEncoding);
+
+				if ((contentCoding != null) && compressionConfig.isResponseDecompression()
+						&& (responseBodyMode == ResponseBodyModeEnum.RAW)) {
+					decoder = new ContentDecoder(contentCoding, InflaterPool.getDefault());
+					compressionMetrics.onResponseDecompressed();
+				}
 			}
 
-			private boolean isResponseStartedToContainBody() {
-				synchronized (serverContainsBodyState) {
-					if (serverContainsBodyState == ServerResponsContainsBodyEnum.FALSE) {
-						if (tempBufferUntilResponseBodyStartedReceived.contains(SEPARATOR_BETWEEN_HEADERS_TO_BODY)) {
-							return true;
-						}
+			/**
+			 * Decompress received bytes to one pooled chunk at a time. Granted
+			 * capacity is taken by the received bytes that each chunk was decoded
+			 * from, so back pressure is applied to the connection bytes.
+			 */
+			private void decodeResponseBuffer(ByteBuffer data) throws IOException {
+				compressionMetrics.addCompressedResponseBytes(data.remaining());
+
+				if (decodedChunk == null) {
+					decodedChunk = ByteChunkPool.getDefault().acquire();
+				}
+
+				while (true) {
+					int position = data.position();
+					decodedChunk.clear();
+					int length = decoder.decode(data, decodedChunk.array(), decodedChunk.arrayOffset(),
+							decodedChunk.capacity());
+					int receivedLength = data.position() - position;
+
+					if (length > 0) {
+						decodedChunk.limit(length);
+						compressionMetrics.addDecompressedResponseBytes(length);
+						updateResponseBuffer(decodedChunk, receivedLength);
+					} else if (receivedLength > 0) {
+						skipReceivedBytes(receivedLength);
+					} else {
+						return;
 					}
 				}
+			}
 
-				return false;
+			private void updateResponseBuffer(ByteBuffer data) throws IOException {
+				updateResponseBuffer(data, data.remaining());
 			}
 
-			private void updateResponseBuffer(String buf) {
-				synchronized (serverContainsBodyState) {
-					if (serverContainsBodyState != ServerResponsContainsBodyEnum.FALSE) {
-						currentResponseBodyBuffer.append(buf);
-						printDebug("Response buffer: " + buf);
-						charsPerSecond.updateCharsAmount(buf.length());
-					}
+			private void updateResponseBuffer(ByteBuffer data, int receivedLength) throws IOException {
+				if (isDebug) {
+					printDebug("Response buffer: " + responseCharset.decode(data.duplicate()));
+				}
+
+				int charsAmount = countChars(data);
+
+				if (chunkPublisher != null) {
+					chunkPublisher.publish(data, receivedLength);
+				} else {
+					currentResponseBodyBuffer.write(data, receivedLength);
+				}
+
+				charsPerSecond.add(charsAmount);
+			}
+
+			private void skipReceivedBytes(int length) throws IOException {
+				if (chunkPublisher != null) {
+					chunkPublisher.skip(length);
+				} else {
+					currentResponseBodyBuffer.skip(length);
 				}
 			}
 
@@ -376,20 +779,129 @@ public class HttpAsyncClient extends Thread {
 		};
 	}
 
+	private void updateResponseCharset(String contentType) {
+		if (contentType == null) {
+			return;
+		}
+
+		try {
+			ContentType parsedContentType = ContentType.parse(contentType);
+
+			if ((parsedContentType != null) && (parsedContentType.getCharset() != null)) {
+				responseCharset = parsedContentType.getCharset();
+			}
+		} catch (RuntimeException e) {
+		}
+	}
+
+	private void recordLatency() {
+		LatencyHistogram histogram = latencyHistogram;
+
+		if (histogram != null) {
+			histogram.record(System.nanoTime() - startNanoTime);
+		}
+	}
+
+	private void onPhase(HttpClientPhaseEnum phase) {
+		HttpExchangeTrace currentTrace = trace;
+
+		if (currentTrace != null) {
+			currentTrace.onPhase(phase);
+		}
+	}
+
+	/** Fail the exchange by failure that was not reported by the I/O reactor, and stop it. */
+	private void failExchange(Exception ex) {
+		if (completableFuture.isDone()) {
+			return;
+		}
+
+		futureCallback.failed(ex);
+		shutdown();
+	}
+
+	private void onFailed(Exception ex) {
+		HttpExchangeTrace currentTrace = trace;
+
+		if (currentTrace != null) {
+			currentTrace.onFailed(ex);
+		}
+	}
+
+	private ServerResponsContainsBodyEnum getInitialServerContainsBodyState() {
+		if (responseBodyMode == ResponseBodyModeEnum.RAW) {
+			return ServerResponsContainsBodyEnum.STARTED;
+		}
+
+		return ServerResponsContainsBodyEnum.FALSE;
+	}
+
+	/**
+	 * Count chars without decoding the bytes. For UTF-8 every byte that is not a
+	 * continuation byte starts a char, for other charsets every byte is counted.
+	 */
+	private int countChars(ByteBuffer data) {
+		if (StandardCharsets.UTF_8.equals(responseCharset) == false) {
+			return data.remaining();
+		}
+
+		int charsAmount = 0;
+
+		for (int index = data.position(); index < data.limit(); index++) {
+			if ((data.get(index) & 0xC0) != 0x80) {
+				charsAmount++;
+			}
+		}
+
+		return charsAmount;
+	}
+
 	private FutureCallback<HttpResponse> initFutureCallback() {
 		return new FutureCallback<HttpResponse>() {
 
 			@Override
 			public void completed(final HttpResponse response) {
+				isRunning = false;
+				streamMetrics.onEnded();
+				onPhase(HttpClientPhaseEnum.BODY_COMPLETED);
+				recordLatency();
+				completableFuture.complete(new HttpObject(httpRequest,
+						new io.github.etuzon.http.objects.HttpResponse(getStatusCode(),
+								responseHeaderList.toArray(new Header[responseHeaderList.size()]),
+								ByteBuffer.wrap(currentResponseBodyBuffer.toByteArray()), responseCharset)));
+
+				if (chunkPublisher != null) {
+					chunkPublisher.complete();
+				}
 			}
 
 			@Override
 			public void failed(final Exception ex) {
 				exception = ex;
+				isRunning = false;
+				streamMetrics.onEnded();
+				onFailed(ex);
+				completableFuture.completeExceptionally(new HttpException(ex));
+
+				if (chunkPublisher != null) {
+					chunkPublisher.fail(ex);
+				}
 			}
 
 			@Override
 			public void cancelled() {
+				if (completableFuture.isDone()) {
+					return;
+				}
+
+				isRunning = false;
+				streamMetrics.onEnded();
+				onFailed(new HttpException("Request was cancelled"));
+				completableFuture.cancel(false);
+
+				if (chunkPublisher != null) {
+					chunkPublisher.fail(new HttpException("Request was cancelled"));
+				}
 			}
 		};
 	}
@@ -401,8 +913,7 @@ public class HttpAsyncClient extends Thread {
 		requestBuilder = addHeaders(requestBuilder);
 
 		if (httpRequest.getEntity() != null) {
-			HttpEntity entity = httpRequest.getEntity();
-			requestBuilder = setEntity(requestBuilder, entity);
+			requestBuilder = requestBuilder.setEntity(new HttpEntityProducer(httpRequest.getEntity()));
 		}
 
 		return requestBuilder.build();
@@ -424,115 +935,10 @@ public class HttpAsyncClient extends Thread {
 		return requestBuilder;
 	}
 
-	private AsyncRequestBuilder setEntity(AsyncRequestBuilder requestBuilder, HttpEntity entity) throws HttpException {
-		try {
-			return requestBuilder.setEntity(StringUtil.readFromInputStream(entity.getContent()),
-					ContentType.parse(entity.getContentType()));
-		} catch (UnsupportedCharsetException | UnsupportedOperationException | IOException e) {
-			throw new HttpException(e);
-		}
-	}
-
 	private void printDebug(String str) {
 		if (isDebug) {
 			System.out.println(
 					HttpAsyncClient.class.getSimpleName() + " [DEBUG] " + DateUtil.getCurrentDate() + " - " + str);
 		}
 	}
-
-	private static class CharsPerSecondCounter {
-		private List<CharsAmountInTimeStamp> charsAmountPerTimestampList = new ArrayList<CharsAmountInTimeStamp>();
-
-		private CharsPerSecondCounter() {
-		}
-
-		public void updateCharsAmount(long charsAmount) {
-			deleteCharsAmountThatTimeMoreThanOneMinute();
-
-			synchronized (charsAmountPerTimestampList) {
-				charsAmountPerTimestampList.add(new CharsAmountInTimeStamp(charsAmount));
-			}
-		}
-
-		private int getSegment_1_second() {
-			return getCharsAmountInLastMS(DateUtil.SECOND_BY_MS);
-		}
-
-		private int getSegment_5_seconds() {
-			return getCharsAmountInLastMS(5 * DateUtil.SECOND_BY_MS) / 5;
-		}
-
-		private int getSegment_30_seconds() {
-			return getCharsAmountInLastMS(30 * DateUtil.SECOND_BY_MS) / 30;
-		}
-
-		private int getSegment_1_minute() {
-			return getCharsAmountInLastMS(DateUtil.MINUTE_BY_MS) / 60;
-		}
-
-		private int getCharsAmountInLastMS(long ms) {
-			long currentTimeMs = System.currentTimeMillis();
-
-			int charsAmount = 0;
-
-			synchronized (charsAmountPerTimestampList) {
-				for (int index = charsAmountPerTimestampList.size() - 1; index >= 0; index--) {
-					if (charsAmountPerTimestampList.get(index).getTime() + ms >= currentTimeMs) {
-						charsAmount += charsAmountPerTimestampList.get(index).getCharsAmount();
-					} else {
-						return charsAmount;
-					}
-				}
-
-				return charsAmount;
-			}
-		}
-
-		private void deleteCharsAmountThatTimeMoreThanOneMinute() {
-			long currentTimestamp = System.currentTimeMillis();
-			long lastCharAmountTimestamp = 0;
-
-			int index = 0;
-
-			synchronized (charsAmountPerTimestampList) {
-				while ((index < charsAmountPerTimestampList.size())
-						&& (lastCharAmountTimestamp + DateUtil.MINUTE_BY_MS <= currentTimestamp)) {
-					lastCharAmountTimestamp = charsAmountPerTimestampList.get(index).getTime();
-
-					if (lastCharAmountTimestamp + DateUtil.MINUTE_BY_MS < currentTimestamp) {
-						charsAmountPerTimestampList.remove(index);
-					} else {
-						index++;
-					}
-				}
-			}
-		}
-
-		/*****************************************************
-		 * 
-		 * @author Eyal Tuzon
-		 *
-		 */
-		private static class CharsAmountInTimeStamp {
-			private final long charsAmount;
-			private final long time;
-
-			private CharsAmountInTimeStamp(long charsAmount) {
-				this(charsAmount, System.currentTimeMillis());
-			}
-
-			private CharsAmountInTimeStamp(long charsAmount, long time) {
-				this.charsAmount = charsAmount;
-				this.time = time;
-			}
-
-			private long getCharsAmount() {
-				return charsAmount;
-			}
-
-			private long getTime() {
-				return time;
-			}
-		}
-	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,218 @@
+package io.github.etuzon.http.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.IOReactorStatus;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import io.github.etuzon.http.config.ConnectionPoolConfig;
+import io.github.etuzon.http.exceptions.HttpException;
+import io.github.etuzon.http.listener.TracingAsyncConnectionManager;
+import io.github.etuzon.http.objects.ConnectionPoolStats;
+
+/************************************************************
+ * Long-lived async HTTP engine.
+ * 
+ * Engine owns one I/O reactor with fixed amount of dispatcher threads and one
+ * async connection pool. All async requests that are sent via the engine are
+ * multiplexed over the reactor threads, so async request does not need its own
+ * thread or its own reactor.
+ * 
+ * Process wide engine of getDefault is shared by all clients in the JVM, so it
+ * is not closed by close, and it lives until the process ends.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpAsyncEngine implements Closeable {
+	public static final int DEFAULT_IO_THREADS_AMOUNT = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Async requests are usually long-lived streams, so by default pool size is
+	 * not the limit of concurrent async requests.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 10000;
+
+	private static HttpAsyncEngine defaultEngine = null;
+
+	private final ConnectionPoolConfig connectionPoolConfig;
+	private final PoolingAsyncClientConnectionManager connectionManager;
+	private final CloseableHttpAsyncClient closeableAsyncHttpClient;
+	private final boolean isDefault;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @throws HttpException in case failed to init async HTTP engine.
+	 */
+	public HttpAsyncEngine() throws HttpException {
+		this(newDefaultConnectionPoolConfig(), DEFAULT_IO_THREADS_AMOUNT);
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param connectionPoolConfig Connection pool configuration.
+	 * @param ioThreadsAmount      Amount of I/O reactor dispatcher threads.
+	 * @throws HttpException in case failed to init async HTTP engine.
+	 */
+	public HttpAsyncEngine(ConnectionPoolConfig connectionPoolConfig, int ioThreadsAmount) throws HttpException {
+		this(connectionPoolConfig, ioThreadsAmount, false);
+	}
+
+	private HttpAsyncEngine(ConnectionPoolConfig connectionPoolConfig, int ioThreadsAmount, boolean isDefault)
+			throws HttpException {
+		this.connectionPoolConfig = connectionPoolConfig;
+		this.isDefault = isDefault;
+
+		try {
+			connectionManager = buildConnectionManager();
+		} catch (IllegalArgumentException e) {
+			throw new HttpException("Invalid connection pool configuration.\n" + e.getMessage());
+		}
+
+		Timeout leaseTimeout = Timeout.of(connectionPoolConfig.getLeaseTimeoutMs(), TimeUnit.MILLISECONDS);
+		RequestConfig requestConfig = RequestConfig.custom().setConnectionRequestTimeout(leaseTimeout).build();
+		IOReactorConfig ioReactorConfig = IOReactorConfig.custom().setIoThreadCount(ioThreadsAmount).build();
+
+		closeableAsyncHttpClient = HttpAsyncClients.custom().setConnectionManager(connectionManager)
+				.setIOReactorConfig(ioReactorConfig).setDefaultRequestConfig(requestConfig).build();
+		closeableAsyncHttpClient.start();
+	}
+
+	/************************************************************
+	 * Execute async request.
+	 * 
+	 * @param <T>            Response type.
+	 * @param producer       Request producer.
+	 * @param consumer       Response consumer.
+	 * @param futureCallback Callback that is called when request is completed,
+	 *                       failed or cancelled.
+	 * @return future of the response.
+	 */
+	public <T> Future<T> execute(AsyncRequestProducer producer, AsyncResponseConsumer<T> consumer,
+			FutureCallback<T> futureCallback) {
+		return closeableAsyncHttpClient.execute(producer, consumer, futureCallback);
+	}
+
+	/************************************************************
+	 * Execute async request with context.
+	 * 
+	 * @param <T>            Response type.
+	 * @param producer       Request producer.
+	 * @param consumer       Response consumer.
+	 * @param context        Request context.
+	 * @param futureCallback Callback that is called when request is completed,
+	 *                       failed or cancelled.
+	 * @return future of the response.
+	 */
+	public <T> Future<T> execute(AsyncRequestProducer producer, AsyncResponseConsumer<T> consumer,
+			HttpContext context, FutureCallback<T> futureCallback) {
+		return closeableAsyncHttpClient.execute(producer, consumer, context, futureCallback);
+	}
+
+	/************************************************************
+	 * Get connection pool configuration.
+	 * 
+	 * @return connection pool configuration.
+	 */
+	public ConnectionPoolConfig getConnectionPoolConfig() {
+		return connectionPoolConfig;
+	}
+
+	/************************************************************
+	 * Get total async connection pool usage.
+	 * 
+	 * @return total async connection pool usage.
+	 */
+	public ConnectionPoolStats getConnectionPoolStats() {
+		return new ConnectionPoolStats(connectionManager.getTotalStats());
+	}
+
+	/************************************************************
+	 * Return true in case I/O reactor is running, so engine can execute
+	 * requests.
+	 * 
+	 * @return true in case I/O reactor is running.
+	 */
+	public boolean isRunning() {
+		return closeableAsyncHttpClient.getStatus() == IOReactorStatus.ACTIVE;
+	}
+
+	/************************************************************
+	 * Return true in case engine is the process wide engine of getDefault.
+	 * 
+	 * @return true in case engine is the process wide engine.
+	 */
+	public boolean isDefault() {
+		return isDefault;
+	}
+
+	/************************************************************
+	 * Shutdown I/O reactor and close all connections.
+	 * 
+	 * Process wide engine is not closed, since other clients in the JVM use it.
+	 *
+	 */
+	@Override
+	public void close() {
+		if (isDefault) {
+			return;
+		}
+
+		try {
+			closeableAsyncHttpClient.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private PoolingAsyncClientConnectionManager buildConnectionManager() {
+		PoolingAsyncClientConnectionManager manager = new TracingAsyncConnectionManager();
+
+		manager.setMaxTotal(connectionPoolConfig.getMaxTotal());
+		manager.setDefaultMaxPerRoute(connectionPoolConfig.getMaxPerRoute());
+		manager.setValidateAfterInactivity(
+				TimeValue.of(connectionPoolConfig.getValidateAfterInactivityMs(), TimeUnit.MILLISECONDS));
+
+		return manager;
+	}
+
+	/************************************************************
+	 * Get process wide async HTTP engine.
+	 * 
+	 * Engine is created on first call and lives until the process ends, so
+	 * its close method does nothing.
+	 * 
+	 * @return process wide async HTTP engine.
+	 * @throws HttpException in case failed to init async HTTP engine.
+	 */
+	public static synchronized HttpAsyncEngine getDefault() throws HttpException {
+		if (defaultEngine == null) {
+			defaultEngine = new HttpAsyncEngine(newDefaultConnectionPoolConfig(), DEFAULT_IO_THREADS_AMOUNT, true);
+		}
+
+		return defaultEngine;
+	}
+
+	/************************************************************
+	 * Create connection pool configuration with default async engine values.
+	 * 
+	 * @return connection pool configuration with default async engine values.
+	 */
+	public static ConnectionPoolConfig newDefaultConnectionPoolConfig() {
+		return new ConnectionPoolConfig().setMaxTotal(DEFAULT_MAX_CONNECTIONS).setMaxPerRoute(DEFAULT_MAX_CONNECTIONS);
+	}
+}
@@ -1,37 +1,93 @@
 package io.github.etuzon.http.client;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.classic.methods.HttpDelete;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.classic.methods.HttpPut;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.message.BasicHeader;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 
+import io.github.etuzon.http.cache.DiskCacheTier;
+import io.github.etuzon.http.cache.ResponseCache;
 import io.github.etuzon.http.certificate.CertificateInstaller;
+import io.github.etuzon.http.compression.DecompressingEntity;
+import io.github.etuzon.http.compression.GzipCompressingEntity;
+import io.github.etuzon.http.compression.InflaterPool;
+import io.github.etuzon.http.config.CacheConfig;
+import io.github.etuzon.http.config.CompressionConfig;
+import io.github.etuzon.http.config.ConnectionPoolConfig;
+import io.github.etuzon.http.config.ResponseBufferConfig;
+import io.github.etuzon.http.enums.BodyReadModeEnum;
+import io.github.etuzon.http.enums.ContentCodingEnum;
+import io.github.etuzon.http.enums.ExecutionModeEnum;
+import io.github.etuzon.http.enums.HeaderEnum;
+import io.github.etuzon.http.enums.HttpClientPhaseEnum;
 import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.http.enums.ResponseBodyModeEnum;
 import io.github.etuzon.http.exceptions.HttpException;
 import io.github.etuzon.http.exceptions.InvalidHttpRequestException;
 import io.github.etuzon.http.factory.RequestBuilder;
+import io.github.etuzon.http.listener.HttpClientListener;
+import io.github.etuzon.http.listener.HttpExchangeTrace;
+import io.github.etuzon.http.listener.TracingConnectionManager;
+import io.github.etuzon.http.listener.TracingStreamListener;
+import io.github.etuzon.http.metrics.CacheMetrics;
+import io.github.etuzon.http.metrics.CompressionMetrics;
+import io.github.etuzon.http.metrics.LatencyHistogramRegistry;
+import io.github.etuzon.http.objects.ConnectionPoolStats;
 import io.github.etuzon.http.objects.HttpObject;
+import io.github.etuzon.http.stream.ResponseChunkSubscriber;
 import io.github.etuzon.projects.core.utils.StringUtil;
 
 /*****************************************************************
  * HTTP Client.
  * 
+ * HTTP client is thread safe. Each request is built from a private copy of the
+ * client request builder, so one client can be shared between threads.
+ * 
+ * Blocking requests take a permit of a java.util.concurrent semaphore before
+ * leasing connection from the pool, so virtual threads that wait while all the
+ * pool connections are in use are unmounted instead of pinning their carrier
+ * threads. Client sends requests to one route, so semaphore has the minimum of
+ * maximum total connections and maximum connections per route. Time that was
+ * waited for a permit is subtracted from the lease timeout of the pool.
+ * 
+ * Response body of blocking request is read before the request method
+ * returns, and its connection is returned to the pool. In
+ * BodyReadModeEnum.LAZY mode the body is read only when it is accessed, so it
+ * can be streamed, and the connection is returned to the pool only after the
+ * body is read, discarded or the response is closed.
+ * 
  * @author Eyal Tuzon
  *
  */
-public class HttpClient {
+public class HttpClient implements Closeable {
 	public static final int HTTP_PORT = 80;
 	public static final int HTTPS_PORT = 443;
 
@@ -39,8 +95,24 @@ public class HttpClient {
 	public static final boolean NOT_RELEASE_CONNECTION = false;
 
 	private final String baseUrl;
-	private RequestBuilder requestBuilder = null;
-	private CloseableHttpClient httpClient = null;
+	private final ConnectionPoolConfig connectionPoolConfig;
+	private final RequestBuilder requestBuilder;
+	private PoolingHttpClientConnectionManager connectionManager = null;
+	private RequestConfig defaultRequestConfig = null;
+	private final CloseableHttpClient httpClient;
+	private final Semaphore connectionPermits;
+	private volatile HttpAsyncEngine asyncEngine = null;
+	private boolean isOwnAsyncEngine = false;
+	private volatile ExecutionModeEnum executionMode = ExecutionModeEnum.REACTOR;
+	private volatile BodyReadModeEnum bodyReadMode = BodyReadModeEnum.EAGER;
+	private volatile ExecutorService executorService = null;
+	private volatile ResponseBufferConfig responseBufferConfig = new ResponseBufferConfig();
+	private volatile CompressionConfig compressionConfig = new CompressionConfig();
+	private final CompressionMetrics compressionMetrics = new CompressionMetrics();
+	private volatile ResponseCache responseCache = null;
+	private final CacheMetrics cacheMetrics = new CacheMetrics();
+	private final List<HttpClientListener> listenerList = new CopyOnWriteArrayList<HttpClientListener>();
+	private volatile LatencyHistogramRegistry latencyHistogramRegistry = null;
 
 	/*******************************************
 	 * Constructor.
@@ -65,6 +137,33 @@ public class HttpClient {
 		this(baseUrl, null, null, port);
 	}
 
+	/*******************************************
+	 * Constructor.
+	 * 
+	 * @param baseUrl              Basic URL not include port and URL suffix.
+	 * @param connectionPoolConfig Connection pool configuration.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed to init HTTP client.
+	 */
+	public HttpClient(String baseUrl, ConnectionPoolConfig connectionPoolConfig)
+			throws InvalidHttpRequestException, HttpException {
+		this(baseUrl, -1, connectionPoolConfig);
+	}
+
+	/*******************************************
+	 * Constructor.
+	 * 
+	 * @param baseUrl              Basic URL not include port and URL suffix.
+	 * @param port                 Port.
+	 * @param connectionPoolConfig Connection pool configuration.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed to init HTTP client.
+	 */
+	public HttpClient(String baseUrl, int port, ConnectionPoolConfig connectionPoolConfig)
+			throws InvalidHttpRequestException, HttpException {
+		this(baseUrl, null, null, port, connectionPoolConfig);
+	}
+
 	/*******************************************
 	 * Constructor.
 	 * 
@@ -87,8 +186,24 @@ public class HttpClient {
 	 * @throws HttpException               in case failed to init HTTP client.
 	 */
 	public HttpClient(String baseUrl, String jSessionId, int port) throws InvalidHttpRequestException, HttpException {
-		this(baseUrl, null, null, port);
+		this(baseUrl, jSessionId, port, new ConnectionPoolConfig());
+	}
+
+	/*******************************************
+	 * Constructor.
+	 * 
+	 * @param baseUrl              Basic URL not include port and URL suffix.
+	 * @param jSessionId           JESSIONID.
+	 * @param port                 Port.
+	 * @param connectionPoolConfig Connection pool configuration.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed to init HTTP client.
+	 */
+	public HttpClient(String baseUrl, String jSessionId, int port, ConnectionPoolConfig connectionPoolConfig)
+			throws InvalidHttpRequestException, HttpException {
+		this(baseUrl, null, null, port, connectionPoolConfig);
 		requestBuilder.setJSessionId(jSessionId);
+		requestBuilder.toRequestTemplate();
 	}
 
 	/*******************************************
@@ -117,7 +232,24 @@ public class HttpClient {
 	 */
 	public HttpClient(String baseUrl, String username, String password, int port)
 			throws InvalidHttpRequestException, HttpException {
+		this(baseUrl, username, password, port, new ConnectionPoolConfig());
+	}
+
+	/*******************************************
+	 * Constructor.
+	 * 
+	 * @param baseUrl              Basic URL not include port and URL suffix.
+	 * @param username             Username.
+	 * @param password             Password.
+	 * @param port                 Port.
+	 * @param connectionPoolConfig Connection pool configuration.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed to init HTTP client.
+	 */
+	public HttpClient(String baseUrl, String username, String password, int port,
+			ConnectionPoolConfig connectionPoolConfig) throws InvalidHttpRequestException, HttpException {
 		this.baseUrl = baseUrl;
+		this.connectionPoolConfig = connectionPoolConfig;
 
 		if (port != -1) {
 			requestBuilder = new RequestBuilder(baseUrl, port);
@@ -129,9 +261,13 @@ public class HttpClient {
 			requestBuilder.setCredentials(username, password);
 		}
 
+		requestBuilder.toRequestTemplate();
+
 		installCertificateIfHttps();
 
 		httpClient = buildHttpClient();
+		connectionPermits = new Semaphore(
+				Math.max(1, Math.min(connectionPoolConfig.getMaxTotal(), connectionPoolConfig.getMaxPerRoute())), true);
 	}
 
 	/*******************************************
@@ -143,6 +279,330 @@ public class HttpClient {
 		return baseUrl.toLowerCase().startsWith("https://");
 	}
 
+	/*******************************************
+	 * Get connection pool configuration.
+	 * 
+	 * @return connection pool configuration.
+	 */
+	public ConnectionPoolConfig getConnectionPoolConfig() {
+		return connectionPoolConfig;
+	}
+
+	/*******************************************
+	 * Get total connection pool usage.
+	 * 
+	 * @return total connection pool usage.
+	 */
+	public ConnectionPoolStats getConnectionPoolStats() {
+		return new ConnectionPoolStats(connectionManager.getTotalStats());
+	}
+
+	/*******************************************
+	 * Get connection pool usage per route.
+	 * 
+	 * @return map of route target host (for example 'http://host:port') to
+	 *         connection pool usage of the route.
+	 */
+	public Map<String, ConnectionPoolStats> getConnectionPoolRouteStats() {
+		Map<String, ConnectionPoolStats> routeStatsMap = new LinkedHashMap<String, ConnectionPoolStats>();
+
+		for (HttpRoute route : connectionManager.getRoutes()) {
+			routeStatsMap.put(route.getTargetHost().toURI(),
+					new ConnectionPoolStats(connectionManager.getStats(route)));
+		}
+
+		return routeStatsMap;
+	}
+
+	/*******************************************
+	 * Set async HTTP engine that executes async requests of the client.
+	 * 
+	 * Engine can be shared between clients, for example process wide engine from
+	 * HttpAsyncEngine.getDefault(). Engine that is set by this method is not
+	 * closed when the client is closed.
+	 * 
+	 * @param asyncEngine Async HTTP engine.
+	 */
+	public synchronized void setHttpAsyncEngine(HttpAsyncEngine asyncEngine) {
+		closeOwnAsyncEngine();
+		this.asyncEngine = asyncEngine;
+		this.isOwnAsyncEngine = false;
+	}
+
+	/*******************************************
+	 * Get async HTTP engine that executes async requests of the client.
+	 * 
+	 * In case engine was not set, client creates its own engine on first call.
+	 * 
+	 * @return async HTTP engine.
+	 * @throws HttpException in case failed to init async HTTP engine.
+	 */
+	public HttpAsyncEngine getHttpAsyncEngine() throws HttpException {
+		HttpAsyncEngine engine = asyncEngine;
+
+		if (engine != null) {
+			return engine;
+		}
+
+		synchronized (this) {
+			if (asyncEngine == null) {
+				asyncEngine = new HttpAsyncEngine();
+				isOwnAsyncEngine = true;
+			}
+
+			return asyncEngine;
+		}
+	}
+
+	/*******************************************
+	 * Add listener of exchange phases of blocking and non-blocking requests.
+	 * 
+	 * Listener gets the phases of requests that are sent after it was added.
+	 * Client without listeners does not trace its requests.
+	 * 
+	 * @param listener Listener.
+	 */
+	public void addListener(HttpClientListener listener) {
+		listenerList.add(listener);
+	}
+
+	/*******************************************
+	 * Remove listener of exchange phases.
+	 * 
+	 * @param listener Listener.
+	 */
+	public void removeListener(HttpClientListener listener) {
+		listenerList.remove(listener);
+	}
+
+	/*******************************************
+	 * Set registry that latency of requests is recorded in.
+	 * 
+	 * Latency is recorded by base URL, URL suffix template and request type.
+	 * Latency of blocking request is measured until the response headers are
+	 * received, and latency of non-blocking request until the whole response is
+	 * received. Only successful requests are recorded. Registry can be shared
+	 * between clients. Default is null, which means latency is not recorded.
+	 * 
+	 * @param latencyHistogramRegistry Latency histograms registry, or null.
+	 */
+	public void setLatencyHistogramRegistry(LatencyHistogramRegistry latencyHistogramRegistry) {
+		this.latencyHistogramRegistry = latencyHistogramRegistry;
+	}
+
+	/*******************************************
+	 * Get registry that latency of requests is recorded in.
+	 * 
+	 * @return latency histograms registry, or null.
+	 */
+	public LatencyHistogramRegistry getLatencyHistogramRegistry() {
+		return latencyHistogramRegistry;
+	}
+
+	/*******************************************
+	 * Set how non-blocking requests (send*Async methods) are executed.
+	 * 
+	 * Default is ExecutionModeEnum.REACTOR.
+	 * 
+	 * @param executionMode Execution mode.
+	 */
+	public void setExecutionMode(ExecutionModeEnum executionMode) {
+		this.executionMode = executionMode;
+	}
+
+	/*******************************************
+	 * Get how non-blocking requests (send*Async methods) are executed.
+	 * 
+	 * @return execution mode.
+	 */
+	public ExecutionModeEnum getExecutionMode() {
+		return executionMode;
+	}
+
+	/*******************************************
+	 * Set when response body of blocking requests is read.
+	 * 
+	 * Default is BodyReadModeEnum.EAGER. In BodyReadModeEnum.LAZY mode response
+	 * that its body is not needed should be discarded by
+	 * HttpResponse.discardBody(), else its connection is not returned to the
+	 * pool.
+	 * 
+	 * @param bodyReadMode Body read mode.
+	 */
+	public void setBodyReadMode(BodyReadModeEnum bodyReadMode) {
+		this.bodyReadMode = bodyReadMode;
+	}
+
+	/*******************************************
+	 * Get when response body of blocking requests is read.
+	 * 
+	 * @return body read mode.
+	 */
+	public BodyReadModeEnum getBodyReadMode() {
+		return bodyReadMode;
+	}
+
+	/*******************************************
+	 * Set response buffer configuration of a-synchronized requests that are sent
+	 * by sendAsyncGet and sendAsyncPost.
+	 * 
+	 * Default buffer is not bounded.
+	 * 
+	 * @param responseBufferConfig Response buffer configuration.
+	 */
+	public void setResponseBufferConfig(ResponseBufferConfig responseBufferConfig) {
+		this.responseBufferConfig = responseBufferConfig;
+	}
+
+	/*******************************************
+	 * Get response buffer configuration of a-synchronized requests.
+	 * 
+	 * @return response buffer configuration.
+	 */
+	public ResponseBufferConfig getResponseBufferConfig() {
+		return responseBufferConfig;
+	}
+
+	/*******************************************
+	 * Set content compression configuration of synchronized and a-synchronized
+	 * requests.
+	 * 
+	 * Default is no compression. In case response decompression is disabled,
+	 * synchronized requests keep the content compression of Apache HTTP client,
+	 * which accepts gzip and deflate responses and decompresses them.
+	 * 
+	 * @param compressionConfig Compression configuration.
+	 */
+	public void setCompressionConfig(CompressionConfig compressionConfig) {
+		this.compressionConfig = compressionConfig;
+	}
+
+	/*******************************************
+	 * Get content compression configuration.
+	 * 
+	 * @return compression configuration.
+	 */
+	public CompressionConfig getCompressionConfig() {
+		return compressionConfig;
+	}
+
+	/*******************************************
+	 * Get compressed and decompressed bytes of the requests and responses of
+	 * this client.
+	 * 
+	 * @return compression metrics.
+	 */
+	public CompressionMetrics getCompressionMetrics() {
+		return compressionMetrics;
+	}
+
+	/*******************************************
+	 * Set response cache configuration of synchronized GET requests.
+	 * 
+	 * Fresh responses are returned without network, stale responses are
+	 * revalidated by conditional requests, and responses are evicted in least
+	 * recently used order by the cache maximum bytes. Setting configuration
+	 * creates new empty cache, or cache of the responses that are in its disk
+	 * directory. Previous cache is closed. Default is no cache.
+	 * 
+	 * @param cacheConfig Cache configuration, or null to disable the cache.
+	 * @throws HttpException in case failed to open the disk directory.
+	 */
+	public synchronized void setCacheConfig(CacheConfig cacheConfig) throws HttpException {
+		closeResponseCache();
+
+		if ((cacheConfig == null) || (cacheConfig.getDiskDirectory() == null)) {
+			responseCache = (cacheConfig == null) ? null : new ResponseCache(cacheConfig, cacheMetrics);
+			return;
+		}
+
+		try {
+			responseCache = new ResponseCache(cacheConfig, new DiskCacheTier(cacheConfig.getDiskDirectory(),
+					cacheConfig.getMaxDiskBytes(), cacheMetrics), cacheMetrics);
+		} catch (IOException e) {
+			throw new HttpException(e);
+		}
+	}
+
+	/*******************************************
+	 * Get response cache.
+	 * 
+	 * @return response cache, or null in case cache is disabled.
+	 */
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/*******************************************
+	 * Get hits, misses and revalidations of the response cache of this client.
+	 * 
+	 * @return cache metrics.
+	 */
+	public CacheMetrics getCacheMetrics() {
+		return cacheMetrics;
+	}
+
+	/*******************************************
+	 * Get executor service that runs blocking requests in
+	 * ExecutionModeEnum.THREAD_PER_REQUEST mode.
+	 * 
+	 * On Java 21 and above each task runs on its own virtual thread, else tasks
+	 * run on platform threads pool that is bounded by maximum amount of
+	 * connections in the pool. Executor can be used also to fan-out blocking
+	 * requests, like sendGet.
+	 * 
+	 * @return executor service.
+	 */
+	public ExecutorService getExecutorService() {
+		ExecutorService executor = executorService;
+
+		if (executor != null) {
+			return executor;
+		}
+
+		synchronized (this) {
+			if (executorService == null) {
+				executorService = ExecutorFactory.newExecutorService(HttpClient.class.getSimpleName() + "-",
+						connectionPoolConfig.getMaxTotal());
+			}
+
+			return executorService;
+		}
+	}
+
+	/*******************************************
+	 * Return true in case blocking requests in
+	 * ExecutionModeEnum.THREAD_PER_REQUEST mode run on virtual threads.
+	 * 
+	 * @return true in case JVM supports virtual threads.
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return ExecutorFactory.isVirtualThreads();
+	}
+
+	/*******************************************
+	 * Close HTTP client, all connections in the connection pool, executor
+	 * service and async HTTP engine that was created by the client.
+	 * 
+	 */
+	@Override
+	public void close() {
+		try {
+			httpClient.close();
+		} catch (IOException e) {
+			// Pool closes all its connections even when one fails to close, and close has no caller to report to.
+		}
+
+		synchronized (this) {
+			closeOwnAsyncEngine();
+			closeResponseCache();
+
+			if (executorService != null) {
+				executorService.shutdown();
+			}
+		}
+	}
+
 	/*******************************************
 	 * Sent POST request.
 	 * 
@@ -236,10 +696,10 @@ public class HttpClient {
 	 */
 	public HttpObject sendPost(String suffixUrl, List<BasicHeader> headerList, String entity, boolean releaseConnection)
 			throws InvalidHttpRequestException, HttpException {
-		requestBuilder.setRequestType(RequestTypeEnum.POST).setSuffixUrl(suffixUrl).setHeaders(headerList)
-				.setEntity(entity).setReleaseConnection(releaseConnection);
-		HttpPost request = (HttpPost) requestBuilder.build();
-		return executeRequest(request);
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.POST).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setEntity(entity).setReleaseConnection(releaseConnection);
+		HttpPost request = (HttpPost) builder.build();
+		return executeRequest(builder, request);
 	}
 
 	/*******************************************
@@ -293,10 +753,10 @@ public class HttpClient {
 	 */
 	public HttpObject sendGet(String suffixUrl, List<BasicHeader> headerList, boolean releaseConnection)
 			throws InvalidHttpRequestException, HttpException {
-		requestBuilder.setRequestType(RequestTypeEnum.GET).setSuffixUrl(suffixUrl).setHeaders(headerList)
-				.setReleaseConnection(releaseConnection);
-		HttpGet request = (HttpGet) requestBuilder.build();
-		return executeRequest(request);
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.GET).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setReleaseConnection(releaseConnection);
+		HttpGet request = (HttpGet) builder.build();
+		return executeRequest(builder, request);
 	}
 
 	/*******************************************
@@ -329,10 +789,10 @@ public class HttpClient {
 	 */
 	public HttpObject sendDelete(String suffixUrl, List<BasicHeader> headerList, boolean releaseConnection)
 			throws InvalidHttpRequestException, HttpException {
-		requestBuilder.setRequestType(RequestTypeEnum.DELETE).setSuffixUrl(suffixUrl).setHeaders(headerList)
-				.setReleaseConnection(releaseConnection);
-		HttpDelete request = (HttpDelete) requestBuilder.build();
-		return executeRequest(request);
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.DELETE).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setReleaseConnection(releaseConnection);
+		HttpDelete request = (HttpDelete) builder.build();
+		return executeRequest(builder, request);
 	}
 
 	/*******************************************
@@ -401,16 +861,16 @@ public class HttpClient {
 	 */
 	public HttpObject sendPut(String suffixUrl, List<BasicHeader> headerList, String entity, boolean releaseConnection)
 			throws HttpException, InvalidHttpRequestException {
-		requestBuilder.setRequestType(RequestTypeEnum.PUT).setSuffixUrl(suffixUrl).setHeaders(headerList)
-				.setEntity(entity).setReleaseConnection(releaseConnection);
-		HttpPut request = (HttpPut) requestBuilder.build();
-		return executeRequest(request);
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.PUT).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setEntity(entity).setReleaseConnection(releaseConnection);
+		HttpPut request = (HttpPut) builder.build();
+		return executeRequest(builder, request);
 	}
 
 	/*******************************************
 	 * Send a-synchronized GET request.
 	 * 
-	 * @return HTTP a-synchronized client object which contain session thread.
+	 * @return HTTP a-synchronized client object which is handle of the request.
 	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
 	 * @throws HttpException               in case failed send HTTP request.
 	 */
@@ -422,7 +882,7 @@ public class HttpClient {
 	 * Send a-synchronized GET request.
 	 * 
 	 * @param suffixUrl URL suffix.
-	 * @return HTTP a-synchronized client object which contain session thread.
+	 * @return HTTP a-synchronized client object which is handle of the request.
 	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
 	 * @throws HttpException               in case failed send HTTP request.
 	 */
@@ -435,7 +895,7 @@ public class HttpClient {
 	 * 
 	 * @param suffixUrl  URL suffix.
 	 * @param headerList List of headers.
-	 * @return HTTP a-synchronized client object which contain session thread.
+	 * @return HTTP a-synchronized client object which is handle of the request.
 	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
 	 * @throws HttpException               in case failed send HTTP request.
 	 */
@@ -452,24 +912,46 @@ public class HttpClient {
 	 * @param releaseConnection Set 'Connection' header value. In case value is true
 	 *                          than 'Connection: keep-alive' else 'Connection:
 	 *                          close'.
-	 * @return HTTP a-synchronized client object which contain session thread.
+	 * @return HTTP a-synchronized client object which is handle of the request.
 	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
 	 * @throws HttpException               in case failed send HTTP request.
 	 */
 	public HttpAsyncClient sendAsyncGet(String suffixUrl, List<BasicHeader> headerList, boolean releaseConnection)
 			throws InvalidHttpRequestException, HttpException {
-		requestBuilder.setRequestType(RequestTypeEnum.GET).setSuffixUrl(suffixUrl).setHeaders(headerList)
-				.setReleaseConnection(releaseConnection);
-		HttpAsyncClient asyncThread = new HttpAsyncClient(requestBuilder);
-		asyncThread.start();
-		return asyncThread;
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.GET).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setReleaseConnection(releaseConnection);
+		HttpAsyncClient asyncClient = newAsyncClient(builder, ResponseBodyModeEnum.AFTER_HEADERS_SEPARATOR,
+				responseBufferConfig);
+		asyncClient.start();
+		return asyncClient;
+	}
+
+	/*******************************************
+	 * Send a-synchronized GET request and push response body chunks to the
+	 * subscriber as they arrive.
+	 * 
+	 * All received data is response body, and it is not added to the response
+	 * buffer of the returned client.
+	 * 
+	 * @param suffixUrl  URL suffix.
+	 * @param headerList List of headers.
+	 * @param subscriber Response body chunks subscriber.
+	 * @return HTTP a-synchronized client object which is handle of the request.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public HttpAsyncClient sendAsyncGet(String suffixUrl, List<BasicHeader> headerList,
+			ResponseChunkSubscriber subscriber) throws InvalidHttpRequestException, HttpException {
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.GET).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setReleaseConnection(NOT_RELEASE_CONNECTION);
+		return sendAsyncStream(builder, subscriber);
 	}
 
 	/*******************************************
 	 * Send a-synchronized POST request.
 	 * 
 	 * @param entity Body of request.
-	 * @return HTTP a-synchronized client object which contain session thread.
+	 * @return HTTP a-synchronized client object which is handle of the request.
 	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
 	 * @throws HttpException               in case failed send HTTP request.
 	 */
@@ -482,7 +964,7 @@ public class HttpClient {
 	 * 
 	 * @param suffixUrl URL suffix.
 	 * @param entity    Body of request.
-	 * @return HTTP a-synchronized client object which contain session thread.
+	 * @return HTTP a-synchronized client object which is handle of the request.
 	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
 	 * @throws HttpException               in case failed send HTTP request.
 	 */
@@ -497,7 +979,7 @@ public class HttpClient {
 	 * @param suffixUrl  URL suffix.
 	 * @param headerList List of headers.
 	 * @param entity     Body of request.
-	 * @return HTTP a-synchronized client object which contain session thread.
+	 * @return HTTP a-synchronized client object which is handle of the request.
 	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
 	 * @throws HttpException               in case failed send HTTP request.
 	 */
@@ -515,32 +997,452 @@ public class HttpClient {
 	 * @param releaseConnection Set 'Connection' header value. In case value is true
 	 *                          than 'Connection: keep-alive' else 'Connection:
 	 *                          close'.
-	 * @return HTTP a-synchronized client object which contain session thread.
+	 * @return HTTP a-synchronized client object which is handle of the request.
 	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
 	 * @throws HttpException               in case failed send HTTP request.
 	 */
 	public HttpAsyncClient sendAsyncPost(String suffixUrl, List<BasicHeader> headerList, String entity,
 			boolean releaseConnection) throws InvalidHttpRequestException, HttpException {
-		requestBuilder.setRequestType(RequestTypeEnum.POST).setSuffixUrl(suffixUrl).setHeaders(headerList)
-				.setEntity(entity).setReleaseConnection(releaseConnection);
-		HttpAsyncClient asyncThread = new HttpAsyncClient(requestBuilder);
-		asyncThread.start();
-		return asyncThread;
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.POST).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setEntity(entity).setReleaseConnection(releaseConnection);
+		HttpAsyncClient asyncClient = newAsyncClient(builder, ResponseBodyModeEnum.AFTER_HEADERS_SEPARATOR,
+				responseBufferConfig);
+		asyncClient.start();
+		return asyncClient;
 	}
 
-	private HttpObject executeRequest(HttpUriRequestBase request) throws HttpException {
-		CloseableHttpResponse response = executeHttpRequest(request);
-		return new HttpObject(request, response);
+	/*******************************************
+	 * Send a-synchronized POST request and push response body chunks to the
+	 * subscriber as they arrive.
+	 * 
+	 * All received data is response body, and it is not added to the response
+	 * buffer of the returned client.
+	 * 
+	 * @param suffixUrl  URL suffix.
+	 * @param headerList List of headers.
+	 * @param entity     Body of request.
+	 * @param subscriber Response body chunks subscriber.
+	 * @return HTTP a-synchronized client object which is handle of the request.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public HttpAsyncClient sendAsyncPost(String suffixUrl, List<BasicHeader> headerList, String entity,
+			ResponseChunkSubscriber subscriber) throws InvalidHttpRequestException, HttpException {
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.POST).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setEntity(entity).setReleaseConnection(NOT_RELEASE_CONNECTION);
+		return sendAsyncStream(builder, subscriber);
+	}
+
+	/*******************************************
+	 * Send GET request without blocking.
+	 * 
+	 * @param suffixUrl URL suffix.
+	 * @return future of HttpObject which contains request and response. Future is
+	 *         completed when the whole response is received.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public CompletableFuture<HttpObject> sendGetAsync(String suffixUrl)
+			throws InvalidHttpRequestException, HttpException {
+		return sendGetAsync(suffixUrl, null);
+	}
+
+	/*******************************************
+	 * Send GET request without blocking.
+	 * 
+	 * @param suffixUrl  URL suffix.
+	 * @param headerList List of headers.
+	 * @return future of HttpObject which contains request and response. Future is
+	 *         completed when the whole response is received.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public CompletableFuture<HttpObject> sendGetAsync(String suffixUrl, List<BasicHeader> headerList)
+			throws InvalidHttpRequestException, HttpException {
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.GET).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setReleaseConnection(NOT_RELEASE_CONNECTION);
+		return sendAsync(builder);
+	}
+
+	/*******************************************
+	 * Send POST request without blocking.
+	 * 
+	 * @param suffixUrl URL suffix.
+	 * @param entity    Body of request.
+	 * @return future of HttpObject which contains request and response. Future is
+	 *         completed when the whole response is received.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public CompletableFuture<HttpObject> sendPostAsync(String suffixUrl, String entity)
+			throws InvalidHttpRequestException, HttpException {
+		return sendPostAsync(suffixUrl, null, entity);
+	}
+
+	/*******************************************
+	 * Send POST request without blocking.
+	 * 
+	 * @param suffixUrl  URL suffix.
+	 * @param headerList List of headers.
+	 * @param entity     Body of request.
+	 * @return future of HttpObject which contains request and response. Future is
+	 *         completed when the whole response is received.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public CompletableFuture<HttpObject> sendPostAsync(String suffixUrl, List<BasicHeader> headerList,
+			String entity) throws InvalidHttpRequestException, HttpException {
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.POST).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setEntity(entity).setReleaseConnection(NOT_RELEASE_CONNECTION);
+		return sendAsync(builder);
+	}
+
+	/*******************************************
+	 * Send PUT request without blocking.
+	 * 
+	 * @param suffixUrl URL suffix.
+	 * @param entity    Body of request.
+	 * @return future of HttpObject which contains request and response. Future is
+	 *         completed when the whole response is received.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public CompletableFuture<HttpObject> sendPutAsync(String suffixUrl, String entity)
+			throws InvalidHttpRequestException, HttpException {
+		return sendPutAsync(suffixUrl, null, entity);
+	}
+
+	/*******************************************
+	 * Send PUT request without blocking.
+	 * 
+	 * @param suffixUrl  URL suffix.
+	 * @param headerList List of headers.
+	 * @param entity     Body of request.
+	 * @return future of HttpObject which contains request and response. Future is
+	 *         completed when the whole response is received.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public CompletableFuture<HttpObject> sendPutAsync(String suffixUrl, List<BasicHeader> headerList,
+			String entity) throws InvalidHttpRequestException, HttpException {
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.PUT).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setEntity(entity).setReleaseConnection(NOT_RELEASE_CONNECTION);
+		return sendAsync(builder);
+	}
+
+	/*******************************************
+	 * Send DELETE request without blocking.
+	 * 
+	 * @param suffixUrl URL suffix.
+	 * @return future of HttpObject which contains request and response. Future is
+	 *         completed when the whole response is received.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public CompletableFuture<HttpObject> sendDeleteAsync(String suffixUrl)
+			throws InvalidHttpRequestException, HttpException {
+		return sendDeleteAsync(suffixUrl, null);
+	}
+
+	/*******************************************
+	 * Send DELETE request without blocking.
+	 * 
+	 * @param suffixUrl  URL suffix.
+	 * @param headerList List of headers.
+	 * @return future of HttpObject which contains request and response. Future is
+	 *         completed when the whole response is received.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public CompletableFuture<HttpObject> sendDeleteAsync(String suffixUrl, List<BasicHeader> headerList)
+			throws InvalidHttpRequestException, HttpException {
+		RequestBuilder builder = newRequestBuilder(RequestTypeEnum.DELETE).setSuffixUrl(suffixUrl)
+				.addHeaders(headerList).setReleaseConnection(NOT_RELEASE_CONNECTION);
+		return sendAsync(builder);
+	}
+
+	/*******************************************
+	 * Create request builder with the base URL, credentials and template of
+	 * this client.
+	 * 
+	 * @param requestType Request type.
+	 * @return new request builder.
+	 */
+	public RequestBuilder newRequestBuilder(RequestTypeEnum requestType) {
+		return new RequestBuilder(requestBuilder).setRequestType(requestType);
+	}
+
+	/*******************************************
+	 * Send request of builder.
+	 * 
+	 * Builder should be created by newRequestBuilder, so it has the base URL and
+	 * credentials of this client. Use it to send entity that is not a String,
+	 * such as bytes, stream or file.
+	 * 
+	 * @param builder Request builder.
+	 * @return HttpObject which contains request and response.
+	 * @throws HttpException               in case failed send HTTP request.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 */
+	public HttpObject send(RequestBuilder builder) throws HttpException, InvalidHttpRequestException {
+		return executeRequest(builder, builder.build());
+	}
+
+	/*******************************************
+	 * Send request of builder without blocking.
+	 * 
+	 * Builder should be created by newRequestBuilder, so it has the base URL and
+	 * credentials of this client.
+	 * 
+	 * @param builder Request builder.
+	 * @return future of HttpObject which contains request and response. Future is
+	 *         completed when the whole response is received.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 * @throws HttpException               in case failed send HTTP request.
+	 */
+	public CompletableFuture<HttpObject> sendAsync(RequestBuilder builder)
+			throws InvalidHttpRequestException, HttpException {
+		if (executionMode == ExecutionModeEnum.THREAD_PER_REQUEST) {
+			return sendOnExecutor(builder, builder.build());
+		}
+
+		HttpAsyncClient asyncClient = newAsyncClient(builder, ResponseBodyModeEnum.RAW, new ResponseBufferConfig());
+		asyncClient.start();
+		return asyncClient.getCompletableFuture();
+	}
+
+	private HttpAsyncClient sendAsyncStream(RequestBuilder builder, ResponseChunkSubscriber subscriber)
+			throws InvalidHttpRequestException, HttpException {
+		HttpAsyncClient asyncClient = newAsyncClient(builder, ResponseBodyModeEnum.RAW, new ResponseBufferConfig());
+		asyncClient.subscribe(subscriber);
+		asyncClient.start();
+		return asyncClient;
+	}
+
+	private HttpAsyncClient newAsyncClient(RequestBuilder builder, ResponseBodyModeEnum responseBodyMode,
+			ResponseBufferConfig bufferConfig) throws InvalidHttpRequestException, HttpException {
+		HttpAsyncClient asyncClient = new HttpAsyncClient(builder, getHttpAsyncEngine(), responseBodyMode,
+				bufferConfig, HttpAsyncClient.IS_DEBUG);
+
+		for (HttpClientListener listener : listenerList) {
+			asyncClient.addListener(listener);
+		}
+
+		asyncClient.setCompressionMetrics(compressionMetrics);
+		asyncClient.setCompressionConfig(compressionConfig);
+
+		LatencyHistogramRegistry latencyRegistry = latencyHistogramRegistry;
+
+		if (latencyRegistry != null) {
+			asyncClient.setLatencyHistogram(latencyRegistry.getHistogram(builder.getBaseUrl(),
+					builder.getRequestType(), builder.getSuffixUrl()));
+		}
+
+		return asyncClient;
+	}
+
+	private CompletableFuture<HttpObject> sendOnExecutor(final RequestBuilder builder,
+			final HttpUriRequestBase request) {
+		final CompletableFuture<HttpObject> future = new CompletableFuture<HttpObject>();
+
+		try {
+			getExecutorService().execute(() -> {
+				try {
+					HttpObject httpObject = executeRequest(builder, request);
+					httpObject.getResponse().getByteBuffer();
+					future.complete(httpObject);
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(new HttpException(e));
+		}
+
+		return future;
+	}
+
+	private void closeResponseCache() {
+		if (responseCache != null) {
+			responseCache.close();
+			responseCache = null;
+		}
+	}
+
+	private void closeOwnAsyncEngine() {
+		if ((asyncEngine != null) && isOwnAsyncEngine) {
+			asyncEngine.close();
+			asyncEngine = null;
+		}
+	}
+
+	private HttpObject executeRequest(RequestBuilder builder, HttpUriRequestBase request) throws HttpException {
+		ResponseCache cache = responseCache;
+		HttpObject httpObject;
+
+		if (cache == null) {
+			httpObject = executeNetworkRequest(builder, request);
+		} else {
+			httpObject = cache.execute(request, () -> executeNetworkRequest(builder, request));
+		}
+
+		if (bodyReadMode == BodyReadModeEnum.EAGER) {
+			readBody(httpObject);
+		}
+
+		return httpObject;
+	}
+
+	/** Read body to memory, so its connection is returned to the pool. */
+	private static void readBody(HttpObject httpObject) throws HttpException {
+		try {
+			httpObject.getResponse().getByteBuffer();
+		} catch (UncheckedIOException e) {
+			throw new HttpException(e.getCause());
+		}
+	}
+
+	private HttpObject executeNetworkRequest(RequestBuilder builder, HttpUriRequestBase request)
+			throws HttpException {
+		LatencyHistogramRegistry latencyRegistry = latencyHistogramRegistry;
+		long startNanoTime = (latencyRegistry != null) ? System.nanoTime() : 0;
+		HttpExchangeTrace trace = HttpExchangeTrace.start(request, false, listenerList);
+
+		long leaseTimeoutMs;
+
+		try {
+			leaseTimeoutMs = acquireConnectionPermit();
+		} catch (HttpException e) {
+			failTrace(trace, e);
+			throw e;
+		}
+
+		try {
+			HttpObject httpObject;
+
+			if (trace == null) {
+				httpObject = new HttpObject(request, executeHttpRequest(request, leaseTimeoutMs),
+						connectionPermits::release);
+			} else {
+				CloseableHttpResponse response = executeTracedHttpRequest(request, leaseTimeoutMs, trace);
+				httpObject = new HttpObject(request, response, () -> {
+					trace.onPhase(HttpClientPhaseEnum.BODY_COMPLETED);
+					connectionPermits.release();
+				});
+			}
+
+			if (latencyRegistry != null) {
+				latencyRegistry.record(builder.getBaseUrl(), builder.getRequestType(), builder.getSuffixUrl(),
+						System.nanoTime() - startNanoTime);
+			}
+
+			return httpObject;
+		} catch (HttpException | RuntimeException e) {
+			connectionPermits.release();
+			failTrace(trace, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Blocking request leases, connects and sends on the current thread, so the
+	 * hooks of the connection manager find the trace in thread local variable.
+	 */
+	private CloseableHttpResponse executeTracedHttpRequest(HttpUriRequestBase request, long leaseTimeoutMs,
+			HttpExchangeTrace trace) throws HttpException {
+		TracingStreamListener.traceRequestEntity(request, trace);
+		TracingConnectionManager.setCurrentTrace(trace);
+
+		try {
+			return executeHttpRequest(request, leaseTimeoutMs);
+		} finally {
+			TracingConnectionManager.setCurrentTrace(null);
+		}
 	}
 
-	private CloseableHttpResponse executeHttpRequest(HttpUriRequestBase request) throws HttpException {
+	private static void failTrace(HttpExchangeTrace trace, Exception e) {
+		if (trace != null) {
+			trace.onFailed(e);
+		}
+	}
+
+	/** Acquire connection permit, and return the rest of the lease timeout for leasing connection from the pool. */
+	private long acquireConnectionPermit() throws HttpException {
+		long leaseTimeoutMs = connectionPoolConfig.getLeaseTimeoutMs();
+		long startNanoTime = System.nanoTime();
+		boolean isAcquired = false;
+
+		try {
+			isAcquired = connectionPermits.tryAcquire(leaseTimeoutMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HttpException(e);
+		}
+
+		if (isAcquired == false) {
+			throw new HttpException("Timeout of [" + leaseTimeoutMs
+					+ "] ms waiting for connection from the pool of [" + baseUrl + "]");
+		}
+
+		return Math.max(1, leaseTimeoutMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanoTime));
+	}
+
+	private CloseableHttpResponse executeHttpRequest(HttpUriRequestBase request, long leaseTimeoutMs)
+			throws HttpException {
+		CompressionConfig config = compressionConfig;
+		RequestConfig.Builder requestConfigBuilder = RequestConfig.copy(defaultRequestConfig)
+				.setConnectionRequestTimeout(Timeout.of(leaseTimeoutMs, TimeUnit.MILLISECONDS));
+
+		if (config.isResponseDecompression()) {
+			requestConfigBuilder.setContentCompressionEnabled(false);
+
+			if (request.containsHeader(HeaderEnum.ACCEPT_ENCODING.getName()) == false) {
+				request.addHeader(HeaderEnum.ACCEPT_ENCODING.getName(), CompressionConfig.ACCEPT_ENCODING);
+			}
+		}
+
+		request.setConfig(requestConfigBuilder.build());
+
+		request.setEntity(GzipCompressingEntity.compressRequestEntity(request.getEntity(), config,
+				compressionMetrics));
+
 		try {
-			return httpClient.execute(request);
+			CloseableHttpResponse response = httpClient.execute(request);
+
+			if (config.isResponseDecompression()) {
+				decompressResponse(response);
+			}
+
+			return response;
 		} catch (IOException e) {
 			throw new HttpException(e);
 		}
 	}
 
+	/**
+	 * Replace gzip or deflate entity by entity that decompresses it while it is
+	 * read. Headers of the compressed entity are removed, as the entity no
+	 * longer matches them.
+	 */
+	private void decompressResponse(CloseableHttpResponse response) {
+		HttpEntity entity = response.getEntity();
+
+		if (entity == null) {
+			return;
+		}
+
+		ContentCodingEnum contentCoding = ContentCodingEnum.parse(entity.getContentEncoding());
+
+		if (contentCoding == null) {
+			return;
+		}
+
+		response.setEntity(new DecompressingEntity(entity, contentCoding, InflaterPool.getDefault(),
+				compressionMetrics));
+		response.removeHeaders(HeaderEnum.CONTENT_ENCODING.getName());
+		response.removeHeaders(HeaderEnum.CONTENT_LENGTH.getName());
+	}
+
 	private void installCertificateIfHttps() throws HttpException {
 		if (isHttps()) {
 			try {
@@ -553,8 +1455,30 @@ public class HttpClient {
 		}
 	}
 
-	private CloseableHttpClient buildHttpClient() {
-		return HttpClientBuilder.create().build();
+	private CloseableHttpClient buildHttpClient() throws HttpException {
+		try {
+			connectionManager = buildConnectionManager();
+		} catch (IllegalArgumentException e) {
+			throw new HttpException("Invalid connection pool configuration.\n" + e.getMessage());
+		}
+
+		Timeout leaseTimeout = Timeout.of(connectionPoolConfig.getLeaseTimeoutMs(), TimeUnit.MILLISECONDS);
+		defaultRequestConfig = RequestConfig.custom().setConnectionRequestTimeout(leaseTimeout).build();
+
+		return HttpClientBuilder.create().setConnectionManager(connectionManager)
+				.setRequestExecutor(TracingStreamListener.newRequestExecutor())
+				.setDefaultRequestConfig(defaultRequestConfig).build();
+	}
+
+	private PoolingHttpClientConnectionManager buildConnectionManager() {
+		PoolingHttpClientConnectionManager manager = new TracingConnectionManager();
+
+		manager.setMaxTotal(connectionPoolConfig.getMaxTotal());
+		manager.setDefaultMaxPerRoute(connectionPoolConfig.getMaxPerRoute());
+		manager.setValidateAfterInactivity(
+				TimeValue.of(connectionPoolConfig.getValidateAfterInactivityMs(), TimeUnit.MILLISECONDS));
+
+		return manager;
 	}
 
 	/*******************************************
@@ -0,0 +1,360 @@
+package io.github.etuzon.http.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import io.github.etuzon.http.enums.ContentCodingEnum;
+
+/************************************************************
+ * Incremental decoder of gzip and deflate content.
+ * 
+ * Compressed bytes are given in pieces as they are received, and each call
+ * returns the decompressed bytes that can be produced from them, so neither
+ * the compressed nor the decompressed body is kept in memory. Gzip header and
+ * trailer are parsed by the decoder, and CRC and size of each gzip member are
+ * verified. Deflate content is accepted with zlib wrapper, as RFC 9110
+ * defines it, or as raw deflate data, as some servers send it.
+ * 
+ * Inflater is taken from InflaterPool when data starts, and it is returned to
+ * the pool by release. Decoder is not thread safe.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ContentDecoder {
+	private enum StateEnum {
+		GZIP_HEADER, GZIP_EXTRA_LENGTH, GZIP_EXTRA, GZIP_NAME, GZIP_COMMENT, GZIP_HEADER_CRC, DATA, GZIP_TRAILER, END,
+		IGNORE_TRAILING_BYTES;
+	}
+
+	private static final int GZIP_MAGIC_FIRST_BYTE = 0x1F;
+	private static final int GZIP_MAGIC_SECOND_BYTE = 0x8B;
+	private static final int DEFLATE_METHOD = 8;
+	private static final int MAX_ZLIB_WINDOW_BITS_VALUE = 7;
+	private static final int FLAG_HEADER_CRC = 2;
+	private static final int FLAG_EXTRA = 4;
+	private static final int FLAG_NAME = 8;
+	private static final int FLAG_COMMENT = 16;
+	private static final int GZIP_HEADER_LENGTH = 10;
+	private static final int GZIP_TRAILER_LENGTH = 8;
+	private static final int SHORT_LENGTH = 2;
+	private static final int COPY_BUFFER_SIZE = 8 * 1024;
+	private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
+
+	private final ContentCodingEnum contentCoding;
+	private final InflaterPool inflaterPool;
+	private final CRC32 crc = new CRC32();
+	private final byte[] fieldBytes = new byte[GZIP_HEADER_LENGTH];
+	private byte[] copyBuffer = null;
+	private Inflater inflater = null;
+	private boolean isRawInflater = false;
+	private StateEnum state;
+	private int fieldLength = 0;
+	private int skipLength = 0;
+	private int flags = 0;
+	private boolean isStarted = false;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param contentCoding Content coding of the data.
+	 * @param inflaterPool  Pool that Inflater is taken from.
+	 */
+	public ContentDecoder(ContentCodingEnum contentCoding, InflaterPool inflaterPool) {
+		this.contentCoding = contentCoding;
+		this.inflaterPool = inflaterPool;
+		this.state = (contentCoding == ContentCodingEnum.GZIP) ? StateEnum.GZIP_HEADER : StateEnum.DATA;
+	}
+
+	/************************************************************
+	 * Decode compressed bytes.
+	 * 
+	 * Input position is moved after the bytes that were consumed. Bytes that
+	 * were not consumed stay in the input, and they should be given again in
+	 * the next call, since Inflater does not keep them. Method returns 0 when
+	 * all input was consumed and there is no more output to produce from it.
+	 * 
+	 * @param input  Compressed bytes.
+	 * @param output Array that decompressed bytes are written to.
+	 * @param offset Offset in output array.
+	 * @param length Maximum amount of bytes to write.
+	 * @return amount of decompressed bytes that were written.
+	 * @throws IOException in case data is not valid gzip or deflate data.
+	 */
+	public int decode(ByteBuffer input, byte[] output, int offset, int length) throws IOException {
+		if (input.hasRemaining()) {
+			isStarted = true;
+		}
+
+		while (true) {
+			switch (state) {
+			case DATA:
+				int amount = inflate(input, output, offset, length);
+
+				if ((amount > 0) || (state == StateEnum.DATA)) {
+					return amount;
+				}
+
+				break;
+			case END:
+				if (input.hasRemaining() == false) {
+					return 0;
+				}
+
+				startNextMember(input);
+				break;
+			case IGNORE_TRAILING_BYTES:
+				input.position(input.limit());
+				return 0;
+			default:
+				if (input.hasRemaining() == false) {
+					return 0;
+				}
+
+				readGzipField(input);
+				break;
+			}
+		}
+	}
+
+	/************************************************************
+	 * Return true in case compressed data ended. More input is accepted only in
+	 * case it is another gzip member.
+	 * 
+	 * @return true in case compressed data ended.
+	 */
+	public boolean isFinished() {
+		return (state == StateEnum.END) || (state == StateEnum.IGNORE_TRAILING_BYTES);
+	}
+
+	/************************************************************
+	 * Return true in case any input was given to the decoder.
+	 * 
+	 * @return true in case any input was given to the decoder.
+	 */
+	public boolean isStarted() {
+		return isStarted;
+	}
+
+	/************************************************************
+	 * Return Inflater to the pool. Decoder should not be used afterwards.
+	 *
+	 */
+	public void release() {
+		if (inflater != null) {
+			inflaterPool.release(inflater, isRawInflater);
+			inflater = null;
+		}
+	}
+
+	/************************************************************
+	 * Get content coding of the data.
+	 * 
+	 * @return content coding.
+	 */
+	public ContentCodingEnum getContentCoding() {
+		return contentCoding;
+	}
+
+	private int inflate(ByteBuffer input, byte[] output, int offset, int length) throws IOException {
+		if (inflater == null) {
+			if (input.hasRemaining() == false) {
+				return 0;
+			}
+
+			isRawInflater = (contentCoding == ContentCodingEnum.GZIP)
+					|| (isZlibHeader(input.get(input.position())) == false);
+			inflater = inflaterPool.acquire(isRawInflater);
+		}
+
+		int inputLength = setInput(input);
+		int amount;
+
+		try {
+			amount = inflater.inflate(output, offset, length);
+		} catch (DataFormatException e) {
+			throw new ZipException("Invalid " + contentCoding.getName() + " data. " + e.getMessage());
+		}
+
+		input.position(input.position() + inputLength - inflater.getRemaining());
+
+		if (contentCoding == ContentCodingEnum.GZIP) {
+			crc.update(output, offset, amount);
+		}
+
+		if (inflater.finished()) {
+			moveToState((contentCoding == ContentCodingEnum.GZIP) ? StateEnum.GZIP_TRAILER : StateEnum.END);
+		} else if ((amount == 0) && inflater.needsDictionary()) {
+			throw new ZipException("Deflate data that needs preset dictionary is not supported");
+		}
+
+		return amount;
+	}
+
+	/** Give the input to Inflater. Input without array is copied, up to copy buffer size. */
+	private int setInput(ByteBuffer input) {
+		int inputLength = input.remaining();
+
+		if (inputLength == 0) {
+			return 0;
+		}
+
+		if (input.hasArray()) {
+			inflater.setInput(input.array(), input.arrayOffset() + input.position(), inputLength);
+			return inputLength;
+		}
+
+		if (copyBuffer == null) {
+			copyBuffer = new byte[COPY_BUFFER_SIZE];
+		}
+
+		inputLength = Math.min(inputLength, copyBuffer.length);
+		input.duplicate().get(copyBuffer, 0, inputLength);
+		inflater.setInput(copyBuffer, 0, inputLength);
+
+		return inputLength;
+	}
+
+	private void readGzipField(ByteBuffer input) throws IOException {
+		switch (state) {
+		case GZIP_HEADER:
+			if (collect(input, GZIP_HEADER_LENGTH)) {
+				verifyGzipHeader();
+				moveToState(getNextHeaderState());
+			}
+
+			break;
+		case GZIP_EXTRA_LENGTH:
+			if (collect(input, SHORT_LENGTH)) {
+				skipLength = (fieldBytes[0] & 0xFF) | ((fieldBytes[1] & 0xFF) << 8);
+				moveToState(StateEnum.GZIP_EXTRA);
+			}
+
+			break;
+		case GZIP_EXTRA:
+			int length = Math.min(skipLength, input.remaining());
+			input.position(input.position() + length);
+			skipLength -= length;
+
+			if (skipLength == 0) {
+				moveToState(getNextHeaderState());
+			}
+
+			break;
+		case GZIP_NAME:
+		case GZIP_COMMENT:
+			while (input.hasRemaining()) {
+				if (input.get() == 0) {
+					moveToState(getNextHeaderState());
+					break;
+				}
+			}
+
+			break;
+		case GZIP_HEADER_CRC:
+			if (collect(input, SHORT_LENGTH)) {
+				moveToState(getNextHeaderState());
+			}
+
+			break;
+		case GZIP_TRAILER:
+			if (collect(input, GZIP_TRAILER_LENGTH)) {
+				verifyGzipTrailer();
+				moveToState(StateEnum.END);
+			}
+
+			break;
+		default:
+			throw new IllegalStateException("Bug: Gzip field of state [" + state + "] not exists");
+		}
+	}
+
+	/** Copy input bytes to field bytes until field has the given length. */
+	private boolean collect(ByteBuffer input, int length) {
+		int copyLength = Math.min(length - fieldLength, input.remaining());
+		input.get(fieldBytes, fieldLength, copyLength);
+		fieldLength += copyLength;
+
+		return fieldLength == length;
+	}
+
+	private void verifyGzipHeader() throws IOException {
+		if (((fieldBytes[0] & 0xFF) != GZIP_MAGIC_FIRST_BYTE) || ((fieldBytes[1] & 0xFF) != GZIP_MAGIC_SECOND_BYTE)) {
+			throw new ZipException("Response body is not in gzip format");
+		}
+
+		if (fieldBytes[2] != DEFLATE_METHOD) {
+			throw new ZipException("Gzip compression method [" + fieldBytes[2] + "] is not supported");
+		}
+
+		flags = fieldBytes[3] & 0xFF;
+	}
+
+	private void verifyGzipTrailer() throws IOException {
+		long expectedCrc = getUnsignedInt(0);
+		long expectedSize = getUnsignedInt(4);
+
+		if (expectedCrc != crc.getValue()) {
+			throw new ZipException(
+					"Gzip CRC is [" + crc.getValue() + "] and gzip trailer CRC is [" + expectedCrc + "]");
+		}
+
+		if (expectedSize != (inflater.getBytesWritten() & UNSIGNED_INT_MASK)) {
+			throw new ZipException("Gzip data size is [" + inflater.getBytesWritten()
+					+ "] and gzip trailer size is [" + expectedSize + "]");
+		}
+
+		inflater.reset();
+		crc.reset();
+	}
+
+	/** Gzip header fields that follow the completed one, by the header flags. */
+	private StateEnum getNextHeaderState() {
+		if ((state == StateEnum.GZIP_HEADER) && ((flags & FLAG_EXTRA) != 0)) {
+			return StateEnum.GZIP_EXTRA_LENGTH;
+		}
+
+		if ((state.ordinal() < StateEnum.GZIP_NAME.ordinal()) && ((flags & FLAG_NAME) != 0)) {
+			return StateEnum.GZIP_NAME;
+		}
+
+		if ((state.ordinal() < StateEnum.GZIP_COMMENT.ordinal()) && ((flags & FLAG_COMMENT) != 0)) {
+			return StateEnum.GZIP_COMMENT;
+		}
+
+		if ((state.ordinal() < StateEnum.GZIP_HEADER_CRC.ordinal()) && ((flags & FLAG_HEADER_CRC) != 0)) {
+			return StateEnum.GZIP_HEADER_CRC;
+		}
+
+		return StateEnum.DATA;
+	}
+
+	/** Bytes after gzip member are another member, other trailing bytes are ignored. */
+	private void startNextMember(ByteBuffer input) {
+		if ((contentCoding == ContentCodingEnum.GZIP)
+				&& ((input.get(input.position()) & 0xFF) == GZIP_MAGIC_FIRST_BYTE)) {
+			moveToState(StateEnum.GZIP_HEADER);
+		} else {
+			moveToState(StateEnum.IGNORE_TRAILING_BYTES);
+		}
+	}
+
+	private void moveToState(StateEnum nextState) {
+		state = nextState;
+		fieldLength = 0;
+	}
+
+	private long getUnsignedInt(int offset) {
+		return ((fieldBytes[offset] & 0xFFL) | ((fieldBytes[offset + 1] & 0xFFL) << 8)
+				| ((fieldBytes[offset + 2] & 0xFFL) << 16) | ((fieldBytes[offset + 3] & 0xFFL) << 24));
+	}
+
+	/** Zlib header starts with deflate method and window size of up to 32K. */
+	private static boolean isZlibHeader(byte firstByte) {
+		return ((firstByte & 0x0F) == DEFLATE_METHOD) && (((firstByte & 0xFF) >> 4) <= MAX_ZLIB_WINDOW_BITS_VALUE);
+	}
+}
@@ -0,0 +1,101 @@
+package io.github.etuzon.http.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+
+import io.github.etuzon.http.enums.ContentCodingEnum;
+import io.github.etuzon.http.metrics.CompressionMetrics;
+
+/************************************************************
+ * Response entity that decompresses gzip or deflate entity while it is read.
+ * 
+ * Entity has no content encoding and no content length, since the length of
+ * the decompressed content is not known before it is read.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class DecompressingEntity extends HttpEntityWrapper {
+	private static final int COPY_BUFFER_SIZE = 8 * 1024;
+
+	private final ContentCodingEnum contentCoding;
+	private final InflaterPool inflaterPool;
+	private final CompressionMetrics metrics;
+	private InputStream content = null;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param entity        Compressed entity.
+	 * @param contentCoding Content coding of the entity.
+	 * @param inflaterPool  Pool that Inflater is taken from.
+	 * @param metrics       Metrics that compressed and decompressed bytes are
+	 *                      added to.
+	 */
+	public DecompressingEntity(HttpEntity entity, ContentCodingEnum contentCoding, InflaterPool inflaterPool,
+			CompressionMetrics metrics) {
+		super(entity);
+		this.contentCoding = contentCoding;
+		this.inflaterPool = inflaterPool;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public synchronized InputStream getContent() throws IOException {
+		if (content == null) {
+			content = new DecompressingInputStream(super.getContent(),
+					new ContentDecoder(contentCoding, inflaterPool), metrics);
+			metrics.onResponseDecompressed();
+		}
+
+		return content;
+	}
+
+	@Override
+	public void writeTo(OutputStream outStream) throws IOException {
+		try (InputStream input = getContent()) {
+			byte[] buffer = new byte[COPY_BUFFER_SIZE];
+			int length;
+
+			while ((length = input.read(buffer)) != -1) {
+				outStream.write(buffer, 0, length);
+			}
+		}
+	}
+
+	@Override
+	public long getContentLength() {
+		return -1;
+	}
+
+	@Override
+	public String getContentEncoding() {
+		return null;
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		InputStream currentContent;
+
+		synchronized (this) {
+			currentContent = content;
+		}
+
+		try {
+			if (currentContent != null) {
+				currentContent.close();
+			}
+		} finally {
+			super.close();
+		}
+	}
+}
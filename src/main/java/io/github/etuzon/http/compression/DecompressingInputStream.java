@@ -0,0 +1,113 @@
+package io.github.etuzon.http.compression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import io.github.etuzon.http.metrics.CompressionMetrics;
+
+/************************************************************
+ * Input stream that decompresses gzip or deflate stream while it is read.
+ * 
+ * Compressed bytes are read from the source to one fixed buffer, and
+ * decompressed directly to the array of the caller. Closing the stream closes
+ * the source and returns the Inflater to its pool.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class DecompressingInputStream extends InputStream {
+	public static final int READ_BUFFER_SIZE = 8 * 1024;
+
+	private final InputStream source;
+	private final ContentDecoder decoder;
+	private final CompressionMetrics metrics;
+	private final byte[] readBytes = new byte[READ_BUFFER_SIZE];
+	private final ByteBuffer readBuffer = ByteBuffer.wrap(readBytes);
+	private boolean isClosed = false;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param source  Compressed stream.
+	 * @param decoder Decoder of the stream content coding.
+	 * @param metrics Metrics that compressed and decompressed bytes are added
+	 *                to.
+	 */
+	public DecompressingInputStream(InputStream source, ContentDecoder decoder, CompressionMetrics metrics) {
+		this.source = source;
+		this.decoder = decoder;
+		this.metrics = metrics;
+		readBuffer.limit(0);
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] oneByte = new byte[1];
+		return (read(oneByte, 0, 1) == -1) ? -1 : (oneByte[0] & 0xFF);
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (isClosed) {
+			throw new IOException("Decompressing stream is closed");
+		}
+
+		if (length == 0) {
+			return 0;
+		}
+
+		while (true) {
+			int amount = decoder.decode(readBuffer, bytes, offset, length);
+
+			if (amount > 0) {
+				metrics.addDecompressedResponseBytes(amount);
+				return amount;
+			}
+
+			if (readBuffer.hasRemaining()) {
+				continue;
+			}
+
+			if (readSource() == false) {
+				if (decoder.isFinished() || (decoder.isStarted() == false)) {
+					return -1;
+				}
+
+				throw new EOFException(
+						"Compressed " + decoder.getContentCoding().getName() + " body ended before its end");
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (isClosed) {
+			return;
+		}
+
+		isClosed = true;
+
+		try {
+			source.close();
+		} finally {
+			decoder.release();
+		}
+	}
+
+	/** Read next compressed bytes to read buffer. Return false at end of source. */
+	private boolean readSource() throws IOException {
+		int length = source.read(readBytes);
+
+		if (length == -1) {
+			return false;
+		}
+
+		readBuffer.clear();
+		readBuffer.limit(length);
+		metrics.addCompressedResponseBytes(length);
+
+		return true;
+	}
+}
@@ -0,0 +1,90 @@
+package io.github.etuzon.http.compression;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/************************************************************
+ * Pool of raw Deflaters for gzip request bodies.
+ * 
+ * As Inflater, each Deflater holds native zlib memory until Deflater.end, and
+ * its compression buffers are larger than those of Inflater. Pool keeps up to
+ * maximum amount of free Deflaters, and Deflaters that are released when the
+ * pool is full are ended. Compression level is set when Deflater is taken.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class DeflaterPool {
+	public static final int DEFAULT_MAX_FREE_DEFLATERS = 16;
+
+	private static final DeflaterPool DEFAULT_POOL = new DeflaterPool(DEFAULT_MAX_FREE_DEFLATERS);
+
+	private final int maxFreeDeflaters;
+	private final ConcurrentLinkedQueue<Deflater> freeDeflaterQueue = new ConcurrentLinkedQueue<Deflater>();
+	private final AtomicInteger freeDeflatersAmount = new AtomicInteger();
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param maxFreeDeflaters Maximum amount of free Deflaters that are kept in
+	 *                         the pool.
+	 */
+	public DeflaterPool(int maxFreeDeflaters) {
+		this.maxFreeDeflaters = maxFreeDeflaters;
+	}
+
+	/************************************************************
+	 * Get free raw Deflater from the pool, or create new Deflater in case pool
+	 * is empty.
+	 * 
+	 * @param level Compression level, from 0 to 9, or -1 for default level.
+	 * @return Deflater in its initial state with the given level.
+	 */
+	public Deflater acquire(int level) {
+		Deflater deflater = freeDeflaterQueue.poll();
+
+		if (deflater == null) {
+			return new Deflater(level, true);
+		}
+
+		freeDeflatersAmount.decrementAndGet();
+		deflater.setLevel(level);
+		return deflater;
+	}
+
+	/************************************************************
+	 * Return Deflater to the pool.
+	 * 
+	 * Deflater should not be used after it is returned to the pool.
+	 * 
+	 * @param deflater Deflater that was taken from the pool.
+	 */
+	public void release(Deflater deflater) {
+		if (freeDeflatersAmount.incrementAndGet() <= maxFreeDeflaters) {
+			deflater.reset();
+			freeDeflaterQueue.offer(deflater);
+		} else {
+			freeDeflatersAmount.decrementAndGet();
+			deflater.end();
+		}
+	}
+
+	/************************************************************
+	 * Get amount of free Deflaters in the pool.
+	 * 
+	 * @return amount of free Deflaters.
+	 */
+	public int getFreeDeflatersAmount() {
+		return freeDeflatersAmount.get();
+	}
+
+	/************************************************************
+	 * Get process wide Deflater pool.
+	 * 
+	 * @return process wide Deflater pool.
+	 */
+	public static DeflaterPool getDefault() {
+		return DEFAULT_POOL;
+	}
+}
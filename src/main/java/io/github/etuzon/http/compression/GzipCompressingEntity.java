@@ -0,0 +1,115 @@
+package io.github.etuzon.http.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+
+import io.github.etuzon.http.config.CompressionConfig;
+import io.github.etuzon.http.enums.ContentCodingEnum;
+import io.github.etuzon.http.metrics.CompressionMetrics;
+
+/************************************************************
+ * Request entity that compresses the wrapped entity to gzip while it is sent.
+ * 
+ * Compressed content is produced from the content of the wrapped entity in
+ * fixed buffers, so the entity is not copied in memory. Entity is sent with
+ * chunked transfer encoding, since its compressed length is not known before
+ * it is sent, and it is repeatable in case the wrapped entity is repeatable.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class GzipCompressingEntity extends HttpEntityWrapper {
+	private static final int COPY_BUFFER_SIZE = 8 * 1024;
+
+	private final int level;
+	private final DeflaterPool deflaterPool;
+	private final CompressionMetrics metrics;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param entity       Entity to compress.
+	 * @param level        Compression level, from 0 to 9, or -1 for default
+	 *                     level.
+	 * @param deflaterPool Pool that Deflater is taken from.
+	 * @param metrics      Metrics that source and compressed bytes are added
+	 *                     to.
+	 */
+	public GzipCompressingEntity(HttpEntity entity, int level, DeflaterPool deflaterPool,
+			CompressionMetrics metrics) {
+		super(entity);
+		this.level = level;
+		this.deflaterPool = deflaterPool;
+		this.metrics = metrics;
+	}
+
+	/************************************************************
+	 * Compress request entity in case request compression is enabled and entity
+	 * length is unknown or not below the compression threshold. Decision is
+	 * recorded in the metrics.
+	 * 
+	 * Empty entity is not part of the decision, and entity that already has
+	 * content encoding is not compressed again.
+	 * 
+	 * @param entity  Request entity, or null.
+	 * @param config  Compression configuration.
+	 * @param metrics Metrics that decision, source and compressed bytes are
+	 *                added to.
+	 * @return compressing entity, or the given entity in case it is not
+	 *         compressed.
+	 */
+	public static HttpEntity compressRequestEntity(HttpEntity entity, CompressionConfig config,
+			CompressionMetrics metrics) {
+		if ((entity == null) || (entity instanceof GzipCompressingEntity) || (config.isRequestCompression() == false)
+				|| (entity.getContentLength() == 0)) {
+			return entity;
+		}
+
+		long length = entity.getContentLength();
+
+		if ((entity.getContentEncoding() != null)
+				|| ((length >= 0) && (length < config.getRequestCompressionThresholdBytes()))) {
+			metrics.onRequestNotCompressed();
+			return entity;
+		}
+
+		metrics.onRequestCompressed();
+		return new GzipCompressingEntity(entity, config.getCompressionLevel(), DeflaterPool.getDefault(), metrics);
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		return new GzipCompressingInputStream(super.getContent(), level, deflaterPool, metrics);
+	}
+
+	@Override
+	public void writeTo(OutputStream outStream) throws IOException {
+		try (InputStream input = getContent()) {
+			byte[] buffer = new byte[COPY_BUFFER_SIZE];
+			int length;
+
+			while ((length = input.read(buffer)) != -1) {
+				outStream.write(buffer, 0, length);
+			}
+		}
+	}
+
+	@Override
+	public long getContentLength() {
+		return -1;
+	}
+
+	@Override
+	public String getContentEncoding() {
+		return ContentCodingEnum.GZIP.getName();
+	}
+
+	@Override
+	public boolean isChunked() {
+		return true;
+	}
+}
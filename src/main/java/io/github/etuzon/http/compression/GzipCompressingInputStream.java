@@ -0,0 +1,154 @@
+package io.github.etuzon.http.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import io.github.etuzon.http.metrics.CompressionMetrics;
+
+/************************************************************
+ * Input stream that compresses the source stream to gzip while it is read.
+ * 
+ * Source bytes are read to one fixed buffer and compressed directly to the
+ * array of the caller, so neither the source nor the compressed content is
+ * kept in memory. Gzip header and trailer are written by the stream. Closing
+ * the stream closes the source and returns the Deflater to its pool.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class GzipCompressingInputStream extends InputStream {
+	public static final int READ_BUFFER_SIZE = 8 * 1024;
+
+	private static final byte[] GZIP_HEADER = { 0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF };
+	private static final int GZIP_TRAILER_LENGTH = 8;
+
+	private final InputStream source;
+	private final Deflater deflater;
+	private final DeflaterPool deflaterPool;
+	private final CompressionMetrics metrics;
+	private final CRC32 crc = new CRC32();
+	private final byte[] readBytes = new byte[READ_BUFFER_SIZE];
+	private final byte[] trailer = new byte[GZIP_TRAILER_LENGTH];
+	private int headerPosition = 0;
+	private int trailerPosition = -1;
+	private long sourceLength = 0;
+	private boolean isSourceEnded = false;
+	private boolean isClosed = false;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param source       Stream to compress.
+	 * @param level        Compression level, from 0 to 9, or -1 for default
+	 *                     level.
+	 * @param deflaterPool Pool that Deflater is taken from.
+	 * @param metrics      Metrics that source and compressed bytes are added
+	 *                     to.
+	 */
+	public GzipCompressingInputStream(InputStream source, int level, DeflaterPool deflaterPool,
+			CompressionMetrics metrics) {
+		this.source = source;
+		this.deflaterPool = deflaterPool;
+		this.metrics = metrics;
+		this.deflater = deflaterPool.acquire(level);
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] oneByte = new byte[1];
+		return (read(oneByte, 0, 1) == -1) ? -1 : (oneByte[0] & 0xFF);
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (isClosed) {
+			throw new IOException("Gzip compressing stream is closed");
+		}
+
+		if (length == 0) {
+			return 0;
+		}
+
+		if (headerPosition < GZIP_HEADER.length) {
+			int amount = Math.min(length, GZIP_HEADER.length - headerPosition);
+			System.arraycopy(GZIP_HEADER, headerPosition, bytes, offset, amount);
+			headerPosition += amount;
+			metrics.addCompressedRequestBytes(amount);
+			return amount;
+		}
+
+		while (deflater.finished() == false) {
+			if (deflater.needsInput() && (isSourceEnded == false)) {
+				readSource();
+			}
+
+			int amount = deflater.deflate(bytes, offset, length);
+
+			if (amount > 0) {
+				metrics.addCompressedRequestBytes(amount);
+				return amount;
+			}
+		}
+
+		return readTrailer(bytes, offset, length);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (isClosed) {
+			return;
+		}
+
+		isClosed = true;
+
+		try {
+			source.close();
+		} finally {
+			deflaterPool.release(deflater);
+		}
+	}
+
+	/** Read next source bytes to Deflater. Deflater is finished at end of source. */
+	private void readSource() throws IOException {
+		int length = source.read(readBytes);
+
+		if (length == -1) {
+			isSourceEnded = true;
+			deflater.finish();
+			return;
+		}
+
+		crc.update(readBytes, 0, length);
+		deflater.setInput(readBytes, 0, length);
+		sourceLength += length;
+		metrics.addUncompressedRequestBytes(length);
+	}
+
+	private int readTrailer(byte[] bytes, int offset, int length) {
+		if (trailerPosition == -1) {
+			setUnsignedInt(0, crc.getValue());
+			setUnsignedInt(4, sourceLength);
+			trailerPosition = 0;
+		}
+
+		if (trailerPosition == GZIP_TRAILER_LENGTH) {
+			return -1;
+		}
+
+		int amount = Math.min(length, GZIP_TRAILER_LENGTH - trailerPosition);
+		System.arraycopy(trailer, trailerPosition, bytes, offset, amount);
+		trailerPosition += amount;
+		metrics.addCompressedRequestBytes(amount);
+
+		return amount;
+	}
+
+	private void setUnsignedInt(int offset, long value) {
+		trailer[offset] = (byte) value;
+		trailer[offset + 1] = (byte) (value >>> 8);
+		trailer[offset + 2] = (byte) (value >>> 16);
+		trailer[offset + 3] = (byte) (value >>> 24);
+	}
+}
@@ -0,0 +1,103 @@
+package io.github.etuzon.http.compression;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+/************************************************************
+ * Pool of Inflaters.
+ * 
+ * Each Inflater holds native zlib memory that is freed only by Inflater.end or
+ * by the finalizer, so creating Inflater per response churns native memory.
+ * Pool keeps up to maximum amount of free Inflaters of each wrap mode, and
+ * Inflaters that are released when the pool is full are ended.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class InflaterPool {
+	public static final int DEFAULT_MAX_FREE_INFLATERS = 64;
+
+	private static final InflaterPool DEFAULT_POOL = new InflaterPool(DEFAULT_MAX_FREE_INFLATERS);
+
+	private final int maxFreeInflaters;
+	private final ConcurrentLinkedQueue<Inflater> freeRawInflaterQueue = new ConcurrentLinkedQueue<Inflater>();
+	private final ConcurrentLinkedQueue<Inflater> freeZlibInflaterQueue = new ConcurrentLinkedQueue<Inflater>();
+	private final AtomicInteger freeRawInflatersAmount = new AtomicInteger();
+	private final AtomicInteger freeZlibInflatersAmount = new AtomicInteger();
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param maxFreeInflaters Maximum amount of free Inflaters of each wrap mode
+	 *                         that are kept in the pool.
+	 */
+	public InflaterPool(int maxFreeInflaters) {
+		this.maxFreeInflaters = maxFreeInflaters;
+	}
+
+	/************************************************************
+	 * Get free Inflater from the pool, or create new Inflater in case pool is
+	 * empty.
+	 * 
+	 * @param isRaw true for raw deflate data, as in gzip, and false for zlib
+	 *              wrapped data.
+	 * @return Inflater in its initial state.
+	 */
+	public Inflater acquire(boolean isRaw) {
+		Inflater inflater = getQueue(isRaw).poll();
+
+		if (inflater == null) {
+			return new Inflater(isRaw);
+		}
+
+		getFreeAmount(isRaw).decrementAndGet();
+		return inflater;
+	}
+
+	/************************************************************
+	 * Return Inflater to the pool.
+	 * 
+	 * Inflater should not be used after it is returned to the pool.
+	 * 
+	 * @param inflater Inflater that was taken from the pool.
+	 * @param isRaw    Wrap mode that Inflater was taken with.
+	 */
+	public void release(Inflater inflater, boolean isRaw) {
+		AtomicInteger freeAmount = getFreeAmount(isRaw);
+
+		if (freeAmount.incrementAndGet() <= maxFreeInflaters) {
+			inflater.reset();
+			getQueue(isRaw).offer(inflater);
+		} else {
+			freeAmount.decrementAndGet();
+			inflater.end();
+		}
+	}
+
+	/************************************************************
+	 * Get amount of free Inflaters in the pool.
+	 * 
+	 * @return amount of free Inflaters of both wrap modes.
+	 */
+	public int getFreeInflatersAmount() {
+		return freeRawInflatersAmount.get() + freeZlibInflatersAmount.get();
+	}
+
+	/************************************************************
+	 * Get process wide Inflater pool.
+	 * 
+	 * @return process wide Inflater pool.
+	 */
+	public static InflaterPool getDefault() {
+		return DEFAULT_POOL;
+	}
+
+	private ConcurrentLinkedQueue<Inflater> getQueue(boolean isRaw) {
+		return isRaw ? freeRawInflaterQueue : freeZlibInflaterQueue;
+	}
+
+	private AtomicInteger getFreeAmount(boolean isRaw) {
+		return isRaw ? freeRawInflatersAmount : freeZlibInflatersAmount;
+	}
+}
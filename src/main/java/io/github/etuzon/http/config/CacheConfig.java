@@ -0,0 +1,140 @@
+package io.github.etuzon.http.config;
+
+import java.nio.file.Path;
+
+/*************************************************
+ * Response cache configuration.
+ * 
+ * By default cache keeps up to 64 MB of response bodies, response body of
+ * more than 8 MB is not cached, and response without explicit freshness is
+ * revalidated on each request. When disk directory is set, response with
+ * Content-Length above the maximum entry bytes is cached in memory mapped file
+ * of the disk tier, up to 1 GB of files by default.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class CacheConfig {
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+	public static final long DEFAULT_MAX_ENTRY_BYTES = 8L * 1024 * 1024;
+	public static final boolean DEFAULT_HEURISTIC_FRESHNESS = false;
+	public static final long DEFAULT_MAX_DISK_BYTES = 1024L * 1024 * 1024;
+
+	private long maxBytes = DEFAULT_MAX_BYTES;
+	private long maxEntryBytes = DEFAULT_MAX_ENTRY_BYTES;
+	private boolean isHeuristicFreshness = DEFAULT_HEURISTIC_FRESHNESS;
+	private Path diskDirectory = null;
+	private long maxDiskBytes = DEFAULT_MAX_DISK_BYTES;
+
+	/*************************************************
+	 * Set maximum amount of bytes of all cached responses. Least recently used
+	 * responses are evicted when cache is above it.
+	 * 
+	 * @param maxBytes Maximum amount of bytes.
+	 * @return CacheConfig.
+	 */
+	public CacheConfig setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		return this;
+	}
+
+	/*************************************************
+	 * Set maximum amount of bytes of one cached response. Larger responses are
+	 * not cached.
+	 * 
+	 * @param maxEntryBytes Maximum amount of bytes.
+	 * @return CacheConfig.
+	 */
+	public CacheConfig setMaxEntryBytes(long maxEntryBytes) {
+		this.maxEntryBytes = maxEntryBytes;
+		return this;
+	}
+
+	/*************************************************
+	 * Set heuristic freshness.
+	 * 
+	 * In case value is true, response with Last-Modified header and without
+	 * Cache-Control max-age or Expires header is fresh for 10% of the time
+	 * since it was modified, as RFC 9111 allows. Otherwise such response is
+	 * revalidated on each request.
+	 * 
+	 * @param isHeuristicFreshness true to use heuristic freshness.
+	 * @return CacheConfig.
+	 */
+	public CacheConfig setHeuristicFreshness(boolean isHeuristicFreshness) {
+		this.isHeuristicFreshness = isHeuristicFreshness;
+		return this;
+	}
+
+	/*************************************************
+	 * Set directory of the disk tier.
+	 * 
+	 * Response bodies are kept in files of the directory, and index file of the
+	 * directory keeps the cached responses between restarts. Directory should
+	 * be used by one cache at a time.
+	 * 
+	 * @param diskDirectory Directory, or null for no disk tier.
+	 * @return CacheConfig.
+	 */
+	public CacheConfig setDiskDirectory(Path diskDirectory) {
+		this.diskDirectory = diskDirectory;
+		return this;
+	}
+
+	/*************************************************
+	 * Set maximum amount of bytes of all response bodies of the disk tier.
+	 * Least recently used responses are deleted when disk tier is above it.
+	 * 
+	 * @param maxDiskBytes Maximum amount of bytes.
+	 * @return CacheConfig.
+	 */
+	public CacheConfig setMaxDiskBytes(long maxDiskBytes) {
+		this.maxDiskBytes = maxDiskBytes;
+		return this;
+	}
+
+	/*************************************************
+	 * Get maximum amount of bytes of all cached responses.
+	 * 
+	 * @return maximum amount of bytes.
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/*************************************************
+	 * Get maximum amount of bytes of one cached response.
+	 * 
+	 * @return maximum amount of bytes.
+	 */
+	public long getMaxEntryBytes() {
+		return Math.min(maxEntryBytes, maxBytes);
+	}
+
+	/*************************************************
+	 * Return true in case heuristic freshness is used.
+	 * 
+	 * @return true in case heuristic freshness is used.
+	 */
+	public boolean isHeuristicFreshness() {
+		return isHeuristicFreshness;
+	}
+
+	/*************************************************
+	 * Get directory of the disk tier.
+	 * 
+	 * @return directory, or null in case there is no disk tier.
+	 */
+	public Path getDiskDirectory() {
+		return diskDirectory;
+	}
+
+	/*************************************************
+	 * Get maximum amount of bytes of all response bodies of the disk tier.
+	 * 
+	 * @return maximum amount of bytes.
+	 */
+	public long getMaxDiskBytes() {
+		return maxDiskBytes;
+	}
+}
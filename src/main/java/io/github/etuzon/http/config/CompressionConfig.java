@@ -0,0 +1,125 @@
+package io.github.etuzon.http.config;
+
+import java.util.zip.Deflater;
+
+/*************************************************
+ * Content compression configuration.
+ * 
+ * By default responses are not decompressed, Accept-Encoding header is not
+ * sent and request entities are not compressed.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class CompressionConfig {
+	public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	public static final boolean DEFAULT_RESPONSE_DECOMPRESSION = false;
+	public static final boolean DEFAULT_REQUEST_COMPRESSION = false;
+	public static final long DEFAULT_REQUEST_COMPRESSION_THRESHOLD_BYTES = 8 * 1024;
+	public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+	private boolean isResponseDecompression = DEFAULT_RESPONSE_DECOMPRESSION;
+	private boolean isRequestCompression = DEFAULT_REQUEST_COMPRESSION;
+	private long requestCompressionThresholdBytes = DEFAULT_REQUEST_COMPRESSION_THRESHOLD_BYTES;
+	private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+
+	/*************************************************
+	 * Set response decompression.
+	 * 
+	 * In case value is true, requests are sent with 'Accept-Encoding: gzip,
+	 * deflate' header, unless request already has Accept-Encoding header, and
+	 * gzip or deflate response body is decompressed while it is read.
+	 * 
+	 * @param isResponseDecompression true to decompress responses.
+	 * @return CompressionConfig.
+	 */
+	public CompressionConfig setResponseDecompression(boolean isResponseDecompression) {
+		this.isResponseDecompression = isResponseDecompression;
+		return this;
+	}
+
+	/*************************************************
+	 * Set request compression.
+	 * 
+	 * In case value is true, request entity is sent with 'Content-Encoding:
+	 * gzip' header and it is compressed while it is sent, in case its length is
+	 * unknown or not below the compression threshold. Entity that already has
+	 * content encoding is sent as is. Server should accept gzip requests.
+	 * 
+	 * @param isRequestCompression true to compress request entities.
+	 * @return CompressionConfig.
+	 */
+	public CompressionConfig setRequestCompression(boolean isRequestCompression) {
+		this.isRequestCompression = isRequestCompression;
+		return this;
+	}
+
+	/*************************************************
+	 * Set minimum entity length that is compressed. Smaller entities are sent
+	 * without compression, since compression of few bytes costs more CPU than
+	 * the bytes it saves.
+	 * 
+	 * @param requestCompressionThresholdBytes Minimum entity length in bytes.
+	 * @return CompressionConfig.
+	 */
+	public CompressionConfig setRequestCompressionThresholdBytes(long requestCompressionThresholdBytes) {
+		this.requestCompressionThresholdBytes = requestCompressionThresholdBytes;
+		return this;
+	}
+
+	/*************************************************
+	 * Set compression level of request entities.
+	 * 
+	 * @param compressionLevel Compression level from Deflater.BEST_SPEED (1) to
+	 *                         Deflater.BEST_COMPRESSION (9), or
+	 *                         Deflater.DEFAULT_COMPRESSION (-1).
+	 * @return CompressionConfig.
+	 * @throws IllegalArgumentException in case compression level is not valid.
+	 */
+	public CompressionConfig setCompressionLevel(int compressionLevel) {
+		if (((compressionLevel < Deflater.NO_COMPRESSION) || (compressionLevel > Deflater.BEST_COMPRESSION))
+				&& (compressionLevel != Deflater.DEFAULT_COMPRESSION)) {
+			throw new IllegalArgumentException("Compression level [" + compressionLevel + "] is not valid");
+		}
+
+		this.compressionLevel = compressionLevel;
+		return this;
+	}
+
+	/*************************************************
+	 * Return true in case responses are decompressed.
+	 * 
+	 * @return true in case responses are decompressed.
+	 */
+	public boolean isResponseDecompression() {
+		return isResponseDecompression;
+	}
+
+	/*************************************************
+	 * Return true in case request entities are compressed.
+	 * 
+	 * @return true in case request entities are compressed.
+	 */
+	public boolean isRequestCompression() {
+		return isRequestCompression;
+	}
+
+	/*************************************************
+	 * Get minimum entity length that is compressed.
+	 * 
+	 * @return minimum entity length in bytes.
+	 */
+	public long getRequestCompressionThresholdBytes() {
+		return requestCompressionThresholdBytes;
+	}
+
+	/*************************************************
+	 * Get compression level of request entities.
+	 * 
+	 * @return compression level.
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+}
@@ -0,0 +1,105 @@
+package io.github.etuzon.http.config;
+
+import io.github.etuzon.projects.core.utils.DateUtil;
+
+/*************************************************
+ * Connection pool configuration of HTTP client.
+ * 
+ * Default values are the same as Apache HTTP client defaults.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ConnectionPoolConfig {
+	public static final int DEFAULT_MAX_TOTAL = 25;
+	public static final int DEFAULT_MAX_PER_ROUTE = 5;
+	public static final long DEFAULT_LEASE_TIMEOUT_MS = 3 * DateUtil.MINUTE_BY_MS;
+	public static final long DEFAULT_VALIDATE_AFTER_INACTIVITY_MS = 2 * DateUtil.SECOND_BY_MS;
+
+	private int maxTotal = DEFAULT_MAX_TOTAL;
+	private int maxPerRoute = DEFAULT_MAX_PER_ROUTE;
+	private long leaseTimeoutMs = DEFAULT_LEASE_TIMEOUT_MS;
+	private long validateAfterInactivityMs = DEFAULT_VALIDATE_AFTER_INACTIVITY_MS;
+
+	/*************************************************
+	 * Set maximum amount of connections in the pool.
+	 * 
+	 * @param maxTotal Maximum amount of connections.
+	 * @return ConnectionPoolConfig.
+	 */
+	public ConnectionPoolConfig setMaxTotal(int maxTotal) {
+		this.maxTotal = maxTotal;
+		return this;
+	}
+
+	/*************************************************
+	 * Set maximum amount of connections per route (host and port).
+	 * 
+	 * @param maxPerRoute Maximum amount of connections per route.
+	 * @return ConnectionPoolConfig.
+	 */
+	public ConnectionPoolConfig setMaxPerRoute(int maxPerRoute) {
+		this.maxPerRoute = maxPerRoute;
+		return this;
+	}
+
+	/*************************************************
+	 * Set timeout in ms to wait for free connection from the pool.
+	 * 
+	 * @param leaseTimeoutMs Timeout in ms.
+	 * @return ConnectionPoolConfig.
+	 */
+	public ConnectionPoolConfig setLeaseTimeoutMs(long leaseTimeoutMs) {
+		this.leaseTimeoutMs = leaseTimeoutMs;
+		return this;
+	}
+
+	/*************************************************
+	 * Set inactivity period in ms after which persistent connection is validated
+	 * before it is leased from the pool.
+	 * 
+	 * @param validateAfterInactivityMs Inactivity period in ms. Negative value
+	 *                                  disable validation.
+	 * @return ConnectionPoolConfig.
+	 */
+	public ConnectionPoolConfig setValidateAfterInactivityMs(long validateAfterInactivityMs) {
+		this.validateAfterInactivityMs = validateAfterInactivityMs;
+		return this;
+	}
+
+	/*************************************************
+	 * Get maximum amount of connections in the pool.
+	 * 
+	 * @return maximum amount of connections in the pool.
+	 */
+	public int getMaxTotal() {
+		return maxTotal;
+	}
+
+	/*************************************************
+	 * Get maximum amount of connections per route.
+	 * 
+	 * @return maximum amount of connections per route.
+	 */
+	public int getMaxPerRoute() {
+		return maxPerRoute;
+	}
+
+	/*************************************************
+	 * Get timeout in ms to wait for free connection from the pool.
+	 * 
+	 * @return timeout in ms.
+	 */
+	public long getLeaseTimeoutMs() {
+		return leaseTimeoutMs;
+	}
+
+	/*************************************************
+	 * Get inactivity period in ms after which persistent connection is validated.
+	 * 
+	 * @return inactivity period in ms.
+	 */
+	public long getValidateAfterInactivityMs() {
+		return validateAfterInactivityMs;
+	}
+}
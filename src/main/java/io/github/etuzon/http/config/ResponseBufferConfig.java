@@ -0,0 +1,85 @@
+package io.github.etuzon.http.config;
+
+import io.github.etuzon.http.enums.BufferOverflowPolicyEnum;
+
+/*************************************************
+ * Response buffer configuration of async HTTP client.
+ * 
+ * By default buffer is not bounded.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ResponseBufferConfig {
+	public static final long UNBOUNDED = Long.MAX_VALUE;
+
+	public static final long DEFAULT_HIGH_WATERMARK_BYTES = UNBOUNDED;
+	public static final long DEFAULT_LOW_WATERMARK_BYTES = UNBOUNDED;
+	public static final BufferOverflowPolicyEnum DEFAULT_OVERFLOW_POLICY = BufferOverflowPolicyEnum.BLOCK;
+
+	private long highWatermarkBytes = DEFAULT_HIGH_WATERMARK_BYTES;
+	private long lowWatermarkBytes = DEFAULT_LOW_WATERMARK_BYTES;
+	private BufferOverflowPolicyEnum overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+
+	/*************************************************
+	 * Set maximum amount of bytes in the buffer.
+	 * 
+	 * @param highWatermarkBytes Maximum amount of bytes in the buffer.
+	 * @return ResponseBufferConfig.
+	 */
+	public ResponseBufferConfig setHighWatermarkBytes(long highWatermarkBytes) {
+		this.highWatermarkBytes = highWatermarkBytes;
+		return this;
+	}
+
+	/*************************************************
+	 * Set amount of bytes in the buffer below which reading from the connection
+	 * is resumed, in case it was stopped by BufferOverflowPolicyEnum.BLOCK.
+	 * 
+	 * @param lowWatermarkBytes Amount of bytes. Values above the high watermark
+	 *                          are treated as the high watermark.
+	 * @return ResponseBufferConfig.
+	 */
+	public ResponseBufferConfig setLowWatermarkBytes(long lowWatermarkBytes) {
+		this.lowWatermarkBytes = lowWatermarkBytes;
+		return this;
+	}
+
+	/*************************************************
+	 * Set what to do when the buffer reaches its high watermark.
+	 * 
+	 * @param overflowPolicy Overflow policy.
+	 * @return ResponseBufferConfig.
+	 */
+	public ResponseBufferConfig setOverflowPolicy(BufferOverflowPolicyEnum overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+		return this;
+	}
+
+	/*************************************************
+	 * Get maximum amount of bytes in the buffer.
+	 * 
+	 * @return maximum amount of bytes in the buffer.
+	 */
+	public long getHighWatermarkBytes() {
+		return highWatermarkBytes;
+	}
+
+	/*************************************************
+	 * Get amount of bytes in the buffer below which reading is resumed.
+	 * 
+	 * @return amount of bytes.
+	 */
+	public long getLowWatermarkBytes() {
+		return Math.min(lowWatermarkBytes, highWatermarkBytes);
+	}
+
+	/*************************************************
+	 * Get what to do when the buffer reaches its high watermark.
+	 * 
+	 * @return overflow policy.
+	 */
+	public BufferOverflowPolicyEnum getOverflowPolicy() {
+		return overflowPolicy;
+	}
+}
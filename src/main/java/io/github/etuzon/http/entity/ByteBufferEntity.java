@@ -0,0 +1,98 @@
+package io.github.etuzon.http.entity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+
+import io.github.etuzon.http.buffer.ByteBufferInputStream;
+
+/************************************************************
+ * Request entity of the bytes between position and limit of a ByteBuffer.
+ * 
+ * Bytes are not copied when the entity is created. Heap buffer is written to
+ * the connection from its backing array, and direct buffer through a channel.
+ * Buffer position and limit are not changed, so the entity is repeatable, and
+ * the buffer content should not be changed until the request is sent.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ByteBufferEntity extends AbstractHttpEntity {
+	private final ByteBuffer buffer;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param buffer      Buffer, from its position to its limit.
+	 * @param contentType Content type, or null to not send Content-Type header.
+	 */
+	public ByteBufferEntity(ByteBuffer buffer, ContentType contentType) {
+		super(contentType, null);
+		this.buffer = buffer.duplicate();
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param bytes       Bytes.
+	 * @param contentType Content type, or null to not send Content-Type header.
+	 */
+	public ByteBufferEntity(byte[] bytes, ContentType contentType) {
+		this(ByteBuffer.wrap(bytes), contentType);
+	}
+
+	/************************************************************
+	 * Get the entity bytes.
+	 * 
+	 * @return duplicate of the buffer, from position to limit of the entity.
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer.duplicate();
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	@Override
+	public long getContentLength() {
+		return buffer.remaining();
+	}
+
+	@Override
+	public InputStream getContent() {
+		return new ByteBufferInputStream(buffer.duplicate());
+	}
+
+	@Override
+	public void writeTo(OutputStream outStream) throws IOException {
+		if (buffer.hasArray()) {
+			outStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		} else {
+			WritableByteChannel channel = Channels.newChannel(outStream);
+			ByteBuffer data = buffer.duplicate();
+
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+		}
+
+		outStream.flush();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+	@Override
+	public void close() {
+	}
+}
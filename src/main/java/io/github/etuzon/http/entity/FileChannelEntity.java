@@ -0,0 +1,192 @@
+package io.github.etuzon.http.entity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+
+/************************************************************
+ * Request entity of a file region.
+ * 
+ * File is sent by FileChannel.transferTo to the connection, so its content is
+ * not loaded to the heap. Region is read with absolute positions, so the
+ * position of a given channel is not changed and the entity is repeatable.
+ * 
+ * Entity of a path opens the file on each write and closes it when the write
+ * ends. Entity of a channel does not close the channel.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class FileChannelEntity extends AbstractHttpEntity {
+	private final Path path;
+	private final FileChannel fileChannel;
+	private final long position;
+	private final long length;
+
+	/************************************************************
+	 * Constructor of entity of the whole file.
+	 * 
+	 * @param path        File path.
+	 * @param contentType Content type, or null to not send Content-Type header.
+	 * @throws IOException in case failed to read file size.
+	 */
+	public FileChannelEntity(Path path, ContentType contentType) throws IOException {
+		super(contentType, null);
+		this.path = path;
+		this.fileChannel = null;
+		this.position = 0;
+		this.length = path.toFile().length();
+
+		if (path.toFile().isFile() == false) {
+			throw new IOException("File [" + path + "] does not exist");
+		}
+	}
+
+	/************************************************************
+	 * Constructor of entity of the channel from its current position to its
+	 * end.
+	 * 
+	 * @param fileChannel File channel.
+	 * @param contentType Content type, or null to not send Content-Type header.
+	 * @throws IOException in case failed to read channel position or size.
+	 */
+	public FileChannelEntity(FileChannel fileChannel, ContentType contentType) throws IOException {
+		super(contentType, null);
+		this.path = null;
+		this.fileChannel = fileChannel;
+		this.position = fileChannel.position();
+		this.length = fileChannel.size() - position;
+	}
+
+	/************************************************************
+	 * Open channel of the file region. Channel of path entity should be closed
+	 * by the caller, channel of channel entity is the given channel.
+	 * 
+	 * @return file channel.
+	 * @throws IOException in case failed to open file.
+	 */
+	public FileChannel openChannel() throws IOException {
+		return (path != null) ? FileChannel.open(path, StandardOpenOption.READ) : fileChannel;
+	}
+
+	/************************************************************
+	 * Return true in case channel that is returned by openChannel should be
+	 * closed by the caller.
+	 * 
+	 * @return true in case entity is of path.
+	 */
+	public boolean isOwnChannel() {
+		return path != null;
+	}
+
+	/************************************************************
+	 * Get position in the file of the first byte of the entity.
+	 * 
+	 * @return position.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	@Override
+	public long getContentLength() {
+		return length;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		return new FileRegionInputStream(openChannel());
+	}
+
+	@Override
+	public void writeTo(OutputStream outStream) throws IOException {
+		FileChannel channel = openChannel();
+
+		try {
+			WritableByteChannel target = Channels.newChannel(outStream);
+			long transferred = 0;
+
+			while (transferred < length) {
+				long amount = channel.transferTo(position + transferred, length - transferred, target);
+
+				if (amount <= 0) {
+					throw new IOException("File [" + ((path != null) ? path : channel) + "] ended after ["
+							+ transferred + "] of [" + length + "] bytes");
+				}
+
+				transferred += amount;
+			}
+
+			outStream.flush();
+		} finally {
+			if (isOwnChannel()) {
+				channel.close();
+			}
+		}
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/************************************************************
+	 * Input stream that reads the file region with absolute positions.
+	 *
+	 */
+	private class FileRegionInputStream extends InputStream {
+		private final FileChannel channel;
+		private long readLength = 0;
+
+		private FileRegionInputStream(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] oneByte = new byte[1];
+			return (read(oneByte, 0, 1) == -1) ? -1 : (oneByte[0] & 0xFF);
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int maxLength) throws IOException {
+			if (readLength >= length) {
+				return -1;
+			}
+
+			int bufferLength = (int) Math.min(maxLength, length - readLength);
+			int amount = channel.read(ByteBuffer.wrap(bytes, offset, bufferLength), position + readLength);
+
+			if (amount > 0) {
+				readLength += amount;
+			}
+
+			return amount;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (isOwnChannel()) {
+				channel.close();
+			}
+		}
+	}
+}
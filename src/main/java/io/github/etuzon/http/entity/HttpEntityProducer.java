@@ -0,0 +1,309 @@
+package io.github.etuzon.http.entity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+
+import io.github.etuzon.http.buffer.ByteChunkPool;
+
+/************************************************************
+ * Async entity producer that streams the bytes of a classic HttpEntity.
+ * 
+ * ByteBufferEntity is written from its buffer without copy. FileChannelEntity
+ * is read with absolute positions, and other entities are read from their
+ * content stream, to one pooled chunk at a time, so the producer memory does
+ * not depend on the entity size. Entity without length is sent with chunked
+ * transfer encoding.
+ * 
+ * Content stream may block, so it is read by an executor thread and not by the
+ * I/O reactor thread. The producer reports no available bytes while a read is
+ * in progress, and requests output from the channel when the read ends.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpEntityProducer implements AsyncEntityProducer {
+	private static final AtomicInteger READ_THREAD_INDEX = new AtomicInteger();
+	private static final ExecutorService DEFAULT_READ_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable,
+				HttpEntityProducer.class.getSimpleName() + "-" + READ_THREAD_INDEX.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final HttpEntity entity;
+	private final ByteChunkPool chunkPool;
+	private final Executor readExecutor;
+
+	private ByteBuffer chunk = null;
+	private ByteBuffer data = null;
+	private InputStream inStream = null;
+	private FileChannel fileChannel = null;
+	private long filePosition = 0;
+	private long fileEndPosition = 0;
+	private boolean isEndOfData = false;
+	private boolean isEnded = false;
+	private boolean isReading = false;
+	private IOException readException = null;
+	private long readGeneration = 0;
+
+	/************************************************************
+	 * Constructor. Chunks are taken from the process wide chunk pool, and
+	 * content stream is read by process wide daemon threads.
+	 * 
+	 * @param entity Entity.
+	 */
+	public HttpEntityProducer(HttpEntity entity) {
+		this(entity, ByteChunkPool.getDefault());
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param entity    Entity.
+	 * @param chunkPool Pool of chunks that entity content is read to.
+	 */
+	public HttpEntityProducer(HttpEntity entity, ByteChunkPool chunkPool) {
+		this(entity, chunkPool, DEFAULT_READ_EXECUTOR);
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param entity       Entity.
+	 * @param chunkPool    Pool of chunks that entity content is read to.
+	 * @param readExecutor Executor that reads content stream of entities that
+	 *                     are not ByteBufferEntity or FileChannelEntity.
+	 */
+	public HttpEntityProducer(HttpEntity entity, ByteChunkPool chunkPool, Executor readExecutor) {
+		this.entity = entity;
+		this.chunkPool = chunkPool;
+		this.readExecutor = readExecutor;
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return entity.isRepeatable();
+	}
+
+	@Override
+	public long getContentLength() {
+		return entity.getContentLength();
+	}
+
+	@Override
+	public String getContentType() {
+		return entity.getContentType();
+	}
+
+	@Override
+	public String getContentEncoding() {
+		return entity.getContentEncoding();
+	}
+
+	@Override
+	public boolean isChunked() {
+		return entity.isChunked() || (entity.getContentLength() < 0);
+	}
+
+	@Override
+	public Set<String> getTrailerNames() {
+		return entity.getTrailerNames();
+	}
+
+	@Override
+	public synchronized int available() {
+		if ((data != null) && data.hasRemaining()) {
+			return data.remaining();
+		}
+
+		return (isEnded || isReading) ? 0 : chunkPool.getChunkSize();
+	}
+
+	@Override
+	public synchronized void produce(DataStreamChannel channel) throws IOException {
+		while (isEnded == false) {
+			if ((data == null) || (data.hasRemaining() == false)) {
+				if (isEndOfData) {
+					channel.endStream();
+					isEnded = true;
+					return;
+				}
+
+				if (readData(channel) == false) {
+					return;
+				}
+
+				continue;
+			}
+
+			channel.write(data);
+
+			if (data.hasRemaining()) {
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void failed(Exception cause) {
+		releaseResources();
+	}
+
+	/************************************************************
+	 * Close entity stream or file and return chunk to the pool. Repeatable
+	 * entity is produced again from its start after resources are released.
+	 * Chunk of a stream read that is in progress is returned to the pool by
+	 * the read when it ends.
+	 */
+	@Override
+	public synchronized void releaseResources() {
+		closeQuietly();
+
+		if ((chunk != null) && (isReading == false)) {
+			chunkPool.release(chunk);
+		}
+
+		chunk = null;
+		data = null;
+		inStream = null;
+		fileChannel = null;
+		isEndOfData = false;
+		isEnded = false;
+		isReading = false;
+		readException = null;
+		readGeneration++;
+	}
+
+	/** Set data to the next entity bytes, or return false in case it will be set by content stream read. */
+	private boolean readData(DataStreamChannel channel) throws IOException {
+		if (entity instanceof ByteBufferEntity) {
+			data = ((ByteBufferEntity) entity).getBuffer();
+			isEndOfData = true;
+		} else if (entity instanceof FileChannelEntity) {
+			readFileData((FileChannelEntity) entity);
+		} else {
+			startStreamRead(channel);
+			return false;
+		}
+
+		return true;
+	}
+
+	private void readFileData(FileChannelEntity fileEntity) throws IOException {
+		if (fileChannel == null) {
+			fileChannel = fileEntity.openChannel();
+			filePosition = fileEntity.getPosition();
+			fileEndPosition = filePosition + fileEntity.getContentLength();
+		}
+
+		ByteBuffer buffer = getChunk();
+		buffer.limit((int) Math.min(buffer.capacity(), fileEndPosition - filePosition));
+
+		int amount = (buffer.remaining() > 0) ? fileChannel.read(buffer, filePosition) : 0;
+
+		if (amount < 0) {
+			throw new IOException("File ended [" + (fileEndPosition - filePosition) + "] bytes before entity end");
+		}
+
+		filePosition += amount;
+		isEndOfData = (filePosition >= fileEndPosition);
+		buffer.flip();
+		data = buffer;
+	}
+
+	/** Read next chunk of content stream by the read executor, unless a read is already in progress. */
+	private void startStreamRead(final DataStreamChannel channel) throws IOException {
+		if (readException != null) {
+			IOException exception = readException;
+			readException = null;
+			throw exception;
+		}
+
+		if (isReading) {
+			return;
+		}
+
+		if (inStream == null) {
+			inStream = entity.getContent();
+		}
+
+		final InputStream stream = inStream;
+		final ByteBuffer buffer = getChunk();
+		final long generation = readGeneration;
+		isReading = true;
+		data = null;
+
+		try {
+			readExecutor.execute(() -> readStream(stream, buffer, generation, channel));
+		} catch (RuntimeException e) {
+			isReading = false;
+			throw new IOException("Failed to start read of entity content stream", e);
+		}
+	}
+
+	/** Read content stream to the buffer by executor thread, and request output from the channel. */
+	private void readStream(InputStream stream, ByteBuffer buffer, long generation, DataStreamChannel channel) {
+		int amount = 0;
+		IOException exception = null;
+
+		try {
+			amount = stream.read(buffer.array(), buffer.arrayOffset(), buffer.capacity());
+		} catch (IOException e) {
+			exception = e;
+		} catch (RuntimeException e) {
+			exception = new IOException("Failed to read entity content stream", e);
+		}
+
+		synchronized (this) {
+			if (generation != readGeneration) {
+				chunkPool.release(buffer);
+				return;
+			}
+
+			isReading = false;
+
+			if (exception != null) {
+				readException = exception;
+			} else {
+				isEndOfData = (amount < 0);
+				buffer.limit(Math.max(amount, 0));
+				data = buffer;
+			}
+		}
+
+		channel.requestOutput();
+	}
+
+	private ByteBuffer getChunk() {
+		if (chunk == null) {
+			chunk = chunkPool.acquire();
+		}
+
+		chunk.clear();
+		return chunk;
+	}
+
+	private void closeQuietly() {
+		try {
+			if (inStream != null) {
+				inStream.close();
+			}
+
+			if ((fileChannel != null) && ((FileChannelEntity) entity).isOwnChannel()) {
+				fileChannel.close();
+			}
+		} catch (IOException e) {
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package io.github.etuzon.http.enums;
+
+/**************************************
+ * When HTTP client reads response body of blocking requests.
+ * 
+ * EAGER - body is read to memory before the request method returns, and the
+ * connection is returned to the pool.
+ * 
+ * LAZY - body is read only when it is accessed, so it can be streamed. The
+ * connection is returned to the pool only after the body is read, discarded or
+ * the response is closed.
+ *
+ */
+public enum BodyReadModeEnum {
+	EAGER, LAZY;
+}
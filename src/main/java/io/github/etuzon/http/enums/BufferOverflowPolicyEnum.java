@@ -0,0 +1,16 @@
+package io.github.etuzon.http.enums;
+
+/**************************************
+ * What async client does when response buffer reaches its high watermark.
+ * 
+ * BLOCK - stop reading from the connection until the buffer is drained below
+ * its low watermark, so TCP flow control slows down the server.
+ * 
+ * DROP_OLDEST - keep reading and drop the oldest bytes from the buffer.
+ * 
+ * FAIL - fail the request.
+ * 
+ */
+public enum BufferOverflowPolicyEnum {
+	BLOCK, DROP_OLDEST, FAIL;
+}
@@ -0,0 +1,47 @@
+package io.github.etuzon.http.enums;
+
+public enum ContentCodingEnum {
+	GZIP("gzip"), DEFLATE("deflate");
+
+	private final String name;
+
+	private ContentCodingEnum(String name) {
+		this.name = name;
+	}
+
+	/**************************************
+	 * Get content coding name, as it is written in Content-Encoding header.
+	 * 
+	 * @return content coding name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**************************************
+	 * Get content coding of Content-Encoding header value.
+	 * 
+	 * @param contentEncoding Content-Encoding header value.
+	 * @return content coding, or null in case header value is null or it is
+	 *         not a supported content coding.
+	 */
+	public static ContentCodingEnum parse(String contentEncoding) {
+		if (contentEncoding == null) {
+			return null;
+		}
+
+		String coding = contentEncoding.trim();
+
+		if (coding.equalsIgnoreCase("x-gzip")) {
+			return GZIP;
+		}
+
+		for (ContentCodingEnum contentCoding : values()) {
+			if (contentCoding.name.equalsIgnoreCase(coding)) {
+				return contentCoding;
+			}
+		}
+
+		return null;
+	}
+}
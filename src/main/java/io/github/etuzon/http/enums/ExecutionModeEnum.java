@@ -0,0 +1,15 @@
+package io.github.etuzon.http.enums;
+
+/**************************************
+ * How HTTP client executes non-blocking requests (send*Async methods).
+ * 
+ * REACTOR - requests are multiplexed over async HTTP engine reactor threads.
+ * 
+ * THREAD_PER_REQUEST - each request is a blocking request that runs on its own
+ * thread. On Java 21 and above the thread is a virtual thread, else it is a
+ * thread from bounded platform threads pool.
+ * 
+ */
+public enum ExecutionModeEnum {
+	REACTOR, THREAD_PER_REQUEST;
+}
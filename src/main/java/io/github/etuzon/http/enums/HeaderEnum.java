@@ -1,8 +1,11 @@
 package io.github.etuzon.http.enums;
 
 public enum HeaderEnum {
-	ACCEPT("Accept"), AUTORIZATION("Authorization"), CONNECTION("Connection"), CONTENT_LENGTH("Content-Length"),
-	CONTENT_TYPE("Content-Type"), COOKIE("Cookie");
+	ACCEPT("Accept"), ACCEPT_ENCODING("Accept-Encoding"), AGE("Age"), AUTORIZATION("Authorization"),
+	CACHE_CONTROL("Cache-Control"), CONNECTION("Connection"), CONTENT_ENCODING("Content-Encoding"),
+	CONTENT_LENGTH("Content-Length"), CONTENT_TYPE("Content-Type"), COOKIE("Cookie"), DATE("Date"), ETAG("ETag"),
+	EXPIRES("Expires"), IF_MODIFIED_SINCE("If-Modified-Since"), IF_NONE_MATCH("If-None-Match"),
+	LAST_MODIFIED("Last-Modified"), RANGE("Range"), VARY("Vary");
 
 	private final String name;
 
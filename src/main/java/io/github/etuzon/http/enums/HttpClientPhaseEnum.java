@@ -0,0 +1,25 @@
+package io.github.etuzon.http.enums;
+
+/**************************************
+ * Phases of HTTP exchange that are reported to HttpClientListener.
+ * 
+ * QUEUED - request was given to the client and waits for connection.
+ * 
+ * CONNECTION_LEASED - connection was leased from the pool.
+ * 
+ * CONNECTED - new connection was connected. Not reported for reused
+ * connection.
+ * 
+ * HANDSHAKE_DONE - TLS handshake of new HTTPS connection was done. Reported
+ * only by blocking requests.
+ * 
+ * REQUEST_SENT - request head and entity were written to the connection.
+ * 
+ * HEADERS_RECEIVED - response status line and headers were received.
+ * 
+ * BODY_COMPLETED - response body was fully read, discarded or closed.
+ * 
+ */
+public enum HttpClientPhaseEnum {
+	QUEUED, CONNECTION_LEASED, CONNECTED, HANDSHAKE_DONE, REQUEST_SENT, HEADERS_RECEIVED, BODY_COMPLETED;
+}
@@ -0,0 +1,15 @@
+package io.github.etuzon.http.enums;
+
+/**************************************
+ * How async client finds start of response body in the received data.
+ * 
+ * AFTER_HEADERS_SEPARATOR - response body starts after first headers separator
+ * (empty line) in the received data. Used for streams that send headers and
+ * body inside the response data.
+ * 
+ * RAW - all received data is response body.
+ * 
+ */
+public enum ResponseBodyModeEnum {
+	AFTER_HEADERS_SEPARATOR, RAW;
+}
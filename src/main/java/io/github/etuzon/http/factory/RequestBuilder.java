@@ -1,24 +1,30 @@
 package io.github.etuzon.http.factory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 
-import org.apache.hc.client5.http.classic.methods.HttpDelete;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.classic.methods.HttpPut;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.http.message.BasicHeader;
 
 import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.entity.ByteBufferEntity;
+import io.github.etuzon.http.entity.FileChannelEntity;
 import io.github.etuzon.http.enums.HeaderEnum;
 import io.github.etuzon.http.enums.RequestTypeEnum;
 import io.github.etuzon.http.exceptions.InvalidHttpRequestException;
-import io.github.etuzon.projects.core.utils.StringUtil;
 
 /************************************************************
  * Build HTTP requests.
@@ -32,13 +38,15 @@ public class RequestBuilder {
 	private final String baseUrl;
 
 	private List<BasicHeader> headerList = new ArrayList<BasicHeader>();
+	private List<BasicHeader> frozenHeaderList = Collections.emptyList();
 	private RequestTypeEnum requestType;
-	private String fullUrl = null;
+	private String suffixUrl = null;
 	private String username = null;
 	private String password = null;
 	private String jSessionId = null;
-	private StringEntity entity = new StringEntity("", UTF8_CHARSET);
+	private HttpEntity entity = new StringEntity("", UTF8_CHARSET);
 	private boolean releaseConnection = true;
+	private RequestTemplate requestTemplate = null;
 
 	/*************************************************
 	 * Constructor.
@@ -83,10 +91,32 @@ public class RequestBuilder {
 		}
 
 		this.baseUrl = baseUrl;
-		this.fullUrl = baseUrl;
 		this.requestType = requestType;
 	}
 
+	/*************************************************
+	 * Copy constructor.
+	 * 
+	 * New RequestBuilder is independent from the copied one, so changes in one of
+	 * them do not affect the other. Headers that were frozen by
+	 * toRequestTemplate are shared with the copy and are not copied.
+	 * 
+	 * @param requestBuilder RequestBuilder to copy.
+	 */
+	public RequestBuilder(RequestBuilder requestBuilder) {
+		this.baseUrl = requestBuilder.baseUrl;
+		this.headerList = new ArrayList<BasicHeader>(requestBuilder.headerList);
+		this.frozenHeaderList = requestBuilder.frozenHeaderList;
+		this.requestType = requestBuilder.requestType;
+		this.suffixUrl = requestBuilder.suffixUrl;
+		this.username = requestBuilder.username;
+		this.password = requestBuilder.password;
+		this.jSessionId = requestBuilder.jSessionId;
+		this.entity = requestBuilder.entity;
+		this.releaseConnection = requestBuilder.releaseConnection;
+		this.requestTemplate = requestBuilder.requestTemplate;
+	}
+
 	/*************************************************
 	 * Set suffix to URL.
 	 * 
@@ -96,7 +126,7 @@ public class RequestBuilder {
 	 * @return RequestBuilder.
 	 */
 	public RequestBuilder setSuffixUrl(String suffixUrl) {
-		fullUrl = getFullUrl(suffixUrl);
+		this.suffixUrl = suffixUrl;
 		return this;
 	}
 
@@ -117,6 +147,7 @@ public class RequestBuilder {
 
 		this.username = username;
 		this.password = password;
+		requestTemplate = null;
 
 		return this;
 	}
@@ -131,6 +162,7 @@ public class RequestBuilder {
 		this.jSessionId = jSessionId;
 		this.username = null;
 		this.password = null;
+		requestTemplate = null;
 
 		return this;
 	}
@@ -149,11 +181,14 @@ public class RequestBuilder {
 	/*************************************************
 	 * Add headers to HTTP request.
 	 * 
-	 * @param headerList List of headers.
+	 * @param headerList List of headers, or null to not add headers.
 	 * @return RequestBuilder.
 	 */
 	public RequestBuilder addHeaders(List<BasicHeader> headerList) {
-		this.headerList.addAll(headerList);
+		if (headerList != null) {
+			this.headerList.addAll(headerList);
+		}
+
 		return this;
 	}
 
@@ -164,6 +199,7 @@ public class RequestBuilder {
 	 * @return RequestBuilder.
 	 */
 	public RequestBuilder setHeader(BasicHeader header) {
+		clearFrozenHeaders();
 		headerList = new ArrayList<BasicHeader>();
 		headerList.add(header);
 		return this;
@@ -177,6 +213,7 @@ public class RequestBuilder {
 	 */
 	public RequestBuilder setHeaders(List<BasicHeader> headerList) {
 		if (headerList != null) {
+			clearFrozenHeaders();
 			this.headerList = new ArrayList<BasicHeader>();
 			this.headerList.addAll(headerList);
 		}
@@ -194,11 +231,131 @@ public class RequestBuilder {
 	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
 	 */
 	public RequestBuilder setEntity(String entityStr) throws InvalidHttpRequestException {
+		return setEntity(new StringEntity(entityStr, UTF8_CHARSET));
+	}
+
+	/*************************************************
+	 * Set bytes entity in HTTP request.
+	 * 
+	 * Bytes are not copied, so the array should not be changed until the
+	 * request is sent. Content-Length header is the array length.
+	 * 
+	 * @param bytes       Entity bytes.
+	 * @param contentType Content type, or null to not send Content-Type header.
+	 * @return RequestBuilder.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 */
+	public RequestBuilder setEntity(byte[] bytes, ContentType contentType) throws InvalidHttpRequestException {
+		return setEntity(new ByteBufferEntity(bytes, contentType));
+	}
+
+	/*************************************************
+	 * Set ByteBuffer entity in HTTP request.
+	 * 
+	 * Entity is the bytes between buffer position and limit. Bytes are not
+	 * copied and buffer position is not changed when the request is sent.
+	 * Content-Length header is the buffer remaining bytes.
+	 * 
+	 * @param buffer      Entity bytes.
+	 * @param contentType Content type, or null to not send Content-Type header.
+	 * @return RequestBuilder.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 */
+	public RequestBuilder setEntity(ByteBuffer buffer, ContentType contentType) throws InvalidHttpRequestException {
+		return setEntity(new ByteBufferEntity(buffer, contentType));
+	}
+
+	/*************************************************
+	 * Set InputStream entity in HTTP request.
+	 * 
+	 * Stream is sent with chunked transfer encoding, since its length is not
+	 * known. Stream is read once, so the request cannot be retried.
+	 * 
+	 * @param inStream    Entity stream.
+	 * @param contentType Content type, or null to not send Content-Type header.
+	 * @return RequestBuilder.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 */
+	public RequestBuilder setEntity(InputStream inStream, ContentType contentType)
+			throws InvalidHttpRequestException {
+		return setEntity(inStream, -1, contentType);
+	}
+
+	/*************************************************
+	 * Set InputStream entity in HTTP request.
+	 * 
+	 * Stream is read once, so the request cannot be retried.
+	 * 
+	 * @param inStream    Entity stream.
+	 * @param length      Content-Length header value, or -1 to send the stream
+	 *                    with chunked transfer encoding.
+	 * @param contentType Content type, or null to not send Content-Type header.
+	 * @return RequestBuilder.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 */
+	public RequestBuilder setEntity(InputStream inStream, long length, ContentType contentType)
+			throws InvalidHttpRequestException {
+		return setEntity(new InputStreamEntity(inStream, length, contentType));
+	}
+
+	/*************************************************
+	 * Set file entity in HTTP request.
+	 * 
+	 * File is sent by FileChannel.transferTo, so its content is not loaded to
+	 * the heap. File is opened when the request is sent. Content-Length header
+	 * is the file size when this method is called.
+	 * 
+	 * @param path        File path.
+	 * @param contentType Content type, or null to not send Content-Type header.
+	 * @return RequestBuilder.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid or
+	 *                                     file does not exist.
+	 */
+	public RequestBuilder setEntity(Path path, ContentType contentType) throws InvalidHttpRequestException {
+		try {
+			return setEntity(new FileChannelEntity(path, contentType));
+		} catch (IOException e) {
+			throw new InvalidHttpRequestException("Failed to read file [" + path + "] of entity.\n" + e.getMessage());
+		}
+	}
+
+	/*************************************************
+	 * Set file channel entity in HTTP request.
+	 * 
+	 * Entity is the file from the channel position to the channel end. File is
+	 * sent by FileChannel.transferTo and channel position is not changed. The
+	 * channel is not closed by the request.
+	 * 
+	 * @param fileChannel File channel.
+	 * @param contentType Content type, or null to not send Content-Type header.
+	 * @return RequestBuilder.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid or
+	 *                                     channel cannot be read.
+	 */
+	public RequestBuilder setEntity(FileChannel fileChannel, ContentType contentType)
+			throws InvalidHttpRequestException {
+		try {
+			return setEntity(new FileChannelEntity(fileChannel, contentType));
+		} catch (IOException e) {
+			throw new InvalidHttpRequestException("Failed to read file channel of entity.\n" + e.getMessage());
+		}
+	}
+
+	/*************************************************
+	 * Set entity in HTTP request.
+	 * 
+	 * Entity (Request body) is supported only in POST and PUT requests.
+	 * 
+	 * @param entity Entity.
+	 * @return RequestBuilder.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 */
+	public RequestBuilder setEntity(HttpEntity entity) throws InvalidHttpRequestException {
 		if ((requestType != RequestTypeEnum.POST) && (requestType != RequestTypeEnum.PUT)) {
 			throw new InvalidHttpRequestException("Request type [" + requestType + "] should not contain entity");
 		}
 
-		entity = new StringEntity(entityStr, UTF8_CHARSET);
+		this.entity = entity;
 		return this;
 	}
 
@@ -228,115 +385,122 @@ public class RequestBuilder {
 	/*************************************************
 	 * Build HTTP request.
 	 * 
+	 * Headers that were frozen by toRequestTemplate are taken from the
+	 * template, only headers that were added after are added to the request.
+	 * 
 	 * @return HTTP request object.
 	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
 	 */
 	public HttpUriRequestBase build() throws InvalidHttpRequestException {
-		if (requestType == RequestTypeEnum.GET) {
-			return buildGetRequest();
-		} else if (requestType == RequestTypeEnum.POST) {
-			return buildPostRequest();
-		} else if (requestType == RequestTypeEnum.DELETE) {
-			return buildDeleteRequest();
-		} else if (requestType == RequestTypeEnum.PUT) {
-			return buildPutRequest();
-		}
-
-		throw new InvalidHttpRequestException("Bug: Request [" + requestType + "] builder not exists");
+		HttpEntity requestEntity = ((requestType == RequestTypeEnum.POST) || (requestType == RequestTypeEnum.PUT))
+				? entity
+				: null;
+		return getRequestTemplate().build(requestType, suffixUrl, headerList.isEmpty() ? null : headerList,
+				releaseConnection, requestEntity);
 	}
 
 	/*************************************************
-	 * Return release connection value.
+	 * Get template of base URL, credentials or JSESSIONID and frozen headers of
+	 * this builder.
 	 * 
-	 * @return true in case release connection value is true,
-	 *              else return false.
+	 * Template is created once and is shared with the copies of this builder, so
+	 * base URL is parsed and Authorization header is encoded once for all of
+	 * them. Headers that were not frozen by toRequestTemplate are not part of
+	 * the template, they are added to each built request.
+	 * 
+	 * @return request template.
+	 * @throws InvalidHttpRequestException in case base URL is invalid.
 	 */
-	public boolean isReleaseConnection() {
-		return releaseConnection;
-	}
-
-	private HttpGet buildGetRequest() {
-		HttpGet request = new HttpGet(fullUrl);
+	public RequestTemplate getRequestTemplate() throws InvalidHttpRequestException {
+		RequestTemplate template = requestTemplate;
 
-		request = (HttpGet) addBasicHeadersToRequest(request, releaseConnection);
-		request = (HttpGet) addHeadersToRequest(request, headerList);
+		if (template == null) {
+			template = new RequestTemplate(baseUrl, getCredentialsHeader(), frozenHeaderList);
+			requestTemplate = template;
+		}
 
-		return request;
+		return template;
 	}
 
-	private HttpPost buildPostRequest() {
-		HttpPost request = new HttpPost(fullUrl);
+	/*************************************************
+	 * Freeze headers of this builder to its template, and get the template of
+	 * base URL, credentials or JSESSIONID and headers.
+	 * 
+	 * Copies of this builder share the template, so the headers are not copied
+	 * and added to each request that is built by the copies.
+	 * 
+	 * @return request template.
+	 * @throws InvalidHttpRequestException in case base URL is invalid.
+	 */
+	public RequestTemplate toRequestTemplate() throws InvalidHttpRequestException {
+		if (headerList.isEmpty()) {
+			return getRequestTemplate();
+		}
 
-		request = (HttpPost) addBasicHeadersToRequest(request, releaseConnection);
-		request = (HttpPost) addHeadersToRequest(request, headerList);
+		RequestTemplate template = getRequestTemplate().withHeaders(headerList);
+		List<BasicHeader> mergedHeaderList = new ArrayList<BasicHeader>(frozenHeaderList);
+		mergedHeaderList.addAll(headerList);
 
-		request.setEntity(entity);
+		frozenHeaderList = Collections.unmodifiableList(mergedHeaderList);
+		headerList = new ArrayList<BasicHeader>();
+		requestTemplate = template;
 
-		return request;
+		return template;
 	}
 
-	private HttpDelete buildDeleteRequest() {
-		HttpDelete request = new HttpDelete(fullUrl);
-
-		request = (HttpDelete) addBasicHeadersToRequest(request, releaseConnection);
-		request = (HttpDelete) addHeadersToRequest(request, headerList);
-
-		return request;
+	/*************************************************
+	 * Return release connection value.
+	 * 
+	 * @return true in case release connection value is true,
+	 *              else return false.
+	 */
+	public boolean isReleaseConnection() {
+		return releaseConnection;
 	}
 
-	private HttpPut buildPutRequest() {
-		HttpPut request = new HttpPut(fullUrl);
-
-		request = (HttpPut) addBasicHeadersToRequest(request, releaseConnection);
-		request = (HttpPut) addHeadersToRequest(request, headerList);
-
-		request.setEntity(entity);
-
-		return request;
+	/*************************************************
+	 * Get base URL, include port in case it is not the default port.
+	 * 
+	 * @return base URL.
+	 */
+	public String getBaseUrl() {
+		return baseUrl;
 	}
-	
-	private HttpUriRequestBase addBasicHeadersToRequest(HttpUriRequestBase request, boolean releaseConnection) {
-		if (isAuthentication()) {
-			request.addHeader(HeaderEnum.AUTORIZATION.getName(), getAutorizationHeaderValue());
-		} else if (isJSessionId()) {
-			request.addHeader(HeaderEnum.COOKIE.getName(), "JSESSIONID=" + jSessionId);
-		}
-
-		if (releaseConnection) {
-			request.addHeader(HeaderEnum.CONNECTION.getName(), "close");
-		}
 
-		return request;
+	/*************************************************
+	 * Get URL suffix.
+	 * 
+	 * @return URL suffix. Return null in case suffix was not set.
+	 */
+	public String getSuffixUrl() {
+		return suffixUrl;
 	}
 
-	private String getFullUrl(String suffixUrl) {
-		if (suffixUrl == null) {
-			return baseUrl;
-		}
-
-		if (suffixUrl.isEmpty()) {
-			return baseUrl;
-		}
-
-		if ((baseUrl.endsWith("/")) && suffixUrl.startsWith("/")) {
-			return StringUtil.removeLastChar(baseUrl) + suffixUrl;
-		}
+	/*************************************************
+	 * Get request type.
+	 * 
+	 * @return request type.
+	 */
+	public RequestTypeEnum getRequestType() {
+		return requestType;
+	}
 
-		if ((baseUrl.endsWith("/")) || suffixUrl.startsWith("/")) {
-			return baseUrl + suffixUrl;
+	/** Headers are set, so frozen headers are removed from the template. */
+	private void clearFrozenHeaders() {
+		if (frozenHeaderList.isEmpty() == false) {
+			frozenHeaderList = Collections.emptyList();
+			requestTemplate = null;
 		}
-
-		return baseUrl + "/" + suffixUrl;
 	}
 
-	private HttpUriRequestBase addHeadersToRequest(HttpUriRequestBase request, List<BasicHeader> headerList) {
-		if (headerList != null) {
-			for (Header header : headerList) {
-				request.addHeader(header);
-			}
+	private Header getCredentialsHeader() {
+		if (isAuthentication()) {
+			return new BasicHeader(HeaderEnum.AUTORIZATION.getName(), getAutorizationHeaderValue());
+		} else if (isJSessionId()) {
+			return new BasicHeader(HeaderEnum.COOKIE.getName(), "JSESSIONID=" + jSessionId);
 		}
 
-		return request;
+		return null;
 	}
 
 	private String getAutorizationHeaderValue() {
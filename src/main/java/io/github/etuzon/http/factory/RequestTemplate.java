@@ -0,0 +1,245 @@
+package io.github.etuzon.http.factory;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hc.client5.http.classic.methods.HttpDelete;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.message.BasicHeader;
+
+import io.github.etuzon.http.enums.HeaderEnum;
+import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.http.exceptions.InvalidHttpRequestException;
+
+/************************************************************
+ * Immutable precompiled request template.
+ * 
+ * Base URL is parsed to URI, Authorization or Cookie header value is encoded
+ * and headers are frozen to array once, when the template is created. Building
+ * a request from the template only joins the URL suffix to the base path and
+ * sets the entity, so the template can be shared by all threads that send
+ * requests to the same base URL.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class RequestTemplate {
+	private static final Header CONNECTION_CLOSE_HEADER = new BasicHeader(HeaderEnum.CONNECTION.getName(), "close");
+	private static final String URI_PATH_SPECIAL_CHARS = "-._~!$&'()*+,;=:@/?%";
+
+	private final String baseUrl;
+	private final URI baseUri;
+	private final String basePath;
+	private final Header credentialsHeader;
+	private final Header[] headers;
+	private final Header[] headersWithConnectionClose;
+
+	/*************************************************
+	 * Constructor.
+	 * 
+	 * @param baseUrl           Base URL, include port.
+	 * @param credentialsHeader Authorization or Cookie header, or null.
+	 * @param headerList        Headers of all requests.
+	 * @throws InvalidHttpRequestException in case base URL is invalid.
+	 */
+	RequestTemplate(String baseUrl, Header credentialsHeader, List<? extends Header> headerList)
+			throws InvalidHttpRequestException {
+		this.baseUrl = baseUrl;
+		this.credentialsHeader = credentialsHeader;
+
+		try {
+			baseUri = new URI(baseUrl);
+		} catch (URISyntaxException e) {
+			throw new InvalidHttpRequestException("Invalid base URL [" + baseUrl + "].\n" + e.getMessage());
+		}
+
+		if ((baseUri.getScheme() == null) || (baseUri.getRawAuthority() == null)) {
+			throw new InvalidHttpRequestException("Base URL [" + baseUrl + "] should contain scheme and host");
+		}
+
+		basePath = (baseUri.getRawPath() == null) ? "" : baseUri.getRawPath();
+
+		int credentialsHeadersAmount = (credentialsHeader == null) ? 0 : 1;
+		headers = new Header[credentialsHeadersAmount + headerList.size()];
+		headersWithConnectionClose = new Header[headers.length + 1];
+
+		if (credentialsHeader != null) {
+			headers[0] = credentialsHeader;
+			headersWithConnectionClose[0] = credentialsHeader;
+		}
+
+		headersWithConnectionClose[credentialsHeadersAmount] = CONNECTION_CLOSE_HEADER;
+
+		for (int index = 0; index < headerList.size(); index++) {
+			headers[credentialsHeadersAmount + index] = headerList.get(index);
+			headersWithConnectionClose[credentialsHeadersAmount + 1 + index] = headerList.get(index);
+		}
+	}
+
+	/*************************************************
+	 * Create new template with the headers of this template and additional
+	 * headers.
+	 * 
+	 * @param headerList Additional headers.
+	 * @return new template.
+	 * @throws InvalidHttpRequestException in case base URL is invalid.
+	 */
+	public RequestTemplate withHeaders(List<? extends Header> headerList) throws InvalidHttpRequestException {
+		int credentialsHeadersAmount = (credentialsHeader == null) ? 0 : 1;
+		List<Header> mergedHeaderList = new ArrayList<Header>(
+				Arrays.asList(headers).subList(credentialsHeadersAmount, headers.length));
+		mergedHeaderList.addAll(headerList);
+
+		return new RequestTemplate(baseUrl, credentialsHeader, mergedHeaderList);
+	}
+
+	/*************************************************
+	 * Build request without entity. Connection is kept alive.
+	 * 
+	 * @param requestType Request type.
+	 * @param suffixUrl   URL suffix, may contain query. Should be URI encoded.
+	 * @return HTTP request.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 */
+	public HttpUriRequestBase build(RequestTypeEnum requestType, String suffixUrl)
+			throws InvalidHttpRequestException {
+		return build(requestType, suffixUrl, null, false, null);
+	}
+
+	/*************************************************
+	 * Build POST or PUT request with UTF-8 String entity. Connection is kept
+	 * alive.
+	 * 
+	 * @param requestType Request type.
+	 * @param suffixUrl   URL suffix, may contain query. Should be URI encoded.
+	 * @param entity      Entity.
+	 * @return HTTP request.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 */
+	public HttpUriRequestBase build(RequestTypeEnum requestType, String suffixUrl, String entity)
+			throws InvalidHttpRequestException {
+		return build(requestType, suffixUrl, null, false, new StringEntity(entity, RequestBuilder.UTF8_CHARSET));
+	}
+
+	/*************************************************
+	 * Build request.
+	 * 
+	 * @param requestType       Request type.
+	 * @param suffixUrl         URL suffix, may contain query. Should be URI
+	 *                          encoded.
+	 * @param headerList        Headers of this request in addition to the
+	 *                          template headers, or null.
+	 * @param releaseConnection In case value is true than Connection header is
+	 *                          'close'.
+	 * @param entity            Entity of POST or PUT request, or null.
+	 * @return HTTP request.
+	 * @throws InvalidHttpRequestException in case HTTP request is invalid.
+	 */
+	public HttpUriRequestBase build(RequestTypeEnum requestType, String suffixUrl,
+			List<? extends Header> headerList, boolean releaseConnection, HttpEntity entity)
+			throws InvalidHttpRequestException {
+		HttpUriRequestBase request = newRequest(requestType);
+
+		if (entity != null) {
+			if ((requestType != RequestTypeEnum.POST) && (requestType != RequestTypeEnum.PUT)) {
+				throw new InvalidHttpRequestException("Request type [" + requestType + "] should not contain entity");
+			}
+
+			request.setEntity(entity);
+		}
+
+		request.setPath(getPath(suffixUrl));
+		request.setHeaders(releaseConnection ? headersWithConnectionClose : headers);
+
+		if (headerList != null) {
+			for (Header header : headerList) {
+				request.addHeader(header);
+			}
+		}
+
+		return request;
+	}
+
+	/*************************************************
+	 * Get base URL.
+	 * 
+	 * @return base URL.
+	 */
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	/*************************************************
+	 * Get copy of template headers, include Authorization or Cookie header.
+	 * 
+	 * @return template headers.
+	 */
+	public Header[] getHeaders() {
+		return headers.clone();
+	}
+
+	private HttpUriRequestBase newRequest(RequestTypeEnum requestType) throws InvalidHttpRequestException {
+		switch (requestType) {
+		case GET:
+			return new HttpGet(baseUri);
+		case POST:
+			return new HttpPost(baseUri);
+		case DELETE:
+			return new HttpDelete(baseUri);
+		case PUT:
+			return new HttpPut(baseUri);
+		default:
+			throw new InvalidHttpRequestException("Bug: Request [" + requestType + "] builder not exists");
+		}
+	}
+
+	/** Join suffix to base path, by the same rules as RequestBuilder joins it to base URL. */
+	private String getPath(String suffixUrl) throws InvalidHttpRequestException {
+		if ((suffixUrl == null) || suffixUrl.isEmpty()) {
+			return basePath.isEmpty() ? "/" : basePath;
+		}
+
+		verifySuffixUrl(suffixUrl);
+
+		int fragmentIndex = suffixUrl.indexOf('#');
+
+		if (fragmentIndex != -1) {
+			suffixUrl = suffixUrl.substring(0, fragmentIndex);
+		}
+
+		if (basePath.endsWith("/") && suffixUrl.startsWith("/")) {
+			return basePath + suffixUrl.substring(1);
+		}
+
+		if (basePath.endsWith("/") || suffixUrl.startsWith("/")) {
+			return basePath + suffixUrl;
+		}
+
+		return basePath + "/" + suffixUrl;
+	}
+
+	/** Verify that suffix contains only characters that URI accepts in path and query. */
+	private static void verifySuffixUrl(String suffixUrl) throws InvalidHttpRequestException {
+		for (int index = 0; index < suffixUrl.length(); index++) {
+			char c = suffixUrl.charAt(index);
+
+			if (((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9'))
+					|| (c == '#') || (URI_PATH_SPECIAL_CHARS.indexOf(c) != -1)
+					|| ((c > 127) && (Character.isISOControl(c) == false) && (Character.isSpaceChar(c) == false))) {
+				continue;
+			}
+
+			throw new InvalidHttpRequestException(
+					"URL suffix [" + suffixUrl + "] contains illegal character [" + c + "] at index [" + index + "]");
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package io.github.etuzon.http.listener;
+
+import io.github.etuzon.http.enums.HttpClientPhaseEnum;
+
+/************************************************************
+ * Listener of HTTP exchange phases of blocking and async requests.
+ * 
+ * Each phase is reported once per exchange with System.nanoTime() of the
+ * moment it was reached, so latency can be split to waiting for connection,
+ * connect, TLS handshake, server time and body transfer. Phases that are not
+ * relevant to the exchange, for example CONNECTED of reused connection, are
+ * not reported.
+ * 
+ * Methods are called by the thread that reached the phase, which can be the
+ * async HTTP engine reactor thread, so they should not block. Exception that
+ * is thrown by listener is ignored.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public interface HttpClientListener {
+	/************************************************************
+	 * Called when exchange reached phase.
+	 * 
+	 * @param trace    Exchange trace.
+	 * @param phase    Reached phase.
+	 * @param nanoTime System.nanoTime() when phase was reached.
+	 */
+	public void onPhase(HttpExchangeTrace trace, HttpClientPhaseEnum phase, long nanoTime);
+
+	/************************************************************
+	 * Called once in case exchange failed or was cancelled. No phase is
+	 * reported afterwards.
+	 * 
+	 * @param trace     Exchange trace.
+	 * @param exception Failure cause.
+	 * @param nanoTime  System.nanoTime() when exchange failed.
+	 */
+	public void onFailed(HttpExchangeTrace trace, Exception exception, long nanoTime);
+}
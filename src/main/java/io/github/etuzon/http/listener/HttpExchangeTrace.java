@@ -0,0 +1,169 @@
+package io.github.etuzon.http.listener;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+
+import io.github.etuzon.http.enums.HttpClientPhaseEnum;
+
+/************************************************************
+ * Phases timestamps of one HTTP exchange, and dispatch of the phases to the
+ * listeners.
+ * 
+ * Trace is created only when the client has listeners, so exchange without
+ * listeners does not allocate trace and does not read the clock.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpExchangeTrace {
+	public static final long NOT_REACHED = Long.MIN_VALUE;
+
+	/**
+	 * HttpContext attribute of the trace of async exchange.
+	 */
+	public static final String CONTEXT_ATTRIBUTE = HttpExchangeTrace.class.getName();
+
+	private static final HttpClientPhaseEnum[] PHASES = HttpClientPhaseEnum.values();
+
+	private final HttpUriRequestBase request;
+	private final boolean isAsync;
+	private final List<HttpClientListener> listenerList;
+	private final AtomicLongArray phaseNanoTimes = new AtomicLongArray(PHASES.length);
+	private final AtomicBoolean isFailed = new AtomicBoolean(false);
+
+	private HttpExchangeTrace(HttpUriRequestBase request, boolean isAsync, List<HttpClientListener> listenerList) {
+		this.request = request;
+		this.isAsync = isAsync;
+		this.listenerList = listenerList;
+
+		for (int index = 0; index < PHASES.length; index++) {
+			phaseNanoTimes.set(index, NOT_REACHED);
+		}
+	}
+
+	/************************************************************
+	 * Start trace of exchange and report HttpClientPhaseEnum.QUEUED.
+	 * 
+	 * @param request      Request.
+	 * @param isAsync      true in case request is sent by async HTTP engine.
+	 * @param listenerList Listeners.
+	 * @return exchange trace. Return null in case there are no listeners.
+	 */
+	public static HttpExchangeTrace start(HttpUriRequestBase request, boolean isAsync,
+			List<HttpClientListener> listenerList) {
+		if (listenerList.isEmpty()) {
+			return null;
+		}
+
+		HttpExchangeTrace trace = new HttpExchangeTrace(request, isAsync, listenerList);
+		trace.onPhase(HttpClientPhaseEnum.QUEUED);
+
+		return trace;
+	}
+
+	/************************************************************
+	 * Report that exchange reached phase.
+	 * 
+	 * Phase that was already reached, or that is reached after the exchange
+	 * failed, is not reported.
+	 * 
+	 * @param phase Reached phase.
+	 */
+	public void onPhase(HttpClientPhaseEnum phase) {
+		if (isFailed.get()) {
+			return;
+		}
+
+		long nanoTime = System.nanoTime();
+
+		if (phaseNanoTimes.compareAndSet(phase.ordinal(), NOT_REACHED, nanoTime) == false) {
+			return;
+		}
+
+		for (HttpClientListener listener : listenerList) {
+			try {
+				listener.onPhase(this, phase, nanoTime);
+			} catch (RuntimeException e) {
+			}
+		}
+	}
+
+	/************************************************************
+	 * Report that exchange failed.
+	 * 
+	 * @param exception Failure cause.
+	 */
+	public void onFailed(Exception exception) {
+		if (isFailed.compareAndSet(false, true) == false) {
+			return;
+		}
+
+		long nanoTime = System.nanoTime();
+
+		for (HttpClientListener listener : listenerList) {
+			try {
+				listener.onFailed(this, exception, nanoTime);
+			} catch (RuntimeException e) {
+			}
+		}
+	}
+
+	/************************************************************
+	 * Get request of the exchange.
+	 * 
+	 * @return request.
+	 */
+	public HttpUriRequestBase getRequest() {
+		return request;
+	}
+
+	/************************************************************
+	 * Return true in case request is sent by async HTTP engine.
+	 * 
+	 * @return true in case request is sent by async HTTP engine.
+	 */
+	public boolean isAsync() {
+		return isAsync;
+	}
+
+	/************************************************************
+	 * Return true in case exchange failed.
+	 * 
+	 * @return true in case exchange failed.
+	 */
+	public boolean isFailed() {
+		return isFailed.get();
+	}
+
+	/************************************************************
+	 * Get System.nanoTime() when phase was reached.
+	 * 
+	 * @param phase Phase.
+	 * @return nano time of the phase, or NOT_REACHED.
+	 */
+	public long getPhaseNanoTime(HttpClientPhaseEnum phase) {
+		return phaseNanoTimes.get(phase.ordinal());
+	}
+
+	/************************************************************
+	 * Get nanoseconds between two phases.
+	 * 
+	 * @param fromPhase First phase.
+	 * @param toPhase   Second phase.
+	 * @return nanoseconds between the phases, or NOT_REACHED in case one of them
+	 *         was not reached.
+	 */
+	public long getNanosBetween(HttpClientPhaseEnum fromPhase, HttpClientPhaseEnum toPhase) {
+		long from = getPhaseNanoTime(fromPhase);
+		long to = getPhaseNanoTime(toPhase);
+
+		if ((from == NOT_REACHED) || (to == NOT_REACHED)) {
+			return NOT_REACHED;
+		}
+
+		return to - from;
+	}
+}
@@ -0,0 +1,76 @@
+package io.github.etuzon.http.listener;
+
+import java.util.concurrent.Future;
+
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.nio.AsyncConnectionEndpoint;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.reactor.ConnectionInitiator;
+import org.apache.hc.core5.util.Timeout;
+
+import io.github.etuzon.http.enums.HttpClientPhaseEnum;
+
+/************************************************************
+ * Connection manager of async HTTP engine that reports connection phases to
+ * the trace of the exchange.
+ * 
+ * Trace is taken from HttpExchangeTrace.CONTEXT_ATTRIBUTE of the exchange
+ * context. Leasing new connection is reported when it starts to connect, and
+ * leasing reused connection is reported by TracingAsyncRequestProducer when
+ * the request is sent.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class TracingAsyncConnectionManager extends PoolingAsyncClientConnectionManager {
+
+	@Override
+	public Future<AsyncConnectionEndpoint> connect(AsyncConnectionEndpoint endpoint,
+			ConnectionInitiator connectionInitiator, Timeout timeout, Object attachment, HttpContext context,
+			final FutureCallback<AsyncConnectionEndpoint> callback) {
+		final HttpExchangeTrace trace = getTrace(context);
+
+		if (trace == null) {
+			return super.connect(endpoint, connectionInitiator, timeout, attachment, context, callback);
+		}
+
+		trace.onPhase(HttpClientPhaseEnum.CONNECTION_LEASED);
+
+		return super.connect(endpoint, connectionInitiator, timeout, attachment, context,
+				new FutureCallback<AsyncConnectionEndpoint>() {
+					@Override
+					public void completed(AsyncConnectionEndpoint result) {
+						trace.onPhase(HttpClientPhaseEnum.CONNECTED);
+
+						if (callback != null) {
+							callback.completed(result);
+						}
+					}
+
+					@Override
+					public void failed(Exception ex) {
+						if (callback != null) {
+							callback.failed(ex);
+						}
+					}
+
+					@Override
+					public void cancelled() {
+						if (callback != null) {
+							callback.cancelled();
+						}
+					}
+				});
+	}
+
+	private static HttpExchangeTrace getTrace(HttpContext context) {
+		if (context == null) {
+			return null;
+		}
+
+		Object trace = context.getAttribute(HttpExchangeTrace.CONTEXT_ATTRIBUTE);
+
+		return (trace instanceof HttpExchangeTrace) ? (HttpExchangeTrace) trace : null;
+	}
+}
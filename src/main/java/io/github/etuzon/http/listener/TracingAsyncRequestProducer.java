@@ -0,0 +1,103 @@
+package io.github.etuzon.http.listener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.RequestChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import io.github.etuzon.http.enums.HttpClientPhaseEnum;
+
+/************************************************************
+ * Async request producer that reports connection leased and request sent
+ * phases to the trace of the exchange.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class TracingAsyncRequestProducer implements AsyncRequestProducer {
+	private final AsyncRequestProducer producer;
+	private final HttpExchangeTrace trace;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param producer Request producer.
+	 * @param trace    Exchange trace.
+	 */
+	public TracingAsyncRequestProducer(AsyncRequestProducer producer, HttpExchangeTrace trace) {
+		this.producer = producer;
+		this.trace = trace;
+	}
+
+	@Override
+	public void sendRequest(final RequestChannel channel, HttpContext context) throws HttpException, IOException {
+		trace.onPhase(HttpClientPhaseEnum.CONNECTION_LEASED);
+
+		producer.sendRequest(new RequestChannel() {
+			@Override
+			public void sendRequest(HttpRequest request, EntityDetails entityDetails, HttpContext context)
+					throws HttpException, IOException {
+				channel.sendRequest(request, entityDetails, context);
+
+				if (entityDetails == null) {
+					trace.onPhase(HttpClientPhaseEnum.REQUEST_SENT);
+				}
+			}
+		}, context);
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return producer.isRepeatable();
+	}
+
+	@Override
+	public void failed(Exception cause) {
+		producer.failed(cause);
+	}
+
+	@Override
+	public int available() {
+		return producer.available();
+	}
+
+	@Override
+	public void produce(final DataStreamChannel channel) throws IOException {
+		producer.produce(new DataStreamChannel() {
+			@Override
+			public void requestOutput() {
+				channel.requestOutput();
+			}
+
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				return channel.write(src);
+			}
+
+			@Override
+			public void endStream() throws IOException {
+				channel.endStream();
+				trace.onPhase(HttpClientPhaseEnum.REQUEST_SENT);
+			}
+
+			@Override
+			public void endStream(List<? extends Header> trailers) throws IOException {
+				channel.endStream(trailers);
+				trace.onPhase(HttpClientPhaseEnum.REQUEST_SENT);
+			}
+		});
+	}
+
+	@Override
+	public void releaseResources() {
+		producer.releaseResources();
+	}
+}
@@ -0,0 +1,139 @@
+package io.github.etuzon.http.listener;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
+import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import io.github.etuzon.http.enums.HttpClientPhaseEnum;
+
+/************************************************************
+ * Connection manager of blocking requests that reports connection phases to
+ * the trace of the current exchange.
+ * 
+ * Blocking request leases and connects its connection on the thread that sends
+ * the request, so the trace is kept in thread local variable while the request
+ * is executed. In case there is no trace, connection manager behaves as
+ * PoolingHttpClientConnectionManager with default socket factories.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class TracingConnectionManager extends PoolingHttpClientConnectionManager {
+	private static final ThreadLocal<HttpExchangeTrace> CURRENT_TRACE = new ThreadLocal<HttpExchangeTrace>();
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 */
+	public TracingConnectionManager() {
+		super(RegistryBuilder.<ConnectionSocketFactory>create().register("http", new TracingPlainSocketFactory())
+				.register("https", new TracingSslSocketFactory()).build());
+	}
+
+	/************************************************************
+	 * Set trace of exchange that is executed by the current thread.
+	 * 
+	 * @param trace Exchange trace. Null clears the trace.
+	 */
+	public static void setCurrentTrace(HttpExchangeTrace trace) {
+		if (trace == null) {
+			CURRENT_TRACE.remove();
+		} else {
+			CURRENT_TRACE.set(trace);
+		}
+	}
+
+	/************************************************************
+	 * Get trace of exchange that is executed by the current thread.
+	 * 
+	 * @return exchange trace, or null.
+	 */
+	public static HttpExchangeTrace getCurrentTrace() {
+		return CURRENT_TRACE.get();
+	}
+
+	@Override
+	public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+		final LeaseRequest leaseRequest = super.lease(id, route, requestTimeout, state);
+		final HttpExchangeTrace trace = CURRENT_TRACE.get();
+
+		if (trace == null) {
+			return leaseRequest;
+		}
+
+		return new LeaseRequest() {
+			@Override
+			public ConnectionEndpoint get(Timeout timeout)
+					throws InterruptedException, ExecutionException, TimeoutException {
+				ConnectionEndpoint endpoint = leaseRequest.get(timeout);
+				trace.onPhase(HttpClientPhaseEnum.CONNECTION_LEASED);
+				return endpoint;
+			}
+
+			@Override
+			public boolean cancel() {
+				return leaseRequest.cancel();
+			}
+		};
+	}
+
+	private static void onPhase(HttpClientPhaseEnum phase) {
+		HttpExchangeTrace trace = CURRENT_TRACE.get();
+
+		if (trace != null) {
+			trace.onPhase(phase);
+		}
+	}
+
+	/************************************************************
+	 * Plain socket factory that reports when socket is connected.
+	 *
+	 */
+	private static class TracingPlainSocketFactory extends PlainConnectionSocketFactory {
+		@Override
+		public Socket connectSocket(TimeValue connectTimeout, Socket socket, HttpHost host,
+				InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context)
+				throws IOException {
+			Socket connectedSocket = super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress,
+					context);
+			onPhase(HttpClientPhaseEnum.CONNECTED);
+			return connectedSocket;
+		}
+	}
+
+	/************************************************************
+	 * TLS socket factory that reports when socket is connected, before TLS
+	 * handshake, and when TLS handshake is done.
+	 *
+	 */
+	private static class TracingSslSocketFactory extends SSLConnectionSocketFactory {
+		private TracingSslSocketFactory() {
+			super(SSLContexts.createDefault(), SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+		}
+
+		@Override
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+				throws IOException {
+			onPhase(HttpClientPhaseEnum.CONNECTED);
+			Socket sslSocket = super.createLayeredSocket(socket, target, port, context);
+			onPhase(HttpClientPhaseEnum.HANDSHAKE_DONE);
+			return sslSocket;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package io.github.etuzon.http.listener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpConnection;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.hc.core5.http.impl.Http1StreamListener;
+import org.apache.hc.core5.http.impl.io.HttpRequestExecutor;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+
+import io.github.etuzon.http.enums.HttpClientPhaseEnum;
+
+/************************************************************
+ * Listener of HTTP/1.1 messages of blocking requests that reports request sent
+ * and headers received phases to the trace of the current exchange.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class TracingStreamListener implements Http1StreamListener {
+
+	/************************************************************
+	 * Create request executor that reports phases to the trace of the current
+	 * exchange.
+	 * 
+	 * @return request executor.
+	 */
+	public static HttpRequestExecutor newRequestExecutor() {
+		return new HttpRequestExecutor(HttpRequestExecutor.DEFAULT_WAIT_FOR_CONTINUE,
+				DefaultConnectionReuseStrategy.INSTANCE, new TracingStreamListener());
+	}
+
+	/************************************************************
+	 * Wrap request entity, so request sent phase is reported after the entity
+	 * was written to the connection.
+	 * 
+	 * @param request Request.
+	 * @param trace   Exchange trace.
+	 */
+	public static void traceRequestEntity(HttpUriRequestBase request, final HttpExchangeTrace trace) {
+		HttpEntity entity = request.getEntity();
+
+		if (entity == null) {
+			return;
+		}
+
+		request.setEntity(new HttpEntityWrapper(entity) {
+			@Override
+			public void writeTo(OutputStream output) throws IOException {
+				super.writeTo(output);
+				trace.onPhase(HttpClientPhaseEnum.REQUEST_SENT);
+			}
+		});
+	}
+
+	@Override
+	public void onRequestHead(HttpConnection connection, HttpRequest request) {
+		HttpExchangeTrace trace = TracingConnectionManager.getCurrentTrace();
+
+		if ((trace != null) && (request instanceof ClassicHttpRequest)
+				&& (((ClassicHttpRequest) request).getEntity() == null)) {
+			trace.onPhase(HttpClientPhaseEnum.REQUEST_SENT);
+		}
+	}
+
+	@Override
+	public void onResponseHead(HttpConnection connection, HttpResponse response) {
+		HttpExchangeTrace trace = TracingConnectionManager.getCurrentTrace();
+
+		if ((trace != null) && (response.getCode() >= HttpStatus.SC_SUCCESS)) {
+			trace.onPhase(HttpClientPhaseEnum.HEADERS_RECEIVED);
+		}
+	}
+
+	@Override
+	public void onExchangeComplete(HttpConnection connection, boolean isKeepAlive) {
+	}
+}
@@ -0,0 +1,146 @@
+package io.github.etuzon.http.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/************************************************************
+ * Hits, misses and revalidations of response cache.
+ * 
+ * Hit is request that was answered by fresh cached response without network.
+ * Revalidation is conditional request of stale cached response, and it is
+ * counted as not modified in case server answered 304 and the cached response
+ * was returned. Miss is request that was answered by full response of the
+ * server.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class CacheMetrics {
+	private final LongAdder hitsAmount = new LongAdder();
+	private final LongAdder missesAmount = new LongAdder();
+	private final LongAdder revalidationsAmount = new LongAdder();
+	private final LongAdder notModifiedAmount = new LongAdder();
+	private final LongAdder storedAmount = new LongAdder();
+	private final LongAdder evictedAmount = new LongAdder();
+
+	/************************************************************
+	 * Called when request is answered by fresh cached response.
+	 *
+	 */
+	public void onHit() {
+		hitsAmount.increment();
+	}
+
+	/************************************************************
+	 * Called when request is answered by full response of the server.
+	 *
+	 */
+	public void onMiss() {
+		missesAmount.increment();
+	}
+
+	/************************************************************
+	 * Called when conditional request of stale cached response is sent.
+	 *
+	 */
+	public void onRevalidation() {
+		revalidationsAmount.increment();
+	}
+
+	/************************************************************
+	 * Called when server answered conditional request by 304 Not Modified.
+	 *
+	 */
+	public void onNotModified() {
+		notModifiedAmount.increment();
+	}
+
+	/************************************************************
+	 * Called when response is stored in the cache.
+	 *
+	 */
+	public void onStored() {
+		storedAmount.increment();
+	}
+
+	/************************************************************
+	 * Called when response is evicted from the cache to keep its size.
+	 *
+	 */
+	public void onEvicted() {
+		evictedAmount.increment();
+	}
+
+	/************************************************************
+	 * Get amount of requests that were answered by fresh cached response.
+	 * 
+	 * @return amount of requests.
+	 */
+	public long getHitsAmount() {
+		return hitsAmount.sum();
+	}
+
+	/************************************************************
+	 * Get amount of requests that were answered by full response of the
+	 * server.
+	 * 
+	 * @return amount of requests.
+	 */
+	public long getMissesAmount() {
+		return missesAmount.sum();
+	}
+
+	/************************************************************
+	 * Get amount of conditional requests of stale cached responses.
+	 * 
+	 * @return amount of requests.
+	 */
+	public long getRevalidationsAmount() {
+		return revalidationsAmount.sum();
+	}
+
+	/************************************************************
+	 * Get amount of conditional requests that server answered by 304.
+	 * 
+	 * @return amount of requests.
+	 */
+	public long getNotModifiedAmount() {
+		return notModifiedAmount.sum();
+	}
+
+	/************************************************************
+	 * Get amount of responses that were stored in the cache.
+	 * 
+	 * @return amount of responses.
+	 */
+	public long getStoredAmount() {
+		return storedAmount.sum();
+	}
+
+	/************************************************************
+	 * Get amount of responses that were evicted from the cache.
+	 * 
+	 * @return amount of responses.
+	 */
+	public long getEvictedAmount() {
+		return evictedAmount.sum();
+	}
+
+	/************************************************************
+	 * Get ratio of requests that were answered without response body from the
+	 * server, by fresh or not modified cached response.
+	 * 
+	 * @return hit ratio, or 0 in case there were no requests.
+	 */
+	public double getHitRatio() {
+		long cachedAmount = hitsAmount.sum() + notModifiedAmount.sum();
+		long requestsAmount = cachedAmount + missesAmount.sum();
+		return (requestsAmount == 0) ? 0 : (double) cachedAmount / requestsAmount;
+	}
+
+	@Override
+	public String toString() {
+		return "Hits [" + getHitsAmount() + "], misses [" + getMissesAmount() + "], revalidations ["
+				+ getRevalidationsAmount() + "], not modified [" + getNotModifiedAmount() + "], stored ["
+				+ getStoredAmount() + "], evicted [" + getEvictedAmount() + "]";
+	}
+}
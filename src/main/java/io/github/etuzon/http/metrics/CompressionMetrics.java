@@ -0,0 +1,181 @@
+package io.github.etuzon.http.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/************************************************************
+ * Compressed and decompressed bytes of requests and responses, and amount of
+ * request entities that were compressed or sent as is by the compression
+ * threshold.
+ * 
+ * Counters are LongAdder, so threads that read responses of the same client in
+ * parallel do not contend on them.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class CompressionMetrics {
+	private final LongAdder decompressedResponsesAmount = new LongAdder();
+	private final LongAdder compressedResponseBytes = new LongAdder();
+	private final LongAdder decompressedResponseBytes = new LongAdder();
+	private final LongAdder compressedRequestsAmount = new LongAdder();
+	private final LongAdder notCompressedRequestsAmount = new LongAdder();
+	private final LongAdder uncompressedRequestBytes = new LongAdder();
+	private final LongAdder compressedRequestBytes = new LongAdder();
+
+	/************************************************************
+	 * Called when compressed response body starts to be decompressed.
+	 *
+	 */
+	public void onResponseDecompressed() {
+		decompressedResponsesAmount.increment();
+	}
+
+	/************************************************************
+	 * Add compressed response body bytes that were received.
+	 * 
+	 * @param length Amount of bytes.
+	 */
+	public void addCompressedResponseBytes(long length) {
+		compressedResponseBytes.add(length);
+	}
+
+	/************************************************************
+	 * Add response body bytes that were decompressed.
+	 * 
+	 * @param length Amount of bytes.
+	 */
+	public void addDecompressedResponseBytes(long length) {
+		decompressedResponseBytes.add(length);
+	}
+
+	/************************************************************
+	 * Called when request entity is compressed.
+	 *
+	 */
+	public void onRequestCompressed() {
+		compressedRequestsAmount.increment();
+	}
+
+	/************************************************************
+	 * Called when request compression is enabled and request entity is sent
+	 * without compression, since it is below the compression threshold or it
+	 * already has content encoding.
+	 *
+	 */
+	public void onRequestNotCompressed() {
+		notCompressedRequestsAmount.increment();
+	}
+
+	/************************************************************
+	 * Add request entity bytes before compression.
+	 * 
+	 * @param length Amount of bytes.
+	 */
+	public void addUncompressedRequestBytes(long length) {
+		uncompressedRequestBytes.add(length);
+	}
+
+	/************************************************************
+	 * Add compressed request entity bytes.
+	 * 
+	 * @param length Amount of bytes.
+	 */
+	public void addCompressedRequestBytes(long length) {
+		compressedRequestBytes.add(length);
+	}
+
+	/************************************************************
+	 * Get amount of responses that were decompressed.
+	 * 
+	 * @return amount of responses.
+	 */
+	public long getDecompressedResponsesAmount() {
+		return decompressedResponsesAmount.sum();
+	}
+
+	/************************************************************
+	 * Get amount of compressed response body bytes that were received.
+	 * 
+	 * @return amount of bytes.
+	 */
+	public long getCompressedResponseBytes() {
+		return compressedResponseBytes.sum();
+	}
+
+	/************************************************************
+	 * Get amount of response body bytes after decompression.
+	 * 
+	 * @return amount of bytes.
+	 */
+	public long getDecompressedResponseBytes() {
+		return decompressedResponseBytes.sum();
+	}
+
+	/************************************************************
+	 * Get decompressed bytes per compressed byte of responses.
+	 * 
+	 * @return compression ratio, or 0 in case no compressed bytes were
+	 *         received.
+	 */
+	public double getResponseCompressionRatio() {
+		long compressedBytes = compressedResponseBytes.sum();
+		return (compressedBytes == 0) ? 0 : (double) decompressedResponseBytes.sum() / compressedBytes;
+	}
+
+	/************************************************************
+	 * Get amount of request entities that were compressed.
+	 * 
+	 * @return amount of requests.
+	 */
+	public long getCompressedRequestsAmount() {
+		return compressedRequestsAmount.sum();
+	}
+
+	/************************************************************
+	 * Get amount of request entities that were sent without compression while
+	 * request compression is enabled.
+	 * 
+	 * @return amount of requests.
+	 */
+	public long getNotCompressedRequestsAmount() {
+		return notCompressedRequestsAmount.sum();
+	}
+
+	/************************************************************
+	 * Get amount of request entity bytes before compression.
+	 * 
+	 * @return amount of bytes.
+	 */
+	public long getUncompressedRequestBytes() {
+		return uncompressedRequestBytes.sum();
+	}
+
+	/************************************************************
+	 * Get amount of compressed request entity bytes that were sent.
+	 * 
+	 * @return amount of bytes.
+	 */
+	public long getCompressedRequestBytes() {
+		return compressedRequestBytes.sum();
+	}
+
+	/************************************************************
+	 * Get uncompressed bytes per compressed byte of requests.
+	 * 
+	 * @return compression ratio, or 0 in case no request was compressed.
+	 */
+	public double getRequestCompressionRatio() {
+		long compressedBytes = compressedRequestBytes.sum();
+		return (compressedBytes == 0) ? 0 : (double) uncompressedRequestBytes.sum() / compressedBytes;
+	}
+
+	@Override
+	public String toString() {
+		return "Decompressed responses [" + getDecompressedResponsesAmount() + "], compressed bytes ["
+				+ getCompressedResponseBytes() + "], decompressed bytes [" + getDecompressedResponseBytes()
+				+ "], compressed requests [" + getCompressedRequestsAmount() + "], not compressed requests ["
+				+ getNotCompressedRequestsAmount() + "], uncompressed request bytes ["
+				+ getUncompressedRequestBytes() + "], compressed request bytes [" + getCompressedRequestBytes()
+				+ "]";
+	}
+}
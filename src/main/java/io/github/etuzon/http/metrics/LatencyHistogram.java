@@ -0,0 +1,118 @@
+package io.github.etuzon.http.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/************************************************************
+ * High dynamic range latency histogram.
+ * 
+ * Values from 0 to Long.MAX_VALUE nanoseconds are counted in log-linear
+ * buckets, 64 buckets per power of two, so each value is kept with relative
+ * error below 1.6%. Values below 128 are exact.
+ * 
+ * Record is lock-free and does not allocate, so it can be called on every
+ * request. Interval snapshot returns the values that were recorded since the
+ * previous interval snapshot, without stopping the recording threads.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int HALF_SUB_BUCKETS_AMOUNT = 1 << (SUB_BUCKET_BITS - 1);
+
+	public static final int BUCKETS_AMOUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS_AMOUNT;
+
+	private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKETS_AMOUNT);
+	private final long[] intervalStartCounts = new long[BUCKETS_AMOUNT];
+
+	/************************************************************
+	 * Record value.
+	 * 
+	 * @param nanos Latency in nanoseconds. Negative value is recorded as 0.
+	 */
+	public void record(long nanos) {
+		bucketCounts.incrementAndGet(getBucketIndex(Math.max(nanos, 0)));
+	}
+
+	/************************************************************
+	 * Get snapshot of all the values that were recorded.
+	 * 
+	 * @return snapshot.
+	 */
+	public LatencySnapshot getSnapshot() {
+		long[] counts = new long[BUCKETS_AMOUNT];
+
+		for (int index = 0; index < BUCKETS_AMOUNT; index++) {
+			counts[index] = bucketCounts.get(index);
+		}
+
+		return new LatencySnapshot(counts);
+	}
+
+	/************************************************************
+	 * Get snapshot of the values that were recorded since the previous call,
+	 * and start new interval.
+	 * 
+	 * Value that is recorded while the snapshot is taken is counted in this
+	 * interval or in the next one, and it is not lost.
+	 * 
+	 * @return snapshot of the interval.
+	 */
+	public synchronized LatencySnapshot getIntervalSnapshot() {
+		long[] counts = new long[BUCKETS_AMOUNT];
+
+		for (int index = 0; index < BUCKETS_AMOUNT; index++) {
+			long count = bucketCounts.get(index);
+			counts[index] = count - intervalStartCounts[index];
+			intervalStartCounts[index] = count;
+		}
+
+		return new LatencySnapshot(counts);
+	}
+
+	/************************************************************
+	 * Get index of the bucket of value.
+	 * 
+	 * @param value Non negative value.
+	 * @return bucket index.
+	 */
+	public static int getBucketIndex(long value) {
+		if (value < 2 * HALF_SUB_BUCKETS_AMOUNT) {
+			return (int) value;
+		}
+
+		int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+
+		return shift * HALF_SUB_BUCKETS_AMOUNT + (int) (value >>> shift);
+	}
+
+	/************************************************************
+	 * Get lowest value of bucket.
+	 * 
+	 * @param index Bucket index.
+	 * @return lowest value of the bucket.
+	 */
+	public static long getBucketLowValue(int index) {
+		if (index < 2 * HALF_SUB_BUCKETS_AMOUNT) {
+			return index;
+		}
+
+		int shift = index / HALF_SUB_BUCKETS_AMOUNT - 1;
+
+		return (long) (index - shift * HALF_SUB_BUCKETS_AMOUNT) << shift;
+	}
+
+	/************************************************************
+	 * Get highest value of bucket.
+	 * 
+	 * @param index Bucket index.
+	 * @return highest value of the bucket.
+	 */
+	public static long getBucketHighValue(int index) {
+		if (index == BUCKETS_AMOUNT - 1) {
+			return Long.MAX_VALUE;
+		}
+
+		return getBucketLowValue(index + 1) - 1;
+	}
+}
@@ -0,0 +1,189 @@
+package io.github.etuzon.http.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import io.github.etuzon.http.enums.RequestTypeEnum;
+
+/************************************************************
+ * Latency histograms by base URL, URL suffix template and request type.
+ * 
+ * Registry can be shared between HTTP clients. URL suffix is converted to
+ * template by the template resolver, so requests to 'users/17' and 'users/18'
+ * are recorded in the same histogram. Resolved suffixes are cached, so
+ * recording latency of known suffix does not allocate.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LatencyHistogramRegistry {
+	public static final int MAX_CACHED_SUFFIXES_PER_BASE_URL = 10000;
+	public static final String ID_SEGMENT_TEMPLATE = "{id}";
+
+	private static final int MIN_HEX_ID_LENGTH = 16;
+
+	private final Function<String, String> suffixTemplateResolver;
+	private final Map<LatencyKey, LatencyHistogram> histogramMap =
+			new ConcurrentHashMap<LatencyKey, LatencyHistogram>();
+	private final Map<String, SuffixCache> suffixCacheMap = new ConcurrentHashMap<String, SuffixCache>();
+
+	/************************************************************
+	 * Constructor with default template resolver.
+	 * 
+	 */
+	public LatencyHistogramRegistry() {
+		this(LatencyHistogramRegistry::toSuffixTemplate);
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param suffixTemplateResolver Convert URL suffix to its template.
+	 */
+	public LatencyHistogramRegistry(Function<String, String> suffixTemplateResolver) {
+		this.suffixTemplateResolver = suffixTemplateResolver;
+	}
+
+	/************************************************************
+	 * Record latency of request.
+	 * 
+	 * @param baseUrl     Base URL.
+	 * @param requestType Request type.
+	 * @param suffixUrl   URL suffix. Can be null.
+	 * @param nanos       Latency in nanoseconds.
+	 */
+	public void record(String baseUrl, RequestTypeEnum requestType, String suffixUrl, long nanos) {
+		getHistogram(baseUrl, requestType, suffixUrl).record(nanos);
+	}
+
+	/************************************************************
+	 * Get latency histogram of request.
+	 * 
+	 * @param baseUrl     Base URL.
+	 * @param requestType Request type.
+	 * @param suffixUrl   URL suffix. Can be null.
+	 * @return latency histogram.
+	 */
+	public LatencyHistogram getHistogram(String baseUrl, RequestTypeEnum requestType, String suffixUrl) {
+		String suffix = (suffixUrl == null) ? "" : suffixUrl;
+		SuffixCache suffixCache = suffixCacheMap.get(baseUrl);
+
+		if (suffixCache == null) {
+			suffixCache = suffixCacheMap.computeIfAbsent(baseUrl, key -> new SuffixCache());
+		}
+
+		Map<String, LatencyHistogram> cachedHistogramMap = suffixCache.histogramMaps[requestType.ordinal()];
+		LatencyHistogram histogram = cachedHistogramMap.get(suffix);
+
+		if (histogram != null) {
+			return histogram;
+		}
+
+		LatencyKey key = new LatencyKey(baseUrl, suffixTemplateResolver.apply(suffix), requestType);
+		histogram = histogramMap.computeIfAbsent(key, newKey -> new LatencyHistogram());
+
+		if (cachedHistogramMap.size() < MAX_CACHED_SUFFIXES_PER_BASE_URL) {
+			cachedHistogramMap.put(suffix, histogram);
+		}
+
+		return histogram;
+	}
+
+	/************************************************************
+	 * Get snapshots of all the values that were recorded.
+	 * 
+	 * @return map of key to snapshot.
+	 */
+	public Map<LatencyKey, LatencySnapshot> getSnapshotMap() {
+		Map<LatencyKey, LatencySnapshot> snapshotMap = new LinkedHashMap<LatencyKey, LatencySnapshot>();
+
+		for (Map.Entry<LatencyKey, LatencyHistogram> entry : histogramMap.entrySet()) {
+			snapshotMap.put(entry.getKey(), entry.getValue().getSnapshot());
+		}
+
+		return snapshotMap;
+	}
+
+	/************************************************************
+	 * Get snapshots of the values that were recorded since the previous call,
+	 * and start new interval.
+	 * 
+	 * @return map of key to interval snapshot.
+	 */
+	public Map<LatencyKey, LatencySnapshot> getIntervalSnapshotMap() {
+		Map<LatencyKey, LatencySnapshot> snapshotMap = new LinkedHashMap<LatencyKey, LatencySnapshot>();
+
+		for (Map.Entry<LatencyKey, LatencyHistogram> entry : histogramMap.entrySet()) {
+			snapshotMap.put(entry.getKey(), entry.getValue().getIntervalSnapshot());
+		}
+
+		return snapshotMap;
+	}
+
+	/************************************************************
+	 * Convert URL suffix to template.
+	 * 
+	 * Query is removed, and path segments that are numbers, UUIDs or long hex
+	 * strings are replaced by '{id}'.
+	 * 
+	 * @param suffixUrl URL suffix.
+	 * @return URL suffix template.
+	 */
+	public static String toSuffixTemplate(String suffixUrl) {
+		int queryIndex = suffixUrl.indexOf('?');
+		String path = (queryIndex == -1) ? suffixUrl : suffixUrl.substring(0, queryIndex);
+		String[] segments = path.split("/", -1);
+		StringBuilder template = new StringBuilder(path.length());
+
+		for (int index = 0; index < segments.length; index++) {
+			if (index > 0) {
+				template.append('/');
+			}
+
+			template.append(isIdSegment(segments[index]) ? ID_SEGMENT_TEMPLATE : segments[index]);
+		}
+
+		return template.toString();
+	}
+
+	private static boolean isIdSegment(String segment) {
+		if (segment.isEmpty()) {
+			return false;
+		}
+
+		boolean isDigits = true;
+		int hexDigitsAmount = 0;
+
+		for (int index = 0; index < segment.length(); index++) {
+			char c = segment.charAt(index);
+
+			if (Character.digit(c, 16) != -1) {
+				hexDigitsAmount++;
+				isDigits &= Character.isDigit(c);
+			} else if (c == '-') {
+				isDigits = false;
+			} else {
+				return false;
+			}
+		}
+
+		return isDigits || (hexDigitsAmount >= MIN_HEX_ID_LENGTH);
+	}
+
+	/************************************************************
+	 * Histograms of resolved URL suffixes of one base URL, by request type.
+	 *
+	 */
+	private static class SuffixCache {
+		@SuppressWarnings("unchecked")
+		private final Map<String, LatencyHistogram>[] histogramMaps = new Map[RequestTypeEnum.values().length];
+
+		private SuffixCache() {
+			for (int index = 0; index < histogramMaps.length; index++) {
+				histogramMaps[index] = new ConcurrentHashMap<String, LatencyHistogram>();
+			}
+		}
+	}
+}
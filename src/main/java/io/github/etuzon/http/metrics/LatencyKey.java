@@ -0,0 +1,83 @@
+package io.github.etuzon.http.metrics;
+
+import java.util.Objects;
+
+import io.github.etuzon.http.enums.RequestTypeEnum;
+
+/************************************************************
+ * Key of latency histogram: base URL, URL suffix template and request type.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LatencyKey {
+	private final String baseUrl;
+	private final String suffixTemplate;
+	private final RequestTypeEnum requestType;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param baseUrl        Base URL.
+	 * @param suffixTemplate URL suffix template, for example 'users/{id}'.
+	 * @param requestType    Request type.
+	 */
+	public LatencyKey(String baseUrl, String suffixTemplate, RequestTypeEnum requestType) {
+		this.baseUrl = baseUrl;
+		this.suffixTemplate = suffixTemplate;
+		this.requestType = requestType;
+	}
+
+	/************************************************************
+	 * Get base URL.
+	 * 
+	 * @return base URL.
+	 */
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	/************************************************************
+	 * Get URL suffix template.
+	 * 
+	 * @return URL suffix template.
+	 */
+	public String getSuffixTemplate() {
+		return suffixTemplate;
+	}
+
+	/************************************************************
+	 * Get request type.
+	 * 
+	 * @return request type.
+	 */
+	public RequestTypeEnum getRequestType() {
+		return requestType;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+
+		if ((obj instanceof LatencyKey) == false) {
+			return false;
+		}
+
+		LatencyKey other = (LatencyKey) obj;
+
+		return baseUrl.equals(other.baseUrl) && suffixTemplate.equals(other.suffixTemplate)
+				&& (requestType == other.requestType);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(baseUrl, suffixTemplate, requestType);
+	}
+
+	@Override
+	public String toString() {
+		return requestType + " " + baseUrl + "/" + suffixTemplate;
+	}
+}
@@ -0,0 +1,189 @@
+package io.github.etuzon.http.metrics;
+
+/************************************************************
+ * Immutable snapshot of latency histogram.
+ * 
+ * Percentile value is the highest value of the bucket that contains the
+ * percentile, so it is never lower than the recorded value. Snapshots of
+ * several histograms or intervals can be aggregated by merge.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LatencySnapshot {
+	private final long[] bucketCounts;
+	private final long count;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param bucketCounts Counts of LatencyHistogram buckets. Array is not
+	 *                     copied.
+	 */
+	public LatencySnapshot(long[] bucketCounts) {
+		long totalCount = 0;
+
+		for (long bucketCount : bucketCounts) {
+			totalCount += bucketCount;
+		}
+
+		this.bucketCounts = bucketCounts;
+		this.count = totalCount;
+	}
+
+	/************************************************************
+	 * Merge this snapshot with other snapshot.
+	 * 
+	 * @param other Other snapshot.
+	 * @return merged snapshot.
+	 */
+	public LatencySnapshot merge(LatencySnapshot other) {
+		long[] mergedCounts = new long[bucketCounts.length];
+
+		for (int index = 0; index < mergedCounts.length; index++) {
+			mergedCounts[index] = bucketCounts[index] + other.bucketCounts[index];
+		}
+
+		return new LatencySnapshot(mergedCounts);
+	}
+
+	/************************************************************
+	 * Get amount of recorded values.
+	 * 
+	 * @return amount of recorded values.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/************************************************************
+	 * Get value at percentile.
+	 * 
+	 * @param percentile Percentile between 0 and 100.
+	 * @return value at percentile in nanoseconds. Return 0 in case there are no
+	 *         values.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+
+		double boundedPercentile = Math.min(Math.max(percentile, 0), 100);
+		long rank = Math.max(1, (long) Math.ceil(boundedPercentile / 100 * count));
+		long accumulatedCount = 0;
+
+		for (int index = 0; index < bucketCounts.length; index++) {
+			accumulatedCount += bucketCounts[index];
+
+			if (accumulatedCount >= rank) {
+				return LatencyHistogram.getBucketHighValue(index);
+			}
+		}
+
+		return getMax();
+	}
+
+	/************************************************************
+	 * Get median.
+	 * 
+	 * @return median in nanoseconds.
+	 */
+	public long getP50() {
+		return getValueAtPercentile(50);
+	}
+
+	/************************************************************
+	 * Get 90th percentile.
+	 * 
+	 * @return 90th percentile in nanoseconds.
+	 */
+	public long getP90() {
+		return getValueAtPercentile(90);
+	}
+
+	/************************************************************
+	 * Get 99th percentile.
+	 * 
+	 * @return 99th percentile in nanoseconds.
+	 */
+	public long getP99() {
+		return getValueAtPercentile(99);
+	}
+
+	/************************************************************
+	 * Get 99.9th percentile.
+	 * 
+	 * @return 99.9th percentile in nanoseconds.
+	 */
+	public long getP999() {
+		return getValueAtPercentile(99.9);
+	}
+
+	/************************************************************
+	 * Get minimum value.
+	 * 
+	 * @return minimum value in nanoseconds. Return 0 in case there are no values.
+	 */
+	public long getMin() {
+		for (int index = 0; index < bucketCounts.length; index++) {
+			if (bucketCounts[index] > 0) {
+				return LatencyHistogram.getBucketLowValue(index);
+			}
+		}
+
+		return 0;
+	}
+
+	/************************************************************
+	 * Get maximum value.
+	 * 
+	 * @return maximum value in nanoseconds. Return 0 in case there are no values.
+	 */
+	public long getMax() {
+		for (int index = bucketCounts.length - 1; index >= 0; index--) {
+			if (bucketCounts[index] > 0) {
+				return LatencyHistogram.getBucketHighValue(index);
+			}
+		}
+
+		return 0;
+	}
+
+	/************************************************************
+	 * Get mean value, by middle value of each bucket.
+	 * 
+	 * @return mean value in nanoseconds. Return 0 in case there are no values.
+	 */
+	public double getMean() {
+		if (count == 0) {
+			return 0;
+		}
+
+		double sum = 0;
+
+		for (int index = 0; index < bucketCounts.length; index++) {
+			if (bucketCounts[index] > 0) {
+				double middleValue = (LatencyHistogram.getBucketLowValue(index) / 2.0)
+						+ (LatencyHistogram.getBucketHighValue(index) / 2.0);
+				sum += middleValue * bucketCounts[index];
+			}
+		}
+
+		return sum / count;
+	}
+
+	/************************************************************
+	 * Get copy of bucket counts.
+	 * 
+	 * @return copy of bucket counts.
+	 */
+	public long[] getBucketCounts() {
+		return bucketCounts.clone();
+	}
+
+	@Override
+	public String toString() {
+		return "LatencySnapshot [count=" + count + ", p50=" + getP50() + ", p90=" + getP90() + ", p99=" + getP99()
+				+ ", p999=" + getP999() + ", max=" + getMax() + "]";
+	}
+}
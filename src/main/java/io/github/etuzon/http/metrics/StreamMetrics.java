@@ -0,0 +1,115 @@
+package io.github.etuzon.http.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/************************************************************
+ * Streaming metrics recorder of one async exchange.
+ * 
+ * Recorder is updated by the I/O reactor thread and can be read by any thread
+ * by getSnapshot. Updates do not lock or allocate.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class StreamMetrics {
+	public static final long NOT_MEASURED = -1;
+
+	private final int[] windowsSeconds;
+	private final ThroughputMeter bytesMeter;
+	private final AtomicLong chunksAmount = new AtomicLong();
+	private final AtomicLongArray chunkSizeHistogram = new AtomicLongArray(
+			StreamMetricsSnapshot.CHUNK_SIZE_HISTOGRAM_BUCKETS_AMOUNT);
+
+	private volatile long startNanoTime = NOT_MEASURED;
+	private volatile long headersNanoTime = NOT_MEASURED;
+	private volatile long firstByteNanoTime = NOT_MEASURED;
+	private volatile long endNanoTime = NOT_MEASURED;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param config Streaming metrics configuration.
+	 */
+	public StreamMetrics(StreamMetricsConfig config) {
+		this.windowsSeconds = config.getWindowsSeconds();
+		this.bytesMeter = new ThroughputMeter(config.getMaxWindowSeconds());
+	}
+
+	/************************************************************
+	 * Record that the request was sent to the async HTTP engine.
+	 * 
+	 */
+	public void onRequestStarted() {
+		startNanoTime = System.nanoTime();
+	}
+
+	/************************************************************
+	 * Record that response headers were received.
+	 * 
+	 */
+	public void onHeadersReceived() {
+		headersNanoTime = System.nanoTime();
+	}
+
+	/************************************************************
+	 * Record received response body chunk.
+	 * 
+	 * @param length Chunk length in bytes.
+	 */
+	public void onChunkReceived(int length) {
+		if (firstByteNanoTime == NOT_MEASURED) {
+			firstByteNanoTime = System.nanoTime();
+		}
+
+		bytesMeter.add(length);
+		chunksAmount.incrementAndGet();
+		chunkSizeHistogram.incrementAndGet(StreamMetricsSnapshot.getChunkSizeBucketIndex(length));
+	}
+
+	/************************************************************
+	 * Record that the exchange ended.
+	 * 
+	 */
+	public void onEnded() {
+		if (endNanoTime == NOT_MEASURED) {
+			endNanoTime = System.nanoTime();
+		}
+	}
+
+	/************************************************************
+	 * Get snapshot of the metrics.
+	 * 
+	 * @return snapshot of the metrics.
+	 */
+	public StreamMetricsSnapshot getSnapshot() {
+		Map<Integer, Long> bytesPerSecondMap = new LinkedHashMap<Integer, Long>();
+
+		for (int windowSeconds : windowsSeconds) {
+			bytesPerSecondMap.put(windowSeconds, bytesMeter.getAmountPerSecond(windowSeconds));
+		}
+
+		long[] histogram = new long[chunkSizeHistogram.length()];
+
+		for (int index = 0; index < histogram.length; index++) {
+			histogram[index] = chunkSizeHistogram.get(index);
+		}
+
+		long start = startNanoTime;
+		long end = (endNanoTime != NOT_MEASURED) ? endNanoTime : System.nanoTime();
+
+		return new StreamMetricsSnapshot(bytesMeter.getTotalAmount(), chunksAmount.get(), bytesPerSecondMap, histogram,
+				getDurationNanos(start, headersNanoTime), getDurationNanos(start, firstByteNanoTime),
+				getDurationNanos(start, end));
+	}
+
+	private static long getDurationNanos(long start, long end) {
+		if ((start == NOT_MEASURED) || (end == NOT_MEASURED)) {
+			return NOT_MEASURED;
+		}
+
+		return end - start;
+	}
+}
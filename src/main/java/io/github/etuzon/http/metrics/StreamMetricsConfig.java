@@ -0,0 +1,55 @@
+package io.github.etuzon.http.metrics;
+
+import java.util.Arrays;
+
+/************************************************************
+ * Streaming metrics configuration of async HTTP client.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class StreamMetricsConfig {
+	public static final int[] DEFAULT_WINDOWS_SECONDS = { 1, 5, 30, 60 };
+
+	private int[] windowsSeconds = DEFAULT_WINDOWS_SECONDS.clone();
+
+	/************************************************************
+	 * Set windows in seconds of bytes per second rates.
+	 * 
+	 * @param windowsSeconds Windows in seconds. Each window should be positive.
+	 * @return StreamMetricsConfig.
+	 */
+	public StreamMetricsConfig setWindowsSeconds(int... windowsSeconds) {
+		if (windowsSeconds.length == 0) {
+			throw new IllegalArgumentException("At least one window should be set");
+		}
+
+		for (int windowSeconds : windowsSeconds) {
+			if (windowSeconds <= 0) {
+				throw new IllegalArgumentException("Window is [" + windowSeconds + "] seconds and should be positive");
+			}
+		}
+
+		this.windowsSeconds = windowsSeconds.clone();
+		Arrays.sort(this.windowsSeconds);
+		return this;
+	}
+
+	/************************************************************
+	 * Get windows in seconds of bytes per second rates, sorted from the shortest.
+	 * 
+	 * @return windows in seconds.
+	 */
+	public int[] getWindowsSeconds() {
+		return windowsSeconds.clone();
+	}
+
+	/************************************************************
+	 * Get longest window in seconds.
+	 * 
+	 * @return longest window in seconds.
+	 */
+	public int getMaxWindowSeconds() {
+		return windowsSeconds[windowsSeconds.length - 1];
+	}
+}
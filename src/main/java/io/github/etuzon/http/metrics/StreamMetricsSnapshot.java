@@ -0,0 +1,284 @@
+package io.github.etuzon.http.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/************************************************************
+ * Immutable snapshot of streaming metrics of one or more async exchanges.
+ * 
+ * Snapshots of several exchanges can be aggregated by merge or aggregate.
+ * Bytes and rates are summed, so aggregated rate is the total rate of the
+ * exchanges. Times are kept as sum, amount and maximum, so mean and maximum
+ * are available for aggregated snapshot.
+ * 
+ * Chunk sizes histogram bucket at index i counts chunks with size up to 2^i
+ * bytes, and more than 2^(i-1) bytes.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class StreamMetricsSnapshot {
+	public static final int CHUNK_SIZE_HISTOGRAM_BUCKETS_AMOUNT = 32;
+
+	private final long exchangesAmount;
+	private final long totalBytes;
+	private final long chunksAmount;
+	private final Map<Integer, Long> bytesPerSecondMap;
+	private final long[] chunkSizeHistogram;
+	private final TimeMeasure timeToHeaders;
+	private final TimeMeasure timeToFirstByte;
+	private final TimeMeasure duration;
+
+	/************************************************************
+	 * Constructor of snapshot of one exchange.
+	 * 
+	 * @param totalBytes            Total amount of received response body bytes.
+	 * @param chunksAmount          Amount of received chunks.
+	 * @param bytesPerSecondMap     Bytes per second by window in seconds.
+	 * @param chunkSizeHistogram    Chunk sizes histogram.
+	 * @param timeToHeadersNanos    Nanoseconds from request start until headers
+	 *                              were received, or StreamMetrics.NOT_MEASURED.
+	 * @param timeToFirstByteNanos  Nanoseconds from request start until first
+	 *                              body byte was received, or
+	 *                              StreamMetrics.NOT_MEASURED.
+	 * @param durationNanos         Nanoseconds from request start until the
+	 *                              exchange ended or until now, or
+	 *                              StreamMetrics.NOT_MEASURED.
+	 */
+	public StreamMetricsSnapshot(long totalBytes, long chunksAmount, Map<Integer, Long> bytesPerSecondMap,
+			long[] chunkSizeHistogram, long timeToHeadersNanos, long timeToFirstByteNanos, long durationNanos) {
+		this(1, totalBytes, chunksAmount, new LinkedHashMap<Integer, Long>(bytesPerSecondMap),
+				chunkSizeHistogram.clone(), new TimeMeasure(timeToHeadersNanos),
+				new TimeMeasure(timeToFirstByteNanos), new TimeMeasure(durationNanos));
+	}
+
+	private StreamMetricsSnapshot(long exchangesAmount, long totalBytes, long chunksAmount,
+			Map<Integer, Long> bytesPerSecondMap, long[] chunkSizeHistogram, TimeMeasure timeToHeaders,
+			TimeMeasure timeToFirstByte, TimeMeasure duration) {
+		this.exchangesAmount = exchangesAmount;
+		this.totalBytes = totalBytes;
+		this.chunksAmount = chunksAmount;
+		this.bytesPerSecondMap = Collections.unmodifiableMap(bytesPerSecondMap);
+		this.chunkSizeHistogram = chunkSizeHistogram;
+		this.timeToHeaders = timeToHeaders;
+		this.timeToFirstByte = timeToFirstByte;
+		this.duration = duration;
+	}
+
+	/************************************************************
+	 * Aggregate snapshots of several exchanges.
+	 * 
+	 * @param snapshots Snapshots. Should not be empty.
+	 * @return aggregated snapshot.
+	 */
+	public static StreamMetricsSnapshot aggregate(Collection<StreamMetricsSnapshot> snapshots) {
+		StreamMetricsSnapshot aggregated = null;
+
+		for (StreamMetricsSnapshot snapshot : snapshots) {
+			aggregated = (aggregated == null) ? snapshot : aggregated.merge(snapshot);
+		}
+
+		if (aggregated == null) {
+			throw new IllegalArgumentException("At least one snapshot should be aggregated");
+		}
+
+		return aggregated;
+	}
+
+	/************************************************************
+	 * Merge this snapshot with snapshot of other exchanges.
+	 * 
+	 * Bytes per second are merged only for windows that both snapshots have.
+	 * 
+	 * @param other Other snapshot.
+	 * @return merged snapshot.
+	 */
+	public StreamMetricsSnapshot merge(StreamMetricsSnapshot other) {
+		Map<Integer, Long> mergedBytesPerSecondMap = new LinkedHashMap<Integer, Long>();
+
+		for (Map.Entry<Integer, Long> entry : bytesPerSecondMap.entrySet()) {
+			Long otherBytesPerSecond = other.bytesPerSecondMap.get(entry.getKey());
+
+			if (otherBytesPerSecond != null) {
+				mergedBytesPerSecondMap.put(entry.getKey(), entry.getValue() + otherBytesPerSecond);
+			}
+		}
+
+		long[] mergedHistogram = new long[CHUNK_SIZE_HISTOGRAM_BUCKETS_AMOUNT];
+
+		for (int index = 0; index < mergedHistogram.length; index++) {
+			mergedHistogram[index] = chunkSizeHistogram[index] + other.chunkSizeHistogram[index];
+		}
+
+		return new StreamMetricsSnapshot(exchangesAmount + other.exchangesAmount, totalBytes + other.totalBytes,
+				chunksAmount + other.chunksAmount, mergedBytesPerSecondMap, mergedHistogram,
+				timeToHeaders.merge(other.timeToHeaders), timeToFirstByte.merge(other.timeToFirstByte),
+				duration.merge(other.duration));
+	}
+
+	/************************************************************
+	 * Get chunk sizes histogram bucket index of chunk size.
+	 * 
+	 * @param size Chunk size in bytes.
+	 * @return bucket index.
+	 */
+	public static int getChunkSizeBucketIndex(int size) {
+		if (size <= 1) {
+			return 0;
+		}
+
+		return Math.min(Integer.SIZE - Integer.numberOfLeadingZeros(size - 1),
+				CHUNK_SIZE_HISTOGRAM_BUCKETS_AMOUNT - 1);
+	}
+
+	/************************************************************
+	 * Get amount of exchanges in the snapshot.
+	 * 
+	 * @return amount of exchanges.
+	 */
+	public long getExchangesAmount() {
+		return exchangesAmount;
+	}
+
+	/************************************************************
+	 * Get total amount of received response body bytes.
+	 * 
+	 * @return total amount of received bytes.
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/************************************************************
+	 * Get amount of received response body chunks.
+	 * 
+	 * @return amount of received chunks.
+	 */
+	public long getChunksAmount() {
+		return chunksAmount;
+	}
+
+	/************************************************************
+	 * Get received bytes per second in window.
+	 * 
+	 * @param windowSeconds Window in seconds.
+	 * @return bytes per second, or -1 in case window is not configured.
+	 */
+	public long getBytesPerSecond(int windowSeconds) {
+		Long bytesPerSecond = bytesPerSecondMap.get(windowSeconds);
+
+		return (bytesPerSecond == null) ? -1 : bytesPerSecond;
+	}
+
+	/************************************************************
+	 * Get received bytes per second by window in seconds.
+	 * 
+	 * @return unmodifiable map of bytes per second by window in seconds.
+	 */
+	public Map<Integer, Long> getBytesPerSecondMap() {
+		return bytesPerSecondMap;
+	}
+
+	/************************************************************
+	 * Get chunk sizes histogram.
+	 * 
+	 * @return copy of chunk sizes histogram.
+	 */
+	public long[] getChunkSizeHistogram() {
+		return chunkSizeHistogram.clone();
+	}
+
+	/************************************************************
+	 * Get mean nanoseconds from request start until headers were received.
+	 * 
+	 * @return mean time to headers, or StreamMetrics.NOT_MEASURED.
+	 */
+	public long getMeanTimeToHeadersNanos() {
+		return timeToHeaders.getMean();
+	}
+
+	/************************************************************
+	 * Get maximum nanoseconds from request start until headers were received.
+	 * 
+	 * @return maximum time to headers, or StreamMetrics.NOT_MEASURED.
+	 */
+	public long getMaxTimeToHeadersNanos() {
+		return timeToHeaders.max;
+	}
+
+	/************************************************************
+	 * Get mean nanoseconds from request start until first response body byte
+	 * was received.
+	 * 
+	 * @return mean time to first byte, or StreamMetrics.NOT_MEASURED.
+	 */
+	public long getMeanTimeToFirstByteNanos() {
+		return timeToFirstByte.getMean();
+	}
+
+	/************************************************************
+	 * Get maximum nanoseconds from request start until first response body byte
+	 * was received.
+	 * 
+	 * @return maximum time to first byte, or StreamMetrics.NOT_MEASURED.
+	 */
+	public long getMaxTimeToFirstByteNanos() {
+		return timeToFirstByte.max;
+	}
+
+	/************************************************************
+	 * Get mean nanoseconds from request start until the exchange ended.
+	 * 
+	 * @return mean exchange duration, or StreamMetrics.NOT_MEASURED.
+	 */
+	public long getMeanDurationNanos() {
+		return duration.getMean();
+	}
+
+	/************************************************************
+	 * Get maximum nanoseconds from request start until the exchange ended.
+	 * 
+	 * @return maximum exchange duration, or StreamMetrics.NOT_MEASURED.
+	 */
+	public long getMaxDurationNanos() {
+		return duration.max;
+	}
+
+	@Override
+	public String toString() {
+		return "StreamMetricsSnapshot [exchangesAmount=" + exchangesAmount + ", totalBytes=" + totalBytes
+				+ ", chunksAmount=" + chunksAmount + ", bytesPerSecond=" + bytesPerSecondMap
+				+ ", meanTimeToHeadersNanos=" + getMeanTimeToHeadersNanos() + ", meanTimeToFirstByteNanos="
+				+ getMeanTimeToFirstByteNanos() + ", meanDurationNanos=" + getMeanDurationNanos() + "]";
+	}
+
+	/************************************************************
+	 * Sum, amount and maximum of measured times.
+	 *
+	 */
+	private static class TimeMeasure {
+		private final long sum;
+		private final long amount;
+		private final long max;
+
+		private TimeMeasure(long nanos) {
+			this(Math.max(nanos, 0), (nanos == StreamMetrics.NOT_MEASURED) ? 0 : 1, nanos);
+		}
+
+		private TimeMeasure(long sum, long amount, long max) {
+			this.sum = sum;
+			this.amount = amount;
+			this.max = max;
+		}
+
+		private TimeMeasure merge(TimeMeasure other) {
+			return new TimeMeasure(sum + other.sum, amount + other.amount, Math.max(max, other.max));
+		}
+
+		private long getMean() {
+			return (amount == 0) ? StreamMetrics.NOT_MEASURED : sum / amount;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package io.github.etuzon.http.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/************************************************************
+ * Lock-free throughput meter.
+ * 
+ * Meter keeps fixed ring of per-second buckets. Each bucket is one atomic long
+ * that contains the second it belongs to and the amount that was added in that
+ * second, so adding amount does not lock or allocate, and reading amount of
+ * last seconds reads only the buckets of the window. Time is measured by
+ * System.nanoTime, so it is not affected by wall clock changes.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ThroughputMeter {
+	public static final int DEFAULT_MAX_WINDOW_SECONDS = 60;
+
+	private static final int AMOUNT_BITS = 40;
+	private static final long AMOUNT_MASK = (1L << AMOUNT_BITS) - 1;
+	private static final long SECOND_MASK = (1L << (Long.SIZE - AMOUNT_BITS)) - 1;
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final int maxWindowSeconds;
+	private final AtomicLongArray bucketArray;
+	private final AtomicLong totalAmount = new AtomicLong();
+	private final long startNanoTime = System.nanoTime();
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 */
+	public ThroughputMeter() {
+		this(DEFAULT_MAX_WINDOW_SECONDS);
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param maxWindowSeconds Longest window in seconds that can be read.
+	 */
+	public ThroughputMeter(int maxWindowSeconds) {
+		if (maxWindowSeconds <= 0) {
+			throw new IllegalArgumentException(
+					"Max window seconds is [" + maxWindowSeconds + "] and should be positive");
+		}
+
+		this.maxWindowSeconds = maxWindowSeconds;
+		this.bucketArray = new AtomicLongArray(maxWindowSeconds + 1);
+
+		for (int index = 0; index < bucketArray.length(); index++) {
+			bucketArray.set(index, toBucket(SECOND_MASK, 0));
+		}
+	}
+
+	/************************************************************
+	 * Add amount to current second.
+	 * 
+	 * Amount per second is limited to 2^40.
+	 * 
+	 * @param amount Amount.
+	 */
+	public void add(long amount) {
+		totalAmount.addAndGet(amount);
+
+		long second = getCurrentSecond();
+		int index = getBucketIndex(second);
+
+		while (true) {
+			long bucket = bucketArray.get(index);
+			long newBucket;
+
+			if (getSecond(bucket) == second) {
+				newBucket = toBucket(second, Math.min(getAmount(bucket) + amount, AMOUNT_MASK));
+			} else {
+				newBucket = toBucket(second, Math.min(amount, AMOUNT_MASK));
+			}
+
+			if (bucketArray.compareAndSet(index, bucket, newBucket)) {
+				return;
+			}
+		}
+	}
+
+	/************************************************************
+	 * Get amount that was added in last seconds, including the current second.
+	 * 
+	 * @param seconds Window in seconds. Windows longer than the max window are
+	 *                treated as the max window, and windows shorter than one
+	 *                second are treated as the current second.
+	 * @return amount that was added in the window.
+	 */
+	public long getAmountInLastSeconds(int seconds) {
+		int windowSeconds = getWindowSeconds(seconds);
+		long currentSecond = getCurrentSecond();
+		long amount = 0;
+
+		for (int secondsAgo = 0; secondsAgo < windowSeconds; secondsAgo++) {
+			long second = (currentSecond - secondsAgo) & SECOND_MASK;
+			long bucket = bucketArray.get(getBucketIndex(second));
+
+			if (getSecond(bucket) == second) {
+				amount += getAmount(bucket);
+			}
+		}
+
+		return amount;
+	}
+
+	/************************************************************
+	 * Get average amount per second in last seconds.
+	 * 
+	 * @param seconds Window in seconds. Windows longer than the max window are
+	 *                treated as the max window, and windows shorter than one
+	 *                second are treated as the current second.
+	 * @return average amount per second.
+	 */
+	public long getAmountPerSecond(int seconds) {
+		int windowSeconds = getWindowSeconds(seconds);
+		return getAmountInLastSeconds(windowSeconds) / windowSeconds;
+	}
+
+	/************************************************************
+	 * Get total amount that was added since the meter was created.
+	 * 
+	 * @return total amount.
+	 */
+	public long getTotalAmount() {
+		return totalAmount.get();
+	}
+
+	/************************************************************
+	 * Get longest window in seconds that can be read.
+	 * 
+	 * @return longest window in seconds.
+	 */
+	public int getMaxWindowSeconds() {
+		return maxWindowSeconds;
+	}
+
+	private long getCurrentSecond() {
+		return ((System.nanoTime() - startNanoTime) / NANOS_PER_SECOND) & SECOND_MASK;
+	}
+
+	private int getBucketIndex(long second) {
+		return (int) (second % bucketArray.length());
+	}
+
+	private static long toBucket(long second, long amount) {
+		return (second << AMOUNT_BITS) | amount;
+	}
+
+	private static long getSecond(long bucket) {
+		return bucket >>> AMOUNT_BITS;
+	}
+
+	private static long getAmount(long bucket) {
+		return bucket & AMOUNT_MASK;
+	}
+
+	/** Clamp window to the seconds that are kept, so amount and average are of the same window. */
+	private int getWindowSeconds(int seconds) {
+		return Math.max(1, Math.min(seconds, maxWindowSeconds));
+	}
+}
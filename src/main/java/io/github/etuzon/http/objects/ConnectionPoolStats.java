@@ -0,0 +1,81 @@
+package io.github.etuzon.http.objects;
+
+import org.apache.hc.core5.pool.PoolStats;
+
+/***********************************************
+ * Snapshot of connection pool usage.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ConnectionPoolStats {
+	private final int leased;
+	private final int available;
+	private final int pending;
+	private final int max;
+
+	/***********************************************
+	 * Constructor.
+	 * 
+	 * @param poolStats Apache pool stats object.
+	 */
+	public ConnectionPoolStats(PoolStats poolStats) {
+		this(poolStats.getLeased(), poolStats.getAvailable(), poolStats.getPending(), poolStats.getMax());
+	}
+
+	/***********************************************
+	 * Constructor.
+	 * 
+	 * @param leased    Amount of connections that are in use.
+	 * @param available Amount of idle connections.
+	 * @param pending   Amount of requests that wait for connection.
+	 * @param max       Maximum amount of connections.
+	 */
+	public ConnectionPoolStats(int leased, int available, int pending, int max) {
+		this.leased = leased;
+		this.available = available;
+		this.pending = pending;
+		this.max = max;
+	}
+
+	/***********************************************
+	 * Get amount of connections that are in use.
+	 * 
+	 * @return amount of connections that are in use.
+	 */
+	public int getLeased() {
+		return leased;
+	}
+
+	/***********************************************
+	 * Get amount of idle connections.
+	 * 
+	 * @return amount of idle connections.
+	 */
+	public int getAvailable() {
+		return available;
+	}
+
+	/***********************************************
+	 * Get amount of requests that wait for connection.
+	 * 
+	 * @return amount of requests that wait for connection.
+	 */
+	public int getPending() {
+		return pending;
+	}
+
+	/***********************************************
+	 * Get maximum amount of connections.
+	 * 
+	 * @return maximum amount of connections.
+	 */
+	public int getMax() {
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return "[leased: " + leased + "; available: " + available + "; pending: " + pending + "; max: " + max + "]";
+	}
+}
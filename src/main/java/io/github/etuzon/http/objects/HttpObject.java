@@ -33,14 +33,39 @@ public class HttpObject {
 	 * @throws HttpException in case failed to create HttpResponse object.
 	 */
 	public HttpObject(HttpMessage request, CloseableHttpResponse response) throws HttpException {
+		this(request, response, null);
+	}
+
+	/***********************************************
+	 * Constructor.
+	 * 
+	 * @param request             Request.
+	 * @param response            Response.
+	 * @param bodyReleaseCallback Called once when response body is fully read,
+	 *                            discarded or response is closed. Can be null.
+	 * @throws HttpException in case failed to create HttpResponse object.
+	 */
+	public HttpObject(HttpMessage request, CloseableHttpResponse response, Runnable bodyReleaseCallback)
+			throws HttpException {
 		this.request = request;
 		try {
-			this.response = new HttpResponse(response);
+			this.response = new HttpResponse(response, bodyReleaseCallback);
 		} catch (Exception e) {
 			throw new HttpException(e);
 		}
 	}
 
+	/***********************************************
+	 * Constructor.
+	 * 
+	 * @param request Request.
+	 * @param response Response.
+	 */
+	public HttpObject(HttpMessage request, HttpResponse response) {
+		this.request = request;
+		this.response = response;
+	}
+
 	/***********************************************
 	 * Get request object.
 	 * 
@@ -1,39 +1,168 @@
 package io.github.etuzon.http.objects;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
 
+import io.github.etuzon.http.buffer.ByteBufferInputStream;
 import io.github.etuzon.http.exceptions.HttpException;
-import io.github.etuzon.projects.core.utils.StringUtil;
 
 /***********************************************
  * HTTP response object.
  * 
+ * Response body is not read when the object is created. Body is read from the
+ * connection on first access, either as stream (getInputStream, getChannel) or
+ * as whole body (getByteBuffer, getResponseBody). Body is decoded to String
+ * only when getResponseBody is called.
+ * 
+ * Connection of the response is returned to the pool only after the body is
+ * fully read, discarded or the response is closed. HttpClient reads the body
+ * before it returns the response, unless its body read mode is
+ * BodyReadModeEnum.LAZY, in which case response that its body is not needed
+ * should be discarded by discardBody().
+ * 
  * @author Eyal Tuzon
  *
  */
-public class HttpResponse {
+public class HttpResponse implements Closeable {
+	public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+
+	private static final int READ_BUFFER_SIZE = 8 * 1024;
+	private static final int MAX_INITIAL_BODY_BUFFER_SIZE = 64 * READ_BUFFER_SIZE;
+
+	private static final Header[] NO_HEADERS = new Header[0];
+
 	private final int statusCode;
-	private final String responseBody;
+	private final Header[] headers;
 	private final CloseableHttpResponse closeableHttpResponse;
-	
+	private final Charset charset;
+	private final Runnable bodyReleaseCallback;
+	private final AtomicBoolean isBodyReleased = new AtomicBoolean(false);
+
+	private ByteBuffer body = null;
+	private byte[] bodyPrefix = null;
+	private InputStream bodyContent = null;
+	private String responseBody = null;
+	private boolean isBodyStreamTaken = false;
+
 	/***********************************************
 	 * Constructor.
 	 * 
 	 * @param closeableHttpResponse Apache response object.
-	 * @throws HttpException n case failed to create HttpResponse object.
 	 */
-	public HttpResponse(CloseableHttpResponse closeableHttpResponse) throws HttpException {
+	public HttpResponse(CloseableHttpResponse closeableHttpResponse) {
+		this(closeableHttpResponse, null);
+	}
+
+	/***********************************************
+	 * Constructor.
+	 * 
+	 * @param closeableHttpResponse Apache response object.
+	 * @param bodyReleaseCallback   Called once when response body is fully read,
+	 *                              discarded or response is closed. Can be null.
+	 */
+	public HttpResponse(CloseableHttpResponse closeableHttpResponse, Runnable bodyReleaseCallback) {
 		this.closeableHttpResponse = closeableHttpResponse;
 		this.statusCode = closeableHttpResponse.getCode();
-		try {
-			this.responseBody = StringUtil.readFromInputStream(closeableHttpResponse.getEntity().getContent());
-		} catch (UnsupportedOperationException | IOException e) {
-			throw new HttpException(e);
+		this.headers = closeableHttpResponse.getHeaders();
+		this.charset = getCharset(closeableHttpResponse.getEntity());
+		this.bodyReleaseCallback = bodyReleaseCallback;
+
+		if (closeableHttpResponse.getEntity() == null) {
+			body = ByteBuffer.allocate(0).asReadOnlyBuffer();
+			releaseBody();
 		}
 	}
 
+	/***********************************************
+	 * Constructor.
+	 * 
+	 * Used for response that was received without Apache classic response
+	 * object, for example async response.
+	 * 
+	 * @param statusCode   HTTP response status code.
+	 * @param responseBody HTTP response body.
+	 */
+	public HttpResponse(int statusCode, String responseBody) {
+		this.closeableHttpResponse = null;
+		this.statusCode = statusCode;
+		this.headers = NO_HEADERS;
+		this.charset = DEFAULT_CHARSET;
+		this.bodyReleaseCallback = null;
+		this.responseBody = responseBody;
+		this.body = ByteBuffer.wrap(responseBody.getBytes(charset)).asReadOnlyBuffer();
+		isBodyReleased.set(true);
+	}
+
+	/***********************************************
+	 * Constructor.
+	 * 
+	 * Used for response body that was already received as bytes, for example
+	 * async response. Body is decoded only when getResponseBody is called.
+	 * 
+	 * @param statusCode HTTP response status code.
+	 * @param bodyBytes  HTTP response body bytes.
+	 * @param charset    HTTP response body charset.
+	 */
+	public HttpResponse(int statusCode, byte[] bodyBytes, Charset charset) {
+		this(statusCode, ByteBuffer.wrap(bodyBytes), charset);
+	}
+
+	/***********************************************
+	 * Constructor.
+	 * 
+	 * Used for response body that is already in a buffer, for example cached
+	 * response. Body is not copied, and its remaining bytes are the body, so
+	 * the buffer should not be changed afterwards.
+	 * 
+	 * @param statusCode HTTP response status code.
+	 * @param body       HTTP response body.
+	 * @param charset    HTTP response body charset.
+	 */
+	public HttpResponse(int statusCode, ByteBuffer body, Charset charset) {
+		this(statusCode, NO_HEADERS, body, charset);
+	}
+
+	/***********************************************
+	 * Constructor.
+	 * 
+	 * Used for response that was received without Apache classic response
+	 * object, for example async or cached response. Body is not copied, and its
+	 * remaining bytes are the body, so the buffer should not be changed
+	 * afterwards.
+	 * 
+	 * @param statusCode HTTP response status code.
+	 * @param headers    HTTP response headers.
+	 * @param body       HTTP response body.
+	 * @param charset    HTTP response body charset.
+	 */
+	public HttpResponse(int statusCode, Header[] headers, ByteBuffer body, Charset charset) {
+		this.closeableHttpResponse = null;
+		this.statusCode = statusCode;
+		this.headers = headers.clone();
+		this.charset = charset;
+		this.bodyReleaseCallback = null;
+		this.body = body.asReadOnlyBuffer();
+		isBodyReleased.set(true);
+	}
+
 	/***********************************************
 	 * Get HTTP response status code.
 	 * 
@@ -43,21 +172,362 @@ public class HttpResponse {
 		return statusCode;
 	}
 
+	/***********************************************
+	 * Get HTTP response headers.
+	 * 
+	 * @return HTTP response headers. Return empty array in case response was
+	 *         created without headers.
+	 */
+	public Header[] getHeaders() {
+		return headers.clone();
+	}
+
+	/***********************************************
+	 * Get first HTTP response header of the given name.
+	 * 
+	 * @param name Header name, case insensitive.
+	 * @return first header of the given name, or null in case response does not
+	 *         have such header.
+	 */
+	public Header getFirstHeader(String name) {
+		for (Header header : headers) {
+			if (header.getName().equalsIgnoreCase(name)) {
+				return header;
+			}
+		}
+
+		return null;
+	}
+
 	/***********************************************
 	 * Get HTTP response body (entity).
 	 * 
+	 * Body is read and decoded on first call. Charset is taken from response
+	 * Content-Type header, default is UTF-8.
+	 * 
 	 * @return HTTP response body (entity).
+	 * @throws UncheckedIOException in case failed to read response body.
 	 */
-	public String getResponseBody() {
+	public synchronized String getResponseBody() {
+		if (responseBody == null) {
+			responseBody = charset.decode(readBody().duplicate()).toString();
+		}
+
 		return responseBody;
 	}
 
+	/***********************************************
+	 * Get HTTP response body as read only byte buffer.
+	 * 
+	 * Body is read on first call and kept in memory.
+	 * 
+	 * @return HTTP response body as read only byte buffer.
+	 * @throws UncheckedIOException in case failed to read response body.
+	 */
+	public synchronized ByteBuffer getByteBuffer() {
+		return readBody().duplicate();
+	}
+
+	/***********************************************
+	 * Get HTTP response body as read only byte buffer, in case it is not longer
+	 * than the maximum length.
+	 * 
+	 * Up to maximum length plus one bytes are read on first call. In case body
+	 * is longer, it is not kept in memory, and the bytes that were read are
+	 * returned first by the body stream, so caller can decide by the body
+	 * length whether to keep it without reading large body to memory.
+	 * 
+	 * @param maxLength Maximum body length in bytes.
+	 * @return HTTP response body as read only byte buffer, or null in case body
+	 *         is longer than the maximum length.
+	 * @throws UncheckedIOException in case failed to read response body.
+	 */
+	public synchronized ByteBuffer getByteBuffer(long maxLength) {
+		if (body != null) {
+			return (body.remaining() <= maxLength) ? body.duplicate() : null;
+		}
+
+		if (bodyPrefix != null) {
+			return null;
+		}
+
+		if (isBodyStreamTaken || isBodyReleased.get()) {
+			throw new UncheckedIOException(new IOException("Response body was already consumed"));
+		}
+
+		boolean isLonger = false;
+
+		try {
+			bodyContent = closeableHttpResponse.getEntity().getContent();
+			byte[] bytes = readUpTo(bodyContent, (int) Math.min(maxLength + 1, Integer.MAX_VALUE - 1));
+
+			if (bytes.length <= maxLength) {
+				body = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+				return body.duplicate();
+			}
+
+			bodyPrefix = bytes;
+			isLonger = true;
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			if (isLonger == false) {
+				closeQuietly(bodyContent);
+				bodyContent = null;
+				releaseBody();
+			}
+		}
+	}
+
+	/***********************************************
+	 * Get HTTP response body as input stream.
+	 * 
+	 * In case body was not read yet, the stream reads directly from the
+	 * connection without keeping the body in memory. Such stream can be taken
+	 * only once and it should be closed by the caller.
+	 * 
+	 * @return HTTP response body as input stream.
+	 * @throws HttpException in case body stream was already taken or failed to
+	 *                       open it.
+	 */
+	public synchronized InputStream getInputStream() throws HttpException {
+		if (body != null) {
+			return new ByteBufferInputStream(body.duplicate());
+		}
+
+		if (isBodyStreamTaken) {
+			throw new HttpException("Response body stream was already taken");
+		}
+
+		if (isBodyReleased.get()) {
+			throw new HttpException("Response body was discarded");
+		}
+
+		isBodyStreamTaken = true;
+
+		try {
+			return new BodyReleaseInputStream(openContent());
+		} catch (UnsupportedOperationException | IOException e) {
+			throw new HttpException(e);
+		}
+	}
+
+	/***********************************************
+	 * Get HTTP response body as readable byte channel.
+	 * 
+	 * Same as getInputStream, but as channel.
+	 * 
+	 * @return HTTP response body as readable byte channel.
+	 * @throws HttpException in case body stream was already taken or failed to
+	 *                       open it.
+	 */
+	public ReadableByteChannel getChannel() throws HttpException {
+		return Channels.newChannel(getInputStream());
+	}
+
+	/***********************************************
+	 * Get response body charset.
+	 * 
+	 * @return response body charset.
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/***********************************************
+	 * Discard response body without reading it.
+	 * 
+	 * In case body was not read, the connection is closed instead of reading the
+	 * rest of the body from it.
+	 *
+	 */
+	public void discardBody() {
+		close();
+	}
+
+	/***********************************************
+	 * Close the response and release its connection.
+	 *
+	 */
+	@Override
+	public void close() {
+		try {
+			if (closeableHttpResponse != null) {
+				closeableHttpResponse.close();
+			}
+		} catch (IOException e) {
+			// Failed close leaves nothing to recover, as the permit is released below and callers cannot act on it.
+		} finally {
+			releaseBody();
+		}
+	}
+
 	/***********************************************
 	 * Apache response object.
 	 * 
-	 * @return Apache response object.
+	 * @return Apache response object. Return null in case response was not
+	 *         received by classic client, for example async or cached response.
+	 *         Headers of every response are returned by getHeaders.
 	 */
 	public CloseableHttpResponse getCloseableHttpResponse() {
 		return closeableHttpResponse;
 	}
-}
\ No newline at end of file
+
+	private ByteBuffer readBody() {
+		if (body != null) {
+			return body;
+		}
+
+		if (isBodyStreamTaken || isBodyReleased.get()) {
+			throw new UncheckedIOException(new IOException("Response body was already consumed"));
+		}
+
+		long contentLength = (bodyPrefix == null) ? closeableHttpResponse.getEntity().getContentLength() : -1;
+
+		try (InputStream input = openContent()) {
+			body = ByteBuffer.wrap(readFully(input, contentLength)).asReadOnlyBuffer();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			releaseBody();
+		}
+
+		return body;
+	}
+
+	private void releaseBody() {
+		if (isBodyReleased.compareAndSet(false, true) && (bodyReleaseCallback != null)) {
+			bodyReleaseCallback.run();
+		}
+	}
+
+	/** Open body content, that starts by the bytes which were read by getByteBuffer of maximum length. */
+	private InputStream openContent() throws IOException {
+		if (bodyPrefix == null) {
+			return closeableHttpResponse.getEntity().getContent();
+		}
+
+		InputStream content = new SequenceInputStream(new ByteArrayInputStream(bodyPrefix), bodyContent);
+		bodyPrefix = null;
+		bodyContent = null;
+		return content;
+	}
+
+	private static byte[] readFully(InputStream input, long contentLength) throws IOException {
+		if ((contentLength >= 0) && (contentLength < Integer.MAX_VALUE)) {
+			byte[] bytes = readUpTo(input, (int) contentLength);
+
+			if (bytes.length < contentLength) {
+				throw new IOException("Response body ended after [" + bytes.length
+						+ "] bytes but Content-Length is [" + contentLength + "]");
+			}
+
+			return bytes;
+		}
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream(READ_BUFFER_SIZE);
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		int length;
+
+		while ((length = input.read(buffer)) != -1) {
+			output.write(buffer, 0, length);
+		}
+
+		return output.toByteArray();
+	}
+
+	/**
+	 * Read until end of stream or until limit bytes were read, to buffer that grows as bytes arrive, so wrong
+	 * Content-Length does not allocate its size before the body is received.
+	 */
+	private static byte[] readUpTo(InputStream input, int limit) throws IOException {
+		byte[] bytes = new byte[Math.min(limit, MAX_INITIAL_BODY_BUFFER_SIZE)];
+		int offset = 0;
+
+		while (offset < limit) {
+			if (offset == bytes.length) {
+				bytes = Arrays.copyOf(bytes, (int) Math.min(limit, 2L * bytes.length));
+			}
+
+			int length = input.read(bytes, offset, bytes.length - offset);
+
+			if (length == -1) {
+				return Arrays.copyOf(bytes, offset);
+			}
+
+			offset += length;
+		}
+
+		return bytes;
+	}
+
+	private static void closeQuietly(InputStream input) {
+		try {
+			if (input != null) {
+				input.close();
+			}
+		} catch (IOException e) {
+			// Body was already read or failed, and the permit is released by the caller.
+		}
+	}
+
+	private static Charset getCharset(HttpEntity entity) {
+		if ((entity == null) || (entity.getContentType() == null)) {
+			return DEFAULT_CHARSET;
+		}
+
+		try {
+			ContentType contentType = ContentType.parse(entity.getContentType());
+
+			if ((contentType != null) && (contentType.getCharset() != null)) {
+				return contentType.getCharset();
+			}
+		} catch (RuntimeException e) {
+		}
+
+		return DEFAULT_CHARSET;
+	}
+
+	/***********************************************
+	 * Body stream that releases the body when it reaches end of stream or is
+	 * closed.
+	 *
+	 */
+	private class BodyReleaseInputStream extends FilterInputStream {
+		private BodyReleaseInputStream(InputStream input) {
+			super(input);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int value = super.read();
+
+			if (value == -1) {
+				releaseBody();
+			}
+
+			return value;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int readLength = super.read(buffer, offset, length);
+
+			if (readLength == -1) {
+				releaseBody();
+			}
+
+			return readLength;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				releaseBody();
+			}
+		}
+	}
+}
@@ -0,0 +1,392 @@
+package io.github.etuzon.http.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.hc.core5.http.nio.CapacityChannel;
+
+import io.github.etuzon.http.buffer.ByteChunkPool;
+
+/************************************************************
+ * Deliver response body chunks to ResponseChunkSubscriber by its demand.
+ * 
+ * In case subscriber has demand, received bytes are delivered directly from
+ * the I/O reactor buffer without copy. In case there is no demand, received
+ * bytes are copied to pooled chunks until they are requested, and capacity is
+ * not granted to the I/O reactor, so reading from the connection is stopped.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ResponseChunkPublisher {
+	public static final int DEFAULT_WINDOW_BYTES = 4 * ByteChunkPool.DEFAULT_CHUNK_SIZE;
+
+	private final ResponseChunkSubscriber subscriber;
+	private final Runnable cancelCallback;
+	private final ByteChunkPool chunkPool;
+	private final int windowBytes;
+	private final Deque<ByteBuffer> pendingChunkQueue = new ArrayDeque<ByteBuffer>();
+
+	private CapacityChannel capacityChannel = null;
+	private long grantedCapacity = 0;
+	private long demand = 0;
+	private boolean isDelivering = false;
+	private boolean isStreamEnded = false;
+	private boolean isTerminated = false;
+	private Throwable failure = null;
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param subscriber     Subscriber.
+	 * @param cancelCallback Called once in case subscriber cancelled the
+	 *                       subscription.
+	 */
+	public ResponseChunkPublisher(ResponseChunkSubscriber subscriber, Runnable cancelCallback) {
+		this(subscriber, cancelCallback, ByteChunkPool.getDefault(), DEFAULT_WINDOW_BYTES);
+	}
+
+	/************************************************************
+	 * Constructor.
+	 * 
+	 * @param subscriber     Subscriber.
+	 * @param cancelCallback Called once in case subscriber cancelled the
+	 *                       subscription.
+	 * @param chunkPool      Pool of chunks for bytes that were not requested yet.
+	 * @param windowBytes    Maximum amount of bytes that the I/O reactor can read
+	 *                       before they are delivered.
+	 */
+	public ResponseChunkPublisher(ResponseChunkSubscriber subscriber, Runnable cancelCallback,
+			ByteChunkPool chunkPool, int windowBytes) {
+		this.subscriber = subscriber;
+		this.cancelCallback = cancelCallback;
+		this.chunkPool = chunkPool;
+		this.windowBytes = windowBytes;
+	}
+
+	/************************************************************
+	 * Call subscriber onSubscribe.
+	 * 
+	 * Should be called once before the request is sent.
+	 *
+	 */
+	public void subscribe() {
+		subscriber.onSubscribe(new Subscription());
+	}
+
+	/************************************************************
+	 * Set capacity channel of the response and grant it capacity in case
+	 * subscriber has demand.
+	 * 
+	 * @param capacityChannel Capacity channel of the response.
+	 * @throws IOException in case failed to update capacity.
+	 */
+	public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+		int capacity;
+
+		synchronized (this) {
+			this.capacityChannel = capacityChannel;
+			grantedCapacity = 0;
+			capacity = takeCapacityToGrant();
+		}
+
+		grantCapacity(capacityChannel, capacity);
+	}
+
+	/************************************************************
+	 * Deliver received response body bytes.
+	 * 
+	 * @param data Received response body bytes.
+	 * @throws IOException in case failed to update capacity.
+	 */
+	public void publish(ByteBuffer data) throws IOException {
+		publish(data, data.remaining());
+	}
+
+	/************************************************************
+	 * Deliver response body bytes that were decoded from other amount of
+	 * received bytes, such as decompressed bytes.
+	 * 
+	 * @param data           Response body bytes.
+	 * @param receivedLength Amount of received bytes that data was decoded
+	 *                       from, that is taken from the granted capacity.
+	 * @throws IOException in case failed to update capacity.
+	 */
+	public void publish(ByteBuffer data, int receivedLength) throws IOException {
+		synchronized (this) {
+			grantedCapacity -= receivedLength;
+
+			if (isTerminated) {
+				return;
+			}
+
+			if (isDelivering || (demand == 0) || (pendingChunkQueue.isEmpty() == false)) {
+				addPendingChunks(data);
+				return;
+			}
+
+			demand--;
+			isDelivering = true;
+		}
+
+		if (deliverChunk(data.asReadOnlyBuffer())) {
+			drain();
+		}
+	}
+
+	/************************************************************
+	 * Release capacity of received bytes that are not part of response body.
+	 * 
+	 * @param length Amount of received bytes.
+	 * @throws IOException in case failed to update capacity.
+	 */
+	public void skip(int length) throws IOException {
+		CapacityChannel channel;
+		int capacity;
+
+		synchronized (this) {
+			grantedCapacity -= length;
+			channel = capacityChannel;
+			capacity = takeCapacityToGrant();
+		}
+
+		grantCapacity(channel, capacity);
+	}
+
+	/************************************************************
+	 * Call subscriber onComplete after all pending chunks were delivered.
+	 *
+	 */
+	public void complete() {
+		synchronized (this) {
+			if (isStreamEnded) {
+				return;
+			}
+
+			isStreamEnded = true;
+
+			if (isDelivering) {
+				return;
+			}
+
+			isDelivering = true;
+		}
+
+		drainQuietly();
+	}
+
+	/************************************************************
+	 * Drop pending chunks and call subscriber onError.
+	 * 
+	 * @param throwable Failure cause.
+	 */
+	public void fail(Throwable throwable) {
+		synchronized (this) {
+			if (isStreamEnded) {
+				return;
+			}
+
+			isStreamEnded = true;
+			failure = throwable;
+			releasePendingChunks();
+
+			if (isDelivering) {
+				return;
+			}
+
+			isDelivering = true;
+		}
+
+		drainQuietly();
+	}
+
+	/**
+	 * Deliver pending chunks and end of stream. Caller should set isDelivering
+	 * before the call, so only one thread delivers at a time.
+	 */
+	private void drain() throws IOException {
+		while (true) {
+			ByteBuffer chunk = null;
+			boolean isEndOfStream = false;
+			CapacityChannel channel = null;
+			int capacity = 0;
+
+			synchronized (this) {
+				if (isTerminated) {
+					isDelivering = false;
+					return;
+				}
+
+				if ((demand > 0) && (pendingChunkQueue.isEmpty() == false)) {
+					chunk = pendingChunkQueue.pollFirst();
+					demand--;
+				} else if (isStreamEnded && pendingChunkQueue.isEmpty()) {
+					isTerminated = true;
+					isDelivering = false;
+					isEndOfStream = true;
+				} else {
+					isDelivering = false;
+					channel = capacityChannel;
+					capacity = takeCapacityToGrant();
+				}
+			}
+
+			if (chunk != null) {
+				boolean isDelivered = deliverChunk(readView(chunk));
+				chunkPool.release(chunk);
+
+				if (isDelivered == false) {
+					return;
+				}
+			} else if (isEndOfStream) {
+				deliverEndOfStream();
+				return;
+			} else {
+				grantCapacity(channel, capacity);
+				return;
+			}
+		}
+	}
+
+	private void drainQuietly() {
+		try {
+			drain();
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Subscriber that throws exception is cancelled, as Flow API requires.
+	 */
+	private boolean deliverChunk(ByteBuffer chunk) {
+		try {
+			subscriber.onNext(chunk);
+			return true;
+		} catch (RuntimeException e) {
+			terminate(e);
+			return false;
+		}
+	}
+
+	private void deliverEndOfStream() {
+		if (failure != null) {
+			subscriber.onError(failure);
+		} else {
+			subscriber.onComplete();
+		}
+	}
+
+	private void terminate(Throwable throwable) {
+		synchronized (this) {
+			if (isTerminated) {
+				return;
+			}
+
+			isTerminated = true;
+			isDelivering = false;
+			releasePendingChunks();
+		}
+
+		cancelCallback.run();
+
+		if (throwable != null) {
+			subscriber.onError(throwable);
+		}
+	}
+
+	private void request(long amount) {
+		if (amount <= 0) {
+			terminate(new IllegalArgumentException("Requested amount [" + amount + "] should be positive"));
+			return;
+		}
+
+		synchronized (this) {
+			demand = (demand + amount < 0) ? Long.MAX_VALUE : demand + amount;
+
+			if (isDelivering || isTerminated) {
+				return;
+			}
+
+			isDelivering = true;
+		}
+
+		drainQuietly();
+	}
+
+	private void addPendingChunks(ByteBuffer data) {
+		while (data.hasRemaining()) {
+			ByteBuffer tailChunk = pendingChunkQueue.peekLast();
+
+			if ((tailChunk == null) || (tailChunk.hasRemaining() == false)) {
+				tailChunk = chunkPool.acquire();
+				pendingChunkQueue.addLast(tailChunk);
+			}
+
+			int length = Math.min(data.remaining(), tailChunk.remaining());
+			ByteBuffer dataPart = data.duplicate();
+			dataPart.limit(dataPart.position() + length);
+			tailChunk.put(dataPart);
+			data.position(data.position() + length);
+		}
+	}
+
+	private void releasePendingChunks() {
+		ByteBuffer chunk;
+
+		while ((chunk = pendingChunkQueue.pollFirst()) != null) {
+			chunkPool.release(chunk);
+		}
+	}
+
+	/**
+	 * Capacity is granted only while subscriber has demand and there are no
+	 * pending chunks, and only when at least half of the window was used.
+	 */
+	private int takeCapacityToGrant() {
+		if ((capacityChannel == null) || isTerminated || (demand == 0)
+				|| (pendingChunkQueue.isEmpty() == false)) {
+			return 0;
+		}
+
+		long capacity = windowBytes - Math.max(grantedCapacity, 0);
+
+		if (capacity < windowBytes / 2) {
+			return 0;
+		}
+
+		grantedCapacity = Math.max(grantedCapacity, 0) + capacity;
+
+		return (int) capacity;
+	}
+
+	private static ByteBuffer readView(ByteBuffer chunk) {
+		ByteBuffer view = chunk.asReadOnlyBuffer();
+		view.flip();
+
+		return view;
+	}
+
+	private static void grantCapacity(CapacityChannel capacityChannel, int capacity) throws IOException {
+		if ((capacityChannel != null) && (capacity > 0)) {
+			capacityChannel.update(capacity);
+		}
+	}
+
+	/************************************************************
+	 * Subscription that is given to the subscriber.
+	 *
+	 */
+	private class Subscription implements ResponseChunkSubscription {
+		@Override
+		public void request(long amount) {
+			ResponseChunkPublisher.this.request(amount);
+		}
+
+		@Override
+		public void cancel() {
+			terminate(null);
+		}
+	}
+}
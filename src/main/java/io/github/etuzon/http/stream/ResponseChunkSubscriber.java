@@ -0,0 +1,51 @@
+package io.github.etuzon.http.stream;
+
+import java.nio.ByteBuffer;
+
+/************************************************************
+ * Subscriber that receives response body chunks as they arrive.
+ * 
+ * Same contract as java.util.concurrent.Flow.Subscriber of Java 9, so
+ * subscriber can be adapted to Flow API. Chunks are delivered only after they
+ * were requested by ResponseChunkSubscription.request, and reading from the
+ * connection is stopped while there is no demand.
+ * 
+ * Methods are called by one thread at a time, usually by the async HTTP engine
+ * reactor thread, so they should not block.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public interface ResponseChunkSubscriber {
+	/************************************************************
+	 * Called once before any other method.
+	 * 
+	 * @param subscription Subscription to request chunks or cancel the request.
+	 */
+	public void onSubscribe(ResponseChunkSubscription subscription);
+
+	/************************************************************
+	 * Called for each response body chunk.
+	 * 
+	 * Chunk is read only and it is valid only until the method returns, so
+	 * subscriber that needs the bytes later should copy them.
+	 * 
+	 * @param chunk Response body chunk.
+	 */
+	public void onNext(ByteBuffer chunk);
+
+	/************************************************************
+	 * Called once in case the request failed or was cancelled by the client. No
+	 * other method is called afterwards.
+	 * 
+	 * @param throwable Failure cause.
+	 */
+	public void onError(Throwable throwable);
+
+	/************************************************************
+	 * Called once when the whole response body was delivered. No other method
+	 * is called afterwards.
+	 * 
+	 */
+	public void onComplete();
+}
@@ -0,0 +1,25 @@
+package io.github.etuzon.http.stream;
+
+/************************************************************
+ * Subscription of ResponseChunkSubscriber.
+ * 
+ * Same contract as java.util.concurrent.Flow.Subscription of Java 9. Methods
+ * can be called from any thread, including from subscriber methods.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public interface ResponseChunkSubscription {
+	/************************************************************
+	 * Request more response body chunks.
+	 * 
+	 * @param amount Amount of chunks. Should be positive.
+	 */
+	public void request(long amount);
+
+	/************************************************************
+	 * Stop delivering chunks and abort the request.
+	 * 
+	 */
+	public void cancel();
+}
@@ -0,0 +1,38 @@
+package io.github.etuzon.http.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/************************************************************
+ * Create executors for blocking requests.
+ * 
+ * This is Java 21 implementation that runs each task on its own virtual
+ * thread.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+final class ExecutorFactory {
+	private ExecutorFactory() {
+	}
+
+	/************************************************************
+	 * Create executor service for blocking requests.
+	 * 
+	 * @param threadNamePrefix   Threads name prefix.
+	 * @param maxPlatformThreads Not used, virtual threads are not pooled.
+	 * @return executor service.
+	 */
+	static ExecutorService newExecutorService(String threadNamePrefix, int maxPlatformThreads) {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix, 0).factory());
+	}
+
+	/************************************************************
+	 * Return true in case executors run tasks on virtual threads.
+	 * 
+	 * @return true in case executors run tasks on virtual threads.
+	 */
+	static boolean isVirtualThreads() {
+		return true;
+	}
+}
@@ -0,0 +1,68 @@
+package io.github.etuzon.http.tests.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.buffer.ByteSequenceScanner;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that headers separator is found when it is split between chunks.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ByteSequenceScannerTest extends BaseUnitTest {
+	public static final String SEPARATOR = "\r\n\r\n";
+	public static final String BODY = "body";
+
+	@DataProvider(name = "receivedData")
+	public Object[][] getReceivedData() {
+		return new Object[][] { { "HTTP/1.1 200 OK\r\nHost: test" + SEPARATOR + BODY },
+				{ "a\r\n\ra\r\n\r\r" + SEPARATOR + BODY }, { SEPARATOR + BODY } };
+	}
+
+	@Test(dataProvider = "receivedData")
+	public void scan_separator_split_between_chunks_test(String receivedData) {
+		byte[] bytes = receivedData.getBytes(StandardCharsets.US_ASCII);
+		int expectedBodyStartIndex = bytes.length - BODY.length();
+
+		for (int chunkSize = 1; chunkSize <= bytes.length; chunkSize++) {
+			int bodyStartIndex = scanInChunks(bytes, chunkSize);
+
+			SoftAssertUnitTest.assertTrueNow(bodyStartIndex == expectedBodyStartIndex,
+					"Body start index is [" + bodyStartIndex + "] and should be [" + expectedBodyStartIndex
+							+ "] for chunk size [" + chunkSize + "]",
+					"Verify that body start index is [" + expectedBodyStartIndex + "] for chunk size [" + chunkSize
+							+ "]");
+		}
+	}
+
+	@Test
+	public void scan_data_without_separator_test() {
+		ByteSequenceScanner scanner = new ByteSequenceScanner(SEPARATOR.getBytes(StandardCharsets.US_ASCII));
+		int bodyStartIndex = scanner.scan(ByteBuffer.wrap("\r\n\r\r\n".getBytes(StandardCharsets.US_ASCII)));
+
+		SoftAssertUnitTest.assertTrueNow((bodyStartIndex == -1) && (scanner.isFound() == false),
+				"Separator was found in data without separator", "Verify that separator was not found");
+	}
+
+	private static int scanInChunks(byte[] bytes, int chunkSize) {
+		ByteSequenceScanner scanner = new ByteSequenceScanner(SEPARATOR.getBytes(StandardCharsets.US_ASCII));
+
+		for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+			ByteBuffer chunk = ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+			int index = scanner.scan(chunk);
+
+			if (index != -1) {
+				return index;
+			}
+		}
+
+		return -1;
+	}
+}
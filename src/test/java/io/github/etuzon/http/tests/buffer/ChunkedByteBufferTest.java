@@ -0,0 +1,144 @@
+package io.github.etuzon.http.tests.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.buffer.ByteChunkPool;
+import io.github.etuzon.http.buffer.ChunkedByteBuffer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that chunked byte buffer keeps bytes that are written across chunk
+ * boundaries, decodes characters that are split between chunks, and that
+ * chunks of views that were taken are not reused by another buffer.
+ *
+ * @author Eyal Tuzon
+ *
+ */
+public class ChunkedByteBufferTest extends BaseUnitTest {
+	public static final int MAX_CHUNK_SIZE = 9;
+	public static final int MAX_FREE_CHUNKS = 16;
+	public static final String ASCII_TEXT = "chunked byte buffer";
+
+	@DataProvider(name = "texts")
+	public Object[][] getTexts() {
+		return new Object[][] { { ASCII_TEXT, StandardCharsets.UTF_8 },
+				{ "h\u00e9llo \u20ac and \ud834\udd1e \u05e9\u05dc\u05d5\u05dd", StandardCharsets.UTF_8 },
+				{ "\u00e9\u20ac\ud834\udd1e", StandardCharsets.UTF_16LE } };
+	}
+
+	@Test(dataProvider = "texts")
+	public void append_across_chunk_boundaries_test(String text, Charset charset) {
+		byte[] bytes = text.getBytes(charset);
+
+		for (int chunkSize = 1; chunkSize <= MAX_CHUNK_SIZE; chunkSize++) {
+			ChunkedByteBuffer buffer = new ChunkedByteBuffer(new ByteChunkPool(chunkSize, MAX_FREE_CHUNKS));
+			writeInParts(buffer, bytes, chunkSize + 1);
+
+			SoftAssertUnitTest.assertTrueNow(buffer.size() == bytes.length,
+					"Buffer size is [" + buffer.size() + "] for chunk size [" + chunkSize + "]",
+					"Verify that buffer size is [" + bytes.length + "] for chunk size [" + chunkSize + "]");
+			SoftAssertUnitTest.assertTrueNow(Arrays.equals(buffer.toByteArray(), bytes),
+					"Buffer bytes are different from written bytes for chunk size [" + chunkSize + "]",
+					"Verify that buffer bytes are the written bytes for chunk size [" + chunkSize + "]");
+			SoftAssertUnitTest.assertTrueNow(Arrays.equals(concat(buffer.getChunks()), bytes),
+					"Chunk views are different from written bytes for chunk size [" + chunkSize + "]",
+					"Verify that chunk views are the written bytes for chunk size [" + chunkSize + "]");
+		}
+	}
+
+	@Test(dataProvider = "texts")
+	public void decode_across_chunk_boundaries_test(String text, Charset charset) {
+		byte[] bytes = text.getBytes(charset);
+
+		for (int chunkSize = 1; chunkSize <= MAX_CHUNK_SIZE; chunkSize++) {
+			ChunkedByteBuffer buffer = new ChunkedByteBuffer(new ByteChunkPool(chunkSize, MAX_FREE_CHUNKS));
+			writeInParts(buffer, bytes, 1);
+			String decoded = buffer.decode(charset);
+
+			SoftAssertUnitTest.assertTrueNow(text.equals(decoded),
+					"Decoded text is [" + decoded + "] for chunk size [" + chunkSize + "]",
+					"Verify that decoded text is [" + text + "] for chunk size [" + chunkSize + "]");
+		}
+	}
+
+	@Test
+	public void discard_across_chunk_boundaries_test() {
+		byte[] bytes = ASCII_TEXT.getBytes(StandardCharsets.US_ASCII);
+		int chunkSize = 4;
+		int discardAmount = chunkSize + 2;
+		ByteChunkPool chunkPool = new ByteChunkPool(chunkSize, MAX_FREE_CHUNKS);
+		ChunkedByteBuffer buffer = new ChunkedByteBuffer(chunkPool);
+		writeInParts(buffer, bytes, bytes.length);
+
+		long discarded = buffer.discard(discardAmount);
+		String decoded = buffer.decode(StandardCharsets.US_ASCII);
+		String expected = ASCII_TEXT.substring(discardAmount);
+
+		SoftAssertUnitTest.assertTrueNow(discarded == discardAmount,
+				"[" + discarded + "] bytes were discarded", "Verify that [" + discardAmount + "] bytes were discarded");
+		SoftAssertUnitTest.assertTrueNow(expected.equals(decoded), "Decoded text after discard is [" + decoded + "]",
+				"Verify that decoded text after discard is [" + expected + "]");
+		SoftAssertUnitTest.assertTrueNow(chunkPool.getFreeChunksAmount() == 1,
+				"Pool has [" + chunkPool.getFreeChunksAmount() + "] free chunks after discard",
+				"Verify that discarded chunk was returned to the pool");
+	}
+
+	@Test
+	public void views_are_not_reused_after_clear_test() {
+		int chunkSize = 4;
+		ByteChunkPool chunkPool = new ByteChunkPool(chunkSize, MAX_FREE_CHUNKS);
+		ChunkedByteBuffer firstBuffer = new ChunkedByteBuffer(chunkPool);
+		writeInParts(firstBuffer, "aaaaaaaa".getBytes(StandardCharsets.US_ASCII), chunkSize);
+
+		List<ByteBuffer> viewList = firstBuffer.getChunks();
+		firstBuffer.write(ByteBuffer.wrap("aaaa".getBytes(StandardCharsets.US_ASCII)));
+		firstBuffer.clear();
+
+		SoftAssertUnitTest.assertTrueNow(chunkPool.getFreeChunksAmount() == 1,
+				"Pool has [" + chunkPool.getFreeChunksAmount() + "] free chunks after clear",
+				"Verify that only chunk that its view was not taken was returned to the pool");
+
+		ChunkedByteBuffer secondBuffer = new ChunkedByteBuffer(chunkPool);
+		writeInParts(secondBuffer, "bbbbbbbbbbbb".getBytes(StandardCharsets.US_ASCII), chunkSize);
+		String viewText = new String(concat(viewList), StandardCharsets.US_ASCII);
+
+		SoftAssertUnitTest.assertTrueNow("aaaaaaaa".equals(viewText),
+				"Views of cleared buffer are [" + viewText + "] after another buffer was written",
+				"Verify that views of cleared buffer were not overwritten by another buffer");
+	}
+
+	/** Write bytes in parts of the given size. */
+	private static void writeInParts(ChunkedByteBuffer buffer, byte[] bytes, int partSize) {
+		for (int offset = 0; offset < bytes.length; offset += partSize) {
+			ByteBuffer part = ByteBuffer.wrap(bytes, offset, Math.min(partSize, bytes.length - offset));
+			buffer.write(part);
+		}
+	}
+
+	private static byte[] concat(List<ByteBuffer> viewList) {
+		int size = 0;
+
+		for (ByteBuffer view : viewList) {
+			size += view.remaining();
+		}
+
+		byte[] bytes = new byte[size];
+		int offset = 0;
+
+		for (ByteBuffer view : viewList) {
+			int length = view.remaining();
+			view.duplicate().get(bytes, offset, length);
+			offset += length;
+		}
+
+		return bytes;
+	}
+}
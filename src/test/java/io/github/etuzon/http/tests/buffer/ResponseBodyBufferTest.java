@@ -0,0 +1,202 @@
+package io.github.etuzon.http.tests.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.buffer.ByteChunkPool;
+import io.github.etuzon.http.buffer.ResponseBodyBuffer;
+import io.github.etuzon.http.config.ResponseBufferConfig;
+import io.github.etuzon.http.enums.BufferOverflowPolicyEnum;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that response body buffer grants capacity to the I/O reactor only up
+ * to its high watermark, resumes granting when it is drained below its low
+ * watermark, that failure to resume reading is passed to the failure listener,
+ * and that each buffer overflow policy behaves as documented.
+ *
+ * @author Eyal Tuzon
+ *
+ */
+public class ResponseBodyBufferTest extends BaseUnitTest {
+	public static final int HIGH_WATERMARK_BYTES = 100;
+	public static final int LOW_WATERMARK_BYTES = 20;
+	public static final int CHUNK_SIZE = 16;
+	public static final int MAX_FREE_CHUNKS = 16;
+	public static final int WRITE_SIZE = 30;
+
+	@Test
+	public void block_stops_granting_at_high_watermark_test() throws IOException {
+		RecordingCapacityChannel channel = new RecordingCapacityChannel();
+		ResponseBodyBuffer buffer = createBuffer(BufferOverflowPolicyEnum.BLOCK);
+		buffer.updateCapacity(channel);
+
+		SoftAssertUnitTest.assertTrueNow(channel.grantedCapacity == HIGH_WATERMARK_BYTES,
+				"Granted capacity of empty buffer is [" + channel.grantedCapacity + "]",
+				"Verify that granted capacity of empty buffer is [" + HIGH_WATERMARK_BYTES + "]");
+
+		while (channel.getRemainingCapacity() > 0) {
+			buffer.write(createData('a', Math.min(WRITE_SIZE, channel.getRemainingCapacity())));
+			channel.usedCapacity = buffer.size();
+		}
+
+		SoftAssertUnitTest.assertTrueNow(buffer.isPaused() && (buffer.size() == HIGH_WATERMARK_BYTES),
+				"Buffer of [" + buffer.size() + "] bytes is paused [" + buffer.isPaused() + "]",
+				"Verify that buffer is paused when it reaches high watermark");
+		SoftAssertUnitTest.assertTrueNow(channel.grantedCapacity == HIGH_WATERMARK_BYTES,
+				"Granted capacity of full buffer is [" + channel.grantedCapacity + "]",
+				"Verify that capacity was not granted beyond high watermark");
+
+		buffer.updateCapacity(channel);
+
+		SoftAssertUnitTest.assertTrueNow(channel.grantedCapacity == HIGH_WATERMARK_BYTES,
+				"Capacity request of paused buffer granted [" + (channel.grantedCapacity - HIGH_WATERMARK_BYTES)
+						+ "] bytes",
+				"Verify that paused buffer does not grant capacity");
+	}
+
+	@Test
+	public void block_resumes_below_low_watermark_test() throws IOException {
+		RecordingCapacityChannel channel = new RecordingCapacityChannel();
+		ResponseBodyBuffer buffer = createBuffer(BufferOverflowPolicyEnum.BLOCK);
+		buffer.updateCapacity(channel);
+		buffer.write(createData('a', HIGH_WATERMARK_BYTES));
+
+		SoftAssertUnitTest.assertTrueNow(buffer.isPaused(), "Full buffer is not paused",
+				"Verify that full buffer is paused");
+
+		String decoded = buffer.decodeAndClear(StandardCharsets.US_ASCII);
+
+		SoftAssertUnitTest.assertTrueNow(decoded.length() == HIGH_WATERMARK_BYTES,
+				"Decoded [" + decoded.length() + "] characters",
+				"Verify that [" + HIGH_WATERMARK_BYTES + "] characters were decoded");
+		SoftAssertUnitTest.assertTrueNow((buffer.isPaused() == false) && (buffer.size() <= LOW_WATERMARK_BYTES),
+				"Drained buffer of [" + buffer.size() + "] bytes is paused [" + buffer.isPaused() + "]",
+				"Verify that buffer is resumed when it is drained below low watermark");
+		SoftAssertUnitTest.assertTrueNow(channel.grantedCapacity == 2 * HIGH_WATERMARK_BYTES,
+				"Total granted capacity after resume is [" + channel.grantedCapacity + "]",
+				"Verify that capacity up to high watermark was granted again after resume");
+	}
+
+	@Test
+	public void resume_failure_test() throws IOException {
+		RecordingCapacityChannel channel = new RecordingCapacityChannel();
+		ResponseBodyBuffer buffer = createBuffer(BufferOverflowPolicyEnum.BLOCK);
+		List<IOException> failureList = new ArrayList<IOException>();
+		buffer.setFailureListener(failureList::add);
+		buffer.updateCapacity(channel);
+		buffer.write(createData('a', HIGH_WATERMARK_BYTES));
+
+		channel.isFailing = true;
+		String decoded = buffer.decodeAndClear(StandardCharsets.US_ASCII);
+
+		SoftAssertUnitTest.assertTrueNow(decoded.length() == HIGH_WATERMARK_BYTES,
+				"Decoded [" + decoded.length() + "] characters when resume failed",
+				"Verify that [" + HIGH_WATERMARK_BYTES + "] characters were decoded when resume failed");
+		SoftAssertUnitTest.assertTrueNow(failureList.size() == 1,
+				"Failure listener got [" + failureList.size() + "] failures",
+				"Verify that failure to resume reading was passed to the failure listener");
+	}
+
+	@Test
+	public void drop_oldest_test() throws IOException {
+		RecordingCapacityChannel channel = new RecordingCapacityChannel();
+		ResponseBodyBuffer buffer = createBuffer(BufferOverflowPolicyEnum.DROP_OLDEST);
+		buffer.updateCapacity(channel);
+
+		buffer.write(createData('a', HIGH_WATERMARK_BYTES - WRITE_SIZE + 1));
+		buffer.write(createData('b', WRITE_SIZE));
+
+		byte[] expected = new byte[HIGH_WATERMARK_BYTES];
+		Arrays.fill(expected, 0, HIGH_WATERMARK_BYTES - WRITE_SIZE, (byte) 'a');
+		Arrays.fill(expected, HIGH_WATERMARK_BYTES - WRITE_SIZE, HIGH_WATERMARK_BYTES, (byte) 'b');
+
+		SoftAssertUnitTest.assertTrueNow((buffer.getDroppedBytes() == 1) && (buffer.isPaused() == false),
+				"Buffer dropped [" + buffer.getDroppedBytes() + "] bytes and is paused [" + buffer.isPaused() + "]",
+				"Verify that buffer dropped [1] byte and kept reading");
+		SoftAssertUnitTest.assertTrueNow(Arrays.equals(buffer.toByteArray(), expected),
+				"Buffer does not contain the newest [" + HIGH_WATERMARK_BYTES + "] bytes",
+				"Verify that buffer contains the newest [" + HIGH_WATERMARK_BYTES + "] bytes");
+
+		buffer.write(createData('c', HIGH_WATERMARK_BYTES + WRITE_SIZE));
+		Arrays.fill(expected, (byte) 'c');
+
+		SoftAssertUnitTest.assertTrueNow(buffer.getDroppedBytes() == 1 + HIGH_WATERMARK_BYTES + WRITE_SIZE,
+				"Buffer dropped [" + buffer.getDroppedBytes() + "] bytes",
+				"Verify that buffer dropped its bytes and the oldest received bytes");
+		SoftAssertUnitTest.assertTrueNow(Arrays.equals(buffer.toByteArray(), expected),
+				"Buffer does not contain the newest received bytes",
+				"Verify that buffer contains the newest received bytes");
+		SoftAssertUnitTest.assertTrueNow(channel.grantedCapacity > HIGH_WATERMARK_BYTES,
+				"Granted capacity is [" + channel.grantedCapacity + "]",
+				"Verify that capacity is not limited by high watermark");
+	}
+
+	@Test
+	public void fail_test() throws IOException {
+		RecordingCapacityChannel channel = new RecordingCapacityChannel();
+		ResponseBodyBuffer buffer = createBuffer(BufferOverflowPolicyEnum.FAIL);
+		buffer.updateCapacity(channel);
+		buffer.write(createData('a', HIGH_WATERMARK_BYTES - 1));
+
+		boolean isFailed = false;
+
+		try {
+			buffer.write(createData('b', 2));
+		} catch (IOException e) {
+			isFailed = true;
+		}
+
+		SoftAssertUnitTest.assertTrueNow(isFailed, "Write beyond high watermark did not fail",
+				"Verify that write beyond high watermark failed");
+		SoftAssertUnitTest.assertTrueNow(
+				(buffer.size() == HIGH_WATERMARK_BYTES - 1) && (buffer.getDroppedBytes() == 0),
+				"Buffer has [" + buffer.size() + "] bytes and dropped [" + buffer.getDroppedBytes() + "] bytes",
+				"Verify that failed write did not change the buffer");
+	}
+
+	private static ResponseBodyBuffer createBuffer(BufferOverflowPolicyEnum overflowPolicy) {
+		ResponseBufferConfig config = new ResponseBufferConfig().setHighWatermarkBytes(HIGH_WATERMARK_BYTES)
+				.setLowWatermarkBytes(LOW_WATERMARK_BYTES).setOverflowPolicy(overflowPolicy);
+
+		return new ResponseBodyBuffer(config, new ByteChunkPool(CHUNK_SIZE, MAX_FREE_CHUNKS));
+	}
+
+	private static ByteBuffer createData(char value, int size) {
+		byte[] bytes = new byte[size];
+		Arrays.fill(bytes, (byte) value);
+		return ByteBuffer.wrap(bytes);
+	}
+
+	/************************************************
+	 * Capacity channel that records the capacity that was granted to it, or
+	 * fails to update capacity.
+	 *
+	 */
+	private static class RecordingCapacityChannel implements CapacityChannel {
+		private long grantedCapacity = 0;
+		private long usedCapacity = 0;
+		private boolean isFailing = false;
+
+		@Override
+		public void update(int increment) throws IOException {
+			if (isFailing) {
+				throw new IOException("Capacity update failed");
+			}
+
+			grantedCapacity += increment;
+		}
+
+		private int getRemainingCapacity() {
+			return (int) (grantedCapacity - usedCapacity);
+		}
+	}
+}
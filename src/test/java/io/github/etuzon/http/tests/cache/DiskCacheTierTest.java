@@ -0,0 +1,153 @@
+package io.github.etuzon.http.tests.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.cache.CacheEntry;
+import io.github.etuzon.http.cache.DiskCacheTier;
+import io.github.etuzon.http.metrics.CacheMetrics;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that DiskCacheTier returns memory mapped bodies, keeps its responses
+ * after it is opened again, deletes least recently used body files by its
+ * maximum bytes and ignores index that cannot be read.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class DiskCacheTierTest extends BaseUnitTest {
+	public static final int BODY_SIZE = 64 * 1024;
+	public static final long NOW_MS = 1_700_000_000_000L;
+
+	private Path directory = null;
+
+	@BeforeMethod
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("disk-cache");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void deleteDirectory() throws IOException {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				Files.delete(file);
+			}
+		}
+
+		Files.delete(directory);
+	}
+
+	@Test
+	public void restart_test() throws Exception {
+		byte[] body = LoopbackServer.createBinaryBody(BODY_SIZE, 1);
+
+		try (DiskCacheTier diskTier = new DiskCacheTier(directory, BODY_SIZE * 4, new CacheMetrics())) {
+			CacheEntry entry = diskTier.store("a", createEntry(), new ByteArrayInputStream(body), body.length);
+
+			SoftAssertUnitTest.assertTrueNow(entry.getBody().isDirect(), "Stored body is heap buffer",
+					"Verify that stored body is memory mapped buffer");
+		}
+
+		try (DiskCacheTier diskTier = new DiskCacheTier(directory, BODY_SIZE * 4, new CacheMetrics())) {
+			CacheEntry entry = diskTier.get("a");
+
+			SoftAssertUnitTest.assertTrueNow(entry != null, "Response was not loaded from the index",
+					"Verify that response was loaded from the index");
+			SoftAssertUnitTest.assertTrueNow(entry.getBody().equals(ByteBuffer.wrap(body)),
+					"Loaded body is different from the stored body",
+					"Verify that loaded body is the stored body");
+			SoftAssertUnitTest.assertTrueNow(
+					(entry.getStatusCode() == 200) && "\"v1\"".equals(entry.getETag())
+							&& (entry.getResponseTimeMs() == NOW_MS),
+					"Loaded status is [" + entry.getStatusCode() + "] and ETag is [" + entry.getETag() + "]",
+					"Verify that loaded status, headers and times are the stored ones");
+
+			try (FileChannel channel = diskTier.openBodyChannel("a")) {
+				SoftAssertUnitTest.assertTrueNow(channel.size() == BODY_SIZE,
+						"Body channel size is [" + channel.size() + "]",
+						"Verify that body channel size is [" + BODY_SIZE + "]");
+			}
+		}
+	}
+
+	@Test
+	public void eviction_test() throws Exception {
+		CacheMetrics metrics = new CacheMetrics();
+
+		try (DiskCacheTier diskTier = new DiskCacheTier(directory, BODY_SIZE * 2, metrics)) {
+			store(diskTier, "a", 1);
+			store(diskTier, "b", 2);
+			diskTier.get("a");
+			store(diskTier, "c", 3);
+
+			SoftAssertUnitTest.assertTrueNow(
+					(diskTier.get("a") != null) && (diskTier.get("b") == null) && (diskTier.get("c") != null),
+					"Disk tier has [" + diskTier.getEntriesAmount() + "] entries after eviction",
+					"Verify that least recently used body file was deleted");
+			SoftAssertUnitTest.assertTrueNow(
+					(diskTier.getSizeBytes() == BODY_SIZE * 2) && (countBodyFiles() == 2)
+							&& (metrics.getEvictedAmount() == 1),
+					"Disk tier has [" + diskTier.getSizeBytes() + "] bytes in [" + countBodyFiles() + "] files",
+					"Verify that disk tier has [2] body files after [1] eviction");
+		}
+
+		try (DiskCacheTier diskTier = new DiskCacheTier(directory, BODY_SIZE, metrics)) {
+			SoftAssertUnitTest.assertTrueNow((diskTier.get("a") == null) && (diskTier.get("c") != null),
+					"Disk tier of smaller maximum bytes did not keep the most recently used response",
+					"Verify that disk tier of smaller maximum bytes keeps the most recently used response");
+		}
+	}
+
+	@Test
+	public void invalid_index_test() throws Exception {
+		try (DiskCacheTier diskTier = new DiskCacheTier(directory, BODY_SIZE * 4, new CacheMetrics())) {
+			store(diskTier, "a", 1);
+		}
+
+		Files.write(directory.resolve(DiskCacheTier.INDEX_FILE_NAME), "not an index".getBytes(StandardCharsets.UTF_8));
+
+		try (DiskCacheTier diskTier = new DiskCacheTier(directory, BODY_SIZE * 4, new CacheMetrics())) {
+			SoftAssertUnitTest.assertTrueNow((diskTier.getEntriesAmount() == 0) && (countBodyFiles() == 0),
+					"Disk tier of invalid index has [" + diskTier.getEntriesAmount() + "] entries and ["
+							+ countBodyFiles() + "] body files",
+					"Verify that invalid index is ignored and its body files are deleted");
+		}
+	}
+
+	private static void store(DiskCacheTier diskTier, String key, int seed) throws IOException {
+		byte[] body = LoopbackServer.createBinaryBody(BODY_SIZE, seed);
+		diskTier.store(key, createEntry(), new ByteArrayInputStream(body), body.length);
+	}
+
+	private int countBodyFiles() throws IOException {
+		int amount = 0;
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.body")) {
+			for (Path file : stream) {
+				amount++;
+			}
+		}
+
+		return amount;
+	}
+
+	private static CacheEntry createEntry() {
+		Header[] headers = { new BasicHeader("Cache-Control", "max-age=60"), new BasicHeader("ETag", "\"v1\"") };
+		return new CacheEntry(200, headers, ByteBuffer.allocate(0), StandardCharsets.UTF_8, NOW_MS, NOW_MS);
+	}
+}
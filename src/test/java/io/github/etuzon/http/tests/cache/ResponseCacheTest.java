@@ -0,0 +1,114 @@
+package io.github.etuzon.http.tests.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.cache.CacheEntry;
+import io.github.etuzon.http.cache.CacheControl;
+import io.github.etuzon.http.cache.ResponseCache;
+import io.github.etuzon.http.config.CacheConfig;
+import io.github.etuzon.http.metrics.CacheMetrics;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify freshness and age of cached responses, and least recently used
+ * eviction by the cache maximum bytes.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ResponseCacheTest extends BaseUnitTest {
+	public static final int BODY_SIZE = 1000;
+	public static final long NOW_MS = 1_700_000_000_000L;
+
+	@Test
+	public void max_age_freshness_test() {
+		CacheEntry entry = createEntry(new BasicHeader("Cache-Control", "max-age=60"),
+				new BasicHeader("Date", formatDate(NOW_MS)), new BasicHeader("Age", "20"));
+
+		SoftAssertUnitTest.assertTrueNow(entry.isFresh(NOW_MS + 30_000, CacheControl.NO_MAX_AGE, false),
+				"Response of age [50] seconds and max-age [60] is stale",
+				"Verify that response of age [50] seconds and max-age [60] is fresh");
+		SoftAssertUnitTest.assertTrueNow(entry.isFresh(NOW_MS + 45_000, CacheControl.NO_MAX_AGE, false) == false,
+				"Response of age [65] seconds and max-age [60] is fresh",
+				"Verify that response of age [65] seconds and max-age [60] is stale");
+		SoftAssertUnitTest.assertTrueNow(entry.isFresh(NOW_MS + 30_000, 40, false) == false,
+				"Response of age [50] seconds is fresh for request max-age [40]",
+				"Verify that response of age [50] seconds is stale for request max-age [40]");
+	}
+
+	@Test
+	public void expires_freshness_test() {
+		CacheEntry entry = createEntry(new BasicHeader("Date", formatDate(NOW_MS)),
+				new BasicHeader("Expires", formatDate(NOW_MS + 60_000)));
+		CacheEntry invalidExpiresEntry = createEntry(new BasicHeader("Expires", "0"));
+		CacheEntry lastModifiedEntry = createEntry(new BasicHeader("Date", formatDate(NOW_MS)),
+				new BasicHeader("Last-Modified", formatDate(NOW_MS - 1000_000)));
+
+		SoftAssertUnitTest.assertTrueNow(entry.getFreshnessLifetimeMs(false) == 60_000,
+				"Freshness lifetime is [" + entry.getFreshnessLifetimeMs(false) + "] ms",
+				"Verify that Expires of [60] seconds after Date is freshness lifetime of [60000] ms");
+		SoftAssertUnitTest.assertTrueNow(invalidExpiresEntry.getFreshnessLifetimeMs(false) == 0,
+				"Freshness lifetime of invalid Expires is [" + invalidExpiresEntry.getFreshnessLifetimeMs(false)
+						+ "] ms",
+				"Verify that response with invalid Expires is stale");
+		SoftAssertUnitTest.assertTrueNow(
+				(lastModifiedEntry.getFreshnessLifetimeMs(false) == 0)
+						&& (lastModifiedEntry.getFreshnessLifetimeMs(true) == 100_000),
+				"Freshness lifetime of Last-Modified is [" + lastModifiedEntry.getFreshnessLifetimeMs(true) + "] ms",
+				"Verify that heuristic freshness is [10%] of time since Last-Modified, only when it is enabled");
+	}
+
+	@Test
+	public void revalidate_test() {
+		CacheEntry entry = createEntry(new BasicHeader("Cache-Control", "no-cache"), new BasicHeader("ETag", "\"v1\""));
+		CacheEntry revalidatedEntry = entry.revalidate(
+				new Header[] { new BasicHeader("Cache-Control", "max-age=60"), new BasicHeader("ETag", "\"v1\"") },
+				NOW_MS, NOW_MS);
+
+		SoftAssertUnitTest.assertTrueNow(entry.isFresh(NOW_MS, CacheControl.NO_MAX_AGE, false) == false,
+				"No-cache response is fresh", "Verify that no-cache response is stale");
+		SoftAssertUnitTest.assertTrueNow(revalidatedEntry.isFresh(NOW_MS, CacheControl.NO_MAX_AGE, false),
+				"Revalidated response with max-age [60] is stale",
+				"Verify that 304 headers replace cached Cache-Control header");
+		SoftAssertUnitTest.assertTrueNow(revalidatedEntry.getBody().equals(entry.getBody()),
+				"Revalidated response body was changed", "Verify that revalidated response keeps cached body");
+	}
+
+	@Test
+	public void lru_eviction_test() {
+		long entryBytes = createEntry().getSizeBytes();
+		CacheMetrics metrics = new CacheMetrics();
+		ResponseCache cache = new ResponseCache(new CacheConfig().setMaxBytes(entryBytes * 2), metrics);
+
+		cache.put("a", createEntry());
+		cache.put("b", createEntry());
+		cache.get("a");
+		cache.put("c", createEntry());
+
+		SoftAssertUnitTest.assertTrueNow(
+				(cache.get("a") != null) && (cache.get("b") == null) && (cache.get("c") != null),
+				"Cache has entries a [" + (cache.get("a") != null) + "], b [" + (cache.get("b") != null) + "], c ["
+						+ (cache.get("c") != null) + "]",
+				"Verify that least recently used entry was evicted");
+		SoftAssertUnitTest.assertTrueNow(
+				(cache.getSizeBytes() == entryBytes * 2) && (metrics.getEvictedAmount() == 1),
+				"Cache size is [" + cache.getSizeBytes() + "] bytes and metrics are [" + metrics + "]",
+				"Verify that cache size is [" + (entryBytes * 2) + "] bytes after [1] eviction");
+	}
+
+	private static CacheEntry createEntry(Header... headers) {
+		return new CacheEntry(200, headers, ByteBuffer.allocate(BODY_SIZE), StandardCharsets.UTF_8, NOW_MS, NOW_MS);
+	}
+
+	private static String formatDate(long timeMs) {
+		return DateUtils.formatDate(new Date(timeMs));
+	}
+}
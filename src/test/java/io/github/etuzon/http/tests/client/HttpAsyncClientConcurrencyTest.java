@@ -0,0 +1,151 @@
+package io.github.etuzon.http.tests.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpAsyncClient;
+import io.github.etuzon.http.client.HttpAsyncEngine;
+import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.http.enums.ResponseBodyModeEnum;
+import io.github.etuzon.http.factory.RequestBuilder;
+import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.exceptions.AutomationUnitTestException;
+
+/************************************************
+ * Stress many async clients that share one async HTTP engine, while other
+ * threads read the clients state.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpAsyncClientConcurrencyTest extends HttpClientTestBase implements TestParameters {
+	public static final int ASYNC_CLIENTS_AMOUNT = 2000;
+	public static final int STARTER_THREADS_AMOUNT = 16;
+	public static final int READER_THREADS_AMOUNT = 4;
+	public static final long TIMEOUT_UNTIL_ALL_RESPONSES_COMPLETED_SECONDS = 60;
+
+	private LoopbackServer echoServer = null;
+	private HttpAsyncEngine asyncEngine = null;
+
+	@BeforeClass
+	public void startEchoServer() throws AutomationUnitTestException {
+		echoServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.PATH)
+				.setThreadsAmount(STARTER_THREADS_AMOUNT).setBacklog(ASYNC_CLIENTS_AMOUNT).start();
+
+		try {
+			asyncEngine = new HttpAsyncEngine();
+		} catch (Exception e) {
+			throw new AutomationUnitTestException(e);
+		}
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopEchoServer() {
+		if (asyncEngine != null) {
+			asyncEngine.close();
+		}
+
+		if (echoServer != null) {
+			echoServer.close();
+		}
+	}
+
+	@Test
+	public void concurrent_async_clients_stress_test() throws Exception {
+		final List<HttpAsyncClient> asyncClientList = createAsyncClients();
+		final CountDownLatch completedLatch = new CountDownLatch(ASYNC_CLIENTS_AMOUNT);
+		final AtomicBoolean isReading = new AtomicBoolean(true);
+
+		for (HttpAsyncClient asyncClient : asyncClientList) {
+			asyncClient.getCompletableFuture().whenComplete((httpObject, e) -> completedLatch.countDown());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(STARTER_THREADS_AMOUNT + READER_THREADS_AMOUNT);
+
+		try {
+			for (int readerIndex = 0; readerIndex < READER_THREADS_AMOUNT; readerIndex++) {
+				executor.execute(() -> {
+					while (isReading.get()) {
+						for (HttpAsyncClient asyncClient : asyncClientList) {
+							asyncClient.getStatusCode();
+							asyncClient.isRunning();
+							asyncClient.getResponseBufferLength();
+							asyncClient.getCharsPerSecond_segment_1_second();
+						}
+					}
+				});
+			}
+
+			for (int starterIndex = 0; starterIndex < STARTER_THREADS_AMOUNT; starterIndex++) {
+				final int firstIndex = starterIndex;
+
+				executor.execute(() -> {
+					for (int index = firstIndex; index < ASYNC_CLIENTS_AMOUNT; index += STARTER_THREADS_AMOUNT) {
+						asyncClientList.get(index).start();
+					}
+				});
+			}
+
+			boolean isCompleted = completedLatch.await(TIMEOUT_UNTIL_ALL_RESPONSES_COMPLETED_SECONDS,
+					TimeUnit.SECONDS);
+
+			SoftAssertUnitTest.assertTrueNow(isCompleted,
+					"Only [" + (ASYNC_CLIENTS_AMOUNT - completedLatch.getCount()) + "] of [" + ASYNC_CLIENTS_AMOUNT
+							+ "] async requests were completed",
+					"Verify that all [" + ASYNC_CLIENTS_AMOUNT + "] async requests were completed");
+		} finally {
+			isReading.set(false);
+			executor.shutdownNow();
+		}
+
+		verifyAsyncClients(asyncClientList);
+	}
+
+	private List<HttpAsyncClient> createAsyncClients() throws AutomationUnitTestException {
+		List<HttpAsyncClient> asyncClientList = new ArrayList<HttpAsyncClient>();
+		int port = echoServer.getPort();
+
+		try {
+			for (int index = 0; index < ASYNC_CLIENTS_AMOUNT; index++) {
+				RequestBuilder builder = new RequestBuilder(LoopbackServer.URL, port, RequestTypeEnum.GET)
+						.setSuffixUrl("stream" + index);
+				asyncClientList.add(new HttpAsyncClient(builder, asyncEngine, ResponseBodyModeEnum.RAW,
+						HttpAsyncClient.IS_DEBUG));
+			}
+		} catch (Exception e) {
+			throw new AutomationUnitTestException(e);
+		}
+
+		return asyncClientList;
+	}
+
+	private void verifyAsyncClients(List<HttpAsyncClient> asyncClientList) {
+		int mismatchAmount = 0;
+
+		for (int index = 0; index < asyncClientList.size(); index++) {
+			HttpAsyncClient asyncClient = asyncClientList.get(index);
+			String expectedBody = "/stream" + index;
+
+			if ((asyncClient.getStatusCode() != STATUS_CODE_200) || asyncClient.isRunning()
+					|| asyncClient.isException()
+					|| (expectedBody.equals(asyncClient.getResponseBuffer()) == false)) {
+				mismatchAmount++;
+			}
+		}
+
+		SoftAssertUnitTest.assertTrueNow(mismatchAmount == 0,
+				"[" + mismatchAmount + "] async clients did not get their own completed response",
+				"Verify that all [" + ASYNC_CLIENTS_AMOUNT + "] async clients got their own completed response");
+	}
+}
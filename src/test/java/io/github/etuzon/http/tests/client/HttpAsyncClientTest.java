@@ -6,14 +6,20 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.apache.hc.core5.http.Header;
 import org.testng.annotations.Test;
 
 import io.github.etuzon.http.client.HttpAsyncClient;
 import io.github.etuzon.http.client.HttpClient;
 import io.github.etuzon.http.exceptions.HttpException;
 import io.github.etuzon.http.exceptions.InvalidHttpRequestException;
+import io.github.etuzon.http.objects.HttpObject;
 import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
 import io.github.etuzon.projects.core.base.ThreadBase;
 import io.github.etuzon.projects.core.enums.ThreadStateEnum;
 import io.github.etuzon.projects.core.utils.DateUtil;
@@ -29,6 +35,8 @@ public class HttpAsyncClientTest extends HttpClientTestBase implements TestParam
 
 	public static final long SLEEP_IN_WAIT_LOOP_MS = 300;
 
+	public static final long TIMEOUT_UNTIL_ASYNC_RESPONSE_COMPLETED = 10 * ThreadUtil.SECOND_1;
+
 	private static final String HTTP_SERVER_HEADER = "HTTP/1.1 200 OK\r\n" + "Content-Type: text/html\r\n"
 			+ "Connection: keep-alive\r\n" + "\r\n";
 
@@ -39,6 +47,8 @@ public class HttpAsyncClientTest extends HttpClientTestBase implements TestParam
 
 	private static final String POST_ENTITY = "Entity";
 
+	private static final String CACHE_CONTROL = "max-age=60";
+
 	private TcpServerTester tcpServerTester = null;
 
 	@Test
@@ -56,6 +66,51 @@ public class HttpAsyncClientTest extends HttpClientTestBase implements TestParam
 		verifyAsyncGetResponse(asyncHttpClient);
 	}
 	
+	@Test
+	public void send_aSync_GET_completable_future_request_test() throws AutomationUnitTestException {
+		HttpClient httpClient = initHttpClient(HTTP_ADDRESS, HttpClient.HTTP_PORT);
+
+		HttpObject httpObject = null;
+
+		try {
+			httpObject = httpClient.sendGetAsync("get").get(TIMEOUT_UNTIL_ASYNC_RESPONSE_COMPLETED,
+					TimeUnit.MILLISECONDS);
+		} catch (HttpException | InvalidHttpRequestException | InterruptedException | ExecutionException
+				| TimeoutException e) {
+			throw new AutomationUnitTestException(e);
+		} finally {
+			httpClient.close();
+		}
+
+		SoftAssertUnitTest.assertTrueNow(httpObject.getResponse().getStatusCode() == STATUS_CODE_200,
+				"HTTP response status code is [" + httpObject.getResponse().getStatusCode()
+						+ "] and it should be [" + STATUS_CODE_200 + "]",
+				"Verify that HTTP response status code is [" + STATUS_CODE_200 + "]");
+		SoftAssertUnitTest.assertTrueNow(httpObject.getResponse().getResponseBody().isEmpty() == false,
+				"HTTP response body is empty", "Verify that HTTP response body is not empty");
+	}
+
+	@Test
+	public void send_aSync_GET_completable_future_headers_test() throws Exception {
+		try (LoopbackServer server = new LoopbackServer().setCacheControl(CACHE_CONTROL).start()) {
+			HttpClient httpClient = initHttpClient(LoopbackServer.URL, server.getPort());
+			HttpObject httpObject = null;
+
+			try {
+				httpObject = httpClient.sendGetAsync("headers").get(TIMEOUT_UNTIL_ASYNC_RESPONSE_COMPLETED,
+						TimeUnit.MILLISECONDS);
+			} finally {
+				httpClient.close();
+			}
+
+			Header header = httpObject.getResponse().getFirstHeader("cache-control");
+
+			SoftAssertUnitTest.assertTrueNow((header != null) && CACHE_CONTROL.equals(header.getValue()),
+					"Cache-Control header of async response is [" + header + "]",
+					"Verify that async response has Cache-Control header [" + CACHE_CONTROL + "]");
+		}
+	}
+
 	@Test
 	public void send_aSync_POST_request_test() throws AutomationUnitTestException {
 		HttpAsyncClient httpAsync = null;
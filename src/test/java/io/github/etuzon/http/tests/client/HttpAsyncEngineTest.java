@@ -0,0 +1,111 @@
+package io.github.etuzon.http.tests.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpAsyncEngine;
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.exceptions.AutomationUnitTestException;
+
+/************************************************
+ * Verify that async HTTP engine can be shared between clients, that closing a
+ * client does not close engine that was set to it, and that process wide
+ * engine is not closed by close.
+ *
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpAsyncEngineTest extends HttpClientTestBase implements TestParameters {
+	public static final long TIMEOUT_SECONDS = 10;
+
+	private LoopbackServer echoServer = null;
+
+	@BeforeClass
+	public void startEchoServer() throws AutomationUnitTestException {
+		echoServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.PATH).start();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopEchoServer() {
+		if (echoServer != null) {
+			echoServer.close();
+		}
+	}
+
+	@Test
+	public void shared_engine_test() throws Exception {
+		HttpAsyncEngine asyncEngine = new HttpAsyncEngine();
+
+		try {
+			HttpClient firstClient = initHttpClient(LoopbackServer.URL, echoServer.getPort());
+			HttpClient secondClient = initHttpClient(LoopbackServer.URL, echoServer.getPort());
+			firstClient.setHttpAsyncEngine(asyncEngine);
+			secondClient.setHttpAsyncEngine(asyncEngine);
+
+			verifyResponse(firstClient, "first");
+			firstClient.close();
+
+			SoftAssertUnitTest.assertTrueNow(asyncEngine.isRunning(), "Shared engine was closed by client close",
+					"Verify that shared engine was not closed by client close");
+
+			verifyResponse(secondClient, "second");
+			secondClient.close();
+		} finally {
+			asyncEngine.close();
+		}
+
+		SoftAssertUnitTest.assertTrueNow(asyncEngine.isRunning() == false, "Engine is running after close",
+				"Verify that engine is not running after close");
+	}
+
+	@Test
+	public void own_engine_test() throws Exception {
+		HttpClient httpClient = initHttpClient(LoopbackServer.URL, echoServer.getPort());
+		HttpAsyncEngine asyncEngine = httpClient.getHttpAsyncEngine();
+
+		verifyResponse(httpClient, "own");
+		httpClient.close();
+
+		SoftAssertUnitTest.assertTrueNow(asyncEngine.isRunning() == false,
+				"Engine that was created by the client is running after client close",
+				"Verify that engine that was created by the client is closed by client close");
+	}
+
+	@Test
+	public void default_engine_close_test() throws Exception {
+		HttpAsyncEngine defaultEngine = HttpAsyncEngine.getDefault();
+		defaultEngine.close();
+
+		SoftAssertUnitTest.assertTrueNow(
+				defaultEngine.isDefault() && (HttpAsyncEngine.getDefault() == defaultEngine)
+						&& defaultEngine.isRunning(),
+				"Process wide engine was closed or replaced by close",
+				"Verify that process wide engine is not closed by close");
+
+		HttpClient httpClient = initHttpClient(LoopbackServer.URL, echoServer.getPort());
+
+		try {
+			httpClient.setHttpAsyncEngine(defaultEngine);
+			verifyResponse(httpClient, "default");
+		} finally {
+			httpClient.close();
+		}
+
+		SoftAssertUnitTest.assertTrueNow(defaultEngine.isRunning(), "Process wide engine was closed by client close",
+				"Verify that process wide engine is not closed by client close");
+	}
+
+	private void verifyResponse(HttpClient httpClient, String suffixUrl) throws Exception {
+		String responseBody = httpClient.sendGetAsync(suffixUrl).get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getResponse()
+				.getResponseBody();
+
+		SoftAssertUnitTest.assertTrueNow(("/" + suffixUrl).equals(responseBody),
+				"Response body is [" + responseBody + "]", "Verify that response body is [/" + suffixUrl + "]");
+	}
+}
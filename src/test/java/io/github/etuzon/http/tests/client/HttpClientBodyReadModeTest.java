@@ -0,0 +1,246 @@
+package io.github.etuzon.http.tests.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.config.ConnectionPoolConfig;
+import io.github.etuzon.http.enums.BodyReadModeEnum;
+import io.github.etuzon.http.exceptions.HttpException;
+import io.github.etuzon.http.objects.ConnectionPoolStats;
+import io.github.etuzon.http.objects.HttpResponse;
+import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.exceptions.AutomationUnitTestException;
+
+/************************************************
+ * Verify that response body of blocking requests is read before the request
+ * method returns by default, and that in BodyReadModeEnum.LAZY mode the
+ * connection and its permit are released after the body is read by stream or
+ * channel, discarded or the response is closed.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpClientBodyReadModeTest extends HttpClientTestBase implements TestParameters {
+	public static final int MAX_TOTAL = 2;
+	public static final int REQUESTS_AMOUNT = 3 * MAX_TOTAL;
+	public static final long TIMEOUT_SECONDS = 10;
+	public static final int READ_BUFFER_SIZE = 16;
+
+	private LoopbackServer echoServer = null;
+	private ExecutorService executor = null;
+
+	@BeforeClass
+	public void startEchoServer() throws AutomationUnitTestException {
+		echoServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.PATH).start();
+		executor = Executors.newSingleThreadExecutor();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopEchoServer() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+
+		if (echoServer != null) {
+			echoServer.close();
+		}
+	}
+
+	@Test
+	public void eager_body_read_test() throws Exception {
+		try (HttpClient httpClient = createHttpClient()) {
+			SoftAssertUnitTest.assertTrueNow(httpClient.getBodyReadMode() == BodyReadModeEnum.EAGER,
+					"Default body read mode is [" + httpClient.getBodyReadMode() + "]",
+					"Verify that default body read mode is [" + BodyReadModeEnum.EAGER + "]");
+
+			for (int index = 0; index < REQUESTS_AMOUNT; index++) {
+				HttpResponse response = httpClient.sendGet("eager" + index).getResponse();
+
+				SoftAssertUnitTest.assertTrueNow(response.getStatusCode() == STATUS_CODE_200,
+						"Response status code is [" + response.getStatusCode() + "]",
+						"Verify that response status code is [" + STATUS_CODE_200 + "]");
+				verifyReleased(httpClient, "eager response that its body was not accessed");
+			}
+
+			HttpResponse response = httpClient.sendGet("eager").getResponse();
+
+			SoftAssertUnitTest.assertTrueNow("/eager".equals(readFully(response.getInputStream())),
+					"Stream of eager response body did not return the body",
+					"Verify that stream of eager response body returns the body");
+			SoftAssertUnitTest.assertTrueNow("/eager".equals(readFully(response.getInputStream())),
+					"Second stream of eager response body did not return the body",
+					"Verify that stream of eager response body can be taken again");
+		}
+	}
+
+	@Test
+	public void lazy_input_stream_test() throws Exception {
+		try (HttpClient httpClient = createLazyHttpClient()) {
+			HttpResponse response = httpClient.sendGet("stream").getResponse();
+			verifyLeased(httpClient, "lazy response before its body was read");
+
+			String responseBody = readFully(response.getInputStream());
+			ConnectionPoolStats stats = httpClient.getConnectionPoolStats();
+
+			SoftAssertUnitTest.assertTrueNow("/stream".equals(responseBody),
+					"Response body is [" + responseBody + "]", "Verify that response body is [/stream]");
+			SoftAssertUnitTest.assertTrueNow((stats.getLeased() == 0) && (stats.getAvailable() == 1),
+					"Pool stats after body stream was read are " + stats,
+					"Verify that connection was returned to the pool after body stream was read");
+			SoftAssertUnitTest.assertTrueNow(isStreamRejected(response),
+					"Body stream was taken twice", "Verify that body stream can be taken only once");
+			verifyPermitsReleased(httpClient);
+		}
+	}
+
+	@Test
+	public void lazy_channel_test() throws Exception {
+		try (HttpClient httpClient = createLazyHttpClient()) {
+			HttpResponse response = httpClient.sendGet("channel").getResponse();
+			verifyLeased(httpClient, "lazy response before its body was read");
+
+			String responseBody = readFully(response.getChannel());
+
+			SoftAssertUnitTest.assertTrueNow("/channel".equals(responseBody),
+					"Response body is [" + responseBody + "]", "Verify that response body is [/channel]");
+			verifyReleased(httpClient, "lazy response that its body channel was read");
+			verifyPermitsReleased(httpClient);
+		}
+	}
+
+	@Test
+	public void lazy_discard_body_test() throws Exception {
+		try (HttpClient httpClient = createLazyHttpClient()) {
+			HttpResponse response = httpClient.sendGet("discard").getResponse();
+			verifyLeased(httpClient, "lazy response before its body was discarded");
+
+			response.discardBody();
+
+			verifyReleased(httpClient, "lazy response that its body was discarded");
+			SoftAssertUnitTest.assertTrueNow(isStreamRejected(response),
+					"Body stream was taken after body was discarded",
+					"Verify that body stream cannot be taken after body was discarded");
+			verifyPermitsReleased(httpClient);
+		}
+	}
+
+	@Test
+	public void lazy_close_test() throws Exception {
+		try (HttpClient httpClient = createLazyHttpClient()) {
+			HttpResponse response = httpClient.sendGet("close").getResponse();
+			InputStream input = response.getInputStream();
+			verifyLeased(httpClient, "lazy response which its body stream was not read");
+
+			response.close();
+			input.close();
+
+			verifyReleased(httpClient, "lazy response that was closed");
+			verifyPermitsReleased(httpClient);
+		}
+	}
+
+	private HttpClient createHttpClient() throws Exception {
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig().setMaxTotal(MAX_TOTAL)
+				.setMaxPerRoute(MAX_TOTAL);
+
+		return new HttpClient(LoopbackServer.URL, echoServer.getPort(), poolConfig);
+	}
+
+	private HttpClient createLazyHttpClient() throws Exception {
+		HttpClient httpClient = createHttpClient();
+		httpClient.setBodyReadMode(BodyReadModeEnum.LAZY);
+		return httpClient;
+	}
+
+	/** Send more requests than the pool maximum, which blocks in case connection or permit was not released. */
+	private void verifyPermitsReleased(HttpClient httpClient) throws Exception {
+		Future<List<String>> future = executor.submit(() -> {
+			List<String> responseBodyList = new ArrayList<String>();
+
+			for (int index = 0; index < REQUESTS_AMOUNT; index++) {
+				responseBodyList.add(httpClient.sendGet("permit").getResponse().getResponseBody());
+			}
+
+			return responseBodyList;
+		});
+
+		List<String> responseBodyList = future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+		SoftAssertUnitTest.assertTrueNow(responseBodyList.size() == REQUESTS_AMOUNT,
+				"Only [" + responseBodyList.size() + "] requests were sent after body was released",
+				"Verify that [" + REQUESTS_AMOUNT + "] requests were sent after body was released");
+		verifyReleased(httpClient, "responses that their body was read");
+	}
+
+	private static void verifyLeased(HttpClient httpClient, String description) {
+		ConnectionPoolStats stats = httpClient.getConnectionPoolStats();
+
+		SoftAssertUnitTest.assertTrueNow(stats.getLeased() == 1, "Pool stats of " + description + " are " + stats,
+				"Verify that [1] connection is leased by " + description);
+	}
+
+	private static void verifyReleased(HttpClient httpClient, String description) {
+		ConnectionPoolStats stats = httpClient.getConnectionPoolStats();
+
+		SoftAssertUnitTest.assertTrueNow(stats.getLeased() == 0, "Pool stats of " + description + " are " + stats,
+				"Verify that connection of " + description + " was returned to the pool");
+	}
+
+	private static boolean isStreamRejected(HttpResponse response) {
+		try {
+			response.getInputStream();
+			return false;
+		} catch (HttpException e) {
+			return true;
+		}
+	}
+
+	private static String readFully(InputStream input) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		int length;
+
+		try {
+			while ((length = input.read(buffer)) != -1) {
+				output.write(buffer, 0, length);
+			}
+		} finally {
+			input.close();
+		}
+
+		return new String(output.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static String readFully(ReadableByteChannel channel) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+		try {
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				output.write(buffer.array(), 0, buffer.limit());
+				buffer.clear();
+			}
+		} finally {
+			channel.close();
+		}
+
+		return new String(output.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
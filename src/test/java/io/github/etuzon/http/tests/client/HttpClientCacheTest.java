@@ -0,0 +1,269 @@
+package io.github.etuzon.http.tests.client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.hc.core5.http.Header;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.config.CacheConfig;
+import io.github.etuzon.http.enums.BodyReadModeEnum;
+import io.github.etuzon.http.enums.HeaderEnum;
+import io.github.etuzon.http.metrics.CacheMetrics;
+import io.github.etuzon.http.objects.HttpObject;
+import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+
+/************************************************
+ * Verify that synchronized GET responses are answered from the response cache
+ * while they are fresh, that stale responses are revalidated by ETag and
+ * answered from the cache on 304, and that POST removes the cached response.
+ * Verify that cached responses keep the response headers, that large
+ * response is answered from the disk tier, also by new client of the same disk
+ * directory, that failure to write to the disk tier does not fail the
+ * request, and that large chunked response is streamed to the caller without
+ * being stored.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpClientCacheTest extends HttpClientTestBase implements TestParameters {
+	public static final String FRESH_SUFFIX_URL = "fresh";
+	public static final String REVALIDATED_SUFFIX_URL = "revalidated";
+	public static final String INVALIDATED_SUFFIX_URL = "invalidated";
+	public static final String LARGE_SUFFIX_URL = "large";
+	public static final int LARGE_RESPONSE_SIZE = 200 * 1024;
+	public static final long MAX_MEMORY_ENTRY_BYTES = 16 * 1024;
+	public static final String MAX_AGE_CACHE_CONTROL = "max-age=60";
+	public static final int CHUNK_SIZE = 4 * 1024;
+
+	private LoopbackServer server = null;
+
+	@BeforeClass
+	public void startServer() throws Exception {
+		server = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.PATH).start();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopServer() throws Exception {
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	@Test
+	public void fresh_response_test() throws Exception {
+		server.setCacheControl(MAX_AGE_CACHE_CONTROL).setETag(null);
+
+		try (HttpClient httpClient = initCacheClient()) {
+			long requestsAmount = server.getRequestsAmount();
+			String body = verifyResponse("First", httpClient.sendGet(FRESH_SUFFIX_URL), null);
+			HttpObject cachedObject = httpClient.sendGet(FRESH_SUFFIX_URL);
+			verifyResponse("Cached", cachedObject, body);
+			verifyHeader("Cached", cachedObject, HeaderEnum.CACHE_CONTROL, MAX_AGE_CACHE_CONTROL);
+
+			CacheMetrics metrics = httpClient.getCacheMetrics();
+
+			SoftAssertUnitTest.assertTrueNow(server.getRequestsAmount() - requestsAmount == 1,
+					"Server received [" + (server.getRequestsAmount() - requestsAmount) + "] requests",
+					"Verify that fresh cached response was returned without request to the server");
+			SoftAssertUnitTest.assertTrueNow((metrics.getHitsAmount() == 1) && (metrics.getMissesAmount() == 1),
+					"Cache metrics are [" + metrics + "]", "Verify that cache metrics count [1] hit and [1] miss");
+		}
+	}
+
+	@Test
+	public void revalidation_test() throws Exception {
+		server.setCacheControl("no-cache").setETag("\"v1\"");
+
+		try (HttpClient httpClient = initCacheClient()) {
+			long notModifiedAmount = server.getNotModifiedAmount();
+			String body = verifyResponse("First", httpClient.sendGet(REVALIDATED_SUFFIX_URL), null);
+			HttpObject revalidatedObject = httpClient.sendGet(REVALIDATED_SUFFIX_URL);
+			verifyResponse("Revalidated", revalidatedObject, body);
+			verifyHeader("Revalidated", revalidatedObject, HeaderEnum.ETAG, "\"v1\"");
+			verifyHeader("Revalidated", revalidatedObject, HeaderEnum.CACHE_CONTROL, "no-cache");
+			verifyResponse("Revalidated again", httpClient.sendGet(REVALIDATED_SUFFIX_URL), body);
+
+			server.setETag("\"v2\"");
+			verifyResponse("Modified", httpClient.sendGet(REVALIDATED_SUFFIX_URL), body);
+
+			CacheMetrics metrics = httpClient.getCacheMetrics();
+
+			SoftAssertUnitTest.assertTrueNow(server.getNotModifiedAmount() - notModifiedAmount == 2,
+					"Server answered [" + (server.getNotModifiedAmount() - notModifiedAmount) + "] requests by 304",
+					"Verify that server answered [2] conditional requests by 304");
+			SoftAssertUnitTest.assertTrueNow(
+					(metrics.getRevalidationsAmount() == 3) && (metrics.getNotModifiedAmount() == 2)
+							&& (metrics.getMissesAmount() == 2) && (metrics.getHitsAmount() == 0),
+					"Cache metrics are [" + metrics + "]",
+					"Verify that cache metrics count [3] revalidations, [2] not modified and [2] misses");
+		}
+	}
+
+	@Test
+	public void invalidation_test() throws Exception {
+		server.setCacheControl(MAX_AGE_CACHE_CONTROL).setETag(null);
+
+		try (HttpClient httpClient = initCacheClient()) {
+			httpClient.sendGet(INVALIDATED_SUFFIX_URL).getResponse().getResponseBody();
+			httpClient.sendPost(INVALIDATED_SUFFIX_URL).getResponse().getResponseBody();
+			httpClient.sendGet(INVALIDATED_SUFFIX_URL).getResponse().getResponseBody();
+
+			CacheMetrics metrics = httpClient.getCacheMetrics();
+
+			SoftAssertUnitTest.assertTrueNow((metrics.getHitsAmount() == 0) && (metrics.getMissesAmount() == 2),
+					"Cache metrics are [" + metrics + "]",
+					"Verify that GET after POST to the same URI was not answered from the cache");
+		}
+	}
+
+	@Test
+	public void disk_tier_test() throws Exception {
+		Path directory = Files.createTempDirectory("http-cache");
+
+		try (LoopbackServer largeServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.FIXED_SIZE)
+				.setResponseSize(LARGE_RESPONSE_SIZE).setCacheControl(MAX_AGE_CACHE_CONTROL).start()) {
+			CacheConfig cacheConfig = new CacheConfig().setMaxEntryBytes(MAX_MEMORY_ENTRY_BYTES)
+					.setDiskDirectory(directory);
+			String body;
+
+			try (HttpClient httpClient = initHttpClient(LoopbackServer.URL, largeServer.getPort())) {
+				httpClient.setCacheConfig(cacheConfig);
+				body = verifyResponse("First large", httpClient.sendGet(LARGE_SUFFIX_URL), null);
+				HttpObject cachedObject = httpClient.sendGet(LARGE_SUFFIX_URL);
+				verifyResponse("Cached large", cachedObject, body);
+				verifyHeader("Cached large", cachedObject, HeaderEnum.CACHE_CONTROL, MAX_AGE_CACHE_CONTROL);
+
+				SoftAssertUnitTest.assertTrueNow(cachedObject.getResponse().getByteBuffer().isDirect(),
+						"Cached large response body is heap buffer",
+						"Verify that cached large response body is memory mapped buffer");
+				SoftAssertUnitTest.assertTrueNow(
+						(httpClient.getResponseCache().getEntriesAmount() == 0)
+								&& (httpClient.getResponseCache().getDiskCacheTier().getEntriesAmount() == 1),
+						"Large response was not cached in the disk tier only",
+						"Verify that large response was cached in the disk tier");
+			}
+
+			try (HttpClient httpClient = initHttpClient(LoopbackServer.URL, largeServer.getPort())) {
+				httpClient.setCacheConfig(cacheConfig);
+				HttpObject restartedObject = httpClient.sendGet(LARGE_SUFFIX_URL);
+				verifyResponse("Restarted large", restartedObject, body);
+				verifyHeader("Restarted large", restartedObject, HeaderEnum.CACHE_CONTROL, MAX_AGE_CACHE_CONTROL);
+			}
+
+			SoftAssertUnitTest.assertTrueNow(largeServer.getRequestsAmount() == 1,
+					"Server received [" + largeServer.getRequestsAmount() + "] requests",
+					"Verify that large response was sent once, also to the client that was restarted");
+			SoftAssertUnitTest.assertTrueNow(body.length() == LARGE_RESPONSE_SIZE,
+					"Large response body has [" + body.length() + "] chars",
+					"Verify that large response body has [" + LARGE_RESPONSE_SIZE + "] chars");
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	public void disk_write_failure_test() throws Exception {
+		Path directory = Files.createTempDirectory("http-cache");
+
+		try (LoopbackServer largeServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.FIXED_SIZE)
+				.setResponseSize(LARGE_RESPONSE_SIZE).setCacheControl(MAX_AGE_CACHE_CONTROL).start();
+				HttpClient httpClient = initHttpClient(LoopbackServer.URL, largeServer.getPort())) {
+			httpClient.setCacheConfig(new CacheConfig().setMaxEntryBytes(MAX_MEMORY_ENTRY_BYTES)
+					.setDiskDirectory(directory));
+			deleteDirectory(directory);
+
+			HttpObject httpObject = httpClient.sendGet(LARGE_SUFFIX_URL);
+			String body = verifyResponse("Not stored large", httpObject, null);
+			verifyHeader("Not stored large", httpObject, HeaderEnum.CACHE_CONTROL, MAX_AGE_CACHE_CONTROL);
+
+			SoftAssertUnitTest.assertTrueNow(body.length() == LARGE_RESPONSE_SIZE,
+					"Large response body has [" + body.length() + "] chars",
+					"Verify that large response body was returned when disk write failed");
+			SoftAssertUnitTest.assertTrueNow(largeServer.getRequestsAmount() == 2,
+					"Server received [" + largeServer.getRequestsAmount() + "] requests",
+					"Verify that request was sent again without the cache when disk write failed");
+			SoftAssertUnitTest.assertTrueNow(httpClient.getResponseCache().getDiskCacheTier().getEntriesAmount() == 0,
+					"Large response was stored in the disk tier of deleted directory",
+					"Verify that large response was not stored in the disk tier");
+		} finally {
+			if (Files.exists(directory)) {
+				deleteDirectory(directory);
+			}
+		}
+	}
+
+	@Test
+	public void chunked_large_response_test() throws Exception {
+		try (LoopbackServer largeServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.FIXED_SIZE)
+				.setResponseSize(LARGE_RESPONSE_SIZE).setChunked(CHUNK_SIZE, LoopbackServer.UNLIMITED_RATE)
+				.setCacheControl(MAX_AGE_CACHE_CONTROL).start();
+				HttpClient httpClient = initHttpClient(LoopbackServer.URL, largeServer.getPort())) {
+			httpClient.setCacheConfig(new CacheConfig().setMaxEntryBytes(MAX_MEMORY_ENTRY_BYTES));
+			httpClient.setBodyReadMode(BodyReadModeEnum.LAZY);
+			String expectedBody = new String(LoopbackServer.createFixedSizeBody(LARGE_RESPONSE_SIZE),
+					StandardCharsets.UTF_8);
+
+			verifyResponse("First chunked large", httpClient.sendGet(LARGE_SUFFIX_URL), expectedBody);
+			verifyResponse("Second chunked large", httpClient.sendGet(LARGE_SUFFIX_URL), expectedBody);
+
+			SoftAssertUnitTest.assertTrueNow(httpClient.getResponseCache().getEntriesAmount() == 0,
+					"Chunked large response was stored in the memory cache",
+					"Verify that chunked large response was not stored in the memory cache");
+			SoftAssertUnitTest.assertTrueNow(largeServer.getRequestsAmount() == 2,
+					"Server received [" + largeServer.getRequestsAmount() + "] requests",
+					"Verify that request was sent again as chunked large response was not stored");
+		}
+	}
+
+	private HttpClient initCacheClient() throws Exception {
+		HttpClient httpClient = initHttpClient(LoopbackServer.URL, server.getPort());
+		httpClient.setCacheConfig(new CacheConfig());
+		return httpClient;
+	}
+
+	private static void deleteDirectory(Path directory) throws IOException {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				Files.delete(file);
+			}
+		}
+
+		Files.delete(directory);
+	}
+
+	/** Verify response status, and that its body is the expected body in case it is not null. */
+	private String verifyResponse(String name, HttpObject httpObject, String expectedBody) {
+		String body = httpObject.getResponse().getResponseBody();
+
+		SoftAssertUnitTest.assertTrueNow(httpObject.getResponse().getStatusCode() == STATUS_CODE_200,
+				name + " response status is [" + httpObject.getResponse().getStatusCode() + "]",
+				"Verify that " + name + " response status is [" + STATUS_CODE_200 + "]");
+
+		if (expectedBody != null) {
+			SoftAssertUnitTest.assertTrueNow(body.equals(expectedBody),
+					name + " response body is [" + body + "]",
+					"Verify that " + name + " response body is [" + expectedBody + "]");
+		}
+
+		return body;
+	}
+
+	private static void verifyHeader(String name, HttpObject httpObject, HeaderEnum headerEnum,
+			String expectedValue) {
+		Header header = httpObject.getResponse().getFirstHeader(headerEnum.getName());
+		String value = (header == null) ? null : header.getValue();
+
+		SoftAssertUnitTest.assertTrueNow(expectedValue.equals(value),
+				name + " response " + headerEnum.getName() + " header is [" + value + "]",
+				"Verify that " + name + " response " + headerEnum.getName() + " header is [" + expectedValue + "]");
+	}
+}
@@ -0,0 +1,206 @@
+package io.github.etuzon.http.tests.client;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpAsyncClient;
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.config.CompressionConfig;
+import io.github.etuzon.http.enums.HeaderEnum;
+import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.http.factory.RequestBuilder;
+import io.github.etuzon.http.metrics.CompressionMetrics;
+import io.github.etuzon.http.objects.HttpObject;
+import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+
+/************************************************
+ * Verify that gzip and deflate responses are decompressed, and that request
+ * entities are compressed by the compression threshold, by synchronized and
+ * a-synchronized requests. Verify that compression metrics count compressed
+ * and decompressed bytes, and that legacy a-synchronized requests, that their
+ * body is not decoded, do not ask for compressed responses.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpClientCompressionTest extends HttpClientTestBase implements TestParameters {
+	public static final int ENTITY_SIZE = 300 * 1024;
+	public static final int SMALL_ENTITY_SIZE = 100;
+	public static final long REQUEST_COMPRESSION_THRESHOLD_BYTES = 1024;
+	public static final String SUFFIX_URL = "compressed";
+	public static final long TIMEOUT_SECONDS = 10;
+
+	private final byte[] entity = LoopbackServer.createFixedSizeBody(ENTITY_SIZE);
+
+	private LoopbackServer echoServer = null;
+
+	@BeforeClass
+	public void startEchoServer() throws Exception {
+		echoServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.REQUEST).setCompression(true).start();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopEchoServer() throws Exception {
+		if (echoServer != null) {
+			echoServer.close();
+		}
+	}
+
+	@Test
+	public void gzip_response_test() throws Exception {
+		try (HttpClient httpClient = initCompressionClient(true)) {
+			verifyResponse("Gzip synchronized", httpClient.send(newPostBuilder(httpClient)));
+			verifyResponse("Gzip a-synchronized", httpClient.sendAsync(newPostBuilder(httpClient)).get());
+			verifyMetrics("Gzip", httpClient.getCompressionMetrics(), 2);
+		}
+	}
+
+	@Test
+	public void deflate_response_test() throws Exception {
+		try (HttpClient httpClient = initCompressionClient(true)) {
+			BasicHeader acceptDeflate = new BasicHeader(HeaderEnum.ACCEPT_ENCODING.getName(), "deflate");
+
+			verifyResponse("Deflate synchronized",
+					httpClient.send(newPostBuilder(httpClient).addHeader(acceptDeflate)));
+			verifyResponse("Deflate a-synchronized",
+					httpClient.sendAsync(newPostBuilder(httpClient).addHeader(acceptDeflate)).get());
+			verifyMetrics("Deflate", httpClient.getCompressionMetrics(), 2);
+		}
+	}
+
+	@Test
+	public void disabled_decompression_test() throws Exception {
+		try (HttpClient httpClient = initCompressionClient(false)) {
+			long compressedAmount = echoServer.getCompressedAmount();
+
+			verifyResponse("Not compressed synchronized", httpClient.send(newPostBuilder(httpClient)));
+			verifyResponse("Not compressed a-synchronized", httpClient.sendAsync(newPostBuilder(httpClient)).get());
+
+			SoftAssertUnitTest.assertTrueNow(echoServer.getCompressedAmount() - compressedAmount == 1,
+					"Server compressed [" + (echoServer.getCompressedAmount() - compressedAmount) + "] responses",
+					"Verify that only synchronized response was compressed by Apache HTTP client content compression "
+							+ "when decompression is disabled");
+			verifyMetrics("Not compressed", httpClient.getCompressionMetrics(), 0);
+		}
+	}
+
+	@Test
+	public void legacy_async_request_test() throws Exception {
+		try (HttpClient httpClient = initCompressionClient(true)) {
+			long compressedAmount = echoServer.getCompressedAmount();
+			String entityText = "legacy a-synchronized entity";
+
+			HttpAsyncClient getClient = httpClient.sendAsyncGet(SUFFIX_URL);
+			getClient.getCompletableFuture().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			HttpAsyncClient postClient = httpClient.sendAsyncPost(SUFFIX_URL, entityText);
+			postClient.getCompletableFuture().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+			SoftAssertUnitTest.assertTrueNow(echoServer.getCompressedAmount() == compressedAmount,
+					"Server compressed [" + (echoServer.getCompressedAmount() - compressedAmount) + "] responses",
+					"Verify that legacy a-synchronized responses were not compressed");
+			SoftAssertUnitTest.assertTrueNow(entityText.equals(postClient.getResponseBuffer()),
+					"Legacy a-synchronized response body is [" + postClient.getResponseBuffer() + "]",
+					"Verify that legacy a-synchronized response body is [" + entityText + "]");
+			verifyMetrics("Legacy", httpClient.getCompressionMetrics(), 0);
+		}
+	}
+
+	@Test
+	public void request_compression_test() throws Exception {
+		try (HttpClient httpClient = initHttpClient(LoopbackServer.URL, echoServer.getPort())) {
+			httpClient.setCompressionConfig(new CompressionConfig().setRequestCompression(true)
+					.setRequestCompressionThresholdBytes(REQUEST_COMPRESSION_THRESHOLD_BYTES)
+					.setCompressionLevel(Deflater.BEST_SPEED));
+			long gzipRequestsAmount = echoServer.getGzipRequestsAmount();
+
+			verifyResponse("Compressed synchronized", httpClient.send(newPostBuilder(httpClient)), entity);
+			verifyResponse("Compressed a-synchronized", httpClient.sendAsync(newPostBuilder(httpClient)).get(),
+					entity);
+			verifyResponse("Compressed chunked InputStream", httpClient.sendAsync(newPostBuilder(httpClient)
+					.setEntity(new ByteArrayInputStream(entity), ContentType.TEXT_PLAIN)).get(), entity);
+
+			byte[] smallEntity = Arrays.copyOf(entity, SMALL_ENTITY_SIZE);
+			verifyResponse("Small synchronized", httpClient.send(newPostBuilder(httpClient)
+					.setEntity(smallEntity, ContentType.TEXT_PLAIN)), smallEntity);
+			verifyResponse("Small a-synchronized", httpClient.sendAsync(newPostBuilder(httpClient)
+					.setEntity(smallEntity, ContentType.TEXT_PLAIN)).get(), smallEntity);
+
+			CompressionMetrics metrics = httpClient.getCompressionMetrics();
+
+			SoftAssertUnitTest.assertTrueNow(echoServer.getGzipRequestsAmount() - gzipRequestsAmount == 3,
+					"Server received [" + (echoServer.getGzipRequestsAmount() - gzipRequestsAmount)
+							+ "] gzip requests",
+					"Verify that server received [3] gzip requests");
+			SoftAssertUnitTest.assertTrueNow(
+					(metrics.getCompressedRequestsAmount() == 3) && (metrics.getNotCompressedRequestsAmount() == 2),
+					"Compression metrics are [" + metrics + "]",
+					"Verify that [3] requests were compressed and [2] requests below threshold were not");
+			SoftAssertUnitTest.assertTrueNow(
+					(metrics.getUncompressedRequestBytes() == 3L * ENTITY_SIZE)
+							&& (metrics.getCompressedRequestBytes() < metrics.getUncompressedRequestBytes()),
+					"Compression metrics are [" + metrics + "]",
+					"Verify that metrics count uncompressed and compressed request bytes");
+		}
+	}
+
+	private HttpClient initCompressionClient(boolean isResponseDecompression) throws Exception {
+		HttpClient httpClient = initHttpClient(LoopbackServer.URL, echoServer.getPort());
+		httpClient.setCompressionConfig(new CompressionConfig().setResponseDecompression(isResponseDecompression));
+		return httpClient;
+	}
+
+	private RequestBuilder newPostBuilder(HttpClient httpClient) throws Exception {
+		return httpClient.newRequestBuilder(RequestTypeEnum.POST).setSuffixUrl(SUFFIX_URL)
+				.setReleaseConnection(HttpClient.NOT_RELEASE_CONNECTION)
+				.setEntity(entity, ContentType.TEXT_PLAIN);
+	}
+
+	private void verifyResponse(String name, HttpObject httpObject) {
+		verifyResponse(name, httpObject, entity);
+	}
+
+	private void verifyResponse(String name, HttpObject httpObject, byte[] expectedEntity) {
+		ByteBuffer body = httpObject.getResponse().getByteBuffer();
+		byte[] head = ("POST /" + SUFFIX_URL + "\n").getBytes(StandardCharsets.UTF_8);
+		byte[] expectedBody = Arrays.copyOf(head, head.length + expectedEntity.length);
+		System.arraycopy(expectedEntity, 0, expectedBody, head.length, expectedEntity.length);
+
+		byte[] bodyBytes = new byte[body.remaining()];
+		body.duplicate().get(bodyBytes);
+
+		SoftAssertUnitTest.assertTrueNow(httpObject.getResponse().getStatusCode() == STATUS_CODE_200,
+				name + " response status is [" + httpObject.getResponse().getStatusCode() + "]",
+				"Verify that " + name + " response status is [" + STATUS_CODE_200 + "]");
+		SoftAssertUnitTest.assertTrueNow(Arrays.equals(bodyBytes, expectedBody),
+				name + " response of [" + bodyBytes.length + "] bytes is different from the echo",
+				"Verify that " + name + " response is the echo of [" + expectedEntity.length + "] bytes entity");
+	}
+
+	private void verifyMetrics(String name, CompressionMetrics metrics, int expectedResponsesAmount) {
+		SoftAssertUnitTest.assertTrueNow(metrics.getDecompressedResponsesAmount() == expectedResponsesAmount,
+				name + " metrics count [" + metrics.getDecompressedResponsesAmount() + "] decompressed responses",
+				"Verify that " + name + " metrics count [" + expectedResponsesAmount + "] decompressed responses");
+
+		if (expectedResponsesAmount > 0) {
+			SoftAssertUnitTest.assertTrueNow(
+					metrics.getCompressedResponseBytes() < metrics.getDecompressedResponseBytes(),
+					name + " metrics are [" + metrics + "]",
+					"Verify that " + name + " compressed bytes are less than decompressed bytes");
+			SoftAssertUnitTest.assertTrueNow(metrics.getDecompressedResponseBytes() >= 2L * ENTITY_SIZE,
+					name + " metrics count [" + metrics.getDecompressedResponseBytes() + "] decompressed bytes",
+					"Verify that " + name + " metrics count all decompressed bytes");
+		}
+	}
+}
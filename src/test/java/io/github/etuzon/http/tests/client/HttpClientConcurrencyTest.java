@@ -0,0 +1,126 @@
+package io.github.etuzon.http.tests.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.config.ConnectionPoolConfig;
+import io.github.etuzon.http.objects.HttpObject;
+import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.exceptions.AutomationUnitTestException;
+
+/************************************************
+ * Verify that one HttpClient can be shared between many threads without
+ * requests cross-talk.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpClientConcurrencyTest extends HttpClientTestBase implements TestParameters {
+	public static final int THREADS_AMOUNT = 100;
+	public static final int REQUESTS_PER_THREAD = 20;
+
+	private LoopbackServer echoServer = null;
+	private HttpClient httpClient = null;
+
+	@BeforeClass
+	public void startEchoServer() throws AutomationUnitTestException {
+		echoServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.REQUEST).setBacklog(THREADS_AMOUNT)
+				.start();
+
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig().setMaxTotal(THREADS_AMOUNT)
+				.setMaxPerRoute(THREADS_AMOUNT);
+
+		try {
+			httpClient = new HttpClient(LoopbackServer.URL, echoServer.getPort(), poolConfig);
+		} catch (Exception e) {
+			throw new AutomationUnitTestException(e);
+		}
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopEchoServer() {
+		if (httpClient != null) {
+			httpClient.close();
+		}
+
+		if (echoServer != null) {
+			echoServer.close();
+		}
+	}
+
+	@Test
+	public void shared_client_concurrent_requests_test() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS_AMOUNT);
+		List<Future<Integer>> futureList = new ArrayList<Future<Integer>>();
+
+		try {
+			for (int threadIndex = 0; threadIndex < THREADS_AMOUNT; threadIndex++) {
+				futureList.add(executor.submit(newSender(threadIndex)));
+			}
+
+			int mismatchAmount = 0;
+
+			for (Future<Integer> future : futureList) {
+				mismatchAmount += future.get().intValue();
+			}
+
+			SoftAssertUnitTest.assertTrueNow(mismatchAmount == 0,
+					"[" + mismatchAmount + "] responses did not match the request that was sent by the same thread",
+					"Verify that [" + (THREADS_AMOUNT * REQUESTS_PER_THREAD)
+							+ "] concurrent requests got their own responses");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Callable<Integer> newSender(final int threadIndex) {
+		return () -> {
+			int mismatchAmount = 0;
+
+			for (int requestIndex = 0; requestIndex < REQUESTS_PER_THREAD; requestIndex++) {
+				String suffixUrl = "thread" + threadIndex + "/request" + requestIndex;
+				String entity = "entity-" + threadIndex + "-" + requestIndex;
+
+				HttpObject httpObject = null;
+				String expectedBody = null;
+
+				switch (requestIndex % 4) {
+				case 0:
+					httpObject = httpClient.sendGet(suffixUrl);
+					expectedBody = "GET /" + suffixUrl + "\n";
+					break;
+				case 1:
+					httpObject = httpClient.sendPost(suffixUrl, null, entity);
+					expectedBody = "POST /" + suffixUrl + "\n" + entity;
+					break;
+				case 2:
+					httpObject = httpClient.sendPut(suffixUrl, entity);
+					expectedBody = "PUT /" + suffixUrl + "\n" + entity;
+					break;
+				default:
+					httpObject = httpClient.sendDelete(suffixUrl, HttpClient.RELEASE_CONNECTION);
+					expectedBody = "DELETE /" + suffixUrl + "\n";
+					break;
+				}
+
+				if ((httpObject.getResponse().getStatusCode() != STATUS_CODE_200)
+						|| (expectedBody.equals(httpObject.getResponse().getResponseBody()) == false)) {
+					mismatchAmount++;
+				}
+			}
+
+			return mismatchAmount;
+		};
+	}
+}
@@ -0,0 +1,139 @@
+package io.github.etuzon.http.tests.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.config.ConnectionPoolConfig;
+import io.github.etuzon.http.objects.ConnectionPoolStats;
+import io.github.etuzon.http.objects.HttpResponse;
+import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+
+/************************************************
+ * Verify that connection pool configuration limits the connections of
+ * HttpClient, and that pool stats follow the connection of a request while it
+ * is leased and after it is returned to the pool.
+ *
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpClientConnectionPoolTest extends HttpClientTestBase implements TestParameters {
+	public static final int MAX_TOTAL = 7;
+	public static final int MAX_PER_ROUTE = 3;
+	public static final int REQUESTS_AMOUNT = MAX_PER_ROUTE + 2;
+	public static final long THINK_TIME_MS = 300;
+	public static final long WAIT_TIMEOUT_MS = 10 * 1000;
+	public static final long SAMPLE_INTERVAL_MS = 2;
+
+	@Test
+	public void pool_limits_test() throws Exception {
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig().setMaxTotal(MAX_TOTAL)
+				.setMaxPerRoute(MAX_PER_ROUTE);
+		ExecutorService executor = Executors.newFixedThreadPool(REQUESTS_AMOUNT);
+
+		try (LoopbackServer server = new LoopbackServer().setThinkTimeMs(THINK_TIME_MS).start();
+				HttpClient httpClient = new HttpClient(LoopbackServer.URL, server.getPort(), poolConfig)) {
+			List<Future<Integer>> futureList = new ArrayList<Future<Integer>>();
+
+			for (int index = 0; index < REQUESTS_AMOUNT; index++) {
+				final String suffixUrl = "pool" + index;
+				futureList.add(executor.submit(() -> readStatusCode(httpClient.sendGet(suffixUrl).getResponse())));
+			}
+
+			int maxLeased = 0;
+
+			while (isDone(futureList) == false) {
+				maxLeased = Math.max(maxLeased, httpClient.getConnectionPoolStats().getLeased());
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(SAMPLE_INTERVAL_MS));
+			}
+
+			for (Future<Integer> future : futureList) {
+				SoftAssertUnitTest.assertTrueNow(future.get().intValue() == STATUS_CODE_200,
+						"Response status code is [" + future.get() + "]",
+						"Verify that response status code is [" + STATUS_CODE_200 + "]");
+			}
+
+			Map<String, ConnectionPoolStats> routeStatsMap = httpClient.getConnectionPoolRouteStats();
+			ConnectionPoolStats routeStats = routeStatsMap.get(LoopbackServer.URL + ":" + server.getPort());
+
+			SoftAssertUnitTest.assertTrueNow(httpClient.getConnectionPoolStats().getMax() == MAX_TOTAL,
+					"Pool maximum is [" + httpClient.getConnectionPoolStats().getMax() + "]",
+					"Verify that pool maximum is [" + MAX_TOTAL + "]");
+			SoftAssertUnitTest.assertTrueNow((routeStats != null) && (routeStats.getMax() == MAX_PER_ROUTE),
+					"Route stats are " + routeStatsMap, "Verify that route maximum is [" + MAX_PER_ROUTE + "]");
+			SoftAssertUnitTest.assertTrueNow(maxLeased == MAX_PER_ROUTE,
+					"Maximum amount of leased connections was [" + maxLeased + "]",
+					"Verify that maximum amount of leased connections was [" + MAX_PER_ROUTE + "]");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void request_stats_test() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try (LoopbackServer server = new LoopbackServer().setThinkTimeMs(THINK_TIME_MS).start();
+				HttpClient httpClient = initHttpClient(LoopbackServer.URL, server.getPort())) {
+			ConnectionPoolStats stats = httpClient.getConnectionPoolStats();
+
+			SoftAssertUnitTest.assertTrueNow((stats.getLeased() == 0) && (stats.getAvailable() == 0),
+					"Pool stats before request are " + stats, "Verify that pool is empty before request");
+
+			Future<Integer> future = executor
+					.submit(() -> httpClient.sendGet("stats").getResponse().getByteBuffer().remaining());
+
+			SoftAssertUnitTest.assertTrueNow(waitForLeased(httpClient, 1),
+					"Pool stats while request is sent are " + httpClient.getConnectionPoolStats(),
+					"Verify that [1] connection is leased while request is sent");
+
+			future.get();
+			stats = httpClient.getConnectionPoolStats();
+
+			SoftAssertUnitTest.assertTrueNow((stats.getLeased() == 0) && (stats.getAvailable() == 1),
+					"Pool stats after response are " + stats,
+					"Verify that connection was returned to the pool after response body was read");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static int readStatusCode(HttpResponse response) {
+		response.getByteBuffer();
+		return response.getStatusCode();
+	}
+
+	private static boolean waitForLeased(HttpClient httpClient, int leased) {
+		long deadlineNanoTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_TIMEOUT_MS);
+
+		while (httpClient.getConnectionPoolStats().getLeased() != leased) {
+			if (System.nanoTime() > deadlineNanoTime) {
+				return false;
+			}
+
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(SAMPLE_INTERVAL_MS));
+		}
+
+		return true;
+	}
+
+	private static boolean isDone(List<? extends Future<?>> futureList) {
+		for (Future<?> future : futureList) {
+			if (future.isDone() == false) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
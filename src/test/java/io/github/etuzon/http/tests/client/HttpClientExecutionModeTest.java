@@ -0,0 +1,219 @@
+package io.github.etuzon.http.tests.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.config.ConnectionPoolConfig;
+import io.github.etuzon.http.enums.BodyReadModeEnum;
+import io.github.etuzon.http.enums.ExecutionModeEnum;
+import io.github.etuzon.http.exceptions.HttpException;
+import io.github.etuzon.http.objects.HttpObject;
+import io.github.etuzon.http.objects.HttpResponse;
+import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.exceptions.AutomationUnitTestException;
+
+/************************************************
+ * Verify that requests of ExecutionModeEnum.THREAD_PER_REQUEST mode run on
+ * the client executor, and that the executor runs tasks on virtual threads in
+ * case they are supported, else on daemon platform threads that are bounded by
+ * maximum amount of connections in the pool. Verify that request of closed
+ * client completes its future exceptionally, and that request waits for a
+ * connection of its route up to the lease timeout once.
+ *
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpClientExecutionModeTest extends HttpClientTestBase implements TestParameters {
+	public static final int MAX_TOTAL = 4;
+	public static final int REQUESTS_AMOUNT = 3 * MAX_TOTAL;
+	public static final long THINK_TIME_MS = 100;
+	public static final long TIMEOUT_SECONDS = 30;
+	public static final long LEASE_TIMEOUT_MS = 500;
+	public static final String THREAD_NAME_PREFIX = HttpClient.class.getSimpleName() + "-";
+
+	private LoopbackServer echoServer = null;
+	private HttpClient httpClient = null;
+
+	@BeforeClass
+	public void startEchoServer() throws AutomationUnitTestException {
+		echoServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.PATH).setThinkTimeMs(THINK_TIME_MS)
+				.start();
+
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig().setMaxTotal(MAX_TOTAL)
+				.setMaxPerRoute(MAX_TOTAL);
+
+		try {
+			httpClient = new HttpClient(LoopbackServer.URL, echoServer.getPort(), poolConfig);
+		} catch (Exception e) {
+			throw new AutomationUnitTestException(e);
+		}
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopEchoServer() {
+		if (httpClient != null) {
+			httpClient.close();
+		}
+
+		if (echoServer != null) {
+			echoServer.close();
+		}
+	}
+
+	@Test
+	public void thread_per_request_test() throws Exception {
+		httpClient.setExecutionMode(ExecutionModeEnum.THREAD_PER_REQUEST);
+		Thread callerThread = Thread.currentThread();
+		Set<Thread> completingThreadSet = ConcurrentHashMap.newKeySet();
+		List<CompletableFuture<HttpObject>> futureList = new ArrayList<CompletableFuture<HttpObject>>();
+
+		for (int index = 0; index < REQUESTS_AMOUNT; index++) {
+			CompletableFuture<HttpObject> future = httpClient.sendGetAsync("thread" + index);
+			future.whenComplete((httpObject, e) -> completingThreadSet.add(Thread.currentThread()));
+			futureList.add(future);
+		}
+
+		int mismatchAmount = 0;
+
+		for (int index = 0; index < REQUESTS_AMOUNT; index++) {
+			HttpObject httpObject = futureList.get(index).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+			if ((httpObject.getResponse().getStatusCode() != STATUS_CODE_200)
+					|| (("/thread" + index).equals(httpObject.getResponse().getResponseBody()) == false)) {
+				mismatchAmount++;
+			}
+		}
+
+		completingThreadSet.remove(callerThread);
+
+		SoftAssertUnitTest.assertTrueNow(mismatchAmount == 0,
+				"[" + mismatchAmount + "] responses of thread per request mode did not match their request",
+				"Verify that [" + REQUESTS_AMOUNT + "] requests of thread per request mode got their responses");
+		SoftAssertUnitTest.assertTrueNow(
+				(completingThreadSet.isEmpty() == false) && areExecutorThreads(completingThreadSet),
+				"Requests of thread per request mode ran on threads " + completingThreadSet,
+				"Verify that requests of thread per request mode ran on the client executor threads");
+	}
+
+	@Test
+	public void executor_service_test() throws Exception {
+		ExecutorService executor = httpClient.getExecutorService();
+		Set<Thread> threadSet = ConcurrentHashMap.newKeySet();
+		CountDownLatch startedLatch = new CountDownLatch(REQUESTS_AMOUNT);
+
+		SoftAssertUnitTest.assertTrueNow(httpClient.getExecutorService() == executor,
+				"Client created another executor service", "Verify that client has one executor service");
+
+		for (int index = 0; index < REQUESTS_AMOUNT; index++) {
+			executor.execute(() -> {
+				threadSet.add(Thread.currentThread());
+				startedLatch.countDown();
+				sleep(THINK_TIME_MS);
+			});
+		}
+
+		SoftAssertUnitTest.assertTrueNow(startedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+				"Only [" + (REQUESTS_AMOUNT - startedLatch.getCount()) + "] tasks were started",
+				"Verify that all [" + REQUESTS_AMOUNT + "] tasks were started");
+		SoftAssertUnitTest.assertTrueNow(areExecutorThreads(threadSet),
+				"Executor ran tasks on threads " + threadSet + " while virtual threads are supported is ["
+						+ HttpClient.isVirtualThreadsSupported() + "]",
+				"Verify that executor runs tasks on virtual threads only in case they are supported");
+
+		if (HttpClient.isVirtualThreadsSupported() == false) {
+			SoftAssertUnitTest.assertTrueNow(threadSet.size() <= MAX_TOTAL,
+					"Executor ran tasks on [" + threadSet.size() + "] platform threads",
+					"Verify that executor runs tasks on up to [" + MAX_TOTAL + "] platform threads");
+		}
+	}
+
+	@Test
+	public void closed_client_test() throws Exception {
+		HttpClient closedClient = new HttpClient(LoopbackServer.URL, echoServer.getPort());
+		closedClient.setExecutionMode(ExecutionModeEnum.THREAD_PER_REQUEST);
+		closedClient.getExecutorService();
+		closedClient.close();
+
+		CompletableFuture<HttpObject> future = closedClient.sendGetAsync("closed");
+
+		SoftAssertUnitTest.assertTrueNow(future.isCompletedExceptionally(),
+				"Future of request of closed client is not completed exceptionally",
+				"Verify that future of request of closed client is completed exceptionally");
+	}
+
+	@Test
+	public void route_lease_timeout_test() throws Exception {
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig().setMaxTotal(MAX_TOTAL).setMaxPerRoute(1)
+				.setLeaseTimeoutMs(LEASE_TIMEOUT_MS);
+
+		try (HttpClient routeClient = new HttpClient(LoopbackServer.URL, echoServer.getPort(), poolConfig)) {
+			routeClient.setBodyReadMode(BodyReadModeEnum.LAZY);
+
+			try (HttpResponse leasedResponse = routeClient.sendGet("leased").getResponse()) {
+				long startNanoTime = System.nanoTime();
+				boolean isTimeout = false;
+
+				try {
+					routeClient.sendGet("timeout");
+				} catch (HttpException e) {
+					isTimeout = true;
+				}
+
+				long waitMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanoTime);
+
+				SoftAssertUnitTest.assertTrueNow(isTimeout && (waitMs >= LEASE_TIMEOUT_MS)
+						&& (waitMs < LEASE_TIMEOUT_MS * 3 / 2),
+						"Request of route without free connection waited [" + waitMs + "] ms and timed out ["
+								+ isTimeout + "]",
+						"Verify that request of route without free connection timed out after lease timeout of ["
+								+ LEASE_TIMEOUT_MS + "] ms");
+			}
+		}
+	}
+
+	/** Executor threads are virtual threads, or daemon platform threads of the client threads name prefix. */
+	private static boolean areExecutorThreads(Set<Thread> threadSet) {
+		for (Thread thread : threadSet) {
+			if (HttpClient.isVirtualThreadsSupported()) {
+				if (isVirtual(thread) == false) {
+					return false;
+				}
+			} else if (isVirtual(thread) || (thread.isDaemon() == false)
+					|| (thread.getName().startsWith(THREAD_NAME_PREFIX) == false)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/** Thread.isVirtual exists only on Java 21 and above. */
+	private static boolean isVirtual(Thread thread) {
+		try {
+			return ((Boolean) Thread.class.getMethod("isVirtual").invoke(thread)).booleanValue();
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+
+	private static void sleep(long timeMs) {
+		try {
+			Thread.sleep(timeMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
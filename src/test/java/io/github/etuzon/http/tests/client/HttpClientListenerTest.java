@@ -0,0 +1,140 @@
+package io.github.etuzon.http.tests.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.enums.ExecutionModeEnum;
+import io.github.etuzon.http.enums.HttpClientPhaseEnum;
+import io.github.etuzon.http.listener.HttpClientListener;
+import io.github.etuzon.http.listener.HttpExchangeTrace;
+import io.github.etuzon.http.objects.HttpObject;
+import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.exceptions.AutomationUnitTestException;
+
+/************************************************
+ * Verify that blocking and async requests report their phases to listener in
+ * order.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpClientListenerTest extends HttpClientTestBase implements TestParameters {
+	public static final long TIMEOUT_UNTIL_RESPONSE_COMPLETED_SECONDS = 10;
+	public static final HttpClientPhaseEnum[] EXPECTED_PHASES = { HttpClientPhaseEnum.QUEUED,
+			HttpClientPhaseEnum.CONNECTION_LEASED, HttpClientPhaseEnum.REQUEST_SENT,
+			HttpClientPhaseEnum.HEADERS_RECEIVED, HttpClientPhaseEnum.BODY_COMPLETED };
+
+	private LoopbackServer echoServer = null;
+	private HttpClient httpClient = null;
+
+	@BeforeClass
+	public void startEchoServer() throws AutomationUnitTestException {
+		echoServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.PATH).start();
+		httpClient = initHttpClient(LoopbackServer.URL, echoServer.getPort());
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopEchoServer() {
+		if (httpClient != null) {
+			httpClient.close();
+		}
+
+		if (echoServer != null) {
+			echoServer.close();
+		}
+	}
+
+	@Test
+	public void blocking_request_phases_test() throws Exception {
+		RecordingListener listener = new RecordingListener();
+		httpClient.addListener(listener);
+
+		try {
+			HttpObject httpObject = httpClient.sendGet("phases");
+			httpObject.getResponse().getResponseBody();
+		} finally {
+			httpClient.removeListener(listener);
+		}
+
+		verifyPhases(listener, "blocking");
+	}
+
+	@Test
+	public void async_request_phases_test() throws Exception {
+		RecordingListener listener = new RecordingListener();
+		httpClient.addListener(listener);
+		httpClient.setExecutionMode(ExecutionModeEnum.REACTOR);
+
+		try {
+			httpClient.sendGetAsync("phases").get(TIMEOUT_UNTIL_RESPONSE_COMPLETED_SECONDS, TimeUnit.SECONDS);
+		} finally {
+			httpClient.removeListener(listener);
+		}
+
+		verifyPhases(listener, "async");
+	}
+
+	private void verifyPhases(RecordingListener listener, String requestKind) {
+		SoftAssertUnitTest.assertTrueNow(listener.failureList.isEmpty(),
+				"Listener of " + requestKind + " request got failures " + listener.failureList,
+				"Verify that listener of " + requestKind + " request did not get failures");
+
+		List<HttpClientPhaseEnum> phaseList = listener.getPhaseList();
+
+		for (HttpClientPhaseEnum expectedPhase : EXPECTED_PHASES) {
+			SoftAssertUnitTest.assertTrueNow(phaseList.contains(expectedPhase),
+					"Phases of " + requestKind + " request " + phaseList + " do not contain [" + expectedPhase + "]",
+					"Verify that phases of " + requestKind + " request contain [" + expectedPhase + "]");
+		}
+
+		List<HttpClientPhaseEnum> sortedPhaseList = new ArrayList<HttpClientPhaseEnum>(phaseList);
+		Collections.sort(sortedPhaseList);
+
+		SoftAssertUnitTest.assertTrueNow(sortedPhaseList.equals(phaseList),
+				"Phases of " + requestKind + " request " + phaseList + " are not in order",
+				"Verify that phases of " + requestKind + " request are in order");
+		SoftAssertUnitTest.assertTrueNow(listener.isNanoTimeOrdered,
+				"Nano times of " + requestKind + " request phases are not in order",
+				"Verify that nano times of " + requestKind + " request phases are in order");
+	}
+
+	/************************************************
+	 * Listener that records the reported phases.
+	 *
+	 */
+	private static class RecordingListener implements HttpClientListener {
+		private final List<HttpClientPhaseEnum> phaseList = new ArrayList<HttpClientPhaseEnum>();
+		private final List<Exception> failureList = new ArrayList<Exception>();
+		private long lastNanoTime = Long.MIN_VALUE;
+		private boolean isNanoTimeOrdered = true;
+
+		@Override
+		public synchronized void onPhase(HttpExchangeTrace trace, HttpClientPhaseEnum phase, long nanoTime) {
+			phaseList.add(phase);
+
+			if (nanoTime < lastNanoTime) {
+				isNanoTimeOrdered = false;
+			}
+
+			lastNanoTime = nanoTime;
+		}
+
+		@Override
+		public synchronized void onFailed(HttpExchangeTrace trace, Exception exception, long nanoTime) {
+			failureList.add(exception);
+		}
+
+		private synchronized List<HttpClientPhaseEnum> getPhaseList() {
+			return new ArrayList<HttpClientPhaseEnum>(phaseList);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package io.github.etuzon.http.tests.client;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.apache.hc.core5.http.ContentType;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.http.factory.RequestBuilder;
+import io.github.etuzon.http.objects.HttpObject;
+import io.github.etuzon.http.tests.parameters.TestParameters;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.exceptions.AutomationUnitTestException;
+
+/************************************************
+ * Verify that binary entities of bytes, ByteBuffer, InputStream and file are
+ * sent without change by synchronized and a-synchronized requests.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpClientRequestEntityTest extends HttpClientTestBase implements TestParameters {
+	public static final int ENTITY_SIZE = 300 * 1024;
+	public static final String SUFFIX_URL = "binary";
+
+	private final byte[] entity = LoopbackServer.createBinaryBody(ENTITY_SIZE, 31);
+
+	private LoopbackServer echoServer = null;
+	private HttpClient httpClient = null;
+	private Path entityFile = null;
+
+	@BeforeClass
+	public void startEchoServer() throws AutomationUnitTestException {
+		echoServer = new LoopbackServer().setBodyMode(LoopbackServer.BodyEnum.REQUEST).start();
+		httpClient = initHttpClient(LoopbackServer.URL, echoServer.getPort());
+
+		try {
+			entityFile = Files.createTempFile("http-entity", ".bin");
+			Files.write(entityFile, entity);
+		} catch (Exception e) {
+			throw new AutomationUnitTestException(e);
+		}
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopEchoServer() throws Exception {
+		if (httpClient != null) {
+			httpClient.close();
+		}
+
+		if (echoServer != null) {
+			echoServer.close();
+		}
+
+		if (entityFile != null) {
+			Files.deleteIfExists(entityFile);
+		}
+	}
+
+	@Test
+	public void bytes_entity_test() throws Exception {
+		verifyEcho("Bytes", newPostBuilder().setEntity(entity, ContentType.APPLICATION_OCTET_STREAM));
+	}
+
+	@Test
+	public void byte_buffer_entity_test() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(ENTITY_SIZE + 10);
+		buffer.position(10);
+		buffer.put(entity);
+		buffer.position(10);
+
+		verifyEcho("ByteBuffer", newPostBuilder().setEntity(buffer, ContentType.APPLICATION_OCTET_STREAM));
+		SoftAssertUnitTest.assertTrueNow(buffer.position() == 10,
+				"ByteBuffer position was changed to [" + buffer.position() + "]",
+				"Verify that ByteBuffer position was not changed by the request");
+	}
+
+	@Test
+	public void input_stream_entity_test() throws Exception {
+		HttpObject httpObject = httpClient.send(newPostBuilder()
+				.setEntity(new ByteArrayInputStream(entity), ContentType.APPLICATION_OCTET_STREAM));
+		verifyResponse("Chunked InputStream synchronized", httpObject);
+
+		httpObject = httpClient.sendAsync(newPostBuilder()
+				.setEntity(new ByteArrayInputStream(entity), ContentType.APPLICATION_OCTET_STREAM)).get();
+		verifyResponse("Chunked InputStream a-synchronized", httpObject);
+	}
+
+	@Test
+	public void file_entity_test() throws Exception {
+		verifyEcho("Path", newPostBuilder().setEntity(entityFile, ContentType.APPLICATION_OCTET_STREAM));
+
+		try (FileChannel fileChannel = FileChannel.open(entityFile, StandardOpenOption.READ)) {
+			verifyEcho("FileChannel", newPostBuilder().setEntity(fileChannel, ContentType.APPLICATION_OCTET_STREAM));
+		}
+	}
+
+	private RequestBuilder newPostBuilder() {
+		return httpClient.newRequestBuilder(RequestTypeEnum.POST).setSuffixUrl(SUFFIX_URL)
+				.setReleaseConnection(HttpClient.NOT_RELEASE_CONNECTION);
+	}
+
+	/** Send the repeatable entity of builder by synchronized and a-synchronized requests. */
+	private void verifyEcho(String name, RequestBuilder builder) throws Exception {
+		verifyResponse(name + " synchronized", httpClient.send(builder));
+		verifyResponse(name + " a-synchronized", httpClient.sendAsync(builder).get());
+	}
+
+	private void verifyResponse(String name, HttpObject httpObject) {
+		ByteBuffer body = httpObject.getResponse().getByteBuffer();
+		byte[] head = ("POST /" + SUFFIX_URL + "\n").getBytes(StandardCharsets.UTF_8);
+		byte[] expectedBody = Arrays.copyOf(head, head.length + entity.length);
+		System.arraycopy(entity, 0, expectedBody, head.length, entity.length);
+
+		byte[] bodyBytes = new byte[body.remaining()];
+		body.duplicate().get(bodyBytes);
+
+		SoftAssertUnitTest.assertTrueNow(httpObject.getResponse().getStatusCode() == STATUS_CODE_200,
+				name + " response status is [" + httpObject.getResponse().getStatusCode() + "]",
+				"Verify that " + name + " response status is [" + STATUS_CODE_200 + "]");
+		SoftAssertUnitTest.assertTrueNow(Arrays.equals(bodyBytes, expectedBody),
+				name + " entity of [" + ENTITY_SIZE + "] bytes was changed, echo has [" + bodyBytes.length
+						+ "] bytes",
+				"Verify that " + name + " entity of [" + ENTITY_SIZE + "] bytes was sent without change");
+	}
+}
@@ -0,0 +1,173 @@
+package io.github.etuzon.http.tests.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.compression.ContentDecoder;
+import io.github.etuzon.http.compression.DeflaterPool;
+import io.github.etuzon.http.compression.GzipCompressingInputStream;
+import io.github.etuzon.http.compression.InflaterPool;
+import io.github.etuzon.http.enums.ContentCodingEnum;
+import io.github.etuzon.http.metrics.CompressionMetrics;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that ContentDecoder decodes gzip, zlib and raw deflate data that is
+ * given in small pieces, that GzipCompressingInputStream produces gzip data
+ * that is read in small pieces, and that Inflaters and Deflaters are returned
+ * to their pools.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ContentDecoderTest extends BaseUnitTest {
+	public static final int CONTENT_SIZE = 200 * 1000;
+	public static final int INPUT_PIECE_SIZE = 7;
+	public static final int OUTPUT_SIZE = 1000;
+
+	private final byte[] content = LoopbackServer.createFixedSizeBody(CONTENT_SIZE);
+
+	@Test
+	public void gzip_members_test() throws Exception {
+		ByteArrayOutputStream members = new ByteArrayOutputStream();
+		members.write(gzip(content));
+		members.write(gzip(content));
+
+		byte[] expectedContent = Arrays.copyOf(content, CONTENT_SIZE * 2);
+		System.arraycopy(content, 0, expectedContent, CONTENT_SIZE, CONTENT_SIZE);
+
+		verifyDecode("Gzip members", ContentCodingEnum.GZIP, members.toByteArray(), expectedContent);
+	}
+
+	@Test
+	public void zlib_deflate_test() throws Exception {
+		verifyDecode("Zlib deflate", ContentCodingEnum.DEFLATE, deflate(content, false), content);
+	}
+
+	@Test
+	public void raw_deflate_test() throws Exception {
+		verifyDecode("Raw deflate", ContentCodingEnum.DEFLATE, deflate(content, true), content);
+	}
+
+	@Test
+	public void gzip_compressing_stream_test() throws Exception {
+		DeflaterPool deflaterPool = new DeflaterPool(1);
+		CompressionMetrics metrics = new CompressionMetrics();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		byte[] output = new byte[INPUT_PIECE_SIZE];
+
+		try (InputStream input = new GzipCompressingInputStream(new ByteArrayInputStream(content),
+				Deflater.BEST_SPEED, deflaterPool, metrics)) {
+			int length;
+
+			while ((length = input.read(output)) != -1) {
+				compressed.write(output, 0, length);
+			}
+		}
+
+		SoftAssertUnitTest.assertTrueNow(deflaterPool.getFreeDeflatersAmount() == 1,
+				"Pool has [" + deflaterPool.getFreeDeflatersAmount() + "] free Deflaters",
+				"Verify that Deflater was returned to the pool");
+		SoftAssertUnitTest.assertTrueNow(
+				(metrics.getUncompressedRequestBytes() == CONTENT_SIZE)
+						&& (metrics.getCompressedRequestBytes() == compressed.size()),
+				"Compression metrics are [" + metrics + "]",
+				"Verify that metrics count [" + CONTENT_SIZE + "] source bytes and [" + compressed.size()
+						+ "] compressed bytes");
+
+		verifyDecode("Gzip compressing stream", ContentCodingEnum.GZIP, compressed.toByteArray(), content);
+	}
+
+	@Test
+	public void invalid_gzip_crc_test() throws Exception {
+		byte[] compressed = gzip(content);
+		compressed[compressed.length - 8] ^= 1;
+
+		ContentDecoder decoder = new ContentDecoder(ContentCodingEnum.GZIP, new InflaterPool(1));
+		boolean isFailed = false;
+
+		try {
+			decode(decoder, compressed);
+		} catch (IOException e) {
+			isFailed = true;
+		} finally {
+			decoder.release();
+		}
+
+		SoftAssertUnitTest.assertTrueNow(isFailed, "Gzip data with wrong CRC was decoded",
+				"Verify that gzip data with wrong CRC is not decoded");
+	}
+
+	private void verifyDecode(String name, ContentCodingEnum contentCoding, byte[] compressed,
+			byte[] expectedContent) throws IOException {
+		InflaterPool inflaterPool = new InflaterPool(1);
+		ContentDecoder decoder = new ContentDecoder(contentCoding, inflaterPool);
+		byte[] decoded = decode(decoder, compressed);
+
+		SoftAssertUnitTest.assertTrueNow(decoder.isFinished(), name + " decoder was not finished",
+				"Verify that " + name + " decoder was finished");
+		SoftAssertUnitTest.assertTrueNow(Arrays.equals(decoded, expectedContent),
+				name + " decoded [" + decoded.length + "] bytes that are different from the content",
+				"Verify that " + name + " decoded [" + expectedContent.length + "] bytes of the content");
+
+		decoder.release();
+
+		SoftAssertUnitTest.assertTrueNow(inflaterPool.getFreeInflatersAmount() == 1,
+				"Pool has [" + inflaterPool.getFreeInflatersAmount() + "] free Inflaters",
+				"Verify that " + name + " Inflater was returned to the pool");
+	}
+
+	/** Give compressed bytes to the decoder in pieces of input piece size. */
+	private static byte[] decode(ContentDecoder decoder, byte[] compressed) throws IOException {
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		byte[] output = new byte[OUTPUT_SIZE];
+
+		for (int offset = 0; offset < compressed.length; offset += INPUT_PIECE_SIZE) {
+			ByteBuffer input = ByteBuffer.wrap(compressed, offset,
+					Math.min(INPUT_PIECE_SIZE, compressed.length - offset));
+			int amount;
+
+			do {
+				amount = decoder.decode(input, output, 0, output.length);
+				decoded.write(output, 0, amount);
+			} while ((amount > 0) || input.hasRemaining());
+		}
+
+		return decoded.toByteArray();
+	}
+
+	private static byte[] gzip(byte[] bytes) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+		try (OutputStream output = new GZIPOutputStream(compressed)) {
+			output.write(bytes);
+		}
+
+		return compressed.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] bytes, boolean isRaw) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, isRaw);
+
+		try (OutputStream output = new DeflaterOutputStream(compressed, deflater)) {
+			output.write(bytes);
+		} finally {
+			deflater.end();
+		}
+
+		return compressed.toByteArray();
+	}
+}
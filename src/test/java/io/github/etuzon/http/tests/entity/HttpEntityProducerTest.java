@@ -0,0 +1,178 @@
+package io.github.etuzon.http.tests.entity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.buffer.ByteChunkPool;
+import io.github.etuzon.http.entity.ByteBufferEntity;
+import io.github.etuzon.http.entity.FileChannelEntity;
+import io.github.etuzon.http.entity.HttpEntityProducer;
+import io.github.etuzon.http.tests.server.LoopbackServer;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that HttpEntityProducer streams entity bytes without change through
+ * a channel that accepts part of the data on each write, that it uses one
+ * pooled chunk, and that content stream is not read by the producing thread.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class HttpEntityProducerTest extends BaseUnitTest {
+	public static final int ENTITY_SIZE = 100 * 1000;
+	public static final int CHUNK_SIZE = 4096;
+	public static final int CHANNEL_WRITE_SIZE = 1500;
+	public static final long OUTPUT_REQUEST_TIMEOUT_SECONDS = 10;
+
+	@Test
+	public void stream_entity_test() throws Exception {
+		byte[] entity = LoopbackServer.createBinaryBody(ENTITY_SIZE, 7);
+		ByteChunkPool chunkPool = new ByteChunkPool(CHUNK_SIZE, 1);
+		final Thread producingThread = Thread.currentThread();
+		final boolean[] isReadByProducingThread = { false };
+		ByteArrayInputStream stream = new ByteArrayInputStream(entity) {
+			@Override
+			public synchronized int read(byte[] bytes, int offset, int length) {
+				isReadByProducingThread[0] |= (Thread.currentThread() == producingThread);
+				return super.read(bytes, offset, length);
+			}
+		};
+		HttpEntityProducer producer = new HttpEntityProducer(
+				new InputStreamEntity(stream, -1, ContentType.APPLICATION_OCTET_STREAM), chunkPool);
+
+		SoftAssertUnitTest.assertTrueNow(producer.isChunked(), "Entity without length is not chunked",
+				"Verify that entity without length is chunked");
+
+		verifyProduced("InputStream", producer, entity);
+		producer.releaseResources();
+
+		SoftAssertUnitTest.assertTrueNow(isReadByProducingThread[0] == false,
+				"Content stream was read by the producing thread",
+				"Verify that content stream was read by executor thread");
+		SoftAssertUnitTest.assertTrueNow(chunkPool.getFreeChunksAmount() == 1,
+				"[" + chunkPool.getFreeChunksAmount() + "] chunks were returned to the pool",
+				"Verify that the producer chunk was returned to the pool");
+	}
+
+	@Test
+	public void file_channel_entity_test() throws Exception {
+		byte[] entity = LoopbackServer.createBinaryBody(ENTITY_SIZE, 7);
+		ByteChunkPool chunkPool = new ByteChunkPool(CHUNK_SIZE, 1);
+		Path file = Files.createTempFile("entity-producer", ".bin");
+
+		try {
+			Files.write(file, entity);
+			HttpEntityProducer producer = new HttpEntityProducer(
+					new FileChannelEntity(file, ContentType.APPLICATION_OCTET_STREAM), chunkPool);
+
+			SoftAssertUnitTest.assertTrueNow(
+					(producer.getContentLength() == ENTITY_SIZE) && (producer.isChunked() == false),
+					"Content length is [" + producer.getContentLength() + "] and chunked is ["
+							+ producer.isChunked() + "]",
+					"Verify that file entity of [" + ENTITY_SIZE + "] bytes is not chunked");
+
+			verifyProduced("FileChannel", producer, entity);
+			producer.releaseResources();
+			verifyProduced("Repeated FileChannel", producer, entity);
+			producer.releaseResources();
+
+			SoftAssertUnitTest.assertTrueNow(chunkPool.getFreeChunksAmount() == 1,
+					"[" + chunkPool.getFreeChunksAmount() + "] chunks were returned to the pool",
+					"Verify that the producer chunk was returned to the pool");
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void repeatable_buffer_entity_test() throws Exception {
+		byte[] entity = LoopbackServer.createBinaryBody(ENTITY_SIZE, 7);
+		HttpEntity bufferEntity = new ByteBufferEntity(entity, ContentType.APPLICATION_OCTET_STREAM);
+		HttpEntityProducer producer = new HttpEntityProducer(bufferEntity);
+
+		SoftAssertUnitTest.assertTrueNow(producer.getContentLength() == ENTITY_SIZE,
+				"Content length is [" + producer.getContentLength() + "]",
+				"Verify that content length is [" + ENTITY_SIZE + "]");
+
+		verifyProduced("ByteBuffer", producer, entity);
+		producer.releaseResources();
+		verifyProduced("Repeated ByteBuffer", producer, entity);
+	}
+
+	/** Produce entity like the I/O reactor, which waits for output request while producer has no available bytes. */
+	private void verifyProduced(String name, HttpEntityProducer producer, byte[] expectedEntity)
+			throws IOException, InterruptedException {
+		ThrottledChannel channel = new ThrottledChannel();
+		int produceCalls = 0;
+
+		while ((channel.isEnded == false) && (produceCalls < ENTITY_SIZE)) {
+			if ((producer.available() == 0)
+					&& (channel.outputRequests.tryAcquire(OUTPUT_REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS) == false)) {
+				break;
+			}
+
+			channel.freeLength = CHANNEL_WRITE_SIZE;
+			producer.produce(channel);
+			produceCalls++;
+		}
+
+		SoftAssertUnitTest.assertTrueNow(channel.isEnded, name + " stream was not ended",
+				"Verify that " + name + " stream was ended");
+		SoftAssertUnitTest.assertTrueNow(Arrays.equals(channel.output.toByteArray(), expectedEntity),
+				name + " produced [" + channel.output.size() + "] bytes that are different from the entity",
+				"Verify that " + name + " produced the entity bytes without change");
+	}
+
+	/************************************************
+	 * Channel that accepts up to channel write size bytes on each produce call,
+	 * and counts output requests.
+	 *
+	 */
+	private static class ThrottledChannel implements DataStreamChannel {
+		private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		private final Semaphore outputRequests = new Semaphore(0);
+		private int freeLength = 0;
+		private boolean isEnded = false;
+
+		@Override
+		public void requestOutput() {
+			outputRequests.release();
+		}
+
+		@Override
+		public int write(ByteBuffer src) {
+			int length = Math.min(src.remaining(), freeLength);
+			byte[] bytes = new byte[length];
+			src.get(bytes);
+			output.write(bytes, 0, length);
+			freeLength -= length;
+			return length;
+		}
+
+		@Override
+		public void endStream() {
+			isEnded = true;
+		}
+
+		@Override
+		public void endStream(List<? extends Header> trailers) {
+			isEnded = true;
+		}
+	}
+}
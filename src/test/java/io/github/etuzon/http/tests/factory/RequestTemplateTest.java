@@ -0,0 +1,124 @@
+package io.github.etuzon.http.tests.factory;
+
+import java.util.Arrays;
+
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.enums.HeaderEnum;
+import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.http.exceptions.InvalidHttpRequestException;
+import io.github.etuzon.http.factory.RequestBuilder;
+import io.github.etuzon.http.factory.RequestTemplate;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that requests that are built from request template have the URL and
+ * headers that RequestBuilder builds, and that copies of a builder share its
+ * template and frozen headers.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class RequestTemplateTest extends BaseUnitTest {
+	public static final String BASE_URL = "http://127.0.0.1";
+	public static final int PORT = 8080;
+
+	@Test
+	public void template_request_test() throws Exception {
+		RequestBuilder builder = new RequestBuilder(BASE_URL + ":" + PORT + "/api/", RequestTypeEnum.POST)
+				.setCredentials("user", "password").setReleaseConnection(false);
+		RequestTemplate template = builder.getRequestTemplate()
+				.withHeaders(Arrays.asList(new BasicHeader("X-Client", "template")));
+
+		HttpUriRequestBase request = template.build(RequestTypeEnum.POST, "/users/17?expand=true", "{}");
+
+		verifyEquals("Path", request.getPath(), "/api/users/17?expand=true");
+		verifyEquals("Authority", request.getAuthority().toString(), "127.0.0.1:" + PORT);
+		verifyEquals("Authorization header", request.getFirstHeader(HeaderEnum.AUTORIZATION.getName()).getValue(),
+				"Basic dXNlcjpwYXNzd29yZA==");
+		verifyEquals("X-Client header", request.getFirstHeader("X-Client").getValue(), "template");
+		SoftAssertUnitTest.assertTrueNow(request.getFirstHeader(HeaderEnum.CONNECTION.getName()) == null,
+				"Request that keeps connection alive has Connection header",
+				"Verify that request that keeps connection alive does not have Connection header");
+		SoftAssertUnitTest.assertTrueNow(request.getEntity() != null, "POST request does not have entity",
+				"Verify that POST request has entity");
+	}
+
+	@Test
+	public void builder_copies_share_template_test() throws Exception {
+		RequestBuilder builder = new RequestBuilder(BASE_URL, PORT).setJSessionId("session");
+		RequestTemplate template = builder.getRequestTemplate();
+		RequestBuilder copy = new RequestBuilder(builder).setSuffixUrl("users")
+				.setHeaders(Arrays.asList(new BasicHeader("X-Request", "copy")));
+
+		SoftAssertUnitTest.assertTrueNow(copy.getRequestTemplate() == template,
+				"Copy of RequestBuilder created its own request template",
+				"Verify that copy of RequestBuilder shares the request template");
+
+		HttpUriRequestBase request = copy.build();
+
+		verifyEquals("Path", request.getPath(), "/users");
+		verifyEquals("Cookie header", request.getFirstHeader(HeaderEnum.COOKIE.getName()).getValue(),
+				"JSESSIONID=session");
+		verifyEquals("Connection header", request.getFirstHeader(HeaderEnum.CONNECTION.getName()).getValue(),
+				"close");
+		verifyEquals("X-Request header", request.getFirstHeader("X-Request").getValue(), "copy");
+		verifyEquals("Path of request without suffix", new RequestBuilder(builder).build().getPath(), "/");
+	}
+
+	@Test
+	public void frozen_headers_test() throws Exception {
+		RequestBuilder builder = new RequestBuilder(BASE_URL, PORT)
+				.addHeader(new BasicHeader("X-Client", "frozen"));
+		RequestTemplate template = builder.toRequestTemplate();
+		RequestBuilder copy = new RequestBuilder(builder)
+				.addHeaders(Arrays.asList(new BasicHeader("X-Request", "copy")));
+
+		SoftAssertUnitTest.assertTrueNow(copy.getRequestTemplate() == template,
+				"Copy of RequestBuilder created its own request template",
+				"Verify that copy of RequestBuilder shares the template with the frozen headers");
+		SoftAssertUnitTest.assertTrueNow(template.getHeaders().length == 1,
+				"Template has [" + template.getHeaders().length + "] headers",
+				"Verify that builder header was frozen to the template");
+
+		HttpUriRequestBase request = copy.build();
+
+		verifyEquals("X-Client header", request.getFirstHeader("X-Client").getValue(), "frozen");
+		verifyEquals("X-Request header", request.getFirstHeader("X-Request").getValue(), "copy");
+		SoftAssertUnitTest.assertTrueNow(request.getHeaders("X-Client").length == 1,
+				"Request has [" + request.getHeaders("X-Client").length + "] X-Client headers",
+				"Verify that frozen header was added to the request once");
+
+		builder.setCredentials("user", "password");
+		request = new RequestBuilder(builder).build();
+
+		verifyEquals("X-Client header after credentials were set", request.getFirstHeader("X-Client").getValue(),
+				"frozen");
+		verifyEquals("Authorization header", request.getFirstHeader(HeaderEnum.AUTORIZATION.getName()).getValue(),
+				"Basic dXNlcjpwYXNzd29yZA==");
+	}
+
+	@Test
+	public void invalid_suffix_test() throws Exception {
+		RequestTemplate template = new RequestBuilder(BASE_URL, PORT).getRequestTemplate();
+		boolean isInvalid = false;
+
+		try {
+			template.build(RequestTypeEnum.GET, "users/first name");
+		} catch (InvalidHttpRequestException e) {
+			isInvalid = true;
+		}
+
+		SoftAssertUnitTest.assertTrueNow(isInvalid, "URL suffix with space was accepted",
+				"Verify that URL suffix with space is rejected");
+	}
+
+	private void verifyEquals(String name, String value, String expectedValue) {
+		SoftAssertUnitTest.assertTrueNow(expectedValue.equals(value),
+				name + " is [" + value + "] and should be [" + expectedValue + "]",
+				"Verify that " + name + " is [" + expectedValue + "]");
+	}
+}
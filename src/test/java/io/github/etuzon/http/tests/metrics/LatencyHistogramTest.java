@@ -0,0 +1,99 @@
+package io.github.etuzon.http.tests.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.enums.RequestTypeEnum;
+import io.github.etuzon.http.metrics.LatencyHistogram;
+import io.github.etuzon.http.metrics.LatencyHistogramRegistry;
+import io.github.etuzon.http.metrics.LatencyKey;
+import io.github.etuzon.http.metrics.LatencySnapshot;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify latency histogram percentiles, intervals and keys.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LatencyHistogramTest extends BaseUnitTest {
+	public static final int THREADS_AMOUNT = 8;
+	public static final int VALUES_PER_THREAD = 10000;
+	public static final long VALUE_UNIT_NANOS = 1000;
+	public static final double MAX_RELATIVE_ERROR = 1.0 / 64;
+
+	@Test
+	public void concurrent_record_percentiles_test() throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		List<Thread> threadList = new ArrayList<Thread>();
+
+		for (int index = 0; index < THREADS_AMOUNT; index++) {
+			Thread thread = new Thread(() -> {
+				for (int value = 1; value <= VALUES_PER_THREAD; value++) {
+					histogram.record(value * VALUE_UNIT_NANOS);
+				}
+			});
+
+			threadList.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threadList) {
+			thread.join();
+		}
+
+		LatencySnapshot snapshot = histogram.getIntervalSnapshot();
+		long expectedCount = (long) THREADS_AMOUNT * VALUES_PER_THREAD;
+
+		SoftAssertUnitTest.assertTrueNow(snapshot.getCount() == expectedCount,
+				"Count is [" + snapshot.getCount() + "] and should be [" + expectedCount + "]",
+				"Verify that count is [" + expectedCount + "]");
+
+		verifyPercentile(snapshot.getP50(), 50);
+		verifyPercentile(snapshot.getP90(), 90);
+		verifyPercentile(snapshot.getP99(), 99);
+		verifyPercentile(snapshot.getP999(), 99.9);
+
+		histogram.record(VALUE_UNIT_NANOS);
+		LatencySnapshot intervalSnapshot = histogram.getIntervalSnapshot();
+
+		SoftAssertUnitTest.assertTrueNow(intervalSnapshot.getCount() == 1,
+				"Interval count is [" + intervalSnapshot.getCount() + "] and should be [1]",
+				"Verify that interval contains only the value that was recorded after the previous interval");
+		SoftAssertUnitTest.assertTrueNow(histogram.getSnapshot().getCount() == expectedCount + 1,
+				"Total count is [" + histogram.getSnapshot().getCount() + "] and should be [" + (expectedCount + 1)
+						+ "]",
+				"Verify that total count is [" + (expectedCount + 1) + "]");
+	}
+
+	@Test
+	public void suffix_template_key_test() {
+		LatencyHistogramRegistry registry = new LatencyHistogramRegistry();
+
+		registry.record("http://127.0.0.1", RequestTypeEnum.GET, "users/17?verbose=true", VALUE_UNIT_NANOS);
+		registry.record("http://127.0.0.1", RequestTypeEnum.GET, "users/18", VALUE_UNIT_NANOS);
+		registry.record("http://127.0.0.1", RequestTypeEnum.POST, "users/18", VALUE_UNIT_NANOS);
+
+		LatencyKey getKey = new LatencyKey("http://127.0.0.1", "users/{id}", RequestTypeEnum.GET);
+		LatencySnapshot getSnapshot = registry.getSnapshotMap().get(getKey);
+
+		SoftAssertUnitTest.assertTrueNow(registry.getSnapshotMap().size() == 2,
+				"Keys are " + registry.getSnapshotMap().keySet() + " and should be GET and POST of [users/{id}]",
+				"Verify that registry contains GET and POST keys of [users/{id}]");
+		SoftAssertUnitTest.assertTrueNow((getSnapshot != null) && (getSnapshot.getCount() == 2),
+				"Snapshot of [" + getKey + "] is [" + getSnapshot + "] and its count should be [2]",
+				"Verify that count of [" + getKey + "] is [2]");
+	}
+
+	private void verifyPercentile(long value, double percentile) {
+		long expectedValue = (long) Math.ceil(percentile / 100 * VALUES_PER_THREAD) * VALUE_UNIT_NANOS;
+		double relativeError = Math.abs(value - expectedValue) / (double) expectedValue;
+
+		SoftAssertUnitTest.assertTrueNow(relativeError <= MAX_RELATIVE_ERROR,
+				"Percentile [" + percentile + "] is [" + value + "] and should be about [" + expectedValue + "]",
+				"Verify that percentile [" + percentile + "] is about [" + expectedValue + "]");
+	}
+}
@@ -0,0 +1,74 @@
+package io.github.etuzon.http.tests.metrics;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.metrics.StreamMetrics;
+import io.github.etuzon.http.metrics.StreamMetricsConfig;
+import io.github.etuzon.http.metrics.StreamMetricsSnapshot;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify streaming metrics of exchanges and their aggregation.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class StreamMetricsTest extends BaseUnitTest {
+	public static final int[] WINDOWS_SECONDS = { 2, 10 };
+	public static final int CHUNK_SIZE = 1000;
+	public static final int CHUNK_SIZE_BUCKET_INDEX = 10;
+	public static final int CHUNKS_AMOUNT = 5;
+
+	@Test
+	public void aggregate_exchanges_test() {
+		StreamMetricsSnapshot firstSnapshot = recordExchange();
+		StreamMetricsSnapshot secondSnapshot = recordExchange();
+		StreamMetricsSnapshot aggregated = StreamMetricsSnapshot.aggregate(Arrays.asList(firstSnapshot,
+				secondSnapshot));
+
+		long expectedBytes = 2L * CHUNKS_AMOUNT * CHUNK_SIZE;
+
+		SoftAssertUnitTest.assertTrueNow(aggregated.getExchangesAmount() == 2,
+				"Exchanges amount is [" + aggregated.getExchangesAmount() + "] and should be [2]",
+				"Verify that exchanges amount is [2]");
+		SoftAssertUnitTest.assertTrueNow(aggregated.getTotalBytes() == expectedBytes,
+				"Total bytes is [" + aggregated.getTotalBytes() + "] and should be [" + expectedBytes + "]",
+				"Verify that total bytes is [" + expectedBytes + "]");
+		SoftAssertUnitTest.assertTrueNow(
+				aggregated.getChunkSizeHistogram()[CHUNK_SIZE_BUCKET_INDEX] == 2 * CHUNKS_AMOUNT,
+				"Chunk sizes histogram is [" + Arrays.toString(aggregated.getChunkSizeHistogram())
+						+ "] and bucket [" + CHUNK_SIZE_BUCKET_INDEX + "] should be [" + 2 * CHUNKS_AMOUNT + "]",
+				"Verify that chunk sizes histogram bucket [" + CHUNK_SIZE_BUCKET_INDEX + "] is ["
+						+ 2 * CHUNKS_AMOUNT + "]");
+		SoftAssertUnitTest.assertTrueNow(
+				aggregated.getBytesPerSecond(WINDOWS_SECONDS[0]) == expectedBytes / WINDOWS_SECONDS[0],
+				"Bytes per second in [" + WINDOWS_SECONDS[0] + "] seconds window is ["
+						+ aggregated.getBytesPerSecond(WINDOWS_SECONDS[0]) + "] and should be ["
+						+ expectedBytes / WINDOWS_SECONDS[0] + "]",
+				"Verify that bytes per second in [" + WINDOWS_SECONDS[0] + "] seconds window is ["
+						+ expectedBytes / WINDOWS_SECONDS[0] + "]");
+		SoftAssertUnitTest.assertTrueNow(
+				aggregated.getMaxTimeToFirstByteNanos() >= aggregated.getMeanTimeToFirstByteNanos()
+						&& aggregated.getMeanTimeToFirstByteNanos() >= 0,
+				"Time to first byte mean is [" + aggregated.getMeanTimeToFirstByteNanos() + "] and max is ["
+						+ aggregated.getMaxTimeToFirstByteNanos() + "]",
+				"Verify that time to first byte was measured");
+	}
+
+	private StreamMetricsSnapshot recordExchange() {
+		StreamMetrics metrics = new StreamMetrics(new StreamMetricsConfig().setWindowsSeconds(WINDOWS_SECONDS));
+		metrics.onRequestStarted();
+		metrics.onHeadersReceived();
+
+		for (int index = 0; index < CHUNKS_AMOUNT; index++) {
+			metrics.onChunkReceived(CHUNK_SIZE);
+		}
+
+		metrics.onEnded();
+
+		return metrics.getSnapshot();
+	}
+}
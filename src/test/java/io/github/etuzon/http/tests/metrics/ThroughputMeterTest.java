@@ -0,0 +1,74 @@
+package io.github.etuzon.http.tests.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.metrics.ThroughputMeter;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that throughput meter does not lose amounts that are added
+ * concurrently, and that average per second is of window that is clamped to
+ * the seconds that are kept.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ThroughputMeterTest extends BaseUnitTest {
+	public static final int THREADS_AMOUNT = 8;
+	public static final int ADDS_PER_THREAD = 100000;
+	public static final int MAX_WINDOW_SECONDS = 4;
+	public static final long AMOUNT = 1000;
+
+	@Test
+	public void concurrent_add_test() throws InterruptedException {
+		final ThroughputMeter meter = new ThroughputMeter();
+		List<Thread> threadList = new ArrayList<Thread>();
+
+		for (int index = 0; index < THREADS_AMOUNT; index++) {
+			Thread thread = new Thread(() -> {
+				for (int addIndex = 0; addIndex < ADDS_PER_THREAD; addIndex++) {
+					meter.add(1);
+				}
+			});
+
+			threadList.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threadList) {
+			thread.join();
+		}
+
+		long expectedAmount = (long) THREADS_AMOUNT * ADDS_PER_THREAD;
+		long amount = meter.getAmountInLastSeconds(ThroughputMeter.DEFAULT_MAX_WINDOW_SECONDS);
+
+		SoftAssertUnitTest.assertTrueNow(amount == expectedAmount,
+				"Amount in last minute is [" + amount + "] and should be [" + expectedAmount + "]",
+				"Verify that amount in last minute is [" + expectedAmount + "]");
+		SoftAssertUnitTest.assertTrueNow(meter.getTotalAmount() == expectedAmount,
+				"Total amount is [" + meter.getTotalAmount() + "] and should be [" + expectedAmount + "]",
+				"Verify that total amount is [" + expectedAmount + "]");
+	}
+
+	@Test
+	public void clamped_window_test() {
+		ThroughputMeter meter = new ThroughputMeter(MAX_WINDOW_SECONDS);
+		meter.add(AMOUNT);
+
+		long expectedAmountPerSecond = AMOUNT / MAX_WINDOW_SECONDS;
+		long longWindowAmountPerSecond = meter.getAmountPerSecond(2 * MAX_WINDOW_SECONDS);
+		long zeroWindowAmountPerSecond = meter.getAmountPerSecond(0);
+
+		SoftAssertUnitTest.assertTrueNow(longWindowAmountPerSecond == expectedAmountPerSecond,
+				"Amount per second of window longer than max window is [" + longWindowAmountPerSecond
+						+ "] and should be [" + expectedAmountPerSecond + "]",
+				"Verify that amount per second of window longer than max window is of the max window");
+		SoftAssertUnitTest.assertTrueNow((zeroWindowAmountPerSecond == AMOUNT) || (zeroWindowAmountPerSecond == 0),
+				"Amount per second of zero window is [" + zeroWindowAmountPerSecond + "]",
+				"Verify that amount per second of zero window is of the current second");
+	}
+}
@@ -0,0 +1,486 @@
+package io.github.etuzon.http.tests.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.etuzon.unit.tests.exceptions.AutomationUnitTestException;
+
+/************************************************
+ * Embedded HTTP server on loopback interface, so client tests and throughput
+ * and latency measurements can run without network.
+ * 
+ * Server is configured by its setters before start. Each request waits the
+ * think time, and then gets response body by the body mode. Response is sent
+ * with Content-Length, or in chunks of chunk size at bytes per second rate
+ * when chunk size is set. Every N request can be answered with error status
+ * code, or with body that is cut in the middle and its connection is closed.
+ * When compression is set, body is compressed by gzip or deflate in case the
+ * request Accept-Encoding header accepts it. Gzip request body is always
+ * decompressed before it is used. Responses can have Cache-Control and ETag
+ * headers, and request with If-None-Match of the current ETag is answered by
+ * 304 Not Modified.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LoopbackServer implements AutoCloseable {
+	public static final String URL = "http://127.0.0.1";
+	public static final int DEFAULT_THREADS_AMOUNT = 16;
+	public static final int DEFAULT_BACKLOG = 1024;
+	public static final int DEFAULT_RESPONSE_SIZE = 1024;
+	public static final int DEFAULT_ERROR_STATUS_CODE = 500;
+	public static final int NOT_CHUNKED = 0;
+	public static final long UNLIMITED_RATE = 0;
+	public static final int NEVER = 0;
+
+	private static final int STATUS_CODE_200 = 200;
+	private static final int STATUS_CODE_304 = 304;
+	private static final int READ_BUFFER_SIZE = 8192;
+	private static final String FIXED_SIZE_BODY_CHARS = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+	private BodyEnum bodyMode = BodyEnum.FIXED_SIZE;
+	private int responseSize = DEFAULT_RESPONSE_SIZE;
+	private long thinkTimeMs = 0;
+	private int chunkSize = NOT_CHUNKED;
+	private long bytesPerSecond = UNLIMITED_RATE;
+	private boolean isKeepAlive = true;
+	private int errorEvery = NEVER;
+	private int errorStatusCode = DEFAULT_ERROR_STATUS_CODE;
+	private int truncateEvery = NEVER;
+	private int threadsAmount = DEFAULT_THREADS_AMOUNT;
+	private int backlog = DEFAULT_BACKLOG;
+	private boolean isCompression = false;
+	private volatile String cacheControl = null;
+	private volatile String eTag = null;
+
+	private final AtomicLong requestsAmount = new AtomicLong();
+	private final AtomicLong errorsAmount = new AtomicLong();
+	private final AtomicLong truncatedAmount = new AtomicLong();
+	private final AtomicLong compressedAmount = new AtomicLong();
+	private final AtomicLong gzipRequestsAmount = new AtomicLong();
+	private final AtomicLong notModifiedAmount = new AtomicLong();
+
+	private HttpServer server = null;
+	private ExecutorService executor = null;
+	private byte[] fixedSizeBody = null;
+
+	/************************************************
+	 * Response body mode.
+	 * 
+	 * FIXED_SIZE - Body of response size bytes.
+	 * 
+	 * PATH - Body is the request path.
+	 * 
+	 * REQUEST - Body is request method, path, new line and request body.
+	 *
+	 */
+	public enum BodyEnum {
+		FIXED_SIZE, PATH, REQUEST
+	}
+
+	public LoopbackServer setBodyMode(BodyEnum bodyMode) {
+		this.bodyMode = bodyMode;
+		return this;
+	}
+
+	public LoopbackServer setResponseSize(int responseSize) {
+		this.responseSize = responseSize;
+		return this;
+	}
+
+	/************************************************
+	 * Set time that server waits before it sends response headers.
+	 * 
+	 * @param thinkTimeMs Think time in milliseconds.
+	 * @return this server.
+	 */
+	public LoopbackServer setThinkTimeMs(long thinkTimeMs) {
+		this.thinkTimeMs = thinkTimeMs;
+		return this;
+	}
+
+	/************************************************
+	 * Send response with chunked transfer encoding in chunks of chunk size, at
+	 * rate of bytes per second.
+	 * 
+	 * @param chunkSize      Chunk size in bytes.
+	 * @param bytesPerSecond Rate of response body, or UNLIMITED_RATE.
+	 * @return this server.
+	 */
+	public LoopbackServer setChunked(int chunkSize, long bytesPerSecond) {
+		this.chunkSize = chunkSize;
+		this.bytesPerSecond = bytesPerSecond;
+		return this;
+	}
+
+	/************************************************
+	 * Set whether response body is compressed by gzip or deflate, by the
+	 * request Accept-Encoding header. Gzip is preferred when both are accepted.
+	 * 
+	 * @param isCompression true in case response body is compressed.
+	 * @return this server.
+	 */
+	public LoopbackServer setCompression(boolean isCompression) {
+		this.isCompression = isCompression;
+		return this;
+	}
+
+	/************************************************
+	 * Set Cache-Control header of responses. Can be changed while server runs.
+	 * 
+	 * @param cacheControl Cache-Control header value, or null for no header.
+	 * @return this server.
+	 */
+	public LoopbackServer setCacheControl(String cacheControl) {
+		this.cacheControl = cacheControl;
+		return this;
+	}
+
+	/************************************************
+	 * Set ETag header of responses. Request with If-None-Match of this ETag is
+	 * answered by 304. Can be changed while server runs, as the resource was
+	 * modified.
+	 * 
+	 * @param eTag ETag header value, or null for no header.
+	 * @return this server.
+	 */
+	public LoopbackServer setETag(String eTag) {
+		this.eTag = eTag;
+		return this;
+	}
+
+	/************************************************
+	 * Set whether connection is kept alive after response. When false,
+	 * response has 'Connection: close' header, so client does not reuse the
+	 * connection.
+	 * 
+	 * @param isKeepAlive true in case connection is kept alive.
+	 * @return this server.
+	 */
+	public LoopbackServer setKeepAlive(boolean isKeepAlive) {
+		this.isKeepAlive = isKeepAlive;
+		return this;
+	}
+
+	/************************************************
+	 * Answer every N request with error status code.
+	 * 
+	 * @param errorEvery      N, or NEVER.
+	 * @param errorStatusCode Error status code.
+	 * @return this server.
+	 */
+	public LoopbackServer setErrorEvery(int errorEvery, int errorStatusCode) {
+		this.errorEvery = errorEvery;
+		this.errorStatusCode = errorStatusCode;
+		return this;
+	}
+
+	/************************************************
+	 * Send only half of the body of every N request, and close its
+	 * connection.
+	 * 
+	 * @param truncateEvery N, or NEVER.
+	 * @return this server.
+	 */
+	public LoopbackServer setTruncateEvery(int truncateEvery) {
+		this.truncateEvery = truncateEvery;
+		return this;
+	}
+
+	public LoopbackServer setThreadsAmount(int threadsAmount) {
+		this.threadsAmount = threadsAmount;
+		return this;
+	}
+
+	public LoopbackServer setBacklog(int backlog) {
+		this.backlog = backlog;
+		return this;
+	}
+
+	/************************************************
+	 * Start server on free port of loopback interface.
+	 * 
+	 * @return this server.
+	 * @throws AutomationUnitTestException in case failed to start server.
+	 */
+	public synchronized LoopbackServer start() throws AutomationUnitTestException {
+		if (server != null) {
+			throw new AutomationUnitTestException("Loopback server is already started on port [" + getPort() + "]");
+		}
+
+		fixedSizeBody = createFixedSizeBody(responseSize);
+
+		try {
+			server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), backlog);
+		} catch (IOException e) {
+			throw new AutomationUnitTestException(e);
+		}
+
+		executor = Executors.newFixedThreadPool(threadsAmount);
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+		server.start();
+
+		return this;
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public long getRequestsAmount() {
+		return requestsAmount.get();
+	}
+
+	public long getErrorsAmount() {
+		return errorsAmount.get();
+	}
+
+	public long getTruncatedAmount() {
+		return truncatedAmount.get();
+	}
+
+	public long getCompressedAmount() {
+		return compressedAmount.get();
+	}
+
+	public long getGzipRequestsAmount() {
+		return gzipRequestsAmount.get();
+	}
+
+	public long getNotModifiedAmount() {
+		return notModifiedAmount.get();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+		}
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		long requestNumber = requestsAmount.incrementAndGet();
+		byte[] requestBody = readRequestBody(exchange);
+
+		if (thinkTimeMs > 0) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(thinkTimeMs));
+		}
+
+		if (isKeepAlive == false) {
+			exchange.getResponseHeaders().set("Connection", "close");
+		}
+
+		if (isEvery(requestNumber, errorEvery)) {
+			errorsAmount.incrementAndGet();
+			exchange.sendResponseHeaders(errorStatusCode, -1);
+			exchange.close();
+			return;
+		}
+
+		if (sendNotModified(exchange)) {
+			return;
+		}
+
+		byte[] response = compressIfAccepted(exchange, createResponseBody(exchange, requestBody));
+
+		if (isEvery(requestNumber, truncateEvery)) {
+			truncatedAmount.incrementAndGet();
+			sendTruncated(exchange, response);
+			return;
+		}
+
+		exchange.sendResponseHeaders(STATUS_CODE_200, (chunkSize > 0) ? 0 : response.length);
+
+		try (OutputStream output = exchange.getResponseBody()) {
+			if (chunkSize > 0) {
+				writeChunks(output, response);
+			} else {
+				output.write(response);
+			}
+		}
+	}
+
+	/** Write response in chunks, and wait before each chunk until it is due by the rate. */
+	private void writeChunks(OutputStream output, byte[] response) throws IOException {
+		long startNanoTime = System.nanoTime();
+
+		for (int offset = 0; offset < response.length; offset += chunkSize) {
+			if (bytesPerSecond > 0) {
+				long dueNanoTime = startNanoTime + (offset * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+				long waitNanos = dueNanoTime - System.nanoTime();
+
+				if (waitNanos > 0) {
+					LockSupport.parkNanos(waitNanos);
+				}
+			}
+
+			output.write(response, offset, Math.min(chunkSize, response.length - offset));
+			output.flush();
+		}
+	}
+
+	/**
+	 * Declare full body length and send half of it. Closing the stream before
+	 * the declared length was written closes the connection.
+	 */
+	private void sendTruncated(HttpExchange exchange, byte[] response) throws IOException {
+		exchange.sendResponseHeaders(STATUS_CODE_200, response.length);
+
+		OutputStream output = exchange.getResponseBody();
+		output.write(response, 0, response.length / 2);
+		output.flush();
+
+		try {
+			output.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private byte[] createResponseBody(HttpExchange exchange, byte[] requestBody) {
+		switch (bodyMode) {
+		case PATH:
+			return exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8);
+		case REQUEST:
+			byte[] head = (exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + "\n")
+					.getBytes(StandardCharsets.UTF_8);
+			byte[] response = Arrays.copyOf(head, head.length + requestBody.length);
+			System.arraycopy(requestBody, 0, response, head.length, requestBody.length);
+			return response;
+		default:
+			return fixedSizeBody;
+		}
+	}
+
+	/** Add cache headers, and answer by 304 in case request has If-None-Match of the current ETag. */
+	private boolean sendNotModified(HttpExchange exchange) throws IOException {
+		String currentCacheControl = cacheControl;
+		String currentETag = eTag;
+
+		if (currentCacheControl != null) {
+			exchange.getResponseHeaders().set("Cache-Control", currentCacheControl);
+		}
+
+		if (currentETag == null) {
+			return false;
+		}
+
+		exchange.getResponseHeaders().set("ETag", currentETag);
+
+		if (currentETag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")) == false) {
+			return false;
+		}
+
+		notModifiedAmount.incrementAndGet();
+		exchange.sendResponseHeaders(STATUS_CODE_304, -1);
+		exchange.close();
+		return true;
+	}
+
+	private byte[] compressIfAccepted(HttpExchange exchange, byte[] body) throws IOException {
+		String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+
+		if ((isCompression == false) || (acceptEncoding == null)) {
+			return body;
+		}
+
+		ByteArrayOutputStream compressedBody = new ByteArrayOutputStream();
+
+		if (acceptEncoding.contains("gzip")) {
+			try (OutputStream output = new GZIPOutputStream(compressedBody)) {
+				output.write(body);
+			}
+
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		} else if (acceptEncoding.contains("deflate")) {
+			try (OutputStream output = new DeflaterOutputStream(compressedBody)) {
+				output.write(body);
+			}
+
+			exchange.getResponseHeaders().set("Content-Encoding", "deflate");
+		} else {
+			return body;
+		}
+
+		compressedAmount.incrementAndGet();
+		return compressedBody.toByteArray();
+	}
+
+	private static boolean isEvery(long requestNumber, int every) {
+		return (every > 0) && ((requestNumber % every) == 0);
+	}
+
+	/************************************************
+	 * Create text body, as the body of BodyEnum.FIXED_SIZE responses.
+	 * 
+	 * Body repeats the same characters, so it is compressed well.
+	 * 
+	 * @param size Body size in bytes.
+	 * @return body.
+	 */
+	public static byte[] createFixedSizeBody(int size) {
+		byte[] body = new byte[size];
+
+		for (int index = 0; index < size; index++) {
+			body[index] = (byte) FIXED_SIZE_BODY_CHARS.charAt(index % FIXED_SIZE_BODY_CHARS.length());
+		}
+
+		return body;
+	}
+
+	/************************************************
+	 * Create binary body that contains all byte values.
+	 * 
+	 * @param size Body size in bytes.
+	 * @param seed Seed, bodies of different seeds are different.
+	 * @return body.
+	 */
+	public static byte[] createBinaryBody(int size, int seed) {
+		byte[] body = new byte[size];
+
+		for (int index = 0; index < size; index++) {
+			body[index] = (byte) ((index * seed) ^ (index >>> 8));
+		}
+
+		return body;
+	}
+
+	private byte[] readRequestBody(HttpExchange exchange) throws IOException {
+		ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+		boolean isGzip = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+
+		if (isGzip) {
+			gzipRequestsAmount.incrementAndGet();
+		}
+
+		try (InputStream input = isGzip ? new GZIPInputStream(exchange.getRequestBody())
+				: exchange.getRequestBody()) {
+			byte[] buffer = new byte[READ_BUFFER_SIZE];
+			int length;
+
+			while ((length = input.read(buffer)) != -1) {
+				requestBody.write(buffer, 0, length);
+			}
+		}
+
+		return requestBody.toByteArray();
+	}
+}
@@ -0,0 +1,95 @@
+package io.github.etuzon.http.tests.server;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.client.HttpClient;
+import io.github.etuzon.http.enums.BodyReadModeEnum;
+import io.github.etuzon.http.objects.HttpObject;
+import io.github.etuzon.http.tests.client.HttpClientTestBase;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+
+/************************************************
+ * Verify that loopback server paces chunked responses by the configured rate,
+ * and injects the configured errors.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class LoopbackServerTest extends HttpClientTestBase {
+	public static final int RESPONSE_SIZE = 64 * 1024;
+	public static final int CHUNK_SIZE = 4 * 1024;
+	public static final long BYTES_PER_SECOND = 256 * 1024;
+	public static final long THINK_TIME_MS = 100;
+	public static final int REQUESTS_AMOUNT = 6;
+
+	@Test
+	public void chunked_rate_and_think_time_test() throws Exception {
+		long minDurationMs = THINK_TIME_MS + ((RESPONSE_SIZE - CHUNK_SIZE) * 1000L / BYTES_PER_SECOND);
+
+		try (LoopbackServer server = new LoopbackServer().setResponseSize(RESPONSE_SIZE)
+				.setThinkTimeMs(THINK_TIME_MS).setChunked(CHUNK_SIZE, BYTES_PER_SECOND).start()) {
+			HttpClient httpClient = initHttpClient(LoopbackServer.URL, server.getPort());
+
+			try {
+				long startNanoTime = System.nanoTime();
+				HttpObject httpObject = httpClient.sendGet("chunked");
+				int bodySize = httpObject.getResponse().getByteBuffer().remaining();
+				long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanoTime);
+
+				SoftAssertUnitTest.assertTrueNow(bodySize == RESPONSE_SIZE,
+						"Response body size is [" + bodySize + "] and should be [" + RESPONSE_SIZE + "]",
+						"Verify that response body size is [" + RESPONSE_SIZE + "]");
+				SoftAssertUnitTest.assertTrueNow(durationMs >= minDurationMs,
+						"Response took [" + durationMs + "] ms and should take at least [" + minDurationMs + "] ms",
+						"Verify that response took at least [" + minDurationMs + "] ms");
+			} finally {
+				httpClient.close();
+			}
+		}
+	}
+
+	@Test
+	public void error_injection_test() throws Exception {
+		try (LoopbackServer server = new LoopbackServer().setErrorEvery(2, 503).setTruncateEvery(3)
+				.setKeepAlive(false).start()) {
+			HttpClient httpClient = initHttpClient(LoopbackServer.URL, server.getPort());
+			httpClient.setBodyReadMode(BodyReadModeEnum.LAZY);
+			int errorsAmount = 0;
+			int truncatedAmount = 0;
+
+			try {
+				for (int index = 0; index < REQUESTS_AMOUNT; index++) {
+					HttpObject httpObject = httpClient.sendGet("error" + index);
+
+					if (httpObject.getResponse().getStatusCode() == 503) {
+						errorsAmount++;
+						httpObject.getResponse().discardBody();
+						continue;
+					}
+
+					try {
+						httpObject.getResponse().getByteBuffer();
+					} catch (UncheckedIOException e) {
+						truncatedAmount++;
+					}
+				}
+			} finally {
+				httpClient.close();
+			}
+
+			SoftAssertUnitTest.assertTrueNow(errorsAmount == 3,
+					"[" + errorsAmount + "] responses had error status code and should be [3]",
+					"Verify that every second response had error status code");
+			SoftAssertUnitTest.assertTrueNow(truncatedAmount == 1,
+					"[" + truncatedAmount + "] responses were truncated and should be [1]",
+					"Verify that every third response that is not error was truncated");
+			SoftAssertUnitTest.assertTrueNow(server.getRequestsAmount() == REQUESTS_AMOUNT,
+					"Server got [" + server.getRequestsAmount() + "] requests and should get [" + REQUESTS_AMOUNT
+							+ "]",
+					"Verify that server got [" + REQUESTS_AMOUNT + "] requests");
+		}
+	}
+}
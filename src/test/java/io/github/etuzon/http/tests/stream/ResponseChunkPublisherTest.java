@@ -0,0 +1,112 @@
+package io.github.etuzon.http.tests.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import io.github.etuzon.http.stream.ResponseChunkPublisher;
+import io.github.etuzon.http.stream.ResponseChunkSubscriber;
+import io.github.etuzon.http.stream.ResponseChunkSubscription;
+import io.github.etuzon.unit.tests.asserts.SoftAssertUnitTest;
+import io.github.etuzon.unit.tests.base.BaseUnitTest;
+
+/************************************************
+ * Verify that response body chunks are delivered by subscriber demand.
+ * 
+ * @author Eyal Tuzon
+ *
+ */
+public class ResponseChunkPublisherTest extends BaseUnitTest {
+	@Test
+	public void deliver_chunks_by_demand_test() throws IOException {
+		RecordingSubscriber subscriber = new RecordingSubscriber(1);
+		ResponseChunkPublisher publisher = new ResponseChunkPublisher(subscriber, () -> {
+		});
+		publisher.subscribe();
+
+		publisher.publish(toByteBuffer("chunk1"));
+		publisher.publish(toByteBuffer("chunk2"));
+		publisher.publish(toByteBuffer("chunk3"));
+		publisher.complete();
+
+		SoftAssertUnitTest.assertTrueNow(subscriber.chunkList.size() == 1,
+				"Subscriber received [" + subscriber.chunkList.size() + "] chunks before it requested more chunks",
+				"Verify that subscriber received only requested chunk");
+		SoftAssertUnitTest.assertTrueNow(subscriber.isCompleted == false,
+				"Subscriber was completed before all chunks were delivered",
+				"Verify that subscriber was not completed before all chunks were delivered");
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+
+		String received = String.join("", subscriber.chunkList);
+		SoftAssertUnitTest.assertTrueNow(received.equals("chunk1chunk2chunk3"),
+				"Subscriber received [" + received + "] and should receive [chunk1chunk2chunk3]",
+				"Verify that subscriber received all chunks by order");
+		SoftAssertUnitTest.assertTrueNow(subscriber.isCompleted, "Subscriber was not completed",
+				"Verify that subscriber was completed");
+	}
+
+	@Test
+	public void cancel_subscription_test() throws IOException {
+		final boolean[] isCancelCallbackCalled = { false };
+		RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+		ResponseChunkPublisher publisher = new ResponseChunkPublisher(subscriber,
+				() -> isCancelCallbackCalled[0] = true);
+		publisher.subscribe();
+
+		publisher.publish(toByteBuffer("chunk1"));
+		subscriber.subscription.cancel();
+		publisher.publish(toByteBuffer("chunk2"));
+		publisher.complete();
+
+		SoftAssertUnitTest.assertTrueNow(subscriber.chunkList.size() == 1,
+				"Subscriber received [" + subscriber.chunkList.size() + "] chunks and should receive 1 chunk",
+				"Verify that chunks are not delivered after cancel");
+		SoftAssertUnitTest.assertTrueNow(isCancelCallbackCalled[0] && (subscriber.isCompleted == false),
+				"Cancel callback was not called or subscriber was completed after cancel",
+				"Verify that cancel callback was called and subscriber was not completed");
+	}
+
+	private static ByteBuffer toByteBuffer(String str) {
+		return ByteBuffer.wrap(str.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/************************************************
+	 * Subscriber that keeps received chunks.
+	 * 
+	 */
+	private static class RecordingSubscriber implements ResponseChunkSubscriber {
+		private final long initialDemand;
+		private final List<String> chunkList = new ArrayList<String>();
+		private ResponseChunkSubscription subscription = null;
+		private boolean isCompleted = false;
+
+		private RecordingSubscriber(long initialDemand) {
+			this.initialDemand = initialDemand;
+		}
+
+		@Override
+		public void onSubscribe(ResponseChunkSubscription subscription) {
+			this.subscription = subscription;
+			subscription.request(initialDemand);
+		}
+
+		@Override
+		public void onNext(ByteBuffer chunk) {
+			chunkList.add(StandardCharsets.US_ASCII.decode(chunk).toString());
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+		}
+
+		@Override
+		public void onComplete() {
+			isCompleted = true;
+		}
+	}
+}